@@ -0,0 +1,58 @@
+#!/usr/bin/env bash
+# Compares request execution on platform threads and on virtual threads under
+# the same booking / slot-query load (see BookingLoadBenchmark).
+#
+# Requires Java 21 and the local MySQL from application.properties. Every mode
+# runs against a fresh database (dis_klinik_bench_<mode>_<timestamp>) seeded
+# with the development doctors, so runs are comparable and repeatable.
+#
+# Tunables: CONCURRENCY (400), WARMUP (10 s), DURATION (30 s), BOOKING_RATIO (0.2),
+# PORT (8092). Results are printed and appended to target/bench-results.txt.
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+CONCURRENCY=${CONCURRENCY:-400}
+WARMUP=${WARMUP:-10}
+DURATION=${DURATION:-30}
+BOOKING_RATIO=${BOOKING_RATIO:-0.2}
+PORT=${PORT:-8092}
+STAMP=$(date +%Y%m%d%H%M%S)
+BASE_URL="http://localhost:${PORT}/api"
+
+mvn -q -B -Pjava21 -DskipTests package
+mvn -q -B -Pjava21 test-compile dependency:build-classpath \
+    -Dmdep.outputFile=target/bench.classpath -Dmdep.includeScope=test
+JAR=$(ls target/klinik-*.jar | grep -v original | head -n 1)
+CLASSPATH="target/test-classes:target/classes:$(cat target/bench.classpath)"
+
+APP_PID=""
+trap '[ -n "$APP_PID" ] && kill "$APP_PID" 2>/dev/null || true' EXIT
+
+for MODE in platform virtual; do
+    VIRTUAL=false
+    [ "$MODE" = virtual ] && VIRTUAL=true
+    DB="dis_klinik_bench_${MODE}_${STAMP}"
+
+    java -jar "$JAR" \
+        --server.port="$PORT" \
+        --spring.threads.virtual.enabled="$VIRTUAL" \
+        --spring.datasource.url="jdbc:mysql://localhost:3306/${DB}?createDatabaseIfNotExist=true&useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC&rewriteBatchedStatements=true" \
+        --spring.jpa.show-sql=false \
+        --logging.level.root=WARN \
+        > "target/bench-${MODE}.log" 2>&1 &
+    APP_PID=$!
+
+    for _ in $(seq 1 120); do
+        curl -sf "${BASE_URL}/doctors/public" > /dev/null && break
+        sleep 1
+    done
+
+    java -cp "$CLASSPATH" com.klinik.bench.BookingLoadBenchmark \
+        --base-url "$BASE_URL" --label "$MODE" --concurrency "$CONCURRENCY" \
+        --warmup-seconds "$WARMUP" --duration-seconds "$DURATION" --booking-ratio "$BOOKING_RATIO" \
+        | tee -a target/bench-results.txt
+
+    kill "$APP_PID"
+    wait "$APP_PID" 2>/dev/null || true
+    APP_PID=""
+done
@@ -0,0 +1,29 @@
+package com.klinik.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * One scheduler for the periodic jobs ({@code @Scheduled}) and the delayed
+ * tasks of all services. A periodic job never overlaps itself; services whose
+ * other tasks must not run side by side serialize them themselves.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+    @Value("${app.scheduler.pool-size:8}")
+    private int poolSize;
+
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("scheduler-");
+        scheduler.setDaemon(true);
+        return scheduler;
+    }
+}
@@ -1,15 +1,26 @@
 package com.klinik.controller;
 
+import com.klinik.dto.AppointmentView;
+import com.klinik.dto.BulkAppointmentResult;
+import com.klinik.dto.ChangeSet;
+import com.klinik.dto.CursorPage;
+import com.klinik.dto.InvoiceView;
+import com.klinik.dto.RescheduleMove;
+import com.klinik.dto.ScheduleProposal;
+import com.klinik.dto.TimeSeriesPoint;
 import com.klinik.model.*;
 import com.klinik.service.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/admin")
@@ -32,6 +43,21 @@ public class AdminController {
     @Autowired
     private ReviewService reviewService;
 
+    @Autowired
+    private BulkAppointmentService bulkAppointmentService;
+
+    @Autowired
+    private ScheduleOptimizerService scheduleOptimizerService;
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
+    @Autowired
+    private StatisticsService statisticsService;
+
+    @Autowired
+    private DoctorScheduleService doctorScheduleService;
+
     // Doctor Management
     @GetMapping("/doctors")
     public ResponseEntity<List<Doctor>> getAllDoctors() {
@@ -52,6 +78,12 @@ public class AdminController {
         }
     }
 
+    // Doctors whose legacy working hours cannot be read and who therefore take no bookings
+    @GetMapping("/doctors/invalid-working-hours")
+    public ResponseEntity<Map<Long, String>> getInvalidWorkingHours() {
+        return ResponseEntity.ok(doctorScheduleService.findInvalidSchedules());
+    }
+
     @DeleteMapping("/doctors/{id}")
     public ResponseEntity<?> deleteDoctor(@PathVariable Long id) {
         try {
@@ -64,9 +96,59 @@ public class AdminController {
 
     // Appointment Management
     @GetMapping("/appointments")
-    public ResponseEntity<List<Appointment>> getAllAppointments() {
-        List<Appointment> appointments = appointmentService.getAllAppointments();
-        return ResponseEntity.ok(appointments);
+    public ResponseEntity<?> getAllAppointments(@RequestParam(required = false) String cursor,
+                                                @RequestParam(required = false) Integer size) {
+        try {
+            CursorPage<AppointmentView> page = appointmentService.getAppointmentPage(null, null, null, cursor, size);
+            return ResponseEntity.ok(page);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/appointments/bulk")
+    public ResponseEntity<?> createAppointmentsBulk(@RequestBody List<Appointment> appointments) {
+        try {
+            List<BulkAppointmentResult> results = bulkAppointmentService.createAppointments(appointments);
+            return ResponseEntity.ok(results);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Proposed reschedules that close short gaps; nothing is changed until applied
+    @GetMapping("/schedule-optimizer")
+    public ResponseEntity<?> proposeReschedules(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        try {
+            ScheduleProposal proposal = scheduleOptimizerService.propose(startDate, endDate);
+            return ResponseEntity.ok(proposal);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/schedule-optimizer/apply")
+    public ResponseEntity<?> applyReschedules(@RequestBody List<RescheduleMove> moves) {
+        try {
+            int applied = scheduleOptimizerService.applyMoves(moves);
+            return ResponseEntity.ok(Map.of("tasinan", applied));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Appointments, invoices and reviews changed since the client's version
+    @GetMapping("/changes")
+    public ResponseEntity<?> getChanges(@RequestParam(defaultValue = "0") long since,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            ChangeSet changes = changeFeedService.getChanges(null, since, limit);
+            return ResponseEntity.ok(changes);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @GetMapping("/appointments/{id}")
@@ -78,8 +160,8 @@ public class AdminController {
 
     // Invoice Management
     @GetMapping("/invoices")
-    public ResponseEntity<List<Invoice>> getAllInvoices() {
-        List<Invoice> invoices = invoiceService.getAllInvoices();
+    public ResponseEntity<List<InvoiceView>> getAllInvoices() {
+        List<InvoiceView> invoices = invoiceService.getAllInvoices();
         return ResponseEntity.ok(invoices);
     }
 
@@ -158,8 +240,8 @@ public class AdminController {
     public ResponseEntity<?> getStatisticsSummary() {
         try {
             long totalDoctors = doctorService.getAllDoctors().size();
-            long totalAppointments = appointmentService.getAllAppointments().size();
-            long totalInvoices = invoiceService.getAllInvoices().size();
+            long totalAppointments = appointmentService.countAppointments();
+            long totalInvoices = invoiceService.countInvoices();
             BigDecimal totalRevenue = invoiceService.getTotalRevenue();
             double averageRating = reviewService.getAverageRating();
 
@@ -171,6 +253,20 @@ public class AdminController {
         }
     }
 
+    @GetMapping("/statistics/timeseries")
+    public ResponseEntity<?> getTimeSeries(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "DAY") StatisticsService.Bucket bucket,
+            @RequestParam(defaultValue = "NONE") StatisticsService.GroupBy groupBy) {
+        try {
+            List<TimeSeriesPoint> series = statisticsService.getTimeSeries(startDate, endDate, bucket, groupBy);
+            return ResponseEntity.ok(series);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     // Inner class for statistics response
     public static class StatisticsSummary {
         private long totalDoctors;
@@ -1,17 +1,43 @@
 package com.klinik.controller;
 
+import com.klinik.dto.AppointmentStatusChange;
+import com.klinik.dto.AppointmentView;
+import com.klinik.dto.ChangeSet;
+import com.klinik.dto.CursorPage;
+import com.klinik.dto.DayCapacity;
+import com.klinik.dto.SlotHoldRequest;
+import com.klinik.dto.StatusChangeResult;
+import com.klinik.exception.AppointmentConflictException;
+import com.klinik.exception.SubscriberLimitException;
 import com.klinik.model.Appointment;
+import com.klinik.service.AppointmentExportService;
 import com.klinik.service.AppointmentService;
+import com.klinik.service.AppointmentStatusService;
+import com.klinik.service.CalendarFeedService;
+import com.klinik.service.ChangeFeedService;
+import com.klinik.service.SlotEventBroadcaster;
+import com.klinik.service.SlotHoldService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import jakarta.validation.Valid;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/appointments")
@@ -21,18 +47,57 @@ public class AppointmentController {
     @Autowired
     private AppointmentService appointmentService;
 
+    @Autowired
+    private AppointmentExportService appointmentExportService;
+
+    @Autowired
+    private SlotEventBroadcaster slotEventBroadcaster;
+
+    @Autowired
+    private SlotHoldService slotHoldService;
+
+    @Autowired
+    private CalendarFeedService calendarFeedService;
+
+    @Autowired
+    private AppointmentStatusService appointmentStatusService;
+
+    @Autowired
+    private ChangeFeedService changeFeedService;
+
     // Public endpoints for patients
     @PostMapping("/public")
-    public ResponseEntity<?> createAppointmentPublic(@Valid @RequestBody Appointment appointment) {
+    public ResponseEntity<?> createAppointmentPublic(@Valid @RequestBody Appointment appointment,
+                                                     @RequestParam(required = false) String holdToken) {
         try {
-            Appointment savedAppointment = appointmentService.createAppointment(appointment);
+            Appointment savedAppointment = appointmentService.createAppointment(appointment, holdToken);
             return ResponseEntity.ok(savedAppointment);
+        } catch (AppointmentConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(
                     e.getMessage() != null ? e.getMessage() : "Randevu oluşturulurken beklenmeyen bir hata oluştu");
         }
     }
 
+    @PostMapping("/public/holds")
+    public ResponseEntity<?> holdSlot(@Valid @RequestBody SlotHoldRequest request, HttpServletRequest httpRequest) {
+        try {
+            return ResponseEntity.ok(slotHoldService.reserve(request.getDoctorId(), request.getTarih(),
+                    request.getSaat(), request.getSure(), httpRequest.getRemoteAddr()));
+        } catch (AppointmentConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/public/holds/{token}")
+    public ResponseEntity<?> releaseHold(@PathVariable String token) {
+        slotHoldService.release(token);
+        return ResponseEntity.ok("Rezervasyon kaldırıldı");
+    }
+
     @ExceptionHandler(org.springframework.web.bind.MethodArgumentNotValidException.class)
     public ResponseEntity<String> handleValidationExceptions(
             org.springframework.web.bind.MethodArgumentNotValidException ex) {
@@ -45,11 +110,11 @@ public class AppointmentController {
     }
 
     @GetMapping("/public/patient")
-    public ResponseEntity<List<Appointment>> getPatientAppointments(
+    public ResponseEntity<List<AppointmentView>> getPatientAppointments(
             @RequestParam String tc,
             @RequestParam String hastaAd,
             @RequestParam String hastaSoyad) {
-        List<Appointment> appointments = appointmentService.getAppointmentsByPatient(tc, hastaAd, hastaSoyad);
+        List<AppointmentView> appointments = appointmentService.getAppointmentsByPatient(tc, hastaAd, hastaSoyad);
         return ResponseEntity.ok(appointments);
     }
 
@@ -61,23 +126,117 @@ public class AppointmentController {
         return ResponseEntity.ok(availableSlots);
     }
 
+    @GetMapping("/public/capacity")
+    public ResponseEntity<?> getDayCapacity(
+            @RequestParam Long doctorId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        try {
+            DayCapacity capacity = appointmentService.getDayCapacity(doctorId, date);
+            return ResponseEntity.ok(capacity);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping(value = "/public/available-slots/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> streamAvailableTimeSlots(
+            @RequestParam Long doctorId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        try {
+            SseEmitter emitter = slotEventBroadcaster.subscribe(doctorId, date,
+                    () -> appointmentService.getAvailableTimeSlots(doctorId, date));
+            return ResponseEntity.ok(emitter);
+        } catch (SubscriberLimitException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Calendar apps cannot log in; the feed is guarded by a per-doctor token instead
+    @GetMapping("/public/calendar/{doctorId}.ics")
+    public ResponseEntity<?> getCalendarFeed(@PathVariable Long doctorId, @RequestParam(required = false) String token) {
+        if (!calendarFeedService.isValidToken(doctorId, token)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Takvim bulunamadı");
+        }
+        try {
+            CalendarFeedService.Rendered feed = calendarFeedService.getFeed(doctorId);
+            // Spring answers 304 itself when If-None-Match matches the ETag
+            return ResponseEntity.ok()
+                    .contentType(new MediaType("text", "calendar", StandardCharsets.UTF_8))
+                    .eTag(feed.getEtag())
+                    .cacheControl(CacheControl.noCache())
+                    .body(feed.getBody());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     // Protected endpoints for doctors
     @GetMapping("/doctor/{doctorId}")
     @PreAuthorize("hasRole('DOCTOR') or hasRole('ADMIN')")
-    public ResponseEntity<List<Appointment>> getDoctorAppointments(@PathVariable Long doctorId) {
-        List<Appointment> appointments = appointmentService.getAppointmentsByDoctor(doctorId);
-        return ResponseEntity.ok(appointments);
+    public ResponseEntity<?> getDoctorAppointments(@PathVariable Long doctorId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        try {
+            CursorPage<AppointmentView> page = appointmentService.getAppointmentPage(doctorId, null, null, cursor, size);
+            return ResponseEntity.ok(page);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/doctor/{doctorId}/calendar-link")
+    @PreAuthorize("hasRole('DOCTOR') or hasRole('ADMIN')")
+    public ResponseEntity<?> getCalendarLink(@PathVariable Long doctorId) {
+        String url = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/appointments/public/calendar/{doctorId}.ics")
+                .queryParam("token", calendarFeedService.feedToken(doctorId))
+                .buildAndExpand(doctorId)
+                .toUriString();
+        return ResponseEntity.ok(Map.of("url", url));
+    }
+
+    // Appointments and invoices of the doctor changed since the client's version
+    @GetMapping("/doctor/{doctorId}/changes")
+    @PreAuthorize("hasRole('DOCTOR') or hasRole('ADMIN')")
+    public ResponseEntity<?> getDoctorChanges(@PathVariable Long doctorId,
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            ChangeSet changes = changeFeedService.getChanges(doctorId, since, limit);
+            return ResponseEntity.ok(changes);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @GetMapping("/doctor/{doctorId}/date-range")
     @PreAuthorize("hasRole('DOCTOR') or hasRole('ADMIN')")
-    public ResponseEntity<List<Appointment>> getDoctorAppointmentsByDateRange(
+    public ResponseEntity<?> getDoctorAppointmentsByDateRange(
             @PathVariable Long doctorId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
-        List<Appointment> appointments = appointmentService.getDoctorAppointmentsByDateRange(doctorId, startDate,
-                endDate);
-        return ResponseEntity.ok(appointments);
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        try {
+            CursorPage<AppointmentView> page = appointmentService.getAppointmentPage(doctorId, startDate, endDate,
+                    cursor, size);
+            return ResponseEntity.ok(page);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PutMapping("/status")
+    @PreAuthorize("hasRole('DOCTOR') or hasRole('ADMIN')")
+    public ResponseEntity<?> changeStatuses(@Valid @RequestBody List<AppointmentStatusChange> changes) {
+        try {
+            List<StatusChangeResult> results = appointmentStatusService.changeStatuses(changes);
+            return ResponseEntity.ok(results);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @PutMapping("/{id}")
@@ -87,6 +246,8 @@ public class AppointmentController {
         try {
             Appointment updatedAppointment = appointmentService.updateAppointment(id, appointmentDetails);
             return ResponseEntity.ok(updatedAppointment);
+        } catch (AppointmentConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(
                     e.getMessage() != null ? e.getMessage() : "Randevu güncellenirken beklenmeyen bir hata oluştu");
@@ -107,17 +268,63 @@ public class AppointmentController {
     // Admin endpoints
     @GetMapping("/all")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<Appointment>> getAllAppointments() {
-        List<Appointment> appointments = appointmentService.getAllAppointments();
-        return ResponseEntity.ok(appointments);
+    public ResponseEntity<?> getAllAppointments(@RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        try {
+            CursorPage<AppointmentView> page = appointmentService.getAppointmentPage(null, null, null, cursor, size);
+            return ResponseEntity.ok(page);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> exportAppointments(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        AppointmentExportService.Format exportFormat;
+        try {
+            exportFormat = AppointmentExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Desteklenmeyen format: " + format);
+        }
+        if (startDate.isAfter(endDate)) {
+            return ResponseEntity.badRequest().body("Başlangıç tarihi bitiş tarihinden sonra olamaz");
+        }
+
+        String extension = exportFormat == AppointmentExportService.Format.CSV ? "csv" : "ndjson";
+        MediaType contentType = exportFormat == AppointmentExportService.Format.CSV
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : new MediaType("application", "x-ndjson", StandardCharsets.UTF_8);
+        String fileName = "randevular_" + startDate + "_" + endDate + "." + extension;
+        if (gzip) {
+            fileName += ".gz";
+            contentType = new MediaType("application", "gzip");
+        }
+
+        StreamingResponseBody body = out -> appointmentExportService.export(startDate, endDate, exportFormat, gzip, out);
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
     }
 
     @GetMapping("/date-range")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<Appointment>> getAppointmentsByDateRange(
+    public ResponseEntity<?> getAppointmentsByDateRange(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
-        List<Appointment> appointments = appointmentService.getAppointmentsByDateRange(startDate, endDate);
-        return ResponseEntity.ok(appointments);
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        try {
+            CursorPage<AppointmentView> page = appointmentService.getAppointmentPage(null, startDate, endDate,
+                    cursor, size);
+            return ResponseEntity.ok(page);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+package com.klinik.controller;
+
+import com.klinik.dto.SeriesPlan;
+import com.klinik.exception.AppointmentConflictException;
+import com.klinik.exception.SeriesConflictException;
+import com.klinik.model.AppointmentSeries;
+import com.klinik.service.AppointmentSeriesService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import jakarta.validation.Valid;
+
+@RestController
+@RequestMapping("/appointments/series")
+@CrossOrigin(origins = "*", maxAge = 3600)
+@PreAuthorize("hasRole('DOCTOR') or hasRole('ADMIN')")
+public class AppointmentSeriesController {
+
+    @Autowired
+    private AppointmentSeriesService appointmentSeriesService;
+
+    @PostMapping("/preview")
+    public ResponseEntity<?> preview(@Valid @RequestBody AppointmentSeries series) {
+        try {
+            return ResponseEntity.ok(appointmentSeriesService.preview(series));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping
+    public ResponseEntity<?> createSeries(@Valid @RequestBody AppointmentSeries series,
+                                          @RequestParam(defaultValue = "false") boolean alternatifleriKullan) {
+        try {
+            SeriesPlan plan = appointmentSeriesService.createSeries(series, alternatifleriKullan);
+            return ResponseEntity.ok(plan);
+        } catch (SeriesConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getPlan());
+        } catch (AppointmentConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+}
@@ -1,30 +1,76 @@
 package com.klinik.controller;
 
+import com.klinik.dto.InvoiceView;
 import com.klinik.model.Invoice;
+import com.klinik.service.InvoicePdfService;
 import com.klinik.service.InvoiceService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/invoices")
 @CrossOrigin(origins = "*", maxAge = 3600)
 public class InvoiceController {
 
+    // Request attributes of Tomcat's sendfile support
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     @Autowired
     private InvoiceService invoiceService;
 
+    @Autowired
+    private InvoicePdfService invoicePdfService;
+
+    // Patient endpoints
+    @GetMapping("/public/{id}/pdf")
+    public void getPatientInvoicePdf(@PathVariable Long id,
+                                     @RequestParam String tc,
+                                     @RequestParam String hastaAd,
+                                     @RequestParam String hastaSoyad,
+                                     HttpServletRequest request,
+                                     HttpServletResponse response) throws IOException {
+        Path pdf;
+        try {
+            pdf = invoicePdfService.getPatientPdf(id, tc, hastaAd, hastaSoyad);
+        } catch (RejectedExecutionException e) {
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, e.getMessage());
+            return;
+        } catch (RuntimeException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        sendPdf(pdf, "fatura-" + id + ".pdf", request, response);
+    }
+
     // Doctor endpoints
     @GetMapping("/doctor/{doctorId}")
     @PreAuthorize("hasRole('DOCTOR') or hasRole('ADMIN')")
-    public ResponseEntity<List<Invoice>> getDoctorInvoices(@PathVariable Long doctorId) {
-        List<Invoice> invoices = invoiceService.getInvoicesByDoctor(doctorId);
+    public ResponseEntity<List<InvoiceView>> getDoctorInvoices(@PathVariable Long doctorId) {
+        List<InvoiceView> invoices = invoiceService.getInvoicesByDoctor(doctorId);
         return ResponseEntity.ok(invoices);
     }
 
@@ -37,19 +83,19 @@ public class InvoiceController {
 
     @GetMapping("/doctor/{doctorId}/date-range")
     @PreAuthorize("hasRole('DOCTOR') or hasRole('ADMIN')")
-    public ResponseEntity<List<Invoice>> getDoctorInvoicesByDateRange(
+    public ResponseEntity<List<InvoiceView>> getDoctorInvoicesByDateRange(
             @PathVariable Long doctorId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
-        List<Invoice> invoices = invoiceService.getDoctorInvoicesByDateRange(doctorId, startDate, endDate);
+        List<InvoiceView> invoices = invoiceService.getDoctorInvoicesByDateRange(doctorId, startDate, endDate);
         return ResponseEntity.ok(invoices);
     }
 
     // Admin endpoints
     @GetMapping("/all")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<Invoice>> getAllInvoices() {
-        List<Invoice> invoices = invoiceService.getAllInvoices();
+    public ResponseEntity<List<InvoiceView>> getAllInvoices() {
+        List<InvoiceView> invoices = invoiceService.getAllInvoices();
         return ResponseEntity.ok(invoices);
     }
 
@@ -61,6 +107,35 @@ public class InvoiceController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @GetMapping("/{id}/pdf")
+    @PreAuthorize("hasRole('DOCTOR') or hasRole('ADMIN')")
+    public void getInvoicePdf(@PathVariable Long id, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        Path pdf;
+        try {
+            pdf = invoicePdfService.getPdf(id);
+        } catch (RejectedExecutionException e) {
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, e.getMessage());
+            return;
+        } catch (RuntimeException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        sendPdf(pdf, "fatura-" + id + ".pdf", request, response);
+    }
+
+    // PDFs of a month's invoices as a ZIP, streamed while the PDFs are rendered
+    @GetMapping("/pdf")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> getMonthInvoicePdfs(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth month) {
+        StreamingResponseBody body = out -> invoicePdfService.writeMonthZip(month, out);
+        return ResponseEntity.ok()
+                .contentType(new MediaType("application", "zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"faturalar_" + month + ".zip\"")
+                .body(body);
+    }
+
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Invoice> updateInvoice(@PathVariable Long id, @RequestBody Invoice invoiceDetails) {
@@ -82,4 +157,30 @@ public class InvoiceController {
             return ResponseEntity.notFound().build();
         }
     }
+
+    /**
+     * Writes the file as the response body. Tomcat sends it with sendfile, so
+     * the bytes go from the page cache to the socket without passing through
+     * the JVM; other containers get a channel transfer.
+     */
+    private static void sendPdf(Path file, String fileName, HttpServletRequest request,
+                                HttpServletResponse response) throws IOException {
+        long size = Files.size(file);
+        response.setContentType(MediaType.APPLICATION_PDF_VALUE);
+        response.setContentLengthLong(size);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + fileName + "\"");
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, size);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, target);
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.klinik.controller;
+
+import com.klinik.exception.AppointmentConflictException;
+import com.klinik.model.Appointment;
+import com.klinik.model.WaitlistEntry;
+import com.klinik.service.WaitlistService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import jakarta.validation.Valid;
+import java.util.List;
+
+@RestController
+@RequestMapping("/waitlist")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class WaitlistController {
+
+    @Autowired
+    private WaitlistService waitlistService;
+
+    // Public endpoints for patients
+    @PostMapping("/public")
+    public ResponseEntity<?> register(@Valid @RequestBody WaitlistEntry entry) {
+        try {
+            return ResponseEntity.ok(waitlistService.register(entry));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/public/{id}")
+    public ResponseEntity<?> cancel(@PathVariable Long id, @RequestParam String tc) {
+        try {
+            waitlistService.cancel(id, tc);
+            return ResponseEntity.ok("Bekleme listesi kaydınız iptal edildi");
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/public/offers/{token}/accept")
+    public ResponseEntity<?> acceptOffer(@PathVariable String token) {
+        try {
+            Appointment appointment = waitlistService.acceptOffer(token);
+            return ResponseEntity.ok(appointment);
+        } catch (AppointmentConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/public/offers/{token}/decline")
+    public ResponseEntity<?> declineOffer(@PathVariable String token) {
+        try {
+            waitlistService.declineOffer(token);
+            return ResponseEntity.ok("Teklif reddedildi, bekleme listesinde kalmaya devam ediyorsunuz");
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Admin endpoints
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<WaitlistEntry>> getAllEntries() {
+        return ResponseEntity.ok(waitlistService.getAllEntries());
+    }
+}
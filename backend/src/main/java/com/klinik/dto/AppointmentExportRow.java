@@ -0,0 +1,96 @@
+package com.klinik.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.klinik.model.Appointment.AppointmentStatus;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Flat, unmanaged appointment row used by the streaming export.
+ */
+public class AppointmentExportRow {
+    
+    private final Long id;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private final LocalDate tarih;
+    
+    @JsonFormat(pattern = "HH:mm")
+    private final LocalTime saat;
+    
+    private final Long doctorId;
+    private final String doktorAd;
+    private final String doktorSoyad;
+    private final String hastaAd;
+    private final String hastaSoyad;
+    private final String tc;
+    private final String telefon;
+    private final String bolum;
+    private final AppointmentStatus status;
+    
+    public AppointmentExportRow(Long id, LocalDate tarih, LocalTime saat, Long doctorId, String doktorAd,
+                                String doktorSoyad, String hastaAd, String hastaSoyad, String tc, String telefon,
+                                String bolum, AppointmentStatus status) {
+        this.id = id;
+        this.tarih = tarih;
+        this.saat = saat;
+        this.doctorId = doctorId;
+        this.doktorAd = doktorAd;
+        this.doktorSoyad = doktorSoyad;
+        this.hastaAd = hastaAd;
+        this.hastaSoyad = hastaSoyad;
+        this.tc = tc;
+        this.telefon = telefon;
+        this.bolum = bolum;
+        this.status = status;
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public LocalDate getTarih() {
+        return tarih;
+    }
+    
+    public LocalTime getSaat() {
+        return saat;
+    }
+    
+    public Long getDoctorId() {
+        return doctorId;
+    }
+    
+    public String getDoktorAd() {
+        return doktorAd;
+    }
+    
+    public String getDoktorSoyad() {
+        return doktorSoyad;
+    }
+    
+    public String getHastaAd() {
+        return hastaAd;
+    }
+    
+    public String getHastaSoyad() {
+        return hastaSoyad;
+    }
+    
+    public String getTc() {
+        return tc;
+    }
+    
+    public String getTelefon() {
+        return telefon;
+    }
+    
+    public String getBolum() {
+        return bolum;
+    }
+    
+    public AppointmentStatus getStatus() {
+        return status;
+    }
+}
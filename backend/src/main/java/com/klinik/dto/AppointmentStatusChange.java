@@ -0,0 +1,36 @@
+package com.klinik.dto;
+
+import com.klinik.model.Appointment.AppointmentStatus;
+import jakarta.validation.constraints.NotNull;
+
+public class AppointmentStatusChange {
+    
+    @NotNull(message = "Randevu seçilmeli")
+    private Long id;
+    
+    @NotNull(message = "Durum seçilmeli")
+    private AppointmentStatus status;
+    
+    public AppointmentStatusChange() {}
+    
+    public AppointmentStatusChange(Long id, AppointmentStatus status) {
+        this.id = id;
+        this.status = status;
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public AppointmentStatus getStatus() {
+        return status;
+    }
+    
+    public void setStatus(AppointmentStatus status) {
+        this.status = status;
+    }
+}
@@ -0,0 +1,130 @@
+package com.klinik.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.klinik.model.Appointment;
+import com.klinik.model.Appointment.AppointmentStatus;
+import com.klinik.model.Invoice;
+import com.klinik.model.Invoice.InvoiceStatus;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Read-side appointment row for list endpoints, with the doctor and invoice
+ * flattened in. Built by constructor-expression queries, so serializing it
+ * never touches a lazy association.
+ */
+public class AppointmentView {
+    
+    private final Long id;
+    private final String hastaAd;
+    private final String hastaSoyad;
+    private final String tc;
+    private final String telefon;
+    private final String email;
+    private final Long doctorId;
+    private final String doktorAd;
+    private final String doktorSoyad;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private final LocalDate tarih;
+    
+    @JsonFormat(pattern = "HH:mm")
+    private final LocalTime saat;
+    
+    private final String bolum;
+    private final AppointmentStatus status;
+    private final Long invoiceId;
+    private final InvoiceStatus invoiceStatus;
+    
+    public AppointmentView(Long id, String hastaAd, String hastaSoyad, String tc, String telefon, String email,
+                           Long doctorId, String doktorAd, String doktorSoyad, LocalDate tarih, LocalTime saat,
+                           String bolum, AppointmentStatus status, Long invoiceId, InvoiceStatus invoiceStatus) {
+        this.id = id;
+        this.hastaAd = hastaAd;
+        this.hastaSoyad = hastaSoyad;
+        this.tc = tc;
+        this.telefon = telefon;
+        this.email = email;
+        this.doctorId = doctorId;
+        this.doktorAd = doktorAd;
+        this.doktorSoyad = doktorSoyad;
+        this.tarih = tarih;
+        this.saat = saat;
+        this.bolum = bolum;
+        this.status = status;
+        this.invoiceId = invoiceId;
+        this.invoiceStatus = invoiceStatus;
+    }
+    
+    /**
+     * View of an appointment whose doctor and invoice are already loaded.
+     */
+    public static AppointmentView of(Appointment a) {
+        Invoice invoice = a.getInvoice();
+        return new AppointmentView(a.getId(), a.getHastaAd(), a.getHastaSoyad(), a.getTc(), a.getTelefon(),
+                a.getEmail(), a.getDoctor().getId(), a.getDoctor().getAd(), a.getDoctor().getSoyad(), a.getTarih(),
+                a.getSaat(), a.getBolum(), a.getStatus(), invoice != null ? invoice.getId() : null,
+                invoice != null ? invoice.getStatus() : null);
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public String getHastaAd() {
+        return hastaAd;
+    }
+    
+    public String getHastaSoyad() {
+        return hastaSoyad;
+    }
+    
+    public String getTc() {
+        return tc;
+    }
+    
+    public String getTelefon() {
+        return telefon;
+    }
+    
+    public String getEmail() {
+        return email;
+    }
+    
+    public Long getDoctorId() {
+        return doctorId;
+    }
+    
+    public String getDoktorAd() {
+        return doktorAd;
+    }
+    
+    public String getDoktorSoyad() {
+        return doktorSoyad;
+    }
+    
+    public LocalDate getTarih() {
+        return tarih;
+    }
+    
+    public LocalTime getSaat() {
+        return saat;
+    }
+    
+    public String getBolum() {
+        return bolum;
+    }
+    
+    public AppointmentStatus getStatus() {
+        return status;
+    }
+    
+    public Long getInvoiceId() {
+        return invoiceId;
+    }
+    
+    public InvoiceStatus getInvoiceStatus() {
+        return invoiceStatus;
+    }
+}
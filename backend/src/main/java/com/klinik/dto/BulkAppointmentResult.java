@@ -0,0 +1,58 @@
+package com.klinik.dto;
+
+public class BulkAppointmentResult {
+    
+    private int index;
+    private boolean success;
+    private Long appointmentId;
+    private String error;
+    
+    public BulkAppointmentResult() {}
+    
+    public BulkAppointmentResult(int index, boolean success, Long appointmentId, String error) {
+        this.index = index;
+        this.success = success;
+        this.appointmentId = appointmentId;
+        this.error = error;
+    }
+    
+    public static BulkAppointmentResult success(int index, Long appointmentId) {
+        return new BulkAppointmentResult(index, true, appointmentId, null);
+    }
+    
+    public static BulkAppointmentResult failure(int index, String error) {
+        return new BulkAppointmentResult(index, false, null, error);
+    }
+    
+    public int getIndex() {
+        return index;
+    }
+    
+    public void setIndex(int index) {
+        this.index = index;
+    }
+    
+    public boolean isSuccess() {
+        return success;
+    }
+    
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+    
+    public Long getAppointmentId() {
+        return appointmentId;
+    }
+    
+    public void setAppointmentId(Long appointmentId) {
+        this.appointmentId = appointmentId;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public void setError(String error) {
+        this.error = error;
+    }
+}
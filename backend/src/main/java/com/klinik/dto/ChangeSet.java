@@ -0,0 +1,96 @@
+package com.klinik.dto;
+
+import com.klinik.model.Review;
+
+import java.util.List;
+
+/**
+ * Rows changed since the client's version, in their current state, plus
+ * tombstones for deleted ones. The client passes {@code surum} back on the next
+ * call. With {@code tamYenileme} set the client's version is too old for the
+ * change log; it reloads the full lists and continues from {@code surum}.
+ */
+public class ChangeSet {
+    
+    private long surum;
+    private boolean devamVar;
+    private boolean tamYenileme;
+    private List<AppointmentView> appointments;
+    private List<InvoiceView> invoices;
+    private List<Review> reviews;
+    private List<DeletedRecord> silinenler;
+    
+    public ChangeSet() {}
+    
+    public ChangeSet(long surum, boolean devamVar, List<AppointmentView> appointments, List<InvoiceView> invoices,
+                     List<Review> reviews, List<DeletedRecord> silinenler) {
+        this.surum = surum;
+        this.devamVar = devamVar;
+        this.appointments = appointments;
+        this.invoices = invoices;
+        this.reviews = reviews;
+        this.silinenler = silinenler;
+    }
+    
+    public static ChangeSet reload(long surum) {
+        ChangeSet changeSet = new ChangeSet(surum, false, List.of(), List.of(), List.of(), List.of());
+        changeSet.setTamYenileme(true);
+        return changeSet;
+    }
+    
+    public long getSurum() {
+        return surum;
+    }
+    
+    public void setSurum(long surum) {
+        this.surum = surum;
+    }
+    
+    public boolean isDevamVar() {
+        return devamVar;
+    }
+    
+    public void setDevamVar(boolean devamVar) {
+        this.devamVar = devamVar;
+    }
+    
+    public boolean isTamYenileme() {
+        return tamYenileme;
+    }
+    
+    public void setTamYenileme(boolean tamYenileme) {
+        this.tamYenileme = tamYenileme;
+    }
+    
+    public List<AppointmentView> getAppointments() {
+        return appointments;
+    }
+    
+    public void setAppointments(List<AppointmentView> appointments) {
+        this.appointments = appointments;
+    }
+    
+    public List<InvoiceView> getInvoices() {
+        return invoices;
+    }
+    
+    public void setInvoices(List<InvoiceView> invoices) {
+        this.invoices = invoices;
+    }
+    
+    public List<Review> getReviews() {
+        return reviews;
+    }
+    
+    public void setReviews(List<Review> reviews) {
+        this.reviews = reviews;
+    }
+    
+    public List<DeletedRecord> getSilinenler() {
+        return silinenler;
+    }
+    
+    public void setSilinenler(List<DeletedRecord> silinenler) {
+        this.silinenler = silinenler;
+    }
+}
@@ -0,0 +1,84 @@
+package com.klinik.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Capacity of a doctor's day: chairs per slot, totals over the working hours
+ * and the occupancy of every slot.
+ */
+public class DayCapacity {
+    
+    private Long doctorId;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate tarih;
+    
+    private int koltukSayisi;
+    private int dolu;
+    private int kalan;
+    private List<SlotCapacity> slots;
+    
+    public DayCapacity() {}
+    
+    public DayCapacity(Long doctorId, LocalDate tarih, int koltukSayisi, List<SlotCapacity> slots) {
+        this.doctorId = doctorId;
+        this.tarih = tarih;
+        this.koltukSayisi = koltukSayisi;
+        this.slots = slots;
+        for (SlotCapacity slot : slots) {
+            this.dolu += slot.getDolu();
+            this.kalan += slot.getKalan();
+        }
+    }
+    
+    public Long getDoctorId() {
+        return doctorId;
+    }
+    
+    public void setDoctorId(Long doctorId) {
+        this.doctorId = doctorId;
+    }
+    
+    public LocalDate getTarih() {
+        return tarih;
+    }
+    
+    public void setTarih(LocalDate tarih) {
+        this.tarih = tarih;
+    }
+    
+    public int getKoltukSayisi() {
+        return koltukSayisi;
+    }
+    
+    public void setKoltukSayisi(int koltukSayisi) {
+        this.koltukSayisi = koltukSayisi;
+    }
+    
+    public int getDolu() {
+        return dolu;
+    }
+    
+    public void setDolu(int dolu) {
+        this.dolu = dolu;
+    }
+    
+    public int getKalan() {
+        return kalan;
+    }
+    
+    public void setKalan(int kalan) {
+        this.kalan = kalan;
+    }
+    
+    public List<SlotCapacity> getSlots() {
+        return slots;
+    }
+    
+    public void setSlots(List<SlotCapacity> slots) {
+        this.slots = slots;
+    }
+}
@@ -0,0 +1,34 @@
+package com.klinik.dto;
+
+/**
+ * Tombstone in a change set: the row was deleted since the client's version.
+ * {@code tur} is APPOINTMENT, INVOICE or REVIEW.
+ */
+public class DeletedRecord {
+    
+    private String tur;
+    private Long id;
+    
+    public DeletedRecord() {}
+    
+    public DeletedRecord(String tur, Long id) {
+        this.tur = tur;
+        this.id = id;
+    }
+    
+    public String getTur() {
+        return tur;
+    }
+    
+    public void setTur(String tur) {
+        this.tur = tur;
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+}
@@ -0,0 +1,108 @@
+package com.klinik.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.klinik.model.Invoice.InvoiceStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Read-side invoice row for list endpoints, with the appointment and doctor
+ * flattened in.
+ */
+public class InvoiceView {
+    
+    private final Long id;
+    private final BigDecimal tutar;
+    private final String aciklama;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private final LocalDateTime tarih;
+    
+    private final InvoiceStatus status;
+    private final Long appointmentId;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private final LocalDate randevuTarihi;
+    
+    @JsonFormat(pattern = "HH:mm")
+    private final LocalTime randevuSaati;
+    
+    private final String hastaAd;
+    private final String hastaSoyad;
+    private final Long doctorId;
+    private final String doktorAd;
+    private final String doktorSoyad;
+    
+    public InvoiceView(Long id, BigDecimal tutar, String aciklama, LocalDateTime tarih, InvoiceStatus status,
+                       Long appointmentId, LocalDate randevuTarihi, LocalTime randevuSaati, String hastaAd,
+                       String hastaSoyad, Long doctorId, String doktorAd, String doktorSoyad) {
+        this.id = id;
+        this.tutar = tutar;
+        this.aciklama = aciklama;
+        this.tarih = tarih;
+        this.status = status;
+        this.appointmentId = appointmentId;
+        this.randevuTarihi = randevuTarihi;
+        this.randevuSaati = randevuSaati;
+        this.hastaAd = hastaAd;
+        this.hastaSoyad = hastaSoyad;
+        this.doctorId = doctorId;
+        this.doktorAd = doktorAd;
+        this.doktorSoyad = doktorSoyad;
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public BigDecimal getTutar() {
+        return tutar;
+    }
+    
+    public String getAciklama() {
+        return aciklama;
+    }
+    
+    public LocalDateTime getTarih() {
+        return tarih;
+    }
+    
+    public InvoiceStatus getStatus() {
+        return status;
+    }
+    
+    public Long getAppointmentId() {
+        return appointmentId;
+    }
+    
+    public LocalDate getRandevuTarihi() {
+        return randevuTarihi;
+    }
+    
+    public LocalTime getRandevuSaati() {
+        return randevuSaati;
+    }
+    
+    public String getHastaAd() {
+        return hastaAd;
+    }
+    
+    public String getHastaSoyad() {
+        return hastaSoyad;
+    }
+    
+    public Long getDoctorId() {
+        return doctorId;
+    }
+    
+    public String getDoktorAd() {
+        return doktorAd;
+    }
+    
+    public String getDoktorSoyad() {
+        return doktorSoyad;
+    }
+}
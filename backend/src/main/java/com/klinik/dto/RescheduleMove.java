@@ -0,0 +1,98 @@
+package com.klinik.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * One step of a schedule compaction: the appointment moves from its current
+ * time and chair to another one on the same day with the same doctor.
+ */
+public class RescheduleMove {
+    
+    private Long appointmentId;
+    private Long doctorId;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate tarih;
+    
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime eskiSaat;
+    
+    private int eskiKoltuk;
+    
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime yeniSaat;
+    
+    private int yeniKoltuk;
+    
+    public RescheduleMove() {}
+    
+    public RescheduleMove(Long appointmentId, Long doctorId, LocalDate tarih, LocalTime eskiSaat, int eskiKoltuk,
+                          LocalTime yeniSaat, int yeniKoltuk) {
+        this.appointmentId = appointmentId;
+        this.doctorId = doctorId;
+        this.tarih = tarih;
+        this.eskiSaat = eskiSaat;
+        this.eskiKoltuk = eskiKoltuk;
+        this.yeniSaat = yeniSaat;
+        this.yeniKoltuk = yeniKoltuk;
+    }
+    
+    public Long getAppointmentId() {
+        return appointmentId;
+    }
+    
+    public void setAppointmentId(Long appointmentId) {
+        this.appointmentId = appointmentId;
+    }
+    
+    public Long getDoctorId() {
+        return doctorId;
+    }
+    
+    public void setDoctorId(Long doctorId) {
+        this.doctorId = doctorId;
+    }
+    
+    public LocalDate getTarih() {
+        return tarih;
+    }
+    
+    public void setTarih(LocalDate tarih) {
+        this.tarih = tarih;
+    }
+    
+    public LocalTime getEskiSaat() {
+        return eskiSaat;
+    }
+    
+    public void setEskiSaat(LocalTime eskiSaat) {
+        this.eskiSaat = eskiSaat;
+    }
+    
+    public int getEskiKoltuk() {
+        return eskiKoltuk;
+    }
+    
+    public void setEskiKoltuk(int eskiKoltuk) {
+        this.eskiKoltuk = eskiKoltuk;
+    }
+    
+    public LocalTime getYeniSaat() {
+        return yeniSaat;
+    }
+    
+    public void setYeniSaat(LocalTime yeniSaat) {
+        this.yeniSaat = yeniSaat;
+    }
+    
+    public int getYeniKoltuk() {
+        return yeniKoltuk;
+    }
+    
+    public void setYeniKoltuk(int yeniKoltuk) {
+        this.yeniKoltuk = yeniKoltuk;
+    }
+}
@@ -0,0 +1,88 @@
+package com.klinik.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Result of a compaction run over a date range. The moves are meant to be
+ * applied in the given order; {@code tamamlandi} is false when the time budget
+ * ran out before every day was searched.
+ */
+public class ScheduleProposal {
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate baslangic;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate bitis;
+    
+    private List<RescheduleMove> moves;
+    
+    // Free runs shorter than the minimum gap, before and after the moves
+    private int kisaBoslukOncesi;
+    private int kisaBoslukSonrasi;
+    
+    private boolean tamamlandi;
+    
+    public ScheduleProposal() {}
+    
+    public ScheduleProposal(LocalDate baslangic, LocalDate bitis, List<RescheduleMove> moves,
+                            int kisaBoslukOncesi, int kisaBoslukSonrasi, boolean tamamlandi) {
+        this.baslangic = baslangic;
+        this.bitis = bitis;
+        this.moves = moves;
+        this.kisaBoslukOncesi = kisaBoslukOncesi;
+        this.kisaBoslukSonrasi = kisaBoslukSonrasi;
+        this.tamamlandi = tamamlandi;
+    }
+    
+    public LocalDate getBaslangic() {
+        return baslangic;
+    }
+    
+    public void setBaslangic(LocalDate baslangic) {
+        this.baslangic = baslangic;
+    }
+    
+    public LocalDate getBitis() {
+        return bitis;
+    }
+    
+    public void setBitis(LocalDate bitis) {
+        this.bitis = bitis;
+    }
+    
+    public List<RescheduleMove> getMoves() {
+        return moves;
+    }
+    
+    public void setMoves(List<RescheduleMove> moves) {
+        this.moves = moves;
+    }
+    
+    public int getKisaBoslukOncesi() {
+        return kisaBoslukOncesi;
+    }
+    
+    public void setKisaBoslukOncesi(int kisaBoslukOncesi) {
+        this.kisaBoslukOncesi = kisaBoslukOncesi;
+    }
+    
+    public int getKisaBoslukSonrasi() {
+        return kisaBoslukSonrasi;
+    }
+    
+    public void setKisaBoslukSonrasi(int kisaBoslukSonrasi) {
+        this.kisaBoslukSonrasi = kisaBoslukSonrasi;
+    }
+    
+    public boolean isTamamlandi() {
+        return tamamlandi;
+    }
+    
+    public void setTamamlandi(boolean tamamlandi) {
+        this.tamamlandi = tamamlandi;
+    }
+}
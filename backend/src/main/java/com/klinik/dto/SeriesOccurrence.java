@@ -0,0 +1,94 @@
+package com.klinik.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+public class SeriesOccurrence {
+    
+    public enum Durum {
+        UYGUN, CAKISMA
+    }
+    
+    private int sira;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate tarih;
+    
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime saat;
+    
+    private Durum durum;
+    
+    // Proposed replacement for a clashing occurrence, if one was found
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate alternatifTarih;
+    
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime alternatifSaat;
+    
+    public SeriesOccurrence() {}
+    
+    public SeriesOccurrence(int sira, LocalDate tarih, LocalTime saat, Durum durum,
+                            LocalDate alternatifTarih, LocalTime alternatifSaat) {
+        this.sira = sira;
+        this.tarih = tarih;
+        this.saat = saat;
+        this.durum = durum;
+        this.alternatifTarih = alternatifTarih;
+        this.alternatifSaat = alternatifSaat;
+    }
+    
+    public boolean hasAlternative() {
+        return alternatifTarih != null;
+    }
+    
+    public int getSira() {
+        return sira;
+    }
+    
+    public void setSira(int sira) {
+        this.sira = sira;
+    }
+    
+    public LocalDate getTarih() {
+        return tarih;
+    }
+    
+    public void setTarih(LocalDate tarih) {
+        this.tarih = tarih;
+    }
+    
+    public LocalTime getSaat() {
+        return saat;
+    }
+    
+    public void setSaat(LocalTime saat) {
+        this.saat = saat;
+    }
+    
+    public Durum getDurum() {
+        return durum;
+    }
+    
+    public void setDurum(Durum durum) {
+        this.durum = durum;
+    }
+    
+    public LocalDate getAlternatifTarih() {
+        return alternatifTarih;
+    }
+    
+    public void setAlternatifTarih(LocalDate alternatifTarih) {
+        this.alternatifTarih = alternatifTarih;
+    }
+    
+    public LocalTime getAlternatifSaat() {
+        return alternatifSaat;
+    }
+    
+    public void setAlternatifSaat(LocalTime alternatifSaat) {
+        this.alternatifSaat = alternatifSaat;
+    }
+}
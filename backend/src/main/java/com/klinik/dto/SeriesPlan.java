@@ -0,0 +1,38 @@
+package com.klinik.dto;
+
+import java.util.List;
+
+public class SeriesPlan {
+    
+    // Set once the series has been saved
+    private Long seriesId;
+    
+    private List<SeriesOccurrence> occurrences;
+    
+    public SeriesPlan() {}
+    
+    public SeriesPlan(Long seriesId, List<SeriesOccurrence> occurrences) {
+        this.seriesId = seriesId;
+        this.occurrences = occurrences;
+    }
+    
+    public long getConflictCount() {
+        return occurrences.stream().filter(o -> o.getDurum() == SeriesOccurrence.Durum.CAKISMA).count();
+    }
+    
+    public Long getSeriesId() {
+        return seriesId;
+    }
+    
+    public void setSeriesId(Long seriesId) {
+        this.seriesId = seriesId;
+    }
+    
+    public List<SeriesOccurrence> getOccurrences() {
+        return occurrences;
+    }
+    
+    public void setOccurrences(List<SeriesOccurrence> occurrences) {
+        this.occurrences = occurrences;
+    }
+}
@@ -0,0 +1,50 @@
+package com.klinik.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalTime;
+
+/**
+ * Occupancy of one slot: chairs booked and chairs still bookable. Held chairs
+ * count as neither.
+ */
+public class SlotCapacity {
+    
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime saat;
+    
+    private int dolu;
+    private int kalan;
+    
+    public SlotCapacity() {}
+    
+    public SlotCapacity(LocalTime saat, int dolu, int kalan) {
+        this.saat = saat;
+        this.dolu = dolu;
+        this.kalan = kalan;
+    }
+    
+    public LocalTime getSaat() {
+        return saat;
+    }
+    
+    public void setSaat(LocalTime saat) {
+        this.saat = saat;
+    }
+    
+    public int getDolu() {
+        return dolu;
+    }
+    
+    public void setDolu(int dolu) {
+        this.dolu = dolu;
+    }
+    
+    public int getKalan() {
+        return kalan;
+    }
+    
+    public void setKalan(int kalan) {
+        this.kalan = kalan;
+    }
+}
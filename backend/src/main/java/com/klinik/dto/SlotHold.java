@@ -0,0 +1,75 @@
+package com.klinik.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * A slot reserved for a short time. The token is passed along with the
+ * booking to confirm it.
+ */
+public class SlotHold {
+    
+    private String token;
+    private Long doctorId;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate tarih;
+    
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime saat;
+    
+    private LocalDateTime bitis;
+    
+    public SlotHold() {}
+    
+    public SlotHold(String token, Long doctorId, LocalDate tarih, LocalTime saat, LocalDateTime bitis) {
+        this.token = token;
+        this.doctorId = doctorId;
+        this.tarih = tarih;
+        this.saat = saat;
+        this.bitis = bitis;
+    }
+    
+    public String getToken() {
+        return token;
+    }
+    
+    public void setToken(String token) {
+        this.token = token;
+    }
+    
+    public Long getDoctorId() {
+        return doctorId;
+    }
+    
+    public void setDoctorId(Long doctorId) {
+        this.doctorId = doctorId;
+    }
+    
+    public LocalDate getTarih() {
+        return tarih;
+    }
+    
+    public void setTarih(LocalDate tarih) {
+        this.tarih = tarih;
+    }
+    
+    public LocalTime getSaat() {
+        return saat;
+    }
+    
+    public void setSaat(LocalTime saat) {
+        this.saat = saat;
+    }
+    
+    public LocalDateTime getBitis() {
+        return bitis;
+    }
+    
+    public void setBitis(LocalDateTime bitis) {
+        this.bitis = bitis;
+    }
+}
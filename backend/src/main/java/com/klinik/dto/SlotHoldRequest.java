@@ -0,0 +1,58 @@
+package com.klinik.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+public class SlotHoldRequest {
+    
+    @NotNull(message = "Doktor seçimi yapılmalıdır")
+    private Long doctorId;
+    
+    @NotNull(message = "Tarih boş olamaz")
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate tarih;
+    
+    @NotNull(message = "Saat boş olamaz")
+    @JsonFormat(pattern = "HH:mm")
+    private LocalTime saat;
+    
+    // Seconds; the configured default if not given
+    private Integer sure;
+    
+    public SlotHoldRequest() {}
+    
+    public Long getDoctorId() {
+        return doctorId;
+    }
+    
+    public void setDoctorId(Long doctorId) {
+        this.doctorId = doctorId;
+    }
+    
+    public LocalDate getTarih() {
+        return tarih;
+    }
+    
+    public void setTarih(LocalDate tarih) {
+        this.tarih = tarih;
+    }
+    
+    public LocalTime getSaat() {
+        return saat;
+    }
+    
+    public void setSaat(LocalTime saat) {
+        this.saat = saat;
+    }
+    
+    public Integer getSure() {
+        return sure;
+    }
+    
+    public void setSure(Integer sure) {
+        this.sure = sure;
+    }
+}
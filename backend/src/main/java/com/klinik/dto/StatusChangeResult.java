@@ -0,0 +1,48 @@
+package com.klinik.dto;
+
+public class StatusChangeResult {
+    
+    private Long appointmentId;
+    private boolean success;
+    private String error;
+    
+    public StatusChangeResult() {}
+    
+    public StatusChangeResult(Long appointmentId, boolean success, String error) {
+        this.appointmentId = appointmentId;
+        this.success = success;
+        this.error = error;
+    }
+    
+    public static StatusChangeResult success(Long appointmentId) {
+        return new StatusChangeResult(appointmentId, true, null);
+    }
+    
+    public static StatusChangeResult failure(Long appointmentId, String error) {
+        return new StatusChangeResult(appointmentId, false, error);
+    }
+    
+    public Long getAppointmentId() {
+        return appointmentId;
+    }
+    
+    public void setAppointmentId(Long appointmentId) {
+        this.appointmentId = appointmentId;
+    }
+    
+    public boolean isSuccess() {
+        return success;
+    }
+    
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public void setError(String error) {
+        this.error = error;
+    }
+}
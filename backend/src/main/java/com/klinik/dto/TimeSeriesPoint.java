@@ -0,0 +1,105 @@
+package com.klinik.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One bucket of the statistics time series: appointments (by appointment day)
+ * and paid revenue (by invoice day) between baslangic and bitis, overall or
+ * for one doctor or one bolum.
+ */
+public class TimeSeriesPoint {
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate baslangic;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate bitis;
+    
+    private Long doktorId;
+    private String bolum;
+    private long randevuSayisi;
+    private long iptalSayisi;
+    private double iptalOrani;
+    private BigDecimal gelir;
+    
+    public TimeSeriesPoint() {}
+    
+    public TimeSeriesPoint(LocalDate baslangic, LocalDate bitis, Long doktorId, String bolum,
+                           long randevuSayisi, long iptalSayisi, BigDecimal gelir) {
+        this.baslangic = baslangic;
+        this.bitis = bitis;
+        this.doktorId = doktorId;
+        this.bolum = bolum;
+        this.randevuSayisi = randevuSayisi;
+        this.iptalSayisi = iptalSayisi;
+        this.iptalOrani = randevuSayisi > 0 ? (double) iptalSayisi / randevuSayisi : 0.0;
+        this.gelir = gelir;
+    }
+    
+    public LocalDate getBaslangic() {
+        return baslangic;
+    }
+    
+    public void setBaslangic(LocalDate baslangic) {
+        this.baslangic = baslangic;
+    }
+    
+    public LocalDate getBitis() {
+        return bitis;
+    }
+    
+    public void setBitis(LocalDate bitis) {
+        this.bitis = bitis;
+    }
+    
+    public Long getDoktorId() {
+        return doktorId;
+    }
+    
+    public void setDoktorId(Long doktorId) {
+        this.doktorId = doktorId;
+    }
+    
+    public String getBolum() {
+        return bolum;
+    }
+    
+    public void setBolum(String bolum) {
+        this.bolum = bolum;
+    }
+    
+    public long getRandevuSayisi() {
+        return randevuSayisi;
+    }
+    
+    public void setRandevuSayisi(long randevuSayisi) {
+        this.randevuSayisi = randevuSayisi;
+    }
+    
+    public long getIptalSayisi() {
+        return iptalSayisi;
+    }
+    
+    public void setIptalSayisi(long iptalSayisi) {
+        this.iptalSayisi = iptalSayisi;
+    }
+    
+    public double getIptalOrani() {
+        return iptalOrani;
+    }
+    
+    public void setIptalOrani(double iptalOrani) {
+        this.iptalOrani = iptalOrani;
+    }
+    
+    public BigDecimal getGelir() {
+        return gelir;
+    }
+    
+    public void setGelir(BigDecimal gelir) {
+        this.gelir = gelir;
+    }
+}
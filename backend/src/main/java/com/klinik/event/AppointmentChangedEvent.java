@@ -0,0 +1,26 @@
+package com.klinik.event;
+
+import java.time.LocalDate;
+
+/**
+ * Published when an appointment changes without its slot changing (patient
+ * details, status), so views of a doctor's day can be refreshed after commit.
+ */
+public class AppointmentChangedEvent {
+
+    private final Long doctorId;
+    private final LocalDate tarih;
+
+    public AppointmentChangedEvent(Long doctorId, LocalDate tarih) {
+        this.doctorId = doctorId;
+        this.tarih = tarih;
+    }
+
+    public Long getDoctorId() {
+        return doctorId;
+    }
+
+    public LocalDate getTarih() {
+        return tarih;
+    }
+}
@@ -0,0 +1,24 @@
+package com.klinik.event;
+
+/**
+ * Published when a doctor is saved or deleted, so caches keyed by doctor can be
+ * refreshed after commit.
+ */
+public class DoctorChangedEvent {
+
+    private final Long doctorId;
+    private final boolean deleted;
+
+    public DoctorChangedEvent(Long doctorId, boolean deleted) {
+        this.doctorId = doctorId;
+        this.deleted = deleted;
+    }
+
+    public Long getDoctorId() {
+        return doctorId;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+}
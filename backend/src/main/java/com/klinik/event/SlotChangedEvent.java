@@ -0,0 +1,73 @@
+package com.klinik.event;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Published whenever a chair of a doctor's time slot becomes taken or free,
+ * and whenever a hold on a chair is taken or ends. A chair is available while
+ * it is neither taken nor held; RELEASED only ends the hold, the chair may
+ * have been taken by the booking that confirmed it. Listeners are expected to
+ * react after the surrounding transaction commits.
+ */
+public class SlotChangedEvent {
+
+    public enum Type {
+        TAKEN, FREED, HELD, RELEASED
+    }
+
+    private final Long doctorId;
+    private final LocalDate tarih;
+    private final LocalTime saat;
+    private final int koltukNo;
+    private final Type type;
+
+    public SlotChangedEvent(Long doctorId, LocalDate tarih, LocalTime saat, int koltukNo, Type type) {
+        this.doctorId = doctorId;
+        this.tarih = tarih;
+        this.saat = saat;
+        this.koltukNo = koltukNo;
+        this.type = type;
+    }
+
+    public static SlotChangedEvent taken(Long doctorId, LocalDate tarih, LocalTime saat, int koltukNo) {
+        return new SlotChangedEvent(doctorId, tarih, saat, koltukNo, Type.TAKEN);
+    }
+
+    public static SlotChangedEvent freed(Long doctorId, LocalDate tarih, LocalTime saat, int koltukNo) {
+        return new SlotChangedEvent(doctorId, tarih, saat, koltukNo, Type.FREED);
+    }
+
+    public static SlotChangedEvent held(Long doctorId, LocalDate tarih, LocalTime saat, int koltukNo) {
+        return new SlotChangedEvent(doctorId, tarih, saat, koltukNo, Type.HELD);
+    }
+
+    public static SlotChangedEvent released(Long doctorId, LocalDate tarih, LocalTime saat, int koltukNo) {
+        return new SlotChangedEvent(doctorId, tarih, saat, koltukNo, Type.RELEASED);
+    }
+
+    public Long getDoctorId() {
+        return doctorId;
+    }
+
+    public LocalDate getTarih() {
+        return tarih;
+    }
+
+    public LocalTime getSaat() {
+        return saat;
+    }
+
+    public int getKoltukNo() {
+        return koltukNo;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    // Holds are in memory only and leave appointments untouched
+    public boolean isHold() {
+        return type == Type.HELD || type == Type.RELEASED;
+    }
+}
@@ -0,0 +1,11 @@
+package com.klinik.exception;
+
+/**
+ * Thrown when the requested doctor/date/time slot is already booked.
+ */
+public class AppointmentConflictException extends RuntimeException {
+
+    public AppointmentConflictException() {
+        super("Bu tarih ve saatte zaten bir randevu mevcut");
+    }
+}
@@ -0,0 +1,21 @@
+package com.klinik.exception;
+
+import com.klinik.dto.SeriesPlan;
+
+/**
+ * Thrown when occurrences of a series clash and cannot (or may not) be moved
+ * to an alternative slot. Carries the plan so the caller can show it.
+ */
+public class SeriesConflictException extends RuntimeException {
+
+    private final SeriesPlan plan;
+
+    public SeriesConflictException(String message, SeriesPlan plan) {
+        super(message);
+        this.plan = plan;
+    }
+
+    public SeriesPlan getPlan() {
+        return plan;
+    }
+}
@@ -0,0 +1,11 @@
+package com.klinik.exception;
+
+/**
+ * Thrown when a node already holds the maximum number of live subscriptions.
+ */
+public class SubscriberLimitException extends RuntimeException {
+
+    public SubscriberLimitException() {
+        super("Çok fazla canlı bağlantı var, lütfen daha sonra tekrar deneyin");
+    }
+}
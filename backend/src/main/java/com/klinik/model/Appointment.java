@@ -1,18 +1,26 @@
 package com.klinik.model;
 
 import jakarta.persistence.*;
+import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.klinik.service.ChangeLogListener;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
 
 @Entity
-@Table(name = "appointments")
+@EntityListeners(ChangeLogListener.class)
+@Table(name = "appointments", uniqueConstraints = {
+    @UniqueConstraint(name = Appointment.SLOT_CONSTRAINT, columnNames = {"doktor_id", "tarih", "saat", "koltuk_no"})
+})
 public class Appointment {
     
+    public static final String SLOT_CONSTRAINT = "uk_appointments_slot";
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -35,6 +43,11 @@ public class Appointment {
     @Column(nullable = false)
     private String telefon;
     
+    // Optional; the booking confirmation is sent here
+    @Email(message = "Geçerli bir e-posta adresi giriniz")
+    @Column
+    private String email;
+    
     @NotNull(message = "Doktor seçilmeli")
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "doktor_id", nullable = false)
@@ -50,6 +63,10 @@ public class Appointment {
     @Column(nullable = false)
     private LocalTime saat;
     
+    // Chair within the doctor's capacity, assigned on booking (1-based)
+    @Column(name = "koltuk_no", nullable = false)
+    private Integer koltukNo = 1;
+    
     @NotBlank(message = "Bölüm boş olamaz")
     @Column(nullable = false)
     private String bolum;
@@ -61,6 +78,18 @@ public class Appointment {
     @OneToOne(mappedBy = "appointment", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private Invoice invoice;
     
+    // Resolved from the TC on save; null only for rows not yet backfilled
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "patient_id")
+    private Patient patient;
+    
+    // Set for occurrences of a recurring series
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "series_id")
+    private AppointmentSeries series;
+    
     // Constructors
     public Appointment() {}
     
@@ -117,6 +146,14 @@ public class Appointment {
         this.telefon = telefon;
     }
     
+    public String getEmail() {
+        return email;
+    }
+    
+    public void setEmail(String email) {
+        this.email = email;
+    }
+    
     public Doctor getDoctor() {
         return doctor;
     }
@@ -141,6 +178,14 @@ public class Appointment {
         this.saat = saat;
     }
     
+    public Integer getKoltukNo() {
+        return koltukNo;
+    }
+    
+    public void setKoltukNo(Integer koltukNo) {
+        this.koltukNo = koltukNo;
+    }
+    
     public String getBolum() {
         return bolum;
     }
@@ -165,12 +210,37 @@ public class Appointment {
         this.invoice = invoice;
     }
     
+    public Patient getPatient() {
+        return patient;
+    }
+    
+    public void setPatient(Patient patient) {
+        this.patient = patient;
+    }
+    
+    public AppointmentSeries getSeries() {
+        return series;
+    }
+    
+    public void setSeries(AppointmentSeries series) {
+        this.series = series;
+    }
+    
     // Helper methods
     public String getHastaFullName() {
         return hastaAd + " " + hastaSoyad;
     }
     
     public enum AppointmentStatus {
-        BEKLEMEDE, ONAYLANDI, TAMAMLANDI, IPTAL_EDILDI
+        BEKLEMEDE, ONAYLANDI, TAMAMLANDI, IPTAL_EDILDI;
+        
+        // TAMAMLANDI and IPTAL_EDILDI are final
+        public boolean canTransitionTo(AppointmentStatus target) {
+            return switch (this) {
+                case BEKLEMEDE -> target == ONAYLANDI || target == TAMAMLANDI || target == IPTAL_EDILDI;
+                case ONAYLANDI -> target == TAMAMLANDI || target == IPTAL_EDILDI;
+                default -> false;
+            };
+        }
     }
 }
\ No newline at end of file
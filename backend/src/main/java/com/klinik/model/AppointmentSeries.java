@@ -0,0 +1,224 @@
+package com.klinik.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Recurrence rule of a series of appointments, e.g. a monthly orthodontic
+ * control. The occurrences are ordinary appointments pointing to the series.
+ */
+@Entity
+@Table(name = "appointment_series")
+public class AppointmentSeries {
+    
+    public static final int MAX_OCCURRENCES = 52;
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @NotBlank(message = "Hasta adı boş olamaz")
+    @Column(name = "hasta_ad", nullable = false)
+    private String hastaAd;
+    
+    @NotBlank(message = "Hasta soyadı boş olamaz")
+    @Column(name = "hasta_soyad", nullable = false)
+    private String hastaSoyad;
+    
+    @NotBlank(message = "TC kimlik numarası boş olamaz")
+    @Pattern(regexp = "\\d{11}", message = "TC kimlik numarası 11 haneli olmalı")
+    @Column(nullable = false, length = 11)
+    private String tc;
+    
+    @NotBlank(message = "Telefon numarası boş olamaz")
+    @Pattern(regexp = "\\d{10,11}", message = "Geçersiz telefon numarası")
+    @Column(nullable = false)
+    private String telefon;
+    
+    @NotNull(message = "Doktor seçilmeli")
+    @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "doktor_id", nullable = false)
+    private Doctor doctor;
+    
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "patient_id")
+    private Patient patient;
+    
+    @NotBlank(message = "Bölüm boş olamaz")
+    @Column(nullable = false)
+    private String bolum;
+    
+    @NotNull(message = "Tekrar sıklığı seçilmeli")
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Siklik siklik;
+    
+    // Every n weeks or months
+    @NotNull(message = "Tekrar aralığı girilmeli")
+    @Min(value = 1, message = "Tekrar aralığı en az 1 olmalı")
+    @Column(nullable = false)
+    private Integer aralik = 1;
+    
+    @NotNull(message = "Tekrar sayısı girilmeli")
+    @Min(value = 2, message = "Bir seri en az 2 randevudan oluşur")
+    @Max(value = MAX_OCCURRENCES, message = "Bir seri en fazla " + MAX_OCCURRENCES + " randevudan oluşabilir")
+    @Column(name = "tekrar_sayisi", nullable = false)
+    private Integer tekrarSayisi;
+    
+    @NotNull(message = "Başlangıç tarihi seçilmeli")
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    @Column(name = "baslangic_tarihi", nullable = false)
+    private LocalDate baslangicTarihi;
+    
+    @NotNull(message = "Saat seçilmeli")
+    @JsonFormat(pattern = "HH:mm")
+    @Column(nullable = false)
+    private LocalTime saat;
+    
+    @Column(name = "olusturma_tarihi", nullable = false)
+    private LocalDateTime olusturmaTarihi;
+    
+    public enum Siklik {
+        HAFTALIK, AYLIK
+    }
+    
+    // Constructors
+    public AppointmentSeries() {
+        this.olusturmaTarihi = LocalDateTime.now();
+    }
+    
+    /**
+     * Date of the n-th occurrence (0-based) according to the rule.
+     */
+    public LocalDate occurrenceDate(int n) {
+        return siklik == Siklik.HAFTALIK
+                ? baslangicTarihi.plusWeeks((long) n * aralik)
+                : baslangicTarihi.plusMonths((long) n * aralik);
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getHastaAd() {
+        return hastaAd;
+    }
+    
+    public void setHastaAd(String hastaAd) {
+        this.hastaAd = hastaAd;
+    }
+    
+    public String getHastaSoyad() {
+        return hastaSoyad;
+    }
+    
+    public void setHastaSoyad(String hastaSoyad) {
+        this.hastaSoyad = hastaSoyad;
+    }
+    
+    public String getTc() {
+        return tc;
+    }
+    
+    public void setTc(String tc) {
+        this.tc = tc;
+    }
+    
+    public String getTelefon() {
+        return telefon;
+    }
+    
+    public void setTelefon(String telefon) {
+        this.telefon = telefon;
+    }
+    
+    public Doctor getDoctor() {
+        return doctor;
+    }
+    
+    public void setDoctor(Doctor doctor) {
+        this.doctor = doctor;
+    }
+    
+    public Patient getPatient() {
+        return patient;
+    }
+    
+    public void setPatient(Patient patient) {
+        this.patient = patient;
+    }
+    
+    public String getBolum() {
+        return bolum;
+    }
+    
+    public void setBolum(String bolum) {
+        this.bolum = bolum;
+    }
+    
+    public Siklik getSiklik() {
+        return siklik;
+    }
+    
+    public void setSiklik(Siklik siklik) {
+        this.siklik = siklik;
+    }
+    
+    public Integer getAralik() {
+        return aralik;
+    }
+    
+    public void setAralik(Integer aralik) {
+        this.aralik = aralik;
+    }
+    
+    public Integer getTekrarSayisi() {
+        return tekrarSayisi;
+    }
+    
+    public void setTekrarSayisi(Integer tekrarSayisi) {
+        this.tekrarSayisi = tekrarSayisi;
+    }
+    
+    public LocalDate getBaslangicTarihi() {
+        return baslangicTarihi;
+    }
+    
+    public void setBaslangicTarihi(LocalDate baslangicTarihi) {
+        this.baslangicTarihi = baslangicTarihi;
+    }
+    
+    public LocalTime getSaat() {
+        return saat;
+    }
+    
+    public void setSaat(LocalTime saat) {
+        this.saat = saat;
+    }
+    
+    public LocalDateTime getOlusturmaTarihi() {
+        return olusturmaTarihi;
+    }
+    
+    public void setOlusturmaTarihi(LocalDateTime olusturmaTarihi) {
+        this.olusturmaTarihi = olusturmaTarihi;
+    }
+}
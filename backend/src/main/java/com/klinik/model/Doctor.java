@@ -5,6 +5,8 @@ import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import java.math.BigDecimal;
@@ -57,6 +59,12 @@ public class Doctor {
     @Column(name = "profile_image_url")
     private String profileImageUrl;
     
+    // Treatment chairs (or rooms) the doctor works in parallel; each slot can be booked this many times
+    @Min(value = 1, message = "Koltuk sayısı en az 1 olmalı")
+    @Max(value = 20, message = "Koltuk sayısı en fazla 20 olabilir")
+    @Column(name = "koltuk_sayisi", nullable = false)
+    private Integer koltukSayisi = 1;
+    
     @OneToMany(mappedBy = "doctor", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JsonIgnore
     private List<Appointment> appointments;
@@ -166,6 +174,14 @@ public class Doctor {
         this.profileImageUrl = profileImageUrl;
     }
     
+    public Integer getKoltukSayisi() {
+        return koltukSayisi;
+    }
+    
+    public void setKoltukSayisi(Integer koltukSayisi) {
+        this.koltukSayisi = koltukSayisi;
+    }
+    
     public List<Appointment> getAppointments() {
         return appointments;
     }
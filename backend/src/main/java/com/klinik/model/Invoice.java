@@ -4,11 +4,13 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.DecimalMin;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.klinik.service.ChangeLogListener;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
+@EntityListeners(ChangeLogListener.class)
 @Table(name = "invoices")
 public class Invoice {
     
@@ -0,0 +1,93 @@
+package com.klinik.model;
+
+import jakarta.persistence.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "patients")
+public class Patient {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    // SHA-256 of the normalized TC with the application pepper, hex encoded
+    @JsonIgnore
+    @Column(name = "tc_hash", nullable = false, unique = true, length = 64)
+    private String tcHash;
+    
+    @Column(nullable = false)
+    private String ad;
+    
+    @Column(nullable = false)
+    private String soyad;
+    
+    private String telefon;
+    
+    @Column(name = "olusturma_tarihi", nullable = false)
+    private LocalDateTime olusturmaTarihi;
+    
+    // Constructors
+    public Patient() {
+        this.olusturmaTarihi = LocalDateTime.now();
+    }
+    
+    public Patient(String tcHash, String ad, String soyad, String telefon) {
+        this.tcHash = tcHash;
+        this.ad = ad;
+        this.soyad = soyad;
+        this.telefon = telefon;
+        this.olusturmaTarihi = LocalDateTime.now();
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getTcHash() {
+        return tcHash;
+    }
+    
+    public void setTcHash(String tcHash) {
+        this.tcHash = tcHash;
+    }
+    
+    public String getAd() {
+        return ad;
+    }
+    
+    public void setAd(String ad) {
+        this.ad = ad;
+    }
+    
+    public String getSoyad() {
+        return soyad;
+    }
+    
+    public void setSoyad(String soyad) {
+        this.soyad = soyad;
+    }
+    
+    public String getTelefon() {
+        return telefon;
+    }
+    
+    public void setTelefon(String telefon) {
+        this.telefon = telefon;
+    }
+    
+    public LocalDateTime getOlusturmaTarihi() {
+        return olusturmaTarihi;
+    }
+    
+    public void setOlusturmaTarihi(LocalDateTime olusturmaTarihi) {
+        this.olusturmaTarihi = olusturmaTarihi;
+    }
+}
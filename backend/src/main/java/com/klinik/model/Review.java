@@ -4,10 +4,12 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.klinik.service.ChangeLogListener;
 
 import java.time.LocalDateTime;
 
 @Entity
+@EntityListeners(ChangeLogListener.class)
 @Table(name = "reviews")
 public class Review {
     
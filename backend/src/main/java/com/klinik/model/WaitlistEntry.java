@@ -0,0 +1,239 @@
+package com.klinik.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+@Entity
+@Table(name = "waitlist_entries")
+public class WaitlistEntry {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @NotBlank(message = "Hasta adı boş olamaz")
+    @Column(name = "hasta_ad", nullable = false)
+    private String hastaAd;
+    
+    @NotBlank(message = "Hasta soyadı boş olamaz")
+    @Column(name = "hasta_soyad", nullable = false)
+    private String hastaSoyad;
+    
+    @NotBlank(message = "TC kimlik numarası boş olamaz")
+    @Pattern(regexp = "\\d{11}", message = "TC kimlik numarası 11 haneli olmalı")
+    @Column(nullable = false, length = 11)
+    private String tc;
+    
+    @NotBlank(message = "Telefon numarası boş olamaz")
+    @Pattern(regexp = "\\d{10,11}", message = "Geçersiz telefon numarası")
+    @Column(nullable = false)
+    private String telefon;
+    
+    // Offers are sent by e-mail
+    @NotBlank(message = "E-posta boş olamaz")
+    @Email(message = "Geçerli bir e-posta adresi giriniz")
+    @Column(nullable = false)
+    private String email;
+    
+    // Either a doctor or a specialty (bolum); a specialty matches every doctor of it
+    @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "doktor_id")
+    private Doctor doctor;
+    
+    private String bolum;
+    
+    @NotNull(message = "Başlangıç tarihi seçilmeli")
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    @Column(name = "baslangic_tarihi", nullable = false)
+    private LocalDate baslangicTarihi;
+    
+    @NotNull(message = "Bitiş tarihi seçilmeli")
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    @Column(name = "bitis_tarihi", nullable = false)
+    private LocalDate bitisTarihi;
+    
+    @Column(name = "olusturma_tarihi", nullable = false)
+    private LocalDateTime olusturmaTarihi;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private WaitlistStatus status = WaitlistStatus.BEKLIYOR;
+    
+    // The slot currently offered, while status is TEKLIF_EDILDI
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "teklif_doktor_id")
+    private Doctor teklifDoctor;
+    
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    @Column(name = "teklif_tarih")
+    private LocalDate teklifTarih;
+    
+    @JsonFormat(pattern = "HH:mm")
+    @Column(name = "teklif_saat")
+    private LocalTime teklifSaat;
+    
+    @JsonIgnore
+    @Column(name = "teklif_token", unique = true, length = 36)
+    private String teklifToken;
+    
+    @Column(name = "teklif_bitis")
+    private LocalDateTime teklifBitis;
+    
+    public enum WaitlistStatus {
+        BEKLIYOR, TEKLIF_EDILDI, RANDEVU_ALINDI, SURESI_DOLDU, IPTAL_EDILDI
+    }
+    
+    // Constructors
+    public WaitlistEntry() {
+        this.olusturmaTarihi = LocalDateTime.now();
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getHastaAd() {
+        return hastaAd;
+    }
+    
+    public void setHastaAd(String hastaAd) {
+        this.hastaAd = hastaAd;
+    }
+    
+    public String getHastaSoyad() {
+        return hastaSoyad;
+    }
+    
+    public void setHastaSoyad(String hastaSoyad) {
+        this.hastaSoyad = hastaSoyad;
+    }
+    
+    public String getTc() {
+        return tc;
+    }
+    
+    public void setTc(String tc) {
+        this.tc = tc;
+    }
+    
+    public String getTelefon() {
+        return telefon;
+    }
+    
+    public void setTelefon(String telefon) {
+        this.telefon = telefon;
+    }
+    
+    public String getEmail() {
+        return email;
+    }
+    
+    public void setEmail(String email) {
+        this.email = email;
+    }
+    
+    public Doctor getDoctor() {
+        return doctor;
+    }
+    
+    public void setDoctor(Doctor doctor) {
+        this.doctor = doctor;
+    }
+    
+    public String getBolum() {
+        return bolum;
+    }
+    
+    public void setBolum(String bolum) {
+        this.bolum = bolum;
+    }
+    
+    public LocalDate getBaslangicTarihi() {
+        return baslangicTarihi;
+    }
+    
+    public void setBaslangicTarihi(LocalDate baslangicTarihi) {
+        this.baslangicTarihi = baslangicTarihi;
+    }
+    
+    public LocalDate getBitisTarihi() {
+        return bitisTarihi;
+    }
+    
+    public void setBitisTarihi(LocalDate bitisTarihi) {
+        this.bitisTarihi = bitisTarihi;
+    }
+    
+    public LocalDateTime getOlusturmaTarihi() {
+        return olusturmaTarihi;
+    }
+    
+    public void setOlusturmaTarihi(LocalDateTime olusturmaTarihi) {
+        this.olusturmaTarihi = olusturmaTarihi;
+    }
+    
+    public WaitlistStatus getStatus() {
+        return status;
+    }
+    
+    public void setStatus(WaitlistStatus status) {
+        this.status = status;
+    }
+    
+    public Doctor getTeklifDoctor() {
+        return teklifDoctor;
+    }
+    
+    public void setTeklifDoctor(Doctor teklifDoctor) {
+        this.teklifDoctor = teklifDoctor;
+    }
+    
+    public LocalDate getTeklifTarih() {
+        return teklifTarih;
+    }
+    
+    public void setTeklifTarih(LocalDate teklifTarih) {
+        this.teklifTarih = teklifTarih;
+    }
+    
+    public LocalTime getTeklifSaat() {
+        return teklifSaat;
+    }
+    
+    public void setTeklifSaat(LocalTime teklifSaat) {
+        this.teklifSaat = teklifSaat;
+    }
+    
+    public String getTeklifToken() {
+        return teklifToken;
+    }
+    
+    public void setTeklifToken(String teklifToken) {
+        this.teklifToken = teklifToken;
+    }
+    
+    public LocalDateTime getTeklifBitis() {
+        return teklifBitis;
+    }
+    
+    public void setTeklifBitis(LocalDateTime teklifBitis) {
+        this.teklifBitis = teklifBitis;
+    }
+}
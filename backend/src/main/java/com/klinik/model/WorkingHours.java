@@ -0,0 +1,123 @@
+package com.klinik.model;
+
+import jakarta.persistence.*;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+
+@Entity
+@Table(name = "doctor_working_hours")
+public class WorkingHours {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "doktor_id", nullable = false)
+    private Doctor doctor;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 9)
+    private DayOfWeek gun;
+    
+    @JsonFormat(pattern = "HH:mm")
+    @Column(nullable = false)
+    private LocalTime baslangic;
+    
+    @JsonFormat(pattern = "HH:mm")
+    @Column(nullable = false)
+    private LocalTime bitis;
+    
+    @JsonFormat(pattern = "HH:mm")
+    @Column(name = "ogle_baslangic")
+    private LocalTime ogleBaslangic;
+    
+    @JsonFormat(pattern = "HH:mm")
+    @Column(name = "ogle_bitis")
+    private LocalTime ogleBitis;
+    
+    @Column(name = "slot_dakika", nullable = false)
+    private Integer slotDakika;
+    
+    // Constructors
+    public WorkingHours() {}
+    
+    public WorkingHours(DayOfWeek gun, LocalTime baslangic, LocalTime bitis,
+                        LocalTime ogleBaslangic, LocalTime ogleBitis, Integer slotDakika) {
+        this.gun = gun;
+        this.baslangic = baslangic;
+        this.bitis = bitis;
+        this.ogleBaslangic = ogleBaslangic;
+        this.ogleBitis = ogleBitis;
+        this.slotDakika = slotDakika;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Doctor getDoctor() {
+        return doctor;
+    }
+    
+    public void setDoctor(Doctor doctor) {
+        this.doctor = doctor;
+    }
+    
+    public DayOfWeek getGun() {
+        return gun;
+    }
+    
+    public void setGun(DayOfWeek gun) {
+        this.gun = gun;
+    }
+    
+    public LocalTime getBaslangic() {
+        return baslangic;
+    }
+    
+    public void setBaslangic(LocalTime baslangic) {
+        this.baslangic = baslangic;
+    }
+    
+    public LocalTime getBitis() {
+        return bitis;
+    }
+    
+    public void setBitis(LocalTime bitis) {
+        this.bitis = bitis;
+    }
+    
+    public LocalTime getOgleBaslangic() {
+        return ogleBaslangic;
+    }
+    
+    public void setOgleBaslangic(LocalTime ogleBaslangic) {
+        this.ogleBaslangic = ogleBaslangic;
+    }
+    
+    public LocalTime getOgleBitis() {
+        return ogleBitis;
+    }
+    
+    public void setOgleBitis(LocalTime ogleBitis) {
+        this.ogleBitis = ogleBitis;
+    }
+    
+    public Integer getSlotDakika() {
+        return slotDakika;
+    }
+    
+    public void setSlotDakika(Integer slotDakika) {
+        this.slotDakika = slotDakika;
+    }
+}
@@ -1,25 +1,57 @@
 package com.klinik.repository;
 
+import com.klinik.dto.AppointmentExportRow;
+import com.klinik.dto.AppointmentView;
 import com.klinik.model.Appointment;
 import com.klinik.model.Doctor;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
     
+    // Select list of the AppointmentView constructor; expects aliases a (appointment), d (doctor), i (invoice)
+    String VIEW_COLUMNS = "new com.klinik.dto.AppointmentView(a.id, a.hastaAd, a.hastaSoyad, a.tc, a.telefon, " +
+            "a.email, d.id, d.ad, d.soyad, a.tarih, a.saat, a.bolum, a.status, i.id, i.status)";
+    
     List<Appointment> findByDoctor(Doctor doctor);
     
     List<Appointment> findByTcAndHastaAdAndHastaSoyad(String tc, String hastaAd, String hastaSoyad);
     
+    @Query("SELECT a FROM Appointment a JOIN FETCH a.patient p JOIN FETCH a.doctor LEFT JOIN FETCH a.invoice " +
+           "WHERE p.tcHash = :tcHash ORDER BY a.tarih, a.saat")
+    List<Appointment> findByPatientTcHash(@Param("tcHash") String tcHash);
+    
+    @Query("SELECT a FROM Appointment a JOIN FETCH a.doctor WHERE a.id IN :ids")
+    List<Appointment> findWithDoctorByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT " + VIEW_COLUMNS + " FROM Appointment a JOIN a.doctor d LEFT JOIN a.invoice i WHERE a.id IN :ids")
+    List<AppointmentView> findViewsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    // Rows not yet linked to a patient by the backfill job
+    @Query("SELECT a FROM Appointment a JOIN FETCH a.doctor LEFT JOIN FETCH a.invoice " +
+           "WHERE a.tc = :tc AND a.patient IS NULL ORDER BY a.tarih, a.saat")
+    List<Appointment> findUnlinkedByTc(@Param("tc") String tc);
+    
     List<Appointment> findByTarihAndDoctor(LocalDate tarih, Doctor doctor);
     
+    // (saat, koltukNo) of every booked chair of the day
+    @Query("SELECT a.saat, a.koltukNo FROM Appointment a WHERE a.doctor.id = :doctorId AND a.tarih = :tarih")
+    List<Object[]> findChairsByDoctorIdAndTarih(@Param("doctorId") Long doctorId, @Param("tarih") LocalDate tarih);
+    
     @Query("SELECT a FROM Appointment a WHERE a.doctor = :doctor AND a.tarih = :tarih AND a.saat = :saat")
     List<Appointment> findByDoctorAndTarihAndSaat(@Param("doctor") Doctor doctor, 
                                                  @Param("tarih") LocalDate tarih, 
@@ -34,6 +66,66 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
                                                  @Param("startDate") LocalDate startDate, 
                                                  @Param("endDate") LocalDate endDate);
     
+    @Query("SELECT a.doctor.id, a.tarih, a.saat, a.koltukNo FROM Appointment a " +
+           "WHERE a.doctor.id IN :doctorIds AND a.tarih IN :tarihler")
+    List<Object[]> findSlotsByDoctorIdsAndTarihler(@Param("doctorIds") Collection<Long> doctorIds,
+                                                   @Param("tarihler") Collection<LocalDate> tarihler);
+    
+    @Query("SELECT a.tarih, a.saat, a.koltukNo FROM Appointment a WHERE a.doctor.id = :doctorId AND " +
+           "a.tarih >= :startDate AND a.tarih <= :endDate")
+    List<Object[]> findSlotsByDoctorIdAndTarihBetween(@Param("doctorId") Long doctorId,
+                                                      @Param("startDate") LocalDate startDate,
+                                                      @Param("endDate") LocalDate endDate);
+    
+    // (id, doctorId, tarih, saat, koltukNo, status) of every appointment in the range
+    @Query("SELECT a.id, a.doctor.id, a.tarih, a.saat, a.koltukNo, a.status FROM Appointment a " +
+           "WHERE a.tarih >= :startDate AND a.tarih <= :endDate")
+    List<Object[]> findSlotRowsByTarihBetween(@Param("startDate") LocalDate startDate,
+                                              @Param("endDate") LocalDate endDate);
+    
+    // (tarih, doctorId, bolum, status, count) per day of the range, for the statistics time series
+    @Query("SELECT a.tarih, a.doctor.id, a.bolum, a.status, COUNT(a) FROM Appointment a " +
+           "WHERE a.tarih >= :startDate AND a.tarih <= :endDate GROUP BY a.tarih, a.doctor.id, a.bolum, a.status")
+    List<Object[]> countDailyByTarihBetween(@Param("startDate") LocalDate startDate,
+                                            @Param("endDate") LocalDate endDate);
+    
+    @Query("SELECT " + VIEW_COLUMNS + " FROM Appointment a JOIN a.doctor d LEFT JOIN a.invoice i " +
+           "WHERE a.tarih <= :endDate AND " +
+           "(a.tarih > :tarih OR (a.tarih = :tarih AND (a.saat > :saat OR (a.saat = :saat AND a.id > :id)))) " +
+           "ORDER BY a.tarih, a.saat, a.id")
+    List<AppointmentView> findPageAfter(@Param("tarih") LocalDate tarih,
+                                        @Param("saat") LocalTime saat,
+                                        @Param("id") Long id,
+                                        @Param("endDate") LocalDate endDate,
+                                        Pageable pageable);
+    
+    @Query("SELECT " + VIEW_COLUMNS + " FROM Appointment a JOIN a.doctor d LEFT JOIN a.invoice i " +
+           "WHERE d.id = :doctorId AND a.tarih <= :endDate AND " +
+           "(a.tarih > :tarih OR (a.tarih = :tarih AND (a.saat > :saat OR (a.saat = :saat AND a.id > :id)))) " +
+           "ORDER BY a.tarih, a.saat, a.id")
+    List<AppointmentView> findDoctorPageAfter(@Param("doctorId") Long doctorId,
+                                              @Param("tarih") LocalDate tarih,
+                                              @Param("saat") LocalTime saat,
+                                              @Param("id") Long id,
+                                              @Param("endDate") LocalDate endDate,
+                                              Pageable pageable);
+    
+    // MySQL streams rows one by one only when the fetch size is Integer.MIN_VALUE
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.klinik.dto.AppointmentExportRow(a.id, a.tarih, a.saat, d.id, d.ad, d.soyad, " +
+           "a.hastaAd, a.hastaSoyad, a.tc, a.telefon, a.bolum, a.status) " +
+           "FROM Appointment a JOIN a.doctor d WHERE a.tarih >= :startDate AND a.tarih <= :endDate " +
+           "ORDER BY a.tarih, a.saat, a.id")
+    Stream<AppointmentExportRow> streamExportRows(@Param("startDate") LocalDate startDate,
+                                                  @Param("endDate") LocalDate endDate);
+    
     @Query("SELECT COUNT(a) FROM Appointment a WHERE a.doctor = :doctor AND a.tarih = :tarih")
     Long countByDoctorAndTarih(@Param("doctor") Doctor doctor, @Param("tarih") LocalDate tarih);
-}
\ No newline at end of file
+    
+    @Modifying
+    @Query("UPDATE Appointment a SET a.series = NULL WHERE a.doctor.id = :doctorId AND a.series IS NOT NULL")
+    int clearSeriesByDoctorId(@Param("doctorId") Long doctorId);
+}
@@ -0,0 +1,16 @@
+package com.klinik.repository;
+
+import com.klinik.model.AppointmentSeries;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AppointmentSeriesRepository extends JpaRepository<AppointmentSeries, Long> {
+    
+    @Modifying
+    @Query("DELETE FROM AppointmentSeries s WHERE s.doctor.id = :doctorId")
+    void deleteByDoctorId(@Param("doctorId") Long doctorId);
+}
@@ -1,14 +1,18 @@
 package com.klinik.repository;
 
+import com.klinik.dto.InvoiceView;
 import com.klinik.model.Invoice;
 import com.klinik.model.Appointment;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,20 +21,52 @@ public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
     
     Optional<Invoice> findByAppointment(Appointment appointment);
     
-    List<Invoice> findByAppointmentDoctor_Id(Long doctorId);
+    // Writers that adjust the revenue rollups read the invoice under a row lock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM Invoice i JOIN FETCH i.appointment a JOIN FETCH a.doctor WHERE i.id = :id")
+    Optional<Invoice> findByIdForUpdate(@Param("id") Long id);
+    
+    // Select list of the InvoiceView constructor; expects aliases i (invoice), a (appointment), d (doctor)
+    String VIEW_COLUMNS = "new com.klinik.dto.InvoiceView(i.id, i.tutar, i.aciklama, i.tarih, i.status, a.id, " +
+            "a.tarih, a.saat, a.hastaAd, a.hastaSoyad, d.id, d.ad, d.soyad)";
+    
+    @Query("SELECT " + VIEW_COLUMNS + " FROM Invoice i JOIN i.appointment a JOIN a.doctor d ORDER BY i.tarih, i.id")
+    List<InvoiceView> findAllViews();
+    
+    @Query("SELECT " + VIEW_COLUMNS + " FROM Invoice i JOIN i.appointment a JOIN a.doctor d WHERE i.id IN :ids")
+    List<InvoiceView> findViewsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT " + VIEW_COLUMNS + " FROM Invoice i JOIN i.appointment a JOIN a.doctor d " +
+           "WHERE d.id = :doctorId ORDER BY i.tarih, i.id")
+    List<InvoiceView> findViewsByDoctorId(@Param("doctorId") Long doctorId);
     
     @Query("SELECT i FROM Invoice i WHERE i.tarih >= :startDate AND i.tarih <= :endDate")
     List<Invoice> findByTarihBetween(@Param("startDate") LocalDateTime startDate, 
                                     @Param("endDate") LocalDateTime endDate);
     
+    // Invoices from startDate up to, not including, endBefore with their appointment and doctor, for PDF rendering
+    @Query("SELECT i FROM Invoice i JOIN FETCH i.appointment a JOIN FETCH a.doctor " +
+           "WHERE i.tarih >= :startDate AND i.tarih < :endBefore ORDER BY i.tarih, i.id")
+    List<Invoice> findWithAppointmentByTarihBetween(@Param("startDate") LocalDateTime startDate,
+                                                    @Param("endBefore") LocalDateTime endBefore);
+    
     @Query("SELECT SUM(i.tutar) FROM Invoice i WHERE i.status = 'ODENDI'")
     BigDecimal getTotalPaidAmount();
     
     @Query("SELECT SUM(i.tutar) FROM Invoice i WHERE i.appointment.doctor.id = :doctorId AND i.status = 'ODENDI'")
     BigDecimal getTotalPaidAmountByDoctor(@Param("doctorId") Long doctorId);
     
-    @Query("SELECT i FROM Invoice i WHERE i.appointment.doctor.id = :doctorId AND i.tarih >= :startDate AND i.tarih <= :endDate")
-    List<Invoice> findByDoctorAndTarihBetween(@Param("doctorId") Long doctorId,
-                                             @Param("startDate") LocalDateTime startDate, 
-                                             @Param("endDate") LocalDateTime endDate);
+    // (day, doctorId, bolum, amount) of paid invoices per invoice day from startDate up to, not including,
+    // endBefore, for the statistics time series
+    @Query("SELECT CAST(i.tarih AS LocalDate), a.doctor.id, a.bolum, SUM(i.tutar) FROM Invoice i JOIN i.appointment a " +
+           "WHERE i.status = 'ODENDI' AND i.tarih >= :startDate AND i.tarih < :endBefore " +
+           "GROUP BY CAST(i.tarih AS LocalDate), a.doctor.id, a.bolum")
+    List<Object[]> sumPaidDailyByTarihBetween(@Param("startDate") LocalDateTime startDate,
+                                              @Param("endBefore") LocalDateTime endBefore);
+    
+    @Query("SELECT " + VIEW_COLUMNS + " FROM Invoice i JOIN i.appointment a JOIN a.doctor d " +
+           "WHERE d.id = :doctorId AND i.tarih >= :startDate AND i.tarih <= :endDate ORDER BY i.tarih, i.id")
+    List<InvoiceView> findByDoctorAndTarihBetween(@Param("doctorId") Long doctorId,
+                                                  @Param("startDate") LocalDateTime startDate,
+                                                  @Param("endDate") LocalDateTime endDate);
 }
\ No newline at end of file
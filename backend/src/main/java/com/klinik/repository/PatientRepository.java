@@ -0,0 +1,17 @@
+package com.klinik.repository;
+
+import com.klinik.model.Patient;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PatientRepository extends JpaRepository<Patient, Long> {
+    
+    Optional<Patient> findByTcHash(String tcHash);
+    
+    List<Patient> findByTcHashIn(Collection<String> tcHashes);
+}
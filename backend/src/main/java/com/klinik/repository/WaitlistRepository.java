@@ -0,0 +1,62 @@
+package com.klinik.repository;
+
+import com.klinik.model.Doctor;
+import com.klinik.model.WaitlistEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface WaitlistRepository extends JpaRepository<WaitlistEntry, Long> {
+    
+    Optional<WaitlistEntry> findByTeklifToken(String teklifToken);
+    
+    @Query("SELECT w FROM WaitlistEntry w LEFT JOIN FETCH w.doctor LEFT JOIN FETCH w.teklifDoctor " +
+           "WHERE w.status IN :statuses AND w.bitisTarihi >= :today")
+    List<WaitlistEntry> findOpenEntries(@Param("statuses") Collection<WaitlistEntry.WaitlistStatus> statuses,
+                                        @Param("today") LocalDate today);
+    
+    List<WaitlistEntry> findByTeklifDoctorId(Long doctorId);
+    
+    @Modifying
+    @Query("DELETE FROM WaitlistEntry w WHERE w.doctor.id = :doctorId")
+    void deleteByDoctorId(@Param("doctorId") Long doctorId);
+    
+    // Only one node can offer a slot to a waiting entry
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE WaitlistEntry w SET w.status = TEKLIF_EDILDI, w.teklifDoctor = :doctor, w.teklifTarih = :tarih, " +
+           "w.teklifSaat = :saat, w.teklifToken = :token, w.teklifBitis = :bitis " +
+           "WHERE w.id = :id AND w.status = BEKLIYOR")
+    int claimOffer(@Param("id") Long id, @Param("doctor") Doctor doctor, @Param("tarih") LocalDate tarih,
+                   @Param("saat") LocalTime saat, @Param("token") String token, @Param("bitis") LocalDateTime bitis);
+    
+    // An offer ends once: accepted, declined, cancelled or expired, whichever node gets there first
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE WaitlistEntry w SET w.status = :status, w.teklifToken = NULL, w.teklifBitis = NULL " +
+           "WHERE w.id = :id AND w.teklifToken = :token AND w.status = TEKLIF_EDILDI")
+    int closeOffer(@Param("id") Long id, @Param("token") String token,
+                   @Param("status") WaitlistEntry.WaitlistStatus status);
+    
+    // Undoes an acceptance whose appointment could not be booked
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE WaitlistEntry w SET w.status = BEKLIYOR WHERE w.id = :id AND w.status = RANDEVU_ALINDI")
+    int reopenAccepted(@Param("id") Long id);
+    
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE WaitlistEntry w SET w.status = IPTAL_EDILDI WHERE w.id = :id AND w.status = BEKLIYOR")
+    int cancelWaiting(@Param("id") Long id);
+}
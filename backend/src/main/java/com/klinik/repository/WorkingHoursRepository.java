@@ -0,0 +1,24 @@
+package com.klinik.repository;
+
+import com.klinik.model.WorkingHours;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface WorkingHoursRepository extends JpaRepository<WorkingHours, Long> {
+    
+    @Query("SELECT w FROM WorkingHours w WHERE w.doctor.id = :doctorId")
+    List<WorkingHours> findByDoctorId(@Param("doctorId") Long doctorId);
+    
+    @Query("SELECT DISTINCT w.doctor.id FROM WorkingHours w")
+    List<Long> findDoctorIds();
+    
+    @Modifying
+    @Query("DELETE FROM WorkingHours w WHERE w.doctor.id = :doctorId")
+    void deleteByDoctorId(@Param("doctorId") Long doctorId);
+}
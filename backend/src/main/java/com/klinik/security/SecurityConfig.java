@@ -66,6 +66,8 @@ public class SecurityConfig {
                 .requestMatchers("/doctors/public/**").permitAll()
                 .requestMatchers("/appointments/public/**").permitAll()
                 .requestMatchers("/reviews/public/**").permitAll()
+                .requestMatchers("/waitlist/public/**").permitAll()
+                .requestMatchers("/invoices/public/**").permitAll()
                 .requestMatchers("/error").permitAll()
                 .requestMatchers("/actuator/health").permitAll()
                 .requestMatchers("/admin/**").hasRole("ADMIN")
@@ -103,7 +105,8 @@ public class SecurityConfig {
         configuration.setAllowCredentials(true);
         
         // Expose authorization header
-        configuration.setExposedHeaders(Arrays.asList("Authorization", "Content-Type", "X-Requested-With"));
+        configuration.setExposedHeaders(Arrays.asList("Authorization", "Content-Type", "X-Requested-With",
+                "Idempotent-Replayed", "ETag"));
         
         // Pre-flight request cache time (in seconds)
         configuration.setMaxAge(3600L);
@@ -0,0 +1,136 @@
+package com.klinik.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Moves appointments older than {@code app.archive.horizon-months} (counted in
+ * whole months) and their invoices into the archive tables. Each batch is
+ * copied and deleted in one transaction, so an interrupted run simply
+ * continues with the rows still left on the next one; rows are claimed with
+ * FOR UPDATE SKIP LOCKED, so several nodes can run the job side by side.
+ *
+ * <p>The boundary in archive_state is raised first and rows are only moved
+ * once every node has had time to pick it up, see
+ * {@link AppointmentArchiveService}.
+ */
+@Component
+public class AppointmentArchiveJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentArchiveJob.class);
+
+    private static final int BATCH_SIZE = 500;
+
+    // Appointments whose invoice is dated at or after the boundary stay live until it moves on
+    private static final String SELECT_BATCH =
+            "SELECT a.id FROM appointments a WHERE a.tarih < ? AND NOT EXISTS " +
+            "(SELECT 1 FROM invoices i WHERE i.appointment_id = a.id AND i.tarih >= ?) " +
+            "ORDER BY a.tarih, a.saat, a.id LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private static final String COPY_APPOINTMENTS =
+            "INSERT INTO appointments_archive (id, hasta_ad, hasta_soyad, tc, telefon, email, doktor_id, tarih, " +
+            "saat, koltuk_no, bolum, status, patient_id, series_id, arsivlenme_tarihi) " +
+            "SELECT id, hasta_ad, hasta_soyad, tc, telefon, email, doktor_id, tarih, saat, koltuk_no, bolum, " +
+            "status, patient_id, series_id, :now FROM appointments WHERE id IN (:ids)";
+
+    private static final String COPY_INVOICES =
+            "INSERT INTO invoices_archive (id, appointment_id, tutar, aciklama, tarih, status) " +
+            "SELECT id, appointment_id, tutar, aciklama, tarih, status FROM invoices WHERE appointment_id IN (:ids)";
+
+    private static final String DELETE_OUTBOX_EVENTS = "DELETE FROM outbox_events WHERE appointment_id IN (:ids)";
+
+    private static final String DELETE_INVOICES = "DELETE FROM invoices WHERE appointment_id IN (:ids)";
+
+    private static final String DELETE_APPOINTMENTS = "DELETE FROM appointments WHERE id IN (:ids)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private AppointmentArchiveService appointmentArchiveService;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Value("${app.archive.horizon-months:12}")
+    private int horizonMonths;
+
+    @Value("${app.archive.batch-pause-ms:200}")
+    private long batchPauseMs;
+
+    @Scheduled(initialDelayString = "PT10M", fixedDelayString = "PT${app.archive.interval-hours:24}H")
+    void run() {
+        try {
+            appointmentArchiveService.raiseBoundary(LocalDate.now().withDayOfMonth(1).minusMonths(horizonMonths));
+            AppointmentArchiveService.ArchiveState state = appointmentArchiveService.readState();
+            if (state.getBoundary() == null) {
+                return;
+            }
+            // Nodes that have not refreshed yet would still skip the archive below the new boundary
+            long wait = 2 * appointmentArchiveService.getRefreshMillis()
+                    - Duration.between(state.getRaisedAt(), LocalDateTime.now()).toMillis();
+            if (wait > 0) {
+                taskScheduler.schedule(this::run, Instant.now().plusMillis(wait));
+                return;
+            }
+            archiveBefore(state.getBoundary());
+        } catch (RuntimeException e) {
+            logger.error("Arşivleme işi durdu, bir sonraki çalışmada kaldığı yerden devam edecek", e);
+        }
+    }
+
+    void archiveBefore(LocalDate siniri) {
+        long archived = 0;
+        while (true) {
+            Integer moved = transactionTemplate.execute(status -> {
+                List<Long> ids = jdbcTemplate.queryForList(SELECT_BATCH, Long.class, siniri,
+                        siniri.atStartOfDay(), BATCH_SIZE);
+                if (!ids.isEmpty()) {
+                    MapSqlParameterSource params = new MapSqlParameterSource("ids", ids)
+                            .addValue("now", LocalDateTime.now());
+                    namedParameterJdbcTemplate.update(COPY_APPOINTMENTS, params);
+                    namedParameterJdbcTemplate.update(COPY_INVOICES, params);
+                    namedParameterJdbcTemplate.update(DELETE_OUTBOX_EVENTS, params);
+                    namedParameterJdbcTemplate.update(DELETE_INVOICES, params);
+                    namedParameterJdbcTemplate.update(DELETE_APPOINTMENTS, params);
+                }
+                return ids.size();
+            });
+            if (moved == null || moved == 0) {
+                break;
+            }
+            archived += moved;
+            try {
+                // Leaves room for booking traffic between batches
+                Thread.sleep(batchPauseMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (archived > 0) {
+            logger.info("{} tarihinden önceki {} randevu arşive taşındı", siniri, archived);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.klinik.service;
+
+import com.klinik.dto.AppointmentExportRow;
+import com.klinik.dto.AppointmentView;
+import com.klinik.dto.InvoiceView;
+import com.klinik.model.Appointment.AppointmentStatus;
+import com.klinik.model.Invoice.InvoiceStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Read side of the appointment archive. The archive boundary from
+ * archive_state is kept in memory and refreshed periodically; callers only
+ * query the archive when the requested range starts before it.
+ * {@link AppointmentArchiveJob} moves rows only once a raised boundary has been
+ * visible for longer than the refresh interval, so no node skips the archive
+ * for a range that reaches into it. Archived rows are read-only.
+ */
+@Service
+public class AppointmentArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentArchiveService.class);
+
+    private static final String SELECT_STATE =
+            "SELECT arsiv_siniri, guncelleme FROM archive_state WHERE id = 1";
+
+    private static final String RAISE_BOUNDARY =
+            "UPDATE archive_state SET arsiv_siniri = ?, guncelleme = ? " +
+            "WHERE id = 1 AND (arsiv_siniri IS NULL OR arsiv_siniri < ?)";
+
+    private static final String SELECT_VIEWS =
+            "SELECT a.id, a.hasta_ad, a.hasta_soyad, a.tc, a.telefon, a.email, a.doktor_id, d.ad, d.soyad, " +
+            "a.tarih, a.saat, a.bolum, a.status, i.id AS invoice_id, i.status AS invoice_status " +
+            "FROM appointments_archive a LEFT JOIN doctors d ON d.id = a.doktor_id " +
+            "LEFT JOIN invoices_archive i ON i.appointment_id = a.id ";
+
+    private static final String AFTER_CURSOR =
+            "a.tarih <= :endDate AND " +
+            "(a.tarih > :tarih OR (a.tarih = :tarih AND (a.saat > :saat OR (a.saat = :saat AND a.id > :id)))) " +
+            "ORDER BY a.tarih, a.saat, a.id LIMIT :limit";
+
+    private static final String SELECT_PAGE = SELECT_VIEWS + "WHERE " + AFTER_CURSOR;
+
+    private static final String SELECT_DOCTOR_PAGE = SELECT_VIEWS + "WHERE a.doktor_id = :doctorId AND " + AFTER_CURSOR;
+
+    private static final String SELECT_BY_TC = SELECT_VIEWS + "WHERE a.tc = ? ORDER BY a.tarih, a.saat, a.id";
+
+    private static final String SELECT_INVOICE_VIEWS =
+            "SELECT i.id, i.tutar, i.aciklama, i.tarih, i.status, a.id AS appointment_id, " +
+            "a.tarih AS randevu_tarihi, a.saat, a.hasta_ad, a.hasta_soyad, a.doktor_id, d.ad, d.soyad " +
+            "FROM invoices_archive i JOIN appointments_archive a ON a.id = i.appointment_id " +
+            "LEFT JOIN doctors d ON d.id = a.doktor_id ";
+
+    private static final String INVOICE_ORDER = "ORDER BY i.tarih, i.id";
+
+    private static final String COUNT_DAILY =
+            "SELECT tarih, doktor_id, bolum, status, COUNT(*) AS adet FROM appointments_archive " +
+            "WHERE tarih >= ? AND tarih <= ? GROUP BY tarih, doktor_id, bolum, status";
+
+    private static final String SUM_PAID_DAILY =
+            "SELECT CAST(i.tarih AS DATE) AS gun, a.doktor_id, a.bolum, SUM(i.tutar) AS toplam " +
+            "FROM invoices_archive i JOIN appointments_archive a ON a.id = i.appointment_id " +
+            "WHERE i.status = 'ODENDI' AND i.tarih >= ? AND i.tarih < ? " +
+            "GROUP BY CAST(i.tarih AS DATE), a.doktor_id, a.bolum";
+
+    // Live and archived rows of the range in one ordered, streamed result
+    private static final String SELECT_EXPORT_ROWS =
+            "SELECT a.id, a.tarih, a.saat, a.doktor_id, d.ad, d.soyad, a.hasta_ad, a.hasta_soyad, a.tc, " +
+            "a.telefon, a.bolum, a.status FROM appointments a JOIN doctors d ON d.id = a.doktor_id " +
+            "WHERE a.tarih >= ? AND a.tarih <= ? " +
+            "UNION ALL " +
+            "SELECT a.id, a.tarih, a.saat, a.doktor_id, d.ad, d.soyad, a.hasta_ad, a.hasta_soyad, a.tc, " +
+            "a.telefon, a.bolum, a.status FROM appointments_archive a LEFT JOIN doctors d ON d.id = a.doktor_id " +
+            "WHERE a.tarih >= ? AND a.tarih <= ? " +
+            "ORDER BY tarih, saat, id";
+
+
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Value("${app.archive.refresh-seconds:60}")
+    private long refreshSeconds;
+
+    private volatile LocalDate boundary;
+
+    private volatile boolean loaded;
+
+    /**
+     * Appointments before this day may be archived, later ones never are;
+     * null while nothing has been archived.
+     */
+    public LocalDate getBoundary() {
+        if (!loaded) {
+            refresh();
+        }
+        return boundary;
+    }
+
+    /**
+     * True if an unbounded listing has to include the archive.
+     */
+    public boolean hasArchive() {
+        return getBoundary() != null;
+    }
+
+    /**
+     * True if appointments from {@code startDate} on may include archived ones.
+     */
+    public boolean reachesArchive(LocalDate startDate) {
+        LocalDate current = getBoundary();
+        return current != null && startDate.isBefore(current);
+    }
+
+    /**
+     * True if invoices dated from {@code startDate} on may include archived
+     * ones; the job only archives invoices dated before the boundary.
+     */
+    public boolean reachesArchive(LocalDateTime startDate) {
+        return reachesArchive(startDate.toLocalDate());
+    }
+
+    @Scheduled(fixedDelayString = "${app.archive.refresh-seconds:60}", timeUnit = TimeUnit.SECONDS)
+    void refresh() {
+        try {
+            boundary = readState().getBoundary();
+            loaded = true;
+        } catch (RuntimeException e) {
+            logger.warn("Arşiv sınırı okunamadı: {}", e.getMessage());
+        }
+    }
+
+    ArchiveState readState() {
+        return jdbcTemplate.queryForObject(SELECT_STATE, (rs, rowNum) -> new ArchiveState(
+                rs.getObject("arsiv_siniri", LocalDate.class), rs.getObject("guncelleme", LocalDateTime.class)));
+    }
+
+    /**
+     * Moves the boundary forward to {@code siniri}; an earlier value leaves it
+     * unchanged. Returns true if it moved.
+     */
+    boolean raiseBoundary(LocalDate siniri) {
+        boolean raised = jdbcTemplate.update(RAISE_BOUNDARY, siniri, LocalDateTime.now(), siniri) > 0;
+        if (raised) {
+            refresh();
+        }
+        return raised;
+    }
+
+    long getRefreshMillis() {
+        return TimeUnit.SECONDS.toMillis(refreshSeconds);
+    }
+
+    /**
+     * Archived counterpart of the keyset page queries in AppointmentRepository.
+     */
+    public List<AppointmentView> findPageAfter(Long doctorId, LocalDate tarih, LocalTime saat, long id,
+                                               LocalDate endDate, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource("tarih", tarih)
+                .addValue("saat", saat)
+                .addValue("id", id)
+                .addValue("endDate", endDate)
+                .addValue("limit", limit);
+        if (doctorId == null) {
+            return namedParameterJdbcTemplate.query(SELECT_PAGE, params, AppointmentArchiveService::toView);
+        }
+        return namedParameterJdbcTemplate.query(SELECT_DOCTOR_PAGE, params.addValue("doctorId", doctorId),
+                AppointmentArchiveService::toView);
+    }
+
+    public List<AppointmentView> findByTc(String tc) {
+        return jdbcTemplate.query(SELECT_BY_TC, AppointmentArchiveService::toView, tc);
+    }
+
+    /**
+     * Archived invoices ordered by (tarih, id); every bound is optional.
+     */
+    public List<InvoiceView> findInvoiceViews(Long doctorId, LocalDateTime startDate, LocalDateTime endDate) {
+        List<String> conditions = new ArrayList<>();
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        // Missing bounds are left out rather than replaced by sentinel dates
+        if (startDate != null) {
+            conditions.add("i.tarih >= :startDate");
+            params.addValue("startDate", startDate);
+        }
+        if (endDate != null) {
+            conditions.add("i.tarih <= :endDate");
+            params.addValue("endDate", endDate);
+        }
+        if (doctorId != null) {
+            conditions.add("a.doktor_id = :doctorId");
+            params.addValue("doctorId", doctorId);
+        }
+        String where = conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions) + " ";
+        return namedParameterJdbcTemplate.query(SELECT_INVOICE_VIEWS + where + INVOICE_ORDER, params,
+                AppointmentArchiveService::toInvoiceView);
+    }
+
+    /**
+     * Archived counterpart of AppointmentRepository.countDailyByTarihBetween,
+     * with the same columns.
+     */
+    public List<Object[]> countDaily(LocalDate startDate, LocalDate endDate) {
+        return jdbcTemplate.query(COUNT_DAILY, (rs, rowNum) -> new Object[]{
+                rs.getObject("tarih", LocalDate.class), rs.getLong("doktor_id"), rs.getString("bolum"),
+                AppointmentStatus.valueOf(rs.getString("status")), rs.getLong("adet")}, startDate, endDate);
+    }
+
+    /**
+     * Archived counterpart of InvoiceRepository.sumPaidDailyByTarihBetween,
+     * with the same columns and the same exclusive {@code endBefore}.
+     */
+    public List<Object[]> sumPaidDaily(LocalDateTime startDate, LocalDateTime endBefore) {
+        return jdbcTemplate.query(SUM_PAID_DAILY, (rs, rowNum) -> new Object[]{
+                rs.getObject("gun", LocalDate.class), rs.getLong("doktor_id"), rs.getString("bolum"),
+                rs.getBigDecimal("toplam")}, startDate, endBefore);
+    }
+
+    /**
+     * Export rows of the range from the live and the archive table, ordered by
+     * (tarih, saat, id). Has to be closed; runs on the caller's transaction.
+     */
+    public Stream<AppointmentExportRow> streamExportRows(LocalDate startDate, LocalDate endDate) {
+        return jdbcTemplate.queryForStream(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT_EXPORT_ROWS,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            // MySQL streams rows one by one only when the fetch size is Integer.MIN_VALUE
+            ps.setFetchSize(Integer.MIN_VALUE);
+            ps.setDate(1, Date.valueOf(startDate));
+            ps.setDate(2, Date.valueOf(endDate));
+            ps.setDate(3, Date.valueOf(startDate));
+            ps.setDate(4, Date.valueOf(endDate));
+            return ps;
+        }, AppointmentArchiveService::toExportRow);
+    }
+
+    private static AppointmentView toView(ResultSet rs, int rowNum) throws SQLException {
+        String invoiceStatus = rs.getString("invoice_status");
+        return new AppointmentView(rs.getLong("id"), rs.getString("hasta_ad"), rs.getString("hasta_soyad"),
+                rs.getString("tc"), rs.getString("telefon"), rs.getString("email"), rs.getLong("doktor_id"),
+                rs.getString("ad"), rs.getString("soyad"), rs.getObject("tarih", LocalDate.class),
+                rs.getObject("saat", LocalTime.class), rs.getString("bolum"),
+                AppointmentStatus.valueOf(rs.getString("status")), rs.getObject("invoice_id", Long.class),
+                invoiceStatus != null ? InvoiceStatus.valueOf(invoiceStatus) : null);
+    }
+
+    private static InvoiceView toInvoiceView(ResultSet rs, int rowNum) throws SQLException {
+        return new InvoiceView(rs.getLong("id"), rs.getBigDecimal("tutar"), rs.getString("aciklama"),
+                rs.getObject("tarih", LocalDateTime.class), InvoiceStatus.valueOf(rs.getString("status")),
+                rs.getLong("appointment_id"), rs.getObject("randevu_tarihi", LocalDate.class),
+                rs.getObject("saat", LocalTime.class), rs.getString("hasta_ad"), rs.getString("hasta_soyad"),
+                rs.getLong("doktor_id"), rs.getString("ad"), rs.getString("soyad"));
+    }
+
+    private static AppointmentExportRow toExportRow(ResultSet rs, int rowNum) throws SQLException {
+        return new AppointmentExportRow(rs.getLong("id"), rs.getObject("tarih", LocalDate.class),
+                rs.getObject("saat", LocalTime.class), rs.getLong("doktor_id"), rs.getString("ad"),
+                rs.getString("soyad"), rs.getString("hasta_ad"), rs.getString("hasta_soyad"), rs.getString("tc"),
+                rs.getString("telefon"), rs.getString("bolum"), AppointmentStatus.valueOf(rs.getString("status")));
+    }
+
+    static final class ArchiveState {
+
+        private final LocalDate boundary;
+        private final LocalDateTime raisedAt;
+
+        ArchiveState(LocalDate boundary, LocalDateTime raisedAt) {
+            this.boundary = boundary;
+            this.raisedAt = raisedAt;
+        }
+
+        LocalDate getBoundary() {
+            return boundary;
+        }
+
+        LocalDateTime getRaisedAt() {
+            return raisedAt;
+        }
+    }
+}
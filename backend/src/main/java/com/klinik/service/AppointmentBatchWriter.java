@@ -0,0 +1,126 @@
+package com.klinik.service;
+
+import com.klinik.model.Appointment;
+import com.klinik.model.Doctor;
+import com.klinik.model.Invoice;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Inserts appointments and their invoices with JDBC batching. Hibernate cannot
+ * batch inserts into tables with IDENTITY keys, so this path bypasses the
+ * persistence context and resolves the generated ids afterwards through the
+ * unique (doktor_id, tarih, saat, koltuk_no) slot key, in a single query.
+ *
+ * <p>Callers must run inside a transaction and hold the booking locks for
+ * every affected doctor-day.
+ */
+@Component
+public class AppointmentBatchWriter {
+
+    private static final String INSERT_APPOINTMENT =
+            "INSERT INTO appointments " +
+            "(hasta_ad, hasta_soyad, tc, telefon, doktor_id, tarih, saat, bolum, status, patient_id, series_id, email, " +
+            "koltuk_no) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_IDS =
+            "SELECT id, doktor_id, tarih, saat, koltuk_no FROM appointments " +
+            "WHERE doktor_id IN (:doctorIds) AND tarih IN (:tarihler)";
+
+    private static final String INSERT_INVOICE =
+            "INSERT INTO invoices (appointment_id, tutar, aciklama, tarih, status) VALUES (?, ?, ?, ?, ?)";
+
+    private static final int BATCH_SIZE = 100;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private ChangeLogService changeLogService;
+
+    @Autowired
+    private RevenueRollupService revenueRollupService;
+
+    /**
+     * Inserts the appointments and sets their generated ids.
+     */
+    public void insertAppointments(List<Appointment> appointments) {
+        if (appointments.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_APPOINTMENT, appointments, BATCH_SIZE, (ps, a) -> {
+            ps.setString(1, a.getHastaAd());
+            ps.setString(2, a.getHastaSoyad());
+            ps.setString(3, a.getTc());
+            ps.setString(4, a.getTelefon());
+            ps.setLong(5, a.getDoctor().getId());
+            ps.setObject(6, a.getTarih());
+            ps.setObject(7, a.getSaat());
+            ps.setString(8, a.getBolum());
+            ps.setString(9, a.getStatus().name());
+            ps.setObject(10, a.getPatient() != null ? a.getPatient().getId() : null, Types.BIGINT);
+            ps.setObject(11, a.getSeries() != null ? a.getSeries().getId() : null, Types.BIGINT);
+            ps.setString(12, a.getEmail());
+            ps.setInt(13, a.getKoltukNo());
+        });
+
+        Set<Long> doctorIds = appointments.stream().map(a -> a.getDoctor().getId()).collect(Collectors.toSet());
+        Set<LocalDate> tarihler = appointments.stream().map(Appointment::getTarih).collect(Collectors.toSet());
+        Map<String, Long> ids = new HashMap<>();
+        namedParameterJdbcTemplate.query(SELECT_IDS,
+                new MapSqlParameterSource("doctorIds", doctorIds).addValue("tarihler", tarihler),
+                rs -> {
+                    ids.put(chairKey(rs.getLong("doktor_id"), rs.getObject("tarih", LocalDate.class),
+                            rs.getObject("saat", LocalTime.class), rs.getInt("koltuk_no")), rs.getLong("id"));
+                });
+        for (Appointment a : appointments) {
+            a.setId(ids.get(chairKey(a.getDoctor().getId(), a.getTarih(), a.getSaat(), a.getKoltukNo())));
+        }
+        changeLogService.recordAppointments(appointments.stream().map(Appointment::getId).toList());
+    }
+
+    /**
+     * Inserts one pending invoice per appointment, priced from its doctor.
+     */
+    public void insertInvoices(List<Appointment> appointments) {
+        if (appointments.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(INSERT_INVOICE, appointments, BATCH_SIZE, (ps, a) -> {
+            Doctor doctor = a.getDoctor();
+            ps.setLong(1, a.getId());
+            ps.setBigDecimal(2, doctor.getUcret());
+            ps.setString(3, doctor.getUzmanlik() + " muayenesi - " + doctor.getFullName());
+            ps.setObject(4, now);
+            ps.setString(5, Invoice.InvoiceStatus.BEKLEMEDE.name());
+        });
+        List<Long> ids = appointments.stream().map(Appointment::getId).toList();
+        changeLogService.recordInvoicesOf(ids);
+        revenueRollupService.applyInvoicesOf(ids, 1);
+    }
+
+    static String slotKey(Long doctorId, LocalDate tarih, LocalTime saat) {
+        return doctorId + "|" + tarih + "|" + saat;
+    }
+
+    static String chairKey(Long doctorId, LocalDate tarih, LocalTime saat, int koltukNo) {
+        return slotKey(doctorId, tarih, saat) + "#" + koltukNo;
+    }
+}
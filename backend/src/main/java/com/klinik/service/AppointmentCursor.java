@@ -0,0 +1,62 @@
+package com.klinik.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Base64;
+
+/**
+ * Position in the (tarih, saat, id) ordering of appointments, exchanged with
+ * clients as an opaque URL-safe token.
+ */
+final class AppointmentCursor {
+
+    // Earliest DATE value MySQL accepts; sorts before every stored appointment
+    static final LocalDate MIN_TARIH = LocalDate.of(1000, 1, 1);
+    static final LocalDate MAX_TARIH = LocalDate.of(9999, 12, 31);
+
+    private final LocalDate tarih;
+    private final LocalTime saat;
+    private final long id;
+
+    AppointmentCursor(LocalDate tarih, LocalTime saat, long id) {
+        this.tarih = tarih;
+        this.saat = saat;
+        this.id = id;
+    }
+
+    /**
+     * Cursor positioned just before the first appointment on the given day.
+     */
+    static AppointmentCursor before(LocalDate tarih) {
+        return new AppointmentCursor(tarih != null ? tarih : MIN_TARIH, LocalTime.MIN, 0L);
+    }
+
+    static AppointmentCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            return new AppointmentCursor(LocalDate.parse(parts[0]), LocalTime.parse(parts[1]),
+                    Long.parseLong(parts[2]));
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Geçersiz sayfa imleci");
+        }
+    }
+
+    String encode() {
+        String raw = tarih + "|" + saat + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    LocalDate getTarih() {
+        return tarih;
+    }
+
+    LocalTime getSaat() {
+        return saat;
+    }
+
+    long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,146 @@
+package com.klinik.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.klinik.dto.AppointmentExportRow;
+import com.klinik.repository.AppointmentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes appointments in a date range as NDJSON or CSV straight from a
+ * forward-only database cursor. Rows are unmanaged projections written as they
+ * arrive, so memory use does not depend on the size of the range.
+ */
+@Service
+public class AppointmentExportService {
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    private static final int FLUSH_EVERY = 500;
+
+    private static final String CSV_HEADER =
+            "id,tarih,saat,doktor_id,doktor_ad,doktor_soyad,hasta_ad,hasta_soyad,tc,telefon,bolum,status";
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private AppointmentArchiveService appointmentArchiveService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    public void export(LocalDate startDate, LocalDate endDate, Format format, boolean gzip, OutputStream out)
+            throws IOException {
+        if (startDate.isAfter(endDate)) {
+            throw new RuntimeException("Başlangıç tarihi bitiş tarihinden sonra olamaz");
+        }
+
+        // The cursor needs an open transaction on the streaming thread
+        TransactionTemplate readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+
+        OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 64 * 1024);
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<AppointmentExportRow> rows = appointmentArchiveService.reachesArchive(startDate)
+                        ? appointmentArchiveService.streamExportRows(startDate, endDate)
+                        : appointmentRepository.streamExportRows(startDate, endDate)) {
+                    if (format == Format.CSV) {
+                        writeCsv(rows.iterator(), writer);
+                    } else {
+                        writeNdjson(rows.iterator(), writer);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        if (target instanceof GZIPOutputStream) {
+            ((GZIPOutputStream) target).finish();
+        }
+        out.flush();
+    }
+
+    private void writeNdjson(Iterator<AppointmentExportRow> rows, Writer writer) throws IOException {
+        ObjectWriter rowWriter = objectMapper.writerFor(AppointmentExportRow.class);
+        int count = 0;
+        while (rows.hasNext()) {
+            writer.write(rowWriter.writeValueAsString(rows.next()));
+            writer.write('\n');
+            if (++count % FLUSH_EVERY == 0) {
+                writer.flush();
+            }
+        }
+    }
+
+    private void writeCsv(Iterator<AppointmentExportRow> rows, Writer writer) throws IOException {
+        // BOM so that spreadsheet programs detect UTF-8 and show Turkish characters correctly
+        writer.write('\uFEFF');
+        writer.write(CSV_HEADER);
+        writer.write("\r\n");
+        int count = 0;
+        while (rows.hasNext()) {
+            AppointmentExportRow row = rows.next();
+            writer.write(String.valueOf(row.getId()));
+            writer.write(',');
+            writer.write(row.getTarih().toString());
+            writer.write(',');
+            writer.write(row.getSaat().toString());
+            writer.write(',');
+            writer.write(String.valueOf(row.getDoctorId()));
+            writeCsvField(writer, row.getDoktorAd());
+            writeCsvField(writer, row.getDoktorSoyad());
+            writeCsvField(writer, row.getHastaAd());
+            writeCsvField(writer, row.getHastaSoyad());
+            writeCsvField(writer, row.getTc());
+            writeCsvField(writer, row.getTelefon());
+            writeCsvField(writer, row.getBolum());
+            writeCsvField(writer, row.getStatus().name());
+            writer.write("\r\n");
+            if (++count % FLUSH_EVERY == 0) {
+                writer.flush();
+            }
+        }
+    }
+
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        writer.write(',');
+        if (value == null) {
+            return;
+        }
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,268 @@
+package com.klinik.service;
+
+import com.klinik.dto.SeriesOccurrence;
+import com.klinik.dto.SeriesPlan;
+import com.klinik.event.SlotChangedEvent;
+import com.klinik.exception.AppointmentConflictException;
+import com.klinik.exception.SeriesConflictException;
+import com.klinik.model.Appointment;
+import com.klinik.model.AppointmentSeries;
+import com.klinik.model.Doctor;
+import com.klinik.model.Patient;
+import com.klinik.repository.AppointmentRepository;
+import com.klinik.repository.AppointmentSeriesRepository;
+import com.klinik.repository.DoctorRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Books recurring appointment series. The rule is expanded into dates, all of
+ * them are checked against the doctor's appointments with one range query,
+ * clashing dates get a proposed alternative nearby, and the whole series is
+ * written with JDBC batches in one transaction.
+ */
+@Service
+public class AppointmentSeriesService {
+
+    // Alternatives are searched this many days before and after a clashing date
+    private static final int ALTERNATE_SEARCH_DAYS = 7;
+
+    // The plan is made without locks; if it no longer holds once the locks are
+    // taken, it is made once more before giving up.
+    private static final int MAX_ATTEMPTS = 2;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private AppointmentSeriesRepository appointmentSeriesRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private DoctorScheduleService doctorScheduleService;
+
+    @Autowired
+    private SlotHoldService slotHoldService;
+
+    @Autowired
+    private PatientService patientService;
+
+    @Autowired
+    private AppointmentBatchWriter appointmentBatchWriter;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private BookingLocks bookingLocks;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    public SeriesPlan preview(AppointmentSeries series) {
+        Doctor doctor = loadDoctor(series);
+        return new SeriesPlan(null, plan(series, doctor));
+    }
+
+    /**
+     * Creates the series. Clashing occurrences are moved to their proposed
+     * alternative if {@code useAlternatives} is set; otherwise, or if some
+     * clash has no alternative, nothing is booked.
+     */
+    public SeriesPlan createSeries(AppointmentSeries series, boolean useAlternatives) {
+        Doctor doctor = loadDoctor(series);
+        Patient patient = patientService.resolvePatient(series.getTc(), series.getHastaAd(),
+                series.getHastaSoyad(), series.getTelefon());
+
+        for (int attempt = 1; ; attempt++) {
+            List<SeriesOccurrence> occurrences = plan(series, doctor);
+            SeriesPlan plan = new SeriesPlan(null, occurrences);
+            if (occurrences.stream().anyMatch(o -> o.getDurum() == SeriesOccurrence.Durum.CAKISMA && !o.hasAlternative())) {
+                throw new SeriesConflictException("Bazı tarihler için uygun bir alternatif saat bulunamadı", plan);
+            }
+            if (!useAlternatives && plan.getConflictCount() > 0) {
+                throw new SeriesConflictException("Serinin bazı tarihlerinde çakışma var", plan);
+            }
+
+            List<Appointment> appointments = new ArrayList<>();
+            for (SeriesOccurrence o : occurrences) {
+                boolean moved = o.getDurum() == SeriesOccurrence.Durum.CAKISMA;
+                Appointment appointment = new Appointment(series.getHastaAd(), series.getHastaSoyad(), series.getTc(),
+                        series.getTelefon(), doctor, moved ? o.getAlternatifTarih() : o.getTarih(),
+                        moved ? o.getAlternatifSaat() : o.getSaat(), series.getBolum());
+                appointment.setPatient(patient);
+                appointments.add(appointment);
+            }
+            Set<DoctorDay> days = appointments.stream()
+                    .map(a -> new DoctorDay(doctor.getId(), a.getTarih()))
+                    .collect(Collectors.toSet());
+
+            try {
+                Long seriesId = bookingLocks.withLocks(days, () -> transactionTemplate.execute(
+                        status -> persist(series, doctor, patient, appointments)));
+                plan.setSeriesId(seriesId);
+                return plan;
+            } catch (AppointmentConflictException | DataIntegrityViolationException e) {
+                series.setId(null);
+                if (attempt == MAX_ATTEMPTS) {
+                    throw new AppointmentConflictException();
+                }
+            }
+        }
+    }
+
+    private Long persist(AppointmentSeries series, Doctor doctor, Patient patient, List<Appointment> appointments) {
+        // Re-check the chosen slots under the locks, again with a single query
+        Set<LocalDate> tarihler = appointments.stream().map(Appointment::getTarih).collect(Collectors.toSet());
+        SlotChairs used = new SlotChairs();
+        for (Object[] row : appointmentRepository.findSlotsByDoctorIdsAndTarihler(List.of(doctor.getId()), tarihler)) {
+            used.use((Long) row[0], (LocalDate) row[1], (LocalTime) row[2], (Integer) row[3]);
+        }
+        int capacity = doctorScheduleService.getSchedule(doctor.getId()).getCapacity();
+        for (Appointment a : appointments) {
+            int chair = used.freeChair(doctor.getId(), a.getTarih(), a.getSaat(), capacity,
+                    slotHoldService.heldChairs(doctor.getId(), a.getTarih(), a.getSaat(), capacity, null));
+            if (chair == 0) {
+                throw new AppointmentConflictException();
+            }
+            a.setKoltukNo(chair);
+            used.use(doctor.getId(), a.getTarih(), a.getSaat(), chair);
+        }
+
+        series.setId(null);
+        series.setDoctor(doctor);
+        series.setPatient(patient);
+        AppointmentSeries saved = appointmentSeriesRepository.saveAndFlush(series);
+        appointments.forEach(a -> a.setSeries(saved));
+
+        appointmentBatchWriter.insertAppointments(appointments);
+        outboxService.appointmentsBooked(appointments);
+        for (Appointment a : appointments) {
+            eventPublisher.publishEvent(SlotChangedEvent.taken(doctor.getId(), a.getTarih(), a.getSaat(),
+                    a.getKoltukNo()));
+        }
+        return saved.getId();
+    }
+
+    private List<SeriesOccurrence> plan(AppointmentSeries series, Doctor doctor) {
+        List<LocalDate> dates = new ArrayList<>();
+        for (int n = 0; n < series.getTekrarSayisi(); n++) {
+            dates.add(series.occurrenceDate(n));
+        }
+
+        // One range query covers every occurrence and its alternatives
+        LocalDate from = dates.get(0).minusDays(ALTERNATE_SEARCH_DAYS);
+        LocalDate to = dates.get(dates.size() - 1).plusDays(ALTERNATE_SEARCH_DAYS);
+        SlotChairs used = new SlotChairs();
+        for (Object[] row : appointmentRepository.findSlotsByDoctorIdAndTarihBetween(doctor.getId(), from, to)) {
+            used.use(doctor.getId(), (LocalDate) row[0], (LocalTime) row[1], (Integer) row[2]);
+        }
+
+        SlotFilter filter = new SlotFilter(doctor.getId(), doctorScheduleService.getSchedule(doctor.getId()), used);
+        List<SeriesOccurrence> occurrences = new ArrayList<>();
+        for (int n = 0; n < dates.size(); n++) {
+            LocalDate tarih = dates.get(n);
+            if (filter.isFree(tarih, series.getSaat())) {
+                filter.use(tarih, series.getSaat());
+                occurrences.add(new SeriesOccurrence(n + 1, tarih, series.getSaat(),
+                        SeriesOccurrence.Durum.UYGUN, null, null));
+            } else {
+                occurrences.add(new SeriesOccurrence(n + 1, tarih, series.getSaat(),
+                        SeriesOccurrence.Durum.CAKISMA, null, null));
+            }
+        }
+
+        // Alternatives only after every regular occurrence has claimed its slot
+        for (SeriesOccurrence o : occurrences) {
+            if (o.getDurum() == SeriesOccurrence.Durum.CAKISMA) {
+                findAlternative(filter, o);
+            }
+        }
+        return occurrences;
+    }
+
+    /**
+     * Looks for the nearest free slot: same day first, then one day later,
+     * one day earlier and so on; on each day the slot closest to the wanted time.
+     */
+    private void findAlternative(SlotFilter filter, SeriesOccurrence occurrence) {
+        for (int distance = 0; distance <= ALTERNATE_SEARCH_DAYS; distance++) {
+            for (int sign : distance == 0 ? new int[]{1} : new int[]{1, -1}) {
+                LocalDate tarih = occurrence.getTarih().plusDays((long) sign * distance);
+                LocalTime best = filter.schedule.getSlots(tarih).stream()
+                        .filter(slot -> filter.isFree(tarih, slot))
+                        .min(Comparator.comparingLong(slot -> Math.abs(ChronoUnit.MINUTES.between(slot, occurrence.getSaat()))))
+                        .orElse(null);
+                if (best != null) {
+                    filter.use(tarih, best);
+                    occurrence.setAlternatifTarih(tarih);
+                    occurrence.setAlternatifSaat(best);
+                    return;
+                }
+            }
+        }
+    }
+
+    private Doctor loadDoctor(AppointmentSeries series) {
+        if (series.getDoctor() == null || series.getDoctor().getId() == null) {
+            throw new RuntimeException("Doktor seçimi yapılmalıdır");
+        }
+        if (series.getTekrarSayisi() == null || series.getTekrarSayisi() > AppointmentSeries.MAX_OCCURRENCES) {
+            throw new RuntimeException("Bir seri en fazla " + AppointmentSeries.MAX_OCCURRENCES + " randevudan oluşabilir");
+        }
+        return doctorRepository.findById(series.getDoctor().getId())
+                .orElseThrow(() -> new RuntimeException("Doktor bulunamadı"));
+    }
+
+    /**
+     * Free-slot test for one planning run: working hours, existing
+     * appointments, slot holds and chairs already given to this series.
+     */
+    private class SlotFilter {
+
+        private final Long doctorId;
+        private final WeeklySchedule schedule;
+        private final SlotChairs used;
+        private final LocalDateTime now = LocalDateTime.now();
+
+        SlotFilter(Long doctorId, WeeklySchedule schedule, SlotChairs used) {
+            this.doctorId = doctorId;
+            this.schedule = schedule;
+            this.used = used;
+        }
+
+        boolean isFree(LocalDate tarih, LocalTime saat) {
+            return LocalDateTime.of(tarih, saat).isAfter(now)
+                    && schedule.isBookable(tarih, saat)
+                    && freeChair(tarih, saat) != 0;
+        }
+
+        void use(LocalDate tarih, LocalTime saat) {
+            used.use(doctorId, tarih, saat, freeChair(tarih, saat));
+        }
+
+        private int freeChair(LocalDate tarih, LocalTime saat) {
+            int capacity = schedule.getCapacity();
+            return used.freeChair(doctorId, tarih, saat, capacity,
+                    slotHoldService.heldChairs(doctorId, tarih, saat, capacity, null));
+        }
+    }
+}
@@ -1,22 +1,40 @@
 package com.klinik.service;
 
+import com.klinik.dto.AppointmentView;
+import com.klinik.dto.CursorPage;
+import com.klinik.dto.DayCapacity;
+import com.klinik.dto.SlotCapacity;
+import com.klinik.event.AppointmentChangedEvent;
+import com.klinik.event.SlotChangedEvent;
+import com.klinik.exception.AppointmentConflictException;
 import com.klinik.model.Appointment;
+import com.klinik.model.Appointment.AppointmentStatus;
 import com.klinik.model.Doctor;
-import com.klinik.model.Invoice;
+import com.klinik.model.Patient;
 import com.klinik.repository.AppointmentRepository;
 import com.klinik.repository.DoctorRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 
 @Service
 public class AppointmentService {
 
+    private static final Comparator<AppointmentView> VIEW_ORDER = Comparator.comparing(AppointmentView::getTarih)
+            .thenComparing(AppointmentView::getSaat).thenComparing(AppointmentView::getId);
+
     @Autowired
     private AppointmentRepository appointmentRepository;
 
@@ -24,26 +42,156 @@ public class AppointmentService {
     private DoctorRepository doctorRepository;
 
     @Autowired
-    private InvoiceService invoiceService;
+    private OutboxService outboxService;
+
+    @Autowired
+    private SlotOccupancyIndex slotOccupancyIndex;
+
+    @Autowired
+    private DoctorScheduleService doctorScheduleService;
+
+    @Autowired
+    private BookingLocks bookingLocks;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PatientService patientService;
+
+    @Autowired
+    private PatientBackfillJob patientBackfillJob;
+
+    @Autowired
+    private SlotHoldService slotHoldService;
+
+    @Autowired
+    private AppointmentArchiveService appointmentArchiveService;
+
+    @Autowired
+    private RevenueRollupService revenueRollupService;
+
+    @Autowired
+    private AppointmentStatusService appointmentStatusService;
+
+    @Value("${app.pagination.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${app.pagination.max-size:500}")
+    private int maxPageSize;
 
     public List<Appointment> getAllAppointments() {
         return appointmentRepository.findAll();
     }
 
+    public long countAppointments() {
+        return appointmentRepository.count();
+    }
+
+    /**
+     * Keyset-paginated listing ordered by (tarih, saat, id). Doctor and date
+     * bounds are optional; {@code cursor} is the token from the previous page.
+     */
+    public CursorPage<AppointmentView> getAppointmentPage(Long doctorId, LocalDate startDate, LocalDate endDate,
+                                                          String cursor, Integer size) {
+        int limit = size == null ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+
+        AppointmentCursor after = AppointmentCursor.before(startDate);
+        if (cursor != null && !cursor.isBlank()) {
+            AppointmentCursor decoded = AppointmentCursor.decode(cursor);
+            if (!decoded.getTarih().isBefore(after.getTarih())) {
+                after = decoded;
+            }
+        }
+        LocalDate upperBound = endDate != null ? endDate : AppointmentCursor.MAX_TARIH;
+
+        // One extra row tells whether another page follows
+        PageRequest pageRequest = PageRequest.of(0, limit + 1);
+        List<AppointmentView> rows = doctorId != null
+                ? appointmentRepository.findDoctorPageAfter(doctorId, after.getTarih(), after.getSaat(),
+                        after.getId(), upperBound, pageRequest)
+                : appointmentRepository.findPageAfter(after.getTarih(), after.getSaat(), after.getId(),
+                        upperBound, pageRequest);
+        if (appointmentArchiveService.reachesArchive(after.getTarih())) {
+            rows = mergeByPosition(rows, appointmentArchiveService.findPageAfter(doctorId, after.getTarih(),
+                    after.getSaat(), after.getId(), upperBound, limit + 1), limit + 1);
+        }
+
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+        List<AppointmentView> items = rows.subList(0, limit);
+        AppointmentView last = items.get(limit - 1);
+        return new CursorPage<>(items,
+                new AppointmentCursor(last.getTarih(), last.getSaat(), last.getId()).encode());
+    }
+
+    // Both lists are ordered by (tarih, saat, id)
+    private static List<AppointmentView> mergeByPosition(List<AppointmentView> live, List<AppointmentView> archived,
+                                                         int limit) {
+        List<AppointmentView> merged = new ArrayList<>(Math.min(limit, live.size() + archived.size()));
+        int l = 0;
+        int a = 0;
+        while (merged.size() < limit && (l < live.size() || a < archived.size())) {
+            if (a == archived.size() || (l < live.size() && VIEW_ORDER.compare(live.get(l), archived.get(a)) < 0)) {
+                merged.add(live.get(l++));
+            } else {
+                merged.add(archived.get(a++));
+            }
+        }
+        return merged;
+    }
+
     public Optional<Appointment> getAppointmentById(Long id) {
         return appointmentRepository.findById(id);
     }
 
-    public List<Appointment> getAppointmentsByDoctor(Long doctorId) {
-        Doctor doctor = doctorRepository.findById(doctorId)
-                .orElseThrow(() -> new RuntimeException("Doktor bulunamadı: " + doctorId));
-        return appointmentRepository.findByDoctor(doctor);
+    /**
+     * Appointments of the patient with this TC. The name only has to match one
+     * of the patient's records, ignoring case and extra whitespace.
+     */
+    public List<AppointmentView> getAppointmentsByPatient(String tc, String hastaAd, String hastaSoyad) {
+        String tcHash = patientService.hashTc(tc);
+        List<Appointment> appointments = new ArrayList<>(appointmentRepository.findByPatientTcHash(tcHash));
+        if (!patientBackfillJob.isComplete()) {
+            appointments.addAll(appointmentRepository.findUnlinkedByTc(tc));
+            appointments.sort(Comparator.comparing(Appointment::getTarih).thenComparing(Appointment::getSaat));
+        }
+
+        List<AppointmentView> archived = appointmentArchiveService.hasArchive()
+                ? appointmentArchiveService.findByTc(tc) : List.of();
+
+        boolean nameMatches = appointments.stream().anyMatch(a -> matchesName(a, hastaAd, hastaSoyad))
+                || archived.stream().anyMatch(v -> PatientService.sameName(v.getHastaAd(), hastaAd)
+                        && PatientService.sameName(v.getHastaSoyad(), hastaSoyad));
+        if (!nameMatches) {
+            return List.of();
+        }
+        List<AppointmentView> views = new ArrayList<>(archived);
+        appointments.forEach(a -> views.add(AppointmentView.of(a)));
+        if (!archived.isEmpty()) {
+            views.sort(VIEW_ORDER);
+        }
+        return views;
     }
 
-    public List<Appointment> getAppointmentsByPatient(String tc, String hastaAd, String hastaSoyad) {
-        return appointmentRepository.findByTcAndHastaAdAndHastaSoyad(tc, hastaAd, hastaSoyad);
+    private static boolean matchesName(Appointment appointment, String hastaAd, String hastaSoyad) {
+        if (PatientService.sameName(appointment.getHastaAd(), hastaAd)
+                && PatientService.sameName(appointment.getHastaSoyad(), hastaSoyad)) {
+            return true;
+        }
+        Patient patient = appointment.getPatient();
+        return patient != null && PatientService.sameName(patient.getAd(), hastaAd)
+                && PatientService.sameName(patient.getSoyad(), hastaSoyad);
     }
 
+    /**
+     * Live appointments of the range as entities; archived ones are only
+     * available through the view listings.
+     */
     public List<Appointment> getAppointmentsByDateRange(LocalDate startDate, LocalDate endDate) {
         return appointmentRepository.findByTarihBetween(startDate, endDate);
     }
@@ -54,114 +202,229 @@ public class AppointmentService {
         return appointmentRepository.findByDoctorAndTarihBetween(doctor, startDate, endDate);
     }
 
-    @Transactional
     public Appointment createAppointment(Appointment appointment) {
+        return createAppointment(appointment, null);
+    }
+
+    /**
+     * Books the appointment; {@code holdToken} confirms a slot hold, either one
+     * taken from the booking form or a waitlist offer.
+     */
+    public Appointment createAppointment(Appointment appointment, String holdToken) {
         // Validate doctor exists
         if (appointment.getDoctor() == null || appointment.getDoctor().getId() == null) {
             throw new RuntimeException("Doktor seçimi yapılmalıdır");
         }
 
+        Long doctorId = appointment.getDoctor().getId();
+        appointment.setPatient(patientService.resolvePatient(appointment.getTc(), appointment.getHastaAd(),
+                appointment.getHastaSoyad(), appointment.getTelefon()));
+
+        // The lock is held until the transaction has committed, so the next booking
+        // for this doctor and day already sees this one in the occupancy index.
+        Appointment savedAppointment;
+        try {
+            savedAppointment = bookingLocks.withLock(doctorId, appointment.getTarih(),
+                    () -> transactionTemplate.execute(status -> doCreateAppointment(appointment, holdToken)));
+        } catch (DataIntegrityViolationException e) {
+            throw toConflict(e, doctorId, appointment.getTarih());
+        }
+        if (holdToken != null) {
+            slotHoldService.release(doctorId, savedAppointment.getTarih(), savedAppointment.getSaat(), holdToken);
+        }
+        return savedAppointment;
+    }
+
+    private Appointment doCreateAppointment(Appointment appointment, String holdToken) {
         Doctor doctor = doctorRepository.findById(appointment.getDoctor().getId())
                 .orElseThrow(() -> new RuntimeException("Doktor bulunamadı"));
 
-        // Check for appointment conflicts
-        if (hasConflict(doctor, appointment.getTarih(), appointment.getSaat())) {
-            throw new RuntimeException("Bu tarih ve saatte zaten bir randevu mevcut");
+        // A chair held with this token was free when the hold was taken and nobody
+        // else can book it since; otherwise take the lowest chair still free
+        int chair = slotHoldService.heldChair(doctor.getId(), appointment.getTarih(), appointment.getSaat(),
+                holdToken);
+        if (chair == 0) {
+            chair = slotHoldService.availableChair(doctor.getId(), appointment.getTarih(), appointment.getSaat(),
+                    holdToken);
+        }
+        if (chair == 0) {
+            throw new AppointmentConflictException();
         }
 
         // Check if time is within doctor's working hours
-        if (!isWithinWorkingHours(doctor, appointment.getSaat())) {
+        if (!isWithinWorkingHours(doctor, appointment.getTarih(), appointment.getSaat())) {
             throw new RuntimeException("Seçilen saat doktorun çalışma saatleri dışında");
         }
 
         // Save appointment
-        Appointment savedAppointment = appointmentRepository.save(appointment);
+        appointment.setDoctor(doctor);
+        appointment.setKoltukNo(chair);
+        Appointment savedAppointment = appointmentRepository.saveAndFlush(appointment);
+        eventPublisher.publishEvent(SlotChangedEvent.taken(doctor.getId(), savedAppointment.getTarih(),
+                savedAppointment.getSaat(), chair));
 
-        // Create invoice automatically
-        Invoice invoice = new Invoice();
-        invoice.setAppointment(savedAppointment);
-        invoice.setTutar(doctor.getUcret());
-        invoice.setAciklama(doctor.getUzmanlik() + " muayenesi - " + doctor.getFullName());
-        invoiceService.createInvoice(invoice);
+        // Invoice and confirmation e-mail follow from the outbox after commit
+        outboxService.appointmentBooked(savedAppointment);
 
         return savedAppointment;
     }
 
     public Appointment updateAppointment(Long id, Appointment appointmentDetails) {
-        Appointment appointment = appointmentRepository.findById(id)
+        Appointment current = appointmentRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Randevu bulunamadı: " + id));
+        Long doctorId = current.getDoctor().getId();
 
-        // Check for conflicts if date/time is being changed
-        if (!appointment.getTarih().equals(appointmentDetails.getTarih()) ||
-                !appointment.getSaat().equals(appointmentDetails.getSaat())) {
+        List<DoctorDay> days = List.of(new DoctorDay(doctorId, current.getTarih()),
+                new DoctorDay(doctorId, appointmentDetails.getTarih()));
+        try {
+            return bookingLocks.withLocks(days,
+                    () -> transactionTemplate.execute(status -> doUpdateAppointment(id, appointmentDetails)));
+        } catch (DataIntegrityViolationException e) {
+            throw toConflict(e, doctorId, appointmentDetails.getTarih());
+        }
+    }
 
-            if (hasConflict(appointment.getDoctor(), appointmentDetails.getTarih(), appointmentDetails.getSaat())) {
-                throw new RuntimeException("Bu tarih ve saatte zaten bir randevu mevcut");
+    private Appointment doUpdateAppointment(Long id, Appointment appointmentDetails) {
+        Appointment appointment = appointmentRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Randevu bulunamadı: " + id));
+        Long doctorId = appointment.getDoctor().getId();
+
+        LocalDate oldTarih = appointment.getTarih();
+        LocalTime oldSaat = appointment.getSaat();
+        int oldChair = appointment.getKoltukNo();
+        boolean slotChanged = !oldTarih.equals(appointmentDetails.getTarih()) ||
+                !oldSaat.equals(appointmentDetails.getSaat());
+
+        // Same rules as the batch status endpoint
+        AppointmentStatus oldStatus = appointment.getStatus();
+        AppointmentStatus newStatus = appointmentDetails.getStatus() != null ? appointmentDetails.getStatus() : oldStatus;
+        boolean statusChanged = newStatus != oldStatus;
+        if (statusChanged && !oldStatus.canTransitionTo(newStatus)) {
+            throw new RuntimeException("Geçersiz durum geçişi: " + oldStatus + " -> " + newStatus);
+        }
+
+        // Moving to another date/time needs a free chair there
+        if (slotChanged) {
+            int chair = slotHoldService.availableChair(doctorId, appointmentDetails.getTarih(),
+                    appointmentDetails.getSaat(), null);
+            if (chair == 0) {
+                throw new AppointmentConflictException();
             }
+            appointment.setKoltukNo(chair);
+        }
+
+        if (!appointment.getTc().equals(appointmentDetails.getTc())) {
+            appointment.setPatient(patientService.resolvePatient(appointmentDetails.getTc(),
+                    appointmentDetails.getHastaAd(), appointmentDetails.getHastaSoyad(), appointmentDetails.getTelefon()));
         }
 
         appointment.setHastaAd(appointmentDetails.getHastaAd());
         appointment.setHastaSoyad(appointmentDetails.getHastaSoyad());
         appointment.setTc(appointmentDetails.getTc());
         appointment.setTelefon(appointmentDetails.getTelefon());
+        appointment.setEmail(appointmentDetails.getEmail());
         appointment.setTarih(appointmentDetails.getTarih());
         appointment.setSaat(appointmentDetails.getSaat());
         appointment.setBolum(appointmentDetails.getBolum());
-        appointment.setStatus(appointmentDetails.getStatus());
+        appointment.setStatus(newStatus);
 
-        return appointmentRepository.save(appointment);
+        Appointment savedAppointment = appointmentRepository.saveAndFlush(appointment);
+        if (statusChanged) {
+            appointmentStatusService.cascadeToInvoices(List.of(id), newStatus);
+        }
+        if (slotChanged) {
+            eventPublisher.publishEvent(SlotChangedEvent.freed(doctorId, oldTarih, oldSaat, oldChair));
+            eventPublisher.publishEvent(SlotChangedEvent.taken(doctorId, savedAppointment.getTarih(),
+                    savedAppointment.getSaat(), savedAppointment.getKoltukNo()));
+        } else {
+            eventPublisher.publishEvent(new AppointmentChangedEvent(doctorId, savedAppointment.getTarih()));
+        }
+        return savedAppointment;
     }
 
     public void deleteAppointment(Long id) {
-        Appointment appointment = appointmentRepository.findById(id)
+        Appointment current = appointmentRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Randevu bulunamadı: " + id));
-        appointmentRepository.delete(appointment);
+        // Under the day's lock like bookings, so slot events of the day are published in commit order
+        Long doctorId = current.getDoctor().getId();
+        bookingLocks.withLock(doctorId, current.getTarih(), () -> transactionTemplate.execute(status -> {
+            Appointment existing = appointmentRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Randevu bulunamadı: " + id));
+            // The invoice goes with the appointment
+            revenueRollupService.applyInvoicesOf(List.of(id), -1);
+            appointmentRepository.delete(existing);
+            eventPublisher.publishEvent(SlotChangedEvent.freed(doctorId, existing.getTarih(), existing.getSaat(),
+                    existing.getKoltukNo()));
+            return existing;
+        }));
     }
 
+    /**
+     * True if every chair of the slot is booked or held.
+     */
     public boolean hasConflict(Doctor doctor, LocalDate tarih, LocalTime saat) {
-        List<Appointment> conflictingAppointments = appointmentRepository
-                .findByDoctorAndTarihAndSaat(doctor, tarih, saat);
-        return !conflictingAppointments.isEmpty();
+        return slotHoldService.availableChair(doctor.getId(), tarih, saat, null) == 0;
     }
 
-    private boolean isWithinWorkingHours(Doctor doctor, LocalTime appointmentTime) {
-        String workingHours = doctor.getCalismaSaatleri();
-        if (workingHours == null || workingHours.isEmpty()) {
-            return true; // If no working hours specified, allow all times
+    /**
+     * Maps a violation of the unique slot constraint to a conflict. The chair was
+     * booked through another node, so the local index reloads the day.
+     */
+    private RuntimeException toConflict(DataIntegrityViolationException e, Long doctorId, LocalDate tarih) {
+        if (!isSlotConstraintViolation(e)) {
+            return e;
         }
+        slotOccupancyIndex.invalidate(doctorId, tarih);
+        return new AppointmentConflictException();
+    }
 
-        // Parse working hours (format: "09:00-17:00")
-        try {
-            String[] hours = workingHours.split("-");
-            LocalTime startTime = LocalTime.parse(hours[0]);
-            LocalTime endTime = LocalTime.parse(hours[1]);
-
-            return !appointmentTime.isBefore(startTime) && !appointmentTime.isAfter(endTime);
-        } catch (Exception e) {
-            return true; // If parsing fails, allow the appointment
+    private static boolean isSlotConstraintViolation(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                String constraint = ((ConstraintViolationException) cause).getConstraintName();
+                if (constraint != null) {
+                    return constraint.toLowerCase().contains(Appointment.SLOT_CONSTRAINT);
+                }
+            }
         }
+        String message = e.getMostSpecificCause().getMessage();
+        return message != null && message.toLowerCase().contains(Appointment.SLOT_CONSTRAINT);
     }
 
-    public List<LocalTime> getAvailableTimeSlots(Long doctorId, LocalDate date) {
-        Doctor doctor = doctorRepository.findById(doctorId)
-                .orElseThrow(() -> new RuntimeException("Doktor bulunamadı: " + doctorId));
+    private boolean isWithinWorkingHours(Doctor doctor, LocalDate tarih, LocalTime saat) {
+        return doctorScheduleService.getSchedule(doctor.getId()).isBookable(tarih, saat);
+    }
 
-        List<Appointment> existingAppointments = appointmentRepository.findByTarihAndDoctor(date, doctor);
-
-        // Generate available time slots based on working hours
-        // This is a simplified implementation - you can enhance it based on your needs
-        List<LocalTime> allSlots = List.of(
-                LocalTime.of(9, 0), LocalTime.of(9, 30),
-                LocalTime.of(10, 0), LocalTime.of(10, 30),
-                LocalTime.of(11, 0), LocalTime.of(11, 30),
-                LocalTime.of(14, 0), LocalTime.of(14, 30),
-                LocalTime.of(15, 0), LocalTime.of(15, 30),
-                LocalTime.of(16, 0), LocalTime.of(16, 30));
-
-        return allSlots.stream()
-                .filter(slot -> existingAppointments.stream()
-                        .noneMatch(app -> app.getSaat().equals(slot)))
-                .filter(slot -> isWithinWorkingHours(doctor, slot))
+    /**
+     * Slots with at least one chair that is neither booked nor held.
+     */
+    public List<LocalTime> getAvailableTimeSlots(Long doctorId, LocalDate date) {
+        // Both lookups are served from memory once warm; an unknown doctor fails here
+        WeeklySchedule schedule = doctorScheduleService.getSchedule(doctorId);
+        SlotOccupancyIndex.DayOccupancy occupancy = slotOccupancyIndex.getDay(doctorId, date);
+        int capacity = schedule.getCapacity();
+
+        return schedule.getSlots(date).stream()
+                .filter(slot -> occupancy.freeChair(slot, capacity,
+                        slotHoldService.heldChairs(doctorId, date, slot, capacity, null)) != 0)
                 .toList();
     }
+
+    /**
+     * Booked and remaining chairs of every slot of the day, counted from the
+     * occupancy index rather than the appointments.
+     */
+    public DayCapacity getDayCapacity(Long doctorId, LocalDate date) {
+        WeeklySchedule schedule = doctorScheduleService.getSchedule(doctorId);
+        SlotOccupancyIndex.DayOccupancy occupancy = slotOccupancyIndex.getDay(doctorId, date);
+        int capacity = schedule.getCapacity();
+
+        List<SlotCapacity> slots = new ArrayList<>();
+        for (LocalTime slot : schedule.getSlots(date)) {
+            int dolu = Math.min(occupancy.occupied(slot), capacity);
+            int held = Integer.bitCount(slotHoldService.heldChairs(doctorId, date, slot, capacity, null));
+            slots.add(new SlotCapacity(slot, dolu, Math.max(0, capacity - dolu - held)));
+        }
+        return new DayCapacity(doctorId, date, capacity, slots);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,162 @@
+package com.klinik.service;
+
+import com.klinik.dto.AppointmentStatusChange;
+import com.klinik.dto.StatusChangeResult;
+import com.klinik.event.AppointmentChangedEvent;
+import com.klinik.model.Appointment.AppointmentStatus;
+import com.klinik.model.Invoice.InvoiceStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Moves many appointments to a new status at once, e.g. at the end of a clinic
+ * day. Every transition is checked against
+ * {@link AppointmentStatus#canTransitionTo}; valid ones are written with one
+ * UPDATE per target status, and the invoices of cancelled appointments are
+ * cancelled in the same transaction.
+ */
+@Service
+public class AppointmentStatusService {
+
+    public static final int MAX_BATCH_SIZE = 500;
+
+    // Locks the rows so that the checked status is still current when updated
+    private static final String SELECT_FOR_UPDATE =
+            "SELECT id, doktor_id, tarih, status FROM appointments WHERE id IN (:ids) FOR UPDATE";
+
+    private static final String UPDATE_STATUS =
+            "UPDATE appointments SET status = :status WHERE id IN (:ids)";
+
+    // Paid invoices are left alone; refunds are handled by hand
+    private static final String UPDATE_INVOICE_STATUS =
+            "UPDATE invoices SET status = :status WHERE appointment_id IN (:ids) AND status = 'BEKLEMEDE'";
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ChangeLogService changeLogService;
+
+    @Autowired
+    private RevenueRollupService revenueRollupService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    public List<StatusChangeResult> changeStatuses(List<AppointmentStatusChange> changes) {
+        if (changes.size() > MAX_BATCH_SIZE) {
+            throw new RuntimeException("Tek seferde en fazla " + MAX_BATCH_SIZE + " randevunun durumu değiştirilebilir");
+        }
+        return transactionTemplate.execute(status -> applyChanges(changes));
+    }
+
+    private List<StatusChangeResult> applyChanges(List<AppointmentStatusChange> changes) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (AppointmentStatusChange change : changes) {
+            if (change.getId() != null) {
+                ids.add(change.getId());
+            }
+        }
+        Map<Long, Row> rows = new HashMap<>();
+        if (!ids.isEmpty()) {
+            namedParameterJdbcTemplate.query(SELECT_FOR_UPDATE, new MapSqlParameterSource("ids", ids), rs -> {
+                rows.put(rs.getLong("id"), new Row(rs.getLong("doktor_id"), rs.getObject("tarih", LocalDate.class),
+                        AppointmentStatus.valueOf(rs.getString("status"))));
+            });
+        }
+
+        List<StatusChangeResult> results = new ArrayList<>();
+        Map<AppointmentStatus, List<Long>> byTarget = new EnumMap<>(AppointmentStatus.class);
+        Set<Long> seen = new HashSet<>();
+        for (AppointmentStatusChange change : changes) {
+            Long id = change.getId();
+            AppointmentStatus target = change.getStatus();
+            Row row = id != null ? rows.get(id) : null;
+            if (id == null || target == null) {
+                results.add(StatusChangeResult.failure(id, "Randevu ve durum seçilmeli"));
+            } else if (!seen.add(id)) {
+                results.add(StatusChangeResult.failure(id, "Randevu listede birden fazla kez yer alıyor"));
+            } else if (row == null) {
+                results.add(StatusChangeResult.failure(id, "Randevu bulunamadı: " + id));
+            } else if (row.status == target) {
+                results.add(StatusChangeResult.success(id));
+            } else if (!row.status.canTransitionTo(target)) {
+                results.add(StatusChangeResult.failure(id, "Geçersiz durum geçişi: " + row.status + " -> " + target));
+            } else {
+                byTarget.computeIfAbsent(target, t -> new ArrayList<>()).add(id);
+                results.add(StatusChangeResult.success(id));
+            }
+        }
+
+        Set<DoctorDay> changedDays = new HashSet<>();
+        byTarget.forEach((target, targetIds) -> {
+            namedParameterJdbcTemplate.update(UPDATE_STATUS,
+                    new MapSqlParameterSource("status", target.name()).addValue("ids", targetIds));
+            changeLogService.recordAppointments(targetIds);
+            cascadeToInvoices(targetIds, target);
+            for (Long id : targetIds) {
+                Row row = rows.get(id);
+                changedDays.add(new DoctorDay(row.doctorId, row.tarih));
+            }
+        });
+        for (DoctorDay day : changedDays) {
+            eventPublisher.publishEvent(new AppointmentChangedEvent(day.getDoctorId(), day.getTarih()));
+        }
+        return results;
+    }
+
+    /**
+     * Brings the invoices of appointments that moved to {@code target} in
+     * line with it, in the caller's transaction. Used by single updates too,
+     * so both paths cancel invoices the same way.
+     */
+    void cascadeToInvoices(List<Long> appointmentIds, AppointmentStatus target) {
+        InvoiceStatus invoiceStatus = invoiceStatusFor(target);
+        if (invoiceStatus == null) {
+            return;
+        }
+        revenueRollupService.applyInvoicesOf(appointmentIds, -1);
+        namedParameterJdbcTemplate.update(UPDATE_INVOICE_STATUS,
+                new MapSqlParameterSource("status", invoiceStatus.name()).addValue("ids", appointmentIds));
+        revenueRollupService.applyInvoicesOf(appointmentIds, 1);
+        changeLogService.recordInvoicesOf(appointmentIds);
+    }
+
+    /**
+     * Invoice status that follows from an appointment status, or null if the
+     * invoice is not affected.
+     */
+    static InvoiceStatus invoiceStatusFor(AppointmentStatus status) {
+        return status == AppointmentStatus.IPTAL_EDILDI ? InvoiceStatus.IPTAL_EDILDI : null;
+    }
+
+    private static class Row {
+
+        private final long doctorId;
+        private final LocalDate tarih;
+        private final AppointmentStatus status;
+
+        Row(long doctorId, LocalDate tarih, AppointmentStatus status) {
+            this.doctorId = doctorId;
+            this.tarih = tarih;
+            this.status = status;
+        }
+    }
+}
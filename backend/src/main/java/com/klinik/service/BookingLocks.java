@@ -0,0 +1,69 @@
+package com.klinik.service;
+
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Striped in-process locks that serialize bookings for the same doctor and day
+ * while unrelated bookings run in parallel. Callers must hold the lock until the
+ * booking transaction has committed; the unique slot constraint on the
+ * appointments table covers bookings arriving through other nodes.
+ */
+@Component
+public class BookingLocks {
+
+    private static final int STRIPES = 256;
+
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    public BookingLocks() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public <T> T withLock(Long doctorId, LocalDate tarih, Supplier<T> action) {
+        ReentrantLock lock = locks[stripe(new DoctorDay(doctorId, tarih))];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Locks every stripe covering the given days, always in ascending stripe
+     * order so that concurrent multi-day callers cannot deadlock.
+     */
+    public <T> T withLocks(Collection<DoctorDay> days, Supplier<T> action) {
+        TreeSet<Integer> stripes = new TreeSet<>();
+        for (DoctorDay day : days) {
+            stripes.add(stripe(day));
+        }
+        Deque<ReentrantLock> held = new ArrayDeque<>();
+        try {
+            for (int stripe : stripes) {
+                locks[stripe].lock();
+                held.push(locks[stripe]);
+            }
+            return action.get();
+        } finally {
+            while (!held.isEmpty()) {
+                held.pop().unlock();
+            }
+        }
+    }
+
+    private static int stripe(DoctorDay day) {
+        int h = day.hashCode();
+        return ((h ^ (h >>> 16)) & 0x7fffffff) % STRIPES;
+    }
+}
@@ -0,0 +1,210 @@
+package com.klinik.service;
+
+import com.klinik.dto.BulkAppointmentResult;
+import com.klinik.event.SlotChangedEvent;
+import com.klinik.model.Appointment;
+import com.klinik.model.Doctor;
+import com.klinik.repository.AppointmentRepository;
+import com.klinik.repository.DoctorRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Creates many appointments in one go for call-center imports. Doctors are
+ * loaded with one query, conflicts are checked with one set-based query, and
+ * appointments plus their outbox events are written with JDBC batches in one
+ * transaction.
+ * Every item gets its own success or failure result.
+ */
+@Service
+public class BulkAppointmentService {
+
+    public static final int MAX_BATCH_SIZE = 500;
+
+    // A booking through another node can slip in between the conflict query and
+    // the insert; the batch is then re-checked once before giving up.
+    private static final int MAX_ATTEMPTS = 2;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private DoctorScheduleService doctorScheduleService;
+
+    @Autowired
+    private AppointmentBatchWriter appointmentBatchWriter;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private BookingLocks bookingLocks;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private PatientService patientService;
+
+    @Autowired
+    private SlotHoldService slotHoldService;
+
+    @Autowired
+    private SlotOccupancyIndex slotOccupancyIndex;
+
+    public List<BulkAppointmentResult> createAppointments(List<Appointment> appointments) {
+        if (appointments.size() > MAX_BATCH_SIZE) {
+            throw new RuntimeException("Tek seferde en fazla " + MAX_BATCH_SIZE + " randevu oluşturulabilir");
+        }
+
+        BulkAppointmentResult[] results = new BulkAppointmentResult[appointments.size()];
+        Map<Long, Doctor> doctors = loadDoctors(appointments);
+
+        // Indexes of the items that pass validation; for a slot, earlier items get chairs first
+        List<Integer> candidates = new ArrayList<>();
+        for (int i = 0; i < appointments.size(); i++) {
+            Appointment appointment = appointments.get(i);
+            String error = validate(appointment, doctors);
+            if (error != null) {
+                results[i] = BulkAppointmentResult.failure(i, error);
+                continue;
+            }
+            appointment.setDoctor(doctors.get(appointment.getDoctor().getId()));
+            candidates.add(i);
+        }
+
+        if (!candidates.isEmpty()) {
+            // Patients are resolved up front, outside the booking locks
+            patientService.assignPatients(candidates.stream().map(appointments::get).toList());
+            insertCandidates(appointments, candidates, results);
+        }
+        return List.of(results);
+    }
+
+    private void insertCandidates(List<Appointment> appointments, List<Integer> candidates,
+                                  BulkAppointmentResult[] results) {
+        Set<DoctorDay> days = candidates.stream()
+                .map(i -> new DoctorDay(appointments.get(i).getDoctor().getId(), appointments.get(i).getTarih()))
+                .collect(Collectors.toSet());
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                bookingLocks.withLocks(days,
+                        () -> transactionTemplate.execute(status -> insertFreeSlots(appointments, candidates, results)));
+                return;
+            } catch (DataIntegrityViolationException e) {
+                // Booked through another node; the local index reloads these days, as in AppointmentService
+                days.forEach(day -> slotOccupancyIndex.invalidate(day.getDoctorId(), day.getTarih()));
+                candidates.forEach(i -> results[i] = null);
+                if (attempt == MAX_ATTEMPTS) {
+                    candidates.forEach(i -> results[i] = BulkAppointmentResult.failure(i,
+                            "Randevular kaydedilirken çakışma oluştu, lütfen tekrar deneyin"));
+                    return;
+                }
+            }
+        }
+    }
+
+    private List<Appointment> insertFreeSlots(List<Appointment> appointments, List<Integer> candidates,
+                                              BulkAppointmentResult[] results) {
+        Set<Long> doctorIds = new HashSet<>();
+        Set<LocalDate> tarihler = new HashSet<>();
+        for (int i : candidates) {
+            doctorIds.add(appointments.get(i).getDoctor().getId());
+            tarihler.add(appointments.get(i).getTarih());
+        }
+
+        // One query for every doctor/date pair in the batch; the cross product may
+        // return a few extra rows, which simply never match a candidate slot.
+        SlotChairs used = new SlotChairs();
+        for (Object[] row : appointmentRepository.findSlotsByDoctorIdsAndTarihler(doctorIds, tarihler)) {
+            used.use((Long) row[0], (LocalDate) row[1], (LocalTime) row[2], (Integer) row[3]);
+        }
+
+        List<Appointment> toInsert = new ArrayList<>();
+        for (int i : candidates) {
+            Appointment a = appointments.get(i);
+            Long doctorId = a.getDoctor().getId();
+            int capacity = doctorScheduleService.getSchedule(doctorId).getCapacity();
+            int chair = used.freeChair(doctorId, a.getTarih(), a.getSaat(), capacity,
+                    slotHoldService.heldChairs(doctorId, a.getTarih(), a.getSaat(), capacity, null));
+            if (chair == 0) {
+                results[i] = BulkAppointmentResult.failure(i, "Bu tarih ve saatte zaten bir randevu mevcut");
+            } else {
+                a.setKoltukNo(chair);
+                used.use(doctorId, a.getTarih(), a.getSaat(), chair);
+                toInsert.add(a);
+            }
+        }
+
+        appointmentBatchWriter.insertAppointments(toInsert);
+        outboxService.appointmentsBooked(toInsert);
+        for (Appointment a : toInsert) {
+            eventPublisher.publishEvent(SlotChangedEvent.taken(a.getDoctor().getId(), a.getTarih(), a.getSaat(),
+                    a.getKoltukNo()));
+        }
+
+        for (int i : candidates) {
+            if (results[i] == null) {
+                results[i] = BulkAppointmentResult.success(i, appointments.get(i).getId());
+            }
+        }
+        return toInsert;
+    }
+
+    private Map<Long, Doctor> loadDoctors(List<Appointment> appointments) {
+        Set<Long> ids = appointments.stream()
+                .filter(a -> a.getDoctor() != null && a.getDoctor().getId() != null)
+                .map(a -> a.getDoctor().getId())
+                .collect(Collectors.toSet());
+        return doctorRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Doctor::getId, Function.identity()));
+    }
+
+    private String validate(Appointment appointment, Map<Long, Doctor> doctors) {
+        if (appointment.getDoctor() == null || appointment.getDoctor().getId() == null) {
+            return "Doktor seçimi yapılmalıdır";
+        }
+        Set<ConstraintViolation<Appointment>> violations = validator.validate(appointment);
+        if (!violations.isEmpty()) {
+            return violations.stream().map(ConstraintViolation::getMessage).sorted()
+                    .collect(Collectors.joining("\n"));
+        }
+        if (!doctors.containsKey(appointment.getDoctor().getId())) {
+            return "Doktor bulunamadı";
+        }
+        if (!doctorScheduleService.getSchedule(appointment.getDoctor().getId())
+                .isBookable(appointment.getTarih(), appointment.getSaat())) {
+            return "Seçilen saat doktorun çalışma saatleri dışında";
+        }
+        appointment.setId(null);
+        if (appointment.getStatus() == null) {
+            appointment.setStatus(Appointment.AppointmentStatus.BEKLEMEDE);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,287 @@
+package com.klinik.service;
+
+import com.klinik.event.DoctorChangedEvent;
+import com.klinik.model.Appointment;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-doctor iCalendar feeds for calendar apps over a window around today.
+ * A poll of an unchanged feed costs one indexed lookup of the doctor's change
+ * log version and is answered from the cached render.
+ *
+ * <p>That version is numbered in the database, so it also reveals changes
+ * made through other nodes, and a change made through this node shows once
+ * the sequencer has numbered it. When the version moves, the day changes or
+ * the feed is older than {@code app.calendar.max-age-seconds} the whole
+ * window is loaded again with one range query. There is no per-day reload:
+ * the log does not say which days an entry touched, a moved appointment
+ * touches two, and polls of a changed feed are rare next to polls of an
+ * unchanged one. A change of the doctor's working hours, which are not in
+ * the change log, drops the render on this node at once.
+ * The ETag is a hash of the rendered content, which depends only on the
+ * database, so every node and every restart hands out the same ETag for the
+ * same feed.
+ */
+@Service
+public class CalendarFeedService {
+
+    private static final int PAST_DAYS = 30;
+
+    private static final int FUTURE_DAYS = 180;
+
+    private static final int DEFAULT_SLOT_MINUTES = 30;
+
+    private static final int MAX_LINE_OCTETS = 75;
+
+    private static final String CRLF = "\r\n";
+
+    private static final DateTimeFormatter UTC_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+
+    private final ConcurrentHashMap<Long, Feed> feeds = new ConcurrentHashMap<>();
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private DoctorScheduleService doctorScheduleService;
+
+    @Autowired
+    private ChangeLogService changeLogService;
+
+    @Value("${app.calendar.time-zone:Europe/Istanbul}")
+    private String timeZone;
+
+    @Value("${app.calendar.max-age-seconds:300}")
+    private long maxAgeSeconds;
+
+    @Value("${app.calendar.feed-secret}")
+    private String feedSecret;
+
+    /**
+     * Returns the doctor's feed, bringing it up to date first if anything
+     * changed since it was last rendered.
+     */
+    public Rendered getFeed(Long doctorId) {
+        Feed feed = feeds.computeIfAbsent(doctorId, id -> new Feed());
+        LocalDate today = LocalDate.now(zone());
+        // Read before the appointments, so a change numbered later is seen by the next poll
+        long changeVersion = changeLogService.getDoctorVersion(doctorId);
+        Rendered current = feed.rendered;
+        if (current != null && feed.isClean(today, changeVersion, maxAgeSeconds)) {
+            return current;
+        }
+
+        feed.lock.lock();
+        try {
+            if (feed.rendered == null || !feed.isClean(today, changeVersion, maxAgeSeconds)) {
+                refresh(doctorId, feed, today, changeVersion);
+            }
+            return feed.rendered;
+        } catch (RuntimeException e) {
+            // Do not keep empty feeds around for unknown doctors
+            if (feed.rendered == null) {
+                feeds.remove(doctorId, feed);
+            }
+            throw e;
+        } finally {
+            feed.lock.unlock();
+        }
+    }
+
+    public String feedToken(Long doctorId) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(feedSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            byte[] digest = mac.doFinal(("calendar:" + doctorId).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public boolean isValidToken(Long doctorId, String token) {
+        return token != null && MessageDigest.isEqual(feedToken(doctorId).getBytes(StandardCharsets.UTF_8),
+                token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDoctorChanged(DoctorChangedEvent event) {
+        if (event.isDeleted()) {
+            feeds.remove(event.getDoctorId());
+            return;
+        }
+        // Working hours may have changed, and with them every event's length
+        Feed feed = feeds.get(event.getDoctorId());
+        if (feed != null) {
+            feed.invalidated = true;
+        }
+    }
+
+    private void refresh(Long doctorId, Feed feed, LocalDate today, long changeVersion) {
+        LocalDate windowStart = today.minusDays(PAST_DAYS);
+        // Cleared before the query, so a change of working hours during the load is not lost
+        feed.invalidated = false;
+        List<Appointment> appointments = appointmentService
+                .getDoctorAppointmentsByDateRange(doctorId, windowStart, today.plusDays(FUTURE_DAYS));
+        WeeklySchedule schedule = doctorScheduleService.getSchedule(doctorId);
+        feed.windowStart = windowStart;
+        feed.changeVersion = changeVersion;
+        feed.builtAt = System.currentTimeMillis();
+
+        byte[] body = renderCalendar(appointments, schedule).getBytes(StandardCharsets.UTF_8);
+        Rendered previous = feed.rendered;
+        if (previous == null || !Arrays.equals(previous.body, body)) {
+            feed.rendered = new Rendered(etag(doctorId, body), body);
+        }
+    }
+
+    private static String etag(Long doctorId, byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + doctorId + "-" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String renderCalendar(List<Appointment> appointments, WeeklySchedule schedule) {
+        StringBuilder ics = new StringBuilder(256 + appointments.size() * 512);
+        line(ics, "BEGIN:VCALENDAR");
+        line(ics, "VERSION:2.0");
+        line(ics, "PRODID:-//Dis Klinik//Randevu Sistemi//TR");
+        line(ics, "CALSCALE:GREGORIAN");
+        line(ics, "METHOD:PUBLISH");
+        line(ics, "X-WR-CALNAME:Randevular");
+        line(ics, "X-PUBLISHED-TTL:PT15M");
+        appointments.stream()
+                .sorted(Comparator.comparing(Appointment::getTarih).thenComparing(Appointment::getSaat)
+                        .thenComparing(Appointment::getId))
+                .forEach(a -> {
+                    WeeklySchedule.DaySchedule day = schedule.getDay(a.getTarih().getDayOfWeek());
+                    int minutes = day != null ? day.getSlotMinutes() : DEFAULT_SLOT_MINUTES;
+                    LocalDateTime start = LocalDateTime.of(a.getTarih(), a.getSaat());
+                    String dtStart = toUtc(start);
+
+                    line(ics, "BEGIN:VEVENT");
+                    line(ics, "UID:appointment-" + a.getId() + "@disklinik");
+                    // No modification time is stored; a fixed stamp keeps renders comparable
+                    line(ics, "DTSTAMP:" + dtStart);
+                    line(ics, "DTSTART:" + dtStart);
+                    line(ics, "DTEND:" + toUtc(start.plusMinutes(minutes)));
+                    line(ics, "SUMMARY:" + escape(a.getHastaAd() + " " + a.getHastaSoyad()));
+                    String description = "Bölüm: " + a.getBolum() + "\n" + "Telefon: " + a.getTelefon();
+                    line(ics, "DESCRIPTION:" + escape(description));
+                    line(ics, "STATUS:" + status(a.getStatus()));
+                    line(ics, "END:VEVENT");
+                });
+        line(ics, "END:VCALENDAR");
+        return ics.toString();
+    }
+
+    private static String status(Appointment.AppointmentStatus status) {
+        if (status == null) {
+            return "TENTATIVE";
+        }
+        return switch (status) {
+            case BEKLEMEDE -> "TENTATIVE";
+            case IPTAL_EDILDI -> "CANCELLED";
+            default -> "CONFIRMED";
+        };
+    }
+
+    private String toUtc(LocalDateTime local) {
+        return local.atZone(zone()).withZoneSameInstant(ZoneOffset.UTC).format(UTC_FORMAT);
+    }
+
+    private ZoneId zone() {
+        return ZoneId.of(timeZone);
+    }
+
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\")
+                .replace(";", "\\;")
+                .replace(",", "\\,")
+                .replace("\r\n", "\\n")
+                .replace("\n", "\\n");
+    }
+
+    /**
+     * Appends a content line, folded at 75 octets (RFC 5545 3.1) without
+     * splitting a UTF-8 sequence.
+     */
+    private static void line(StringBuilder ics, String content) {
+        int octets = 0;
+        for (int i = 0; i < content.length(); ) {
+            int codePoint = content.codePointAt(i);
+            int size = codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+            if (octets + size > MAX_LINE_OCTETS) {
+                ics.append(CRLF).append(' ');
+                // The leading space counts towards the continuation line
+                octets = 1;
+            }
+            ics.appendCodePoint(codePoint);
+            octets += size;
+            i += Character.charCount(codePoint);
+        }
+        ics.append(CRLF);
+    }
+
+    public static class Rendered {
+
+        private final String etag;
+        private final byte[] body;
+
+        Rendered(String etag, byte[] body) {
+            this.etag = etag;
+            this.body = body;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+    }
+
+    private static class Feed {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile boolean invalidated;
+        private volatile Rendered rendered;
+        private volatile LocalDate windowStart;
+        private volatile long builtAt;
+        // Doctor's change log version the feed was last loaded at
+        private volatile long changeVersion = -1;
+
+        boolean isClean(LocalDate today, long latestChangeVersion, long maxAgeSeconds) {
+            return !invalidated && !isExpired(maxAgeSeconds)
+                    && latestChangeVersion == changeVersion && today.minusDays(PAST_DAYS).equals(windowStart);
+        }
+
+        boolean isExpired(long maxAgeSeconds) {
+            return System.currentTimeMillis() - builtAt > maxAgeSeconds * 1000;
+        }
+    }
+}
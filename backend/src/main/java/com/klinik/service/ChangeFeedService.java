@@ -0,0 +1,105 @@
+package com.klinik.service;
+
+import com.klinik.dto.AppointmentView;
+import com.klinik.dto.ChangeSet;
+import com.klinik.dto.DeletedRecord;
+import com.klinik.dto.InvoiceView;
+import com.klinik.model.Review;
+import com.klinik.repository.AppointmentRepository;
+import com.klinik.repository.InvoiceRepository;
+import com.klinik.repository.ReviewRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Delta sync for dashboards: the rows changed since a client's version, read
+ * from the change log and loaded in their current state with one query per
+ * entity type. Rows changed several times in the page are sent once.
+ */
+@Service
+public class ChangeFeedService {
+
+    @Autowired
+    private ChangeLogService changeLogService;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Value("${app.sync.default-limit:500}")
+    private int defaultLimit;
+
+    @Value("${app.sync.max-limit:2000}")
+    private int maxLimit;
+
+    /**
+     * Changes after version {@code since}, of one doctor's appointments and
+     * invoices or, with no doctor, of all appointments, invoices and reviews.
+     */
+    public ChangeSet getChanges(Long doctorId, long since, Integer limit) {
+        if (since < 0) {
+            throw new RuntimeException("Geçersiz sürüm: " + since);
+        }
+        int max = limit == null ? defaultLimit : Math.max(1, Math.min(limit, maxLimit));
+
+        // Read first: every entry up to this version is already numbered and visible
+        ChangeLogService.Versions versions = changeLogService.getVersions();
+        if (since < versions.getPruned() || since > versions.getLast()) {
+            return ChangeSet.reload(versions.getLast());
+        }
+
+        List<ChangeLogService.Change> changes = changeLogService.findChanges(doctorId, since, max + 1);
+        boolean more = changes.size() > max;
+        if (more) {
+            changes = changes.subList(0, max);
+        }
+        long version = more ? changes.get(max - 1).getVersion() : versions.getLast();
+        if (!changes.isEmpty()) {
+            version = Math.max(version, changes.get(changes.size() - 1).getVersion());
+        }
+
+        // Latest entry per row
+        Map<String, ChangeLogService.Change> latest = new LinkedHashMap<>();
+        for (ChangeLogService.Change change : changes) {
+            latest.put(change.getType() + ":" + change.getEntityId(), change);
+        }
+        List<DeletedRecord> deleted = new ArrayList<>();
+        for (ChangeLogService.Change change : latest.values()) {
+            if (change.isDeleted()) {
+                deleted.add(new DeletedRecord(change.getType().name(), change.getEntityId()));
+            }
+        }
+
+        // Rows deleted after their entry are missing here; their tombstone follows on a later page
+        Set<Long> appointmentIds = changedIds(latest, ChangeLogService.EntityType.APPOINTMENT);
+        Set<Long> invoiceIds = changedIds(latest, ChangeLogService.EntityType.INVOICE);
+        Set<Long> reviewIds = changedIds(latest, ChangeLogService.EntityType.REVIEW);
+        List<AppointmentView> appointments = appointmentIds.isEmpty()
+                ? List.of() : appointmentRepository.findViewsByIdIn(appointmentIds);
+        List<InvoiceView> invoices = invoiceIds.isEmpty() ? List.of() : invoiceRepository.findViewsByIdIn(invoiceIds);
+        List<Review> reviews = reviewIds.isEmpty() ? List.of() : reviewRepository.findAllById(reviewIds);
+
+        return new ChangeSet(version, more, appointments, invoices, reviews, deleted);
+    }
+
+    private static Set<Long> changedIds(Map<String, ChangeLogService.Change> latest,
+                                        ChangeLogService.EntityType type) {
+        return latest.values().stream()
+                .filter(change -> change.getType() == type && !change.isDeleted())
+                .map(ChangeLogService.Change::getEntityId)
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,31 @@
+package com.klinik.service;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+
+/**
+ * Writes a change log entry for every JPA insert, update and delete of the
+ * entity it is attached to, on the connection of the flushing transaction.
+ * Instantiated and autowired by Hibernate through Spring's bean container.
+ */
+public class ChangeLogListener {
+
+    // Lazy, as the service's own dependencies need the EntityManagerFactory this listener is built for
+    @Autowired
+    @Lazy
+    private ChangeLogService changeLogService;
+
+    @PostPersist
+    @PostUpdate
+    public void changed(Object entity) {
+        changeLogService.record(entity, false);
+    }
+
+    @PostRemove
+    public void removed(Object entity) {
+        changeLogService.record(entity, true);
+    }
+}
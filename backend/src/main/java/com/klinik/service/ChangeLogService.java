@@ -0,0 +1,276 @@
+package com.klinik.service;
+
+import com.klinik.model.Appointment;
+import com.klinik.model.Invoice;
+import com.klinik.model.Review;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Change log of appointments, invoices and reviews. Writers add an entry in
+ * their own transaction, through {@link ChangeLogListener} for JPA and the
+ * record methods for the JDBC batch paths. A sequencer then numbers the
+ * committed entries in the order they became visible, so a client that has
+ * read up to version N never misses an entry that is numbered later, whatever
+ * order the writing transactions committed in.
+ *
+ * <p>Archiving does not record deletes; archived rows stay valid in a
+ * client's copy.
+ */
+@Service
+public class ChangeLogService {
+
+    public enum EntityType {
+        APPOINTMENT, INVOICE, REVIEW
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeLogService.class);
+
+    private static final int SEQUENCE_BATCH_SIZE = 1000;
+
+    private static final String INSERT_ENTRY =
+            "INSERT INTO change_log (entity_type, entity_id, doktor_id, silindi, olusturma_tarihi) " +
+            "VALUES (?, ?, ?, ?, ?)";
+
+    private static final String INSERT_REVIEW_ENTRY =
+            "INSERT INTO change_log (entity_type, entity_id, silindi, olusturma_tarihi) VALUES ('REVIEW', ?, ?, ?)";
+
+    // Runs before the appointment itself is deleted when both go in one flush
+    private static final String INSERT_INVOICE_ENTRY =
+            "INSERT INTO change_log (entity_type, entity_id, doktor_id, silindi, olusturma_tarihi) " +
+            "VALUES ('INVOICE', ?, (SELECT doktor_id FROM appointments WHERE id = ?), ?, ?)";
+
+    private static final String INSERT_APPOINTMENT_ENTRIES =
+            "INSERT INTO change_log (entity_type, entity_id, doktor_id, silindi, olusturma_tarihi) " +
+            "SELECT 'APPOINTMENT', id, doktor_id, FALSE, :now FROM appointments WHERE id IN (:ids)";
+
+    private static final String INSERT_INVOICE_ENTRIES =
+            "INSERT INTO change_log (entity_type, entity_id, doktor_id, silindi, olusturma_tarihi) " +
+            "SELECT 'INVOICE', i.id, a.doktor_id, FALSE, :now FROM invoices i " +
+            "JOIN appointments a ON a.id = i.appointment_id WHERE i.appointment_id IN (:ids)";
+
+    private static final String LOCK_COUNTER = "SELECT surum FROM change_counter WHERE id = 1 FOR UPDATE";
+
+    private static final String SELECT_UNNUMBERED =
+            "SELECT id FROM change_log WHERE surum IS NULL ORDER BY id LIMIT ?";
+
+    private static final String NUMBER_ENTRY = "UPDATE change_log SET surum = ? WHERE id = ?";
+
+    private static final String UPDATE_COUNTER = "UPDATE change_counter SET surum = ? WHERE id = 1";
+
+    private static final String SELECT_COUNTER = "SELECT surum, budanan_surum FROM change_counter WHERE id = 1";
+
+    private static final String SELECT_CHANGES =
+            "SELECT entity_type, entity_id, silindi, surum FROM change_log " +
+            "WHERE surum > ? ORDER BY surum LIMIT ?";
+
+    private static final String SELECT_DOCTOR_CHANGES =
+            "SELECT entity_type, entity_id, silindi, surum FROM change_log " +
+            "WHERE doktor_id = ? AND surum > ? ORDER BY surum LIMIT ?";
+
+    private static final String SELECT_DOCTOR_VERSION = "SELECT MAX(surum) FROM change_log WHERE doktor_id = ?";
+
+    private static final String SELECT_PURGE_LIMIT =
+            "SELECT MAX(surum) FROM change_log WHERE olusturma_tarihi < ? AND surum IS NOT NULL";
+
+    private static final String RAISE_PRUNED =
+            "UPDATE change_counter SET budanan_surum = ? WHERE id = 1 AND budanan_surum < ?";
+
+    private static final String PURGE = "DELETE FROM change_log WHERE surum <= ? LIMIT 1000";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${app.sync.retention-days:30}")
+    private int retentionDays;
+
+    /**
+     * Records a JPA change of an appointment, invoice or review; other
+     * entities are ignored.
+     */
+    public void record(Object entity, boolean deleted) {
+        LocalDateTime now = LocalDateTime.now();
+        if (entity instanceof Appointment) {
+            Appointment appointment = (Appointment) entity;
+            jdbcTemplate.update(INSERT_ENTRY, EntityType.APPOINTMENT.name(), appointment.getId(),
+                    appointment.getDoctor().getId(), deleted, now);
+        } else if (entity instanceof Invoice) {
+            Invoice invoice = (Invoice) entity;
+            jdbcTemplate.update(INSERT_INVOICE_ENTRY, invoice.getId(), invoice.getAppointment().getId(), deleted, now);
+        } else if (entity instanceof Review) {
+            jdbcTemplate.update(INSERT_REVIEW_ENTRY, ((Review) entity).getId(), deleted, now);
+        }
+    }
+
+    /**
+     * Records a change of these appointments, written with plain JDBC.
+     */
+    public void recordAppointments(Collection<Long> appointmentIds) {
+        if (!appointmentIds.isEmpty()) {
+            namedParameterJdbcTemplate.update(INSERT_APPOINTMENT_ENTRIES,
+                    new MapSqlParameterSource("ids", appointmentIds).addValue("now", LocalDateTime.now()));
+        }
+    }
+
+    /**
+     * Records a change of the invoices of these appointments, written with
+     * plain JDBC.
+     */
+    public void recordInvoicesOf(Collection<Long> appointmentIds) {
+        if (!appointmentIds.isEmpty()) {
+            namedParameterJdbcTemplate.update(INSERT_INVOICE_ENTRIES,
+                    new MapSqlParameterSource("ids", appointmentIds).addValue("now", LocalDateTime.now()));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.sync.sequence-interval-ms:1000}")
+    void sequence() {
+        try {
+            int numbered;
+            do {
+                numbered = transactionTemplate.execute(status -> numberCommittedEntries());
+            } while (numbered == SEQUENCE_BATCH_SIZE);
+        } catch (RuntimeException e) {
+            logger.error("Değişiklik kaydı numaralandırılamadı", e);
+        }
+    }
+
+    // The counter row lock serializes the sequencers of all nodes
+    private int numberCommittedEntries() {
+        long version = jdbcTemplate.queryForObject(LOCK_COUNTER, Long.class);
+        List<Long> ids = jdbcTemplate.queryForList(SELECT_UNNUMBERED, Long.class, SEQUENCE_BATCH_SIZE);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        List<Object[]> numbers = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            numbers.add(new Object[]{version + 1 + i, ids.get(i)});
+        }
+        jdbcTemplate.batchUpdate(NUMBER_ENTRY, numbers);
+        jdbcTemplate.update(UPDATE_COUNTER, version + ids.size());
+        return ids.size();
+    }
+
+    @Scheduled(initialDelay = 1, fixedDelay = 1, timeUnit = TimeUnit.HOURS)
+    void purge() {
+        try {
+            Long limit = jdbcTemplate.queryForObject(SELECT_PURGE_LIMIT, Long.class,
+                    LocalDateTime.now().minusDays(retentionDays));
+            if (limit == null) {
+                return;
+            }
+            // Clients behind the pruned version have to reload before the entries go
+            jdbcTemplate.update(RAISE_PRUNED, limit, limit);
+            int deleted;
+            do {
+                deleted = jdbcTemplate.update(PURGE, limit);
+            } while (deleted > 0);
+        } catch (RuntimeException e) {
+            logger.warn("Eski değişiklik kayıtları silinemedi: {}", e.getMessage());
+        }
+    }
+
+    Versions getVersions() {
+        return jdbcTemplate.queryForObject(SELECT_COUNTER, (rs, rowNum) ->
+                new Versions(rs.getLong("surum"), rs.getLong("budanan_surum")));
+    }
+
+    /**
+     * Version of the doctor's latest numbered entry, or 0 if there is none.
+     * Purging the entry lowers it again, which readers see as one more change.
+     */
+    long getDoctorVersion(Long doctorId) {
+        Long version = jdbcTemplate.queryForObject(SELECT_DOCTOR_VERSION, Long.class, doctorId);
+        return version != null ? version : 0;
+    }
+
+    /**
+     * Numbered entries after {@code since}, oldest first; all of them or only
+     * those of one doctor.
+     */
+    List<Change> findChanges(Long doctorId, long since, int limit) {
+        if (doctorId == null) {
+            return jdbcTemplate.query(SELECT_CHANGES, ChangeLogService::toChange, since, limit);
+        }
+        return jdbcTemplate.query(SELECT_DOCTOR_CHANGES, ChangeLogService::toChange, doctorId, since, limit);
+    }
+
+    private static Change toChange(ResultSet rs, int rowNum) throws SQLException {
+        return new Change(EntityType.valueOf(rs.getString("entity_type")), rs.getLong("entity_id"),
+                rs.getBoolean("silindi"), rs.getLong("surum"));
+    }
+
+    static final class Change {
+
+        private final EntityType type;
+        private final long entityId;
+        private final boolean deleted;
+        private final long version;
+
+        Change(EntityType type, long entityId, boolean deleted, long version) {
+            this.type = type;
+            this.entityId = entityId;
+            this.deleted = deleted;
+            this.version = version;
+        }
+
+        EntityType getType() {
+            return type;
+        }
+
+        long getEntityId() {
+            return entityId;
+        }
+
+        boolean isDeleted() {
+            return deleted;
+        }
+
+        long getVersion() {
+            return version;
+        }
+    }
+
+    static final class Versions {
+
+        // Last version handed out
+        private final long last;
+        // Highest version already purged; clients behind it have to reload
+        private final long pruned;
+
+        Versions(long last, long pruned) {
+            this.last = last;
+            this.pruned = pruned;
+        }
+
+        long getLast() {
+            return last;
+        }
+
+        long getPruned() {
+            return pruned;
+        }
+    }
+}
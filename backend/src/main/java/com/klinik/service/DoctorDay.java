@@ -0,0 +1,48 @@
+package com.klinik.service;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Key for per-doctor, per-day state such as slot occupancy.
+ */
+public final class DoctorDay {
+
+    private final Long doctorId;
+    private final LocalDate tarih;
+
+    public DoctorDay(Long doctorId, LocalDate tarih) {
+        this.doctorId = doctorId;
+        this.tarih = tarih;
+    }
+
+    public Long getDoctorId() {
+        return doctorId;
+    }
+
+    public LocalDate getTarih() {
+        return tarih;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DoctorDay)) {
+            return false;
+        }
+        DoctorDay other = (DoctorDay) o;
+        return doctorId.equals(other.doctorId) && tarih.equals(other.tarih);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(doctorId, tarih);
+    }
+
+    @Override
+    public String toString() {
+        return doctorId + "@" + tarih;
+    }
+}
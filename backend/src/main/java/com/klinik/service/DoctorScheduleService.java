@@ -0,0 +1,135 @@
+package com.klinik.service;
+
+import com.klinik.event.DoctorChangedEvent;
+import com.klinik.model.Doctor;
+import com.klinik.model.WorkingHours;
+import com.klinik.repository.DoctorRepository;
+import com.klinik.repository.WorkingHoursRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Owns the structured weekly schedule of each doctor: parses
+ * {@code calismaSaatleri} on save, stores it in {@code doctor_working_hours}
+ * and keeps an immutable {@link WeeklySchedule} per doctor in memory.
+ * A doctor saved before the table existed whose text cannot be parsed gets
+ * an empty schedule, i.e. takes no bookings, until the hours are corrected;
+ * {@link #findInvalidSchedules()} lists such doctors.
+ */
+@Service
+public class DoctorScheduleService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DoctorScheduleService.class);
+
+    private final ConcurrentHashMap<Long, WeeklySchedule> schedules = new ConcurrentHashMap<>();
+
+    // Schedules are loaded once per doctor, so a single lock is enough
+    private final ReentrantLock loadLock = new ReentrantLock();
+
+    @Autowired
+    private WorkingHoursRepository workingHoursRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    public WeeklySchedule getSchedule(Long doctorId) {
+        WeeklySchedule schedule = schedules.get(doctorId);
+        if (schedule != null) {
+            return schedule;
+        }
+        // Not computeIfAbsent: its bin monitor would pin a virtual thread during the query
+        loadLock.lock();
+        try {
+            schedule = schedules.get(doctorId);
+            if (schedule == null) {
+                schedule = load(doctorId);
+                schedules.put(doctorId, schedule);
+            }
+            return schedule;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    /**
+     * Validates the working hours text and replaces the doctor's stored rows.
+     * Must run inside the transaction that saves the doctor.
+     */
+    @Transactional
+    public void replaceWorkingHours(Doctor doctor) {
+        List<WorkingHours> rows = WorkingHoursParser.parse(doctor.getCalismaSaatleri());
+        workingHoursRepository.deleteByDoctorId(doctor.getId());
+        rows.forEach(row -> row.setDoctor(doctor));
+        workingHoursRepository.saveAll(rows);
+    }
+
+    /**
+     * Doctors without stored rows whose {@code calismaSaatleri} cannot be
+     * parsed, with the parse error.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, String> findInvalidSchedules() {
+        Set<Long> withRows = new HashSet<>(workingHoursRepository.findDoctorIds());
+        Map<Long, String> invalid = new LinkedHashMap<>();
+        for (Doctor doctor : doctorRepository.findAll()) {
+            if (withRows.contains(doctor.getId())) {
+                continue;
+            }
+            try {
+                WorkingHoursParser.parse(doctor.getCalismaSaatleri());
+            } catch (RuntimeException e) {
+                invalid.put(doctor.getId(), e.getMessage());
+            }
+        }
+        return invalid;
+    }
+
+    @Transactional
+    public void deleteWorkingHours(Long doctorId) {
+        workingHoursRepository.deleteByDoctorId(doctorId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDoctorChanged(DoctorChangedEvent event) {
+        // Under the load lock, so a load that started before the change cannot put back the old schedule
+        loadLock.lock();
+        try {
+            schedules.remove(event.getDoctorId());
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    private WeeklySchedule load(Long doctorId) {
+        Doctor doctor = doctorRepository.findById(doctorId)
+                .orElseThrow(() -> new RuntimeException("Doktor bulunamadı: " + doctorId));
+        int capacity = doctor.getKoltukSayisi() != null ? doctor.getKoltukSayisi() : 1;
+
+        List<WorkingHours> rows = workingHoursRepository.findByDoctorId(doctorId);
+        if (!rows.isEmpty()) {
+            return WeeklySchedule.of(rows, capacity);
+        }
+
+        // Doctors saved before the schedule table existed only have the text form
+        try {
+            return WeeklySchedule.of(WorkingHoursParser.parse(doctor.getCalismaSaatleri()), capacity);
+        } catch (RuntimeException e) {
+            // Guessing hours would offer slots the doctor does not work
+            logger.error("Doktor {} için çalışma saatleri okunamadı, randevu alınamayacak: {}",
+                    doctorId, e.getMessage());
+            return WeeklySchedule.of(List.of(), capacity);
+        }
+    }
+}
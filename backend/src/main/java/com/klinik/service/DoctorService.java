@@ -1,10 +1,15 @@
 package com.klinik.service;
 
+import com.klinik.event.DoctorChangedEvent;
 import com.klinik.model.Doctor;
+import com.klinik.repository.AppointmentRepository;
+import com.klinik.repository.AppointmentSeriesRepository;
 import com.klinik.repository.DoctorRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -15,9 +20,27 @@ public class DoctorService {
     @Autowired
     private DoctorRepository doctorRepository;
 
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private AppointmentSeriesRepository appointmentSeriesRepository;
+
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private DoctorScheduleService doctorScheduleService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private RevenueRollupService revenueRollupService;
+
+    @Autowired
+    private WaitlistService waitlistService;
+
     public List<Doctor> getAllDoctors() {
         return doctorRepository.findAll();
     }
@@ -38,6 +61,7 @@ public class DoctorService {
         return doctorRepository.findAllDistinctUzmanlik();
     }
 
+    @Transactional
     public Doctor saveDoctor(Doctor doctor) {
         if (doctor.getId() == null) {
             // New doctor - encode password
@@ -50,9 +74,13 @@ public class DoctorService {
                 doctor.setSifre(passwordEncoder.encode(doctor.getSifre()));
             }
         }
-        return doctorRepository.save(doctor);
+        Doctor savedDoctor = doctorRepository.save(doctor);
+        doctorScheduleService.replaceWorkingHours(savedDoctor);
+        eventPublisher.publishEvent(new DoctorChangedEvent(savedDoctor.getId(), false));
+        return savedDoctor;
     }
 
+    @Transactional
     public Doctor updateDoctor(Long id, Doctor doctorDetails) {
         Doctor doctor = doctorRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Doktor bulunamadı: " + id));
@@ -66,6 +94,9 @@ public class DoctorService {
         doctor.setCalismaSaatleri(doctorDetails.getCalismaSaatleri());
         doctor.setUcret(doctorDetails.getUcret());
         doctor.setProfileImageUrl(doctorDetails.getProfileImageUrl());
+        if (doctorDetails.getKoltukSayisi() != null) {
+            doctor.setKoltukSayisi(doctorDetails.getKoltukSayisi());
+        }
 
         // Only update password if it's provided and different
         if (doctorDetails.getSifre() != null && 
@@ -74,13 +105,25 @@ public class DoctorService {
             doctor.setSifre(passwordEncoder.encode(doctorDetails.getSifre()));
         }
 
-        return doctorRepository.save(doctor);
+        Doctor savedDoctor = doctorRepository.save(doctor);
+        doctorScheduleService.replaceWorkingHours(savedDoctor);
+        eventPublisher.publishEvent(new DoctorChangedEvent(savedDoctor.getId(), false));
+        return savedDoctor;
     }
 
+    @Transactional
     public void deleteDoctor(Long id) {
         Doctor doctor = doctorRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Doktor bulunamadı: " + id));
+        doctorScheduleService.deleteWorkingHours(id);
+        // Live invoices are deleted with the doctor's appointments
+        revenueRollupService.removeInvoicesOfDoctor(id);
+        waitlistService.removeDoctor(id);
+        // Series rows go first; the appointments they link are deleted with the doctor
+        appointmentRepository.clearSeriesByDoctorId(id);
+        appointmentSeriesRepository.deleteByDoctorId(id);
         doctorRepository.delete(doctor);
+        eventPublisher.publishEvent(new DoctorChangedEvent(id, true));
     }
 
     public boolean existsByEmail(String email) {
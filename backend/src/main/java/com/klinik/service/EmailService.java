@@ -44,4 +44,43 @@ public class EmailService {
 
         mailSender.send(message);
     }
-}
\ No newline at end of file
+
+    public void sendAppointmentRescheduled(String to, String patientName,
+                                           String doctorName, String date, String time) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("noreply@disklinik.com");
+        message.setTo(to);
+        message.setSubject("Randevu Saati Değişikliği - Premium Diş Kliniği");
+        message.setText("Sayın " + patientName + ",\n\n" +
+                "Randevunuzun saati değiştirilmiştir.\n\n" +
+                "Yeni Randevu Detayları:\n" +
+                "Doktor: " + doctorName + "\n" +
+                "Tarih: " + date + "\n" +
+                "Saat: " + time + "\n\n" +
+                "Yeni saat size uymuyorsa lütfen kliniğimizle iletişime geçin.\n\n" +
+                "Saygılarımızla,\n" +
+                "Premium Diş Kliniği");
+
+        mailSender.send(message);
+    }
+
+    public void sendWaitlistOffer(String to, String patientName, String doctorName, String date,
+                                  String time, int validMinutes, String offerLink) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("noreply@disklinik.com");
+        message.setTo(to);
+        message.setSubject("Boşalan Randevu Teklifi - Premium Diş Kliniği");
+        message.setText("Sayın " + patientName + ",\n\n" +
+                "Bekleme listesinde olduğunuz için boşalan bir randevu size ayrılmıştır.\n\n" +
+                "Randevu Detayları:\n" +
+                "Doktor: " + doctorName + "\n" +
+                "Tarih: " + date + "\n" +
+                "Saat: " + time + "\n\n" +
+                "Bu randevu " + validMinutes + " dakika boyunca sizin için tutulacaktır. " +
+                "Kabul etmek veya reddetmek için:\n" + offerLink + "\n\n" +
+                "Saygılarımızla,\n" +
+                "Premium Diş Kliniği");
+
+        mailSender.send(message);
+    }
+}
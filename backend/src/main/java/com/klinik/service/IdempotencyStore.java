@@ -0,0 +1,215 @@
+package com.klinik.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers the responses of requests sent with an Idempotency-Key. The
+ * idempotency_keys table decides which request of a key runs, across all
+ * nodes; completed responses are also kept in a bounded in-memory LRU so that
+ * retries usually replay without a database round trip. A stored response is
+ * only ever replayed to a request with the same body hash.
+ */
+@Service
+public class IdempotencyStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    public enum Outcome {
+        // The caller runs the request and reports the response
+        ACQUIRED,
+        // A response is stored for this key and request
+        COMPLETED,
+        // Another request with this key is still running
+        IN_PROGRESS,
+        // The key was used for a different request
+        MISMATCH
+    }
+
+    private static final String INSERT_KEY =
+            "INSERT INTO idempotency_keys (id_key, request_hash, olusturma_tarihi) VALUES (?, ?, ?)";
+
+    private static final String SELECT_KEY =
+            "SELECT request_hash, status_code, content_type, response_body, olusturma_tarihi " +
+            "FROM idempotency_keys WHERE id_key = ?";
+
+    // Takes over a key whose row has expired or whose request was abandoned
+    private static final String RECLAIM_KEY =
+            "UPDATE idempotency_keys SET request_hash = ?, status_code = NULL, content_type = NULL, " +
+            "response_body = NULL, olusturma_tarihi = ? WHERE id_key = ? AND olusturma_tarihi = ?";
+
+    private static final String COMPLETE_KEY =
+            "UPDATE idempotency_keys SET status_code = ?, content_type = ?, response_body = ? WHERE id_key = ?";
+
+    private static final String DELETE_RUNNING_KEY =
+            "DELETE FROM idempotency_keys WHERE id_key = ? AND status_code IS NULL";
+
+    private static final String PURGE_EXPIRED =
+            "DELETE FROM idempotency_keys WHERE olusturma_tarihi < ? LIMIT 1000";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.idempotency.ttl-hours:24}")
+    private int ttlHours;
+
+    @Value("${app.idempotency.cache-size:10000}")
+    private int cacheSize;
+
+    // A request that has not completed by then is considered lost with its node
+    @Value("${app.idempotency.in-progress-timeout-seconds:120}")
+    private int inProgressTimeoutSeconds;
+
+    private final Map<String, StoredResponse> recent = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+                    return size() > cacheSize;
+                }
+            });
+
+    /**
+     * Claims {@code key} for a request with the given body hash, or reports why
+     * the request must not run. For {@link Outcome#COMPLETED} the stored
+     * response is in {@link Claim#getResponse()}.
+     */
+    public Claim claim(String key, String requestHash) {
+        StoredResponse cached = recent.get(key);
+        if (cached != null && !isExpired(cached.createdAt)) {
+            return replay(cached, requestHash);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            jdbcTemplate.update(INSERT_KEY, key, requestHash, now);
+            return new Claim(Outcome.ACQUIRED, null);
+        } catch (DuplicateKeyException e) {
+            // Fall through to the existing row
+        }
+
+        List<StoredResponse> rows = jdbcTemplate.query(SELECT_KEY, (rs, rowNum) -> new StoredResponse(
+                rs.getString("request_hash"),
+                (Integer) rs.getObject("status_code"),
+                rs.getString("content_type"),
+                rs.getString("response_body"),
+                rs.getObject("olusturma_tarihi", LocalDateTime.class)), key);
+        if (rows.isEmpty()) {
+            // Abandoned and deleted in between; the client may simply retry
+            return new Claim(Outcome.IN_PROGRESS, null);
+        }
+
+        StoredResponse stored = rows.get(0);
+        boolean abandoned = stored.status == null
+                && stored.createdAt.isBefore(now.minusSeconds(inProgressTimeoutSeconds));
+        if (isExpired(stored.createdAt) || abandoned) {
+            int reclaimed = jdbcTemplate.update(RECLAIM_KEY, requestHash, now, key, stored.createdAt);
+            return new Claim(reclaimed == 1 ? Outcome.ACQUIRED : Outcome.IN_PROGRESS, null);
+        }
+        if (stored.status == null) {
+            return new Claim(stored.requestHash.equals(requestHash) ? Outcome.IN_PROGRESS : Outcome.MISMATCH, null);
+        }
+        recent.put(key, stored);
+        return replay(stored, requestHash);
+    }
+
+    // The only way to a replay: the stored response goes out only for the same request body
+    private static Claim replay(StoredResponse stored, String requestHash) {
+        if (!MessageDigest.isEqual(stored.requestHash.getBytes(StandardCharsets.US_ASCII),
+                requestHash.getBytes(StandardCharsets.US_ASCII))) {
+            return new Claim(Outcome.MISMATCH, null);
+        }
+        return new Claim(Outcome.COMPLETED, stored);
+    }
+
+    public void complete(String key, String requestHash, int status, String contentType, String body) {
+        jdbcTemplate.update(COMPLETE_KEY, status, contentType, body, key);
+        recent.put(key, new StoredResponse(requestHash, status, contentType, body, LocalDateTime.now()));
+    }
+
+    /**
+     * Gives the key up after a failed request so that a retry runs again.
+     */
+    public void abandon(String key) {
+        jdbcTemplate.update(DELETE_RUNNING_KEY, key);
+    }
+
+    @Scheduled(initialDelay = 1, fixedDelay = 60, timeUnit = TimeUnit.MINUTES)
+    void purgeExpired() {
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusHours(ttlHours);
+            int deleted;
+            do {
+                deleted = jdbcTemplate.update(PURGE_EXPIRED, cutoff);
+            } while (deleted > 0);
+        } catch (RuntimeException e) {
+            logger.warn("Süresi dolmuş idempotency anahtarları silinemedi: {}", e.getMessage());
+        }
+    }
+
+    private boolean isExpired(LocalDateTime createdAt) {
+        return createdAt.isBefore(LocalDateTime.now().minusHours(ttlHours));
+    }
+
+    public static class Claim {
+
+        private final Outcome outcome;
+        private final StoredResponse response;
+
+        Claim(Outcome outcome, StoredResponse response) {
+            this.outcome = outcome;
+            this.response = response;
+        }
+
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        public StoredResponse getResponse() {
+            return response;
+        }
+    }
+
+    public static class StoredResponse {
+
+        private final String requestHash;
+        private final Integer status;
+        private final String contentType;
+        private final String body;
+        private final LocalDateTime createdAt;
+
+        StoredResponse(String requestHash, Integer status, String contentType, String body, LocalDateTime createdAt) {
+            this.requestHash = requestHash;
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+            this.createdAt = createdAt;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getBody() {
+            return body;
+        }
+    }
+}
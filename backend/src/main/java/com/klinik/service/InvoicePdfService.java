@@ -0,0 +1,275 @@
+package com.klinik.service;
+
+import com.klinik.model.Appointment;
+import com.klinik.model.Doctor;
+import com.klinik.model.Invoice;
+import com.klinik.repository.InvoiceRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Invoice PDFs, rendered by {@link InvoicePdfWriter} on a fixed pool with a
+ * bounded queue and kept on local disk under the hash of their content. An
+ * invoice that changed gets a new hash, so a cached file is never stale; the
+ * same invoice requested twice while rendering is rendered once. Files not
+ * served for {@code app.pdf.cache-max-age-days} are deleted.
+ *
+ * <p>When the queue is full single requests fail fast, while a month ZIP
+ * renders on its own thread instead, which slows it down to what the pool
+ * can take.
+ */
+@Service
+public class InvoicePdfService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InvoicePdfService.class);
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.pdf.threads:2}")
+    private int threads;
+
+    @Value("${app.pdf.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${app.pdf.cache-dir:${java.io.tmpdir}/klinik-fatura-pdf}")
+    private String cacheDir;
+
+    @Value("${app.pdf.cache-max-age-days:30}")
+    private int cacheMaxAgeDays;
+
+    @Value("${app.pdf.render-timeout-seconds:30}")
+    private long renderTimeoutSeconds;
+
+    // Renders a month ZIP keeps in flight ahead of the entry being written
+    @Value("${app.pdf.zip-window:16}")
+    private int zipWindow;
+
+    private final ConcurrentHashMap<String, CompletableFuture<Path>> rendering = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor pool;
+
+    private Path directory;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void start() throws IOException {
+        directory = Files.createDirectories(Paths.get(cacheDir));
+        AtomicInteger threadNumber = new AtomicInteger();
+        pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "invoice-pdf-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * The invoice's PDF file, rendered first unless it is cached.
+     */
+    public Path getPdf(Long invoiceId) {
+        return await(render(load(invoiceId), false));
+    }
+
+    /**
+     * The PDF for the patient of the invoice, who proves it with the same
+     * T.C. number and name as the public appointment lookup. A mismatch looks
+     * like a missing invoice.
+     */
+    public Path getPatientPdf(Long invoiceId, String tc, String hastaAd, String hastaSoyad) {
+        InvoicePdfWriter.Document document = load(invoiceId);
+        if (!tc.equals(document.getTc()) || !PatientService.sameName(document.getHastaAd(), hastaAd)
+                || !PatientService.sameName(document.getHastaSoyad(), hastaSoyad)) {
+            throw new RuntimeException("Fatura bulunamadı: " + invoiceId);
+        }
+        return await(render(document, false));
+    }
+
+    /**
+     * Writes the PDFs of every live invoice dated in the month as a ZIP, one
+     * entry after the other as they are rendered; archived invoices are not
+     * included.
+     */
+    public void writeMonthZip(YearMonth month, OutputStream out) throws IOException {
+        LocalDateTime startDate = month.atDay(1).atStartOfDay();
+        LocalDateTime endBefore = month.plusMonths(1).atDay(1).atStartOfDay();
+        List<InvoicePdfWriter.Document> documents = readOnlyTransaction.execute(status -> invoiceRepository
+                .findWithAppointmentByTarihBetween(startDate, endBefore).stream()
+                .map(InvoicePdfService::toDocument)
+                .toList());
+
+        ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(out, 64 * 1024));
+        Deque<CompletableFuture<Path>> window = new ArrayDeque<>();
+        int next = 0;
+        for (InvoicePdfWriter.Document document : documents) {
+            while (next < documents.size() && window.size() < zipWindow) {
+                window.add(render(documents.get(next++), true));
+            }
+            zip.putNextEntry(new ZipEntry("fatura-" + document.getInvoiceId() + ".pdf"));
+            Files.copy(await(window.poll()), zip);
+            zip.closeEntry();
+        }
+        zip.finish();
+        zip.flush();
+    }
+
+    private InvoicePdfWriter.Document load(Long invoiceId) {
+        return readOnlyTransaction.execute(status -> invoiceService.getInvoiceById(invoiceId)
+                .map(InvoicePdfService::toDocument)
+                .orElseThrow(() -> new RuntimeException("Fatura bulunamadı: " + invoiceId)));
+    }
+
+    private static InvoicePdfWriter.Document toDocument(Invoice invoice) {
+        Appointment appointment = invoice.getAppointment();
+        Doctor doctor = appointment.getDoctor();
+        return new InvoicePdfWriter.Document(invoice.getId(), invoice.getTarih(), invoice.getStatus(),
+                invoice.getTutar(), invoice.getAciklama(), appointment.getHastaAd(), appointment.getHastaSoyad(),
+                appointment.getTc(), appointment.getTarih(), appointment.getSaat(), appointment.getBolum(),
+                doctor.getFullName(), doctor.getUzmanlik());
+    }
+
+    private CompletableFuture<Path> render(InvoicePdfWriter.Document document, boolean callerRunsWhenFull) {
+        String hash = document.contentHash();
+        Path file = directory.resolve(hash + ".pdf");
+        if (Files.exists(file)) {
+            touch(file);
+            return CompletableFuture.completedFuture(file);
+        }
+        CompletableFuture<Path> future = new CompletableFuture<>();
+        CompletableFuture<Path> running = rendering.putIfAbsent(hash, future);
+        if (running != null) {
+            return running;
+        }
+        Runnable task = () -> {
+            try {
+                future.complete(write(document, file));
+            } catch (RuntimeException | IOException e) {
+                future.completeExceptionally(e);
+            } finally {
+                rendering.remove(hash, future);
+            }
+        };
+        try {
+            pool.execute(task);
+        } catch (RejectedExecutionException e) {
+            if (!callerRunsWhenFull) {
+                rendering.remove(hash, future);
+                future.completeExceptionally(e);
+                throw new RejectedExecutionException("PDF oluşturma kuyruğu dolu, lütfen daha sonra tekrar deneyin");
+            }
+            task.run();
+        }
+        return future;
+    }
+
+    // Written next to the target and moved into place, so readers never see a partial file
+    private Path write(InvoicePdfWriter.Document document, Path file) throws IOException {
+        Path temp = Files.createTempFile(directory, "render-", ".tmp");
+        try {
+            Files.write(temp, InvoicePdfWriter.write(document));
+            return Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Path await(CompletableFuture<Path> future) {
+        try {
+            return future.get(renderTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Fatura PDF'i oluşturulamadı");
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Fatura PDF'i zamanında oluşturulamadı");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RejectedExecutionException) {
+                throw (RejectedExecutionException) e.getCause();
+            }
+            if (e.getCause() instanceof IOException) {
+                throw new UncheckedIOException((IOException) e.getCause());
+            }
+            throw new RuntimeException("Fatura PDF'i oluşturulamadı", e.getCause());
+        }
+    }
+
+    // The modification time tracks the last use, for deleteExpired
+    private static void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+        } catch (IOException e) {
+            // Deleted meanwhile; the caller renders it again on the next request
+        }
+    }
+
+    @Scheduled(initialDelay = 1, fixedDelay = 24, timeUnit = TimeUnit.HOURS)
+    void deleteExpired() {
+        Instant limit = Instant.now().minus(cacheMaxAgeDays, ChronoUnit.DAYS);
+        Instant tempLimit = Instant.now().minus(1, ChronoUnit.HOURS);
+        int deleted = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Instant modified = Files.getLastModifiedTime(file).toInstant();
+                boolean temp = file.getFileName().toString().endsWith(".tmp");
+                if (modified.isBefore(temp ? tempLimit : limit) && Files.deleteIfExists(file)) {
+                    deleted++;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Eski fatura PDF'leri silinemedi: {}", e.getMessage());
+        }
+        if (deleted > 0) {
+            logger.info("{} eski fatura PDF'i silindi", deleted);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.klinik.service;
+
+import com.klinik.model.Invoice.InvoiceStatus;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes a one-page A4 invoice as a PDF 1.4 file with the standard Helvetica
+ * fonts, so no font has to be embedded. The output depends only on the
+ * document, which is what lets rendered files be cached by content hash.
+ */
+final class InvoicePdfWriter {
+
+    // Part of every content hash; bump when the layout changes so cached files are rendered again
+    private static final int LAYOUT_VERSION = 1;
+
+    // WinAnsi plus the Turkish letters at their windows-1254 positions
+    private static final Charset TEXT_CHARSET = Charset.forName("windows-1254");
+
+    private static final String ENCODING =
+            "<< /Type /Encoding /BaseEncoding /WinAnsiEncoding " +
+            "/Differences [208 /Gbreve 221 /Idotaccent 222 /Scedilla 240 /gbreve 253 /dotlessi 254 /scedilla] >>";
+
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm");
+
+    private static final int LEFT = 50;
+
+    private static final int LINE_CHARS = 90;
+
+    private static final int MAX_DESCRIPTION_LINES = 30;
+
+    private InvoicePdfWriter() {
+    }
+
+    static byte[] write(Document doc) {
+        StringBuilder content = new StringBuilder();
+        int y = 780;
+        text(content, "F2", 20, LEFT, y, "FATURA");
+        y -= 40;
+        text(content, "F1", 11, LEFT, y, "Fatura No: " + doc.invoiceId);
+        text(content, "F1", 11, 330, y, "Tarih: " + DATE_TIME.format(doc.tarih));
+        y -= 18;
+        text(content, "F1", 11, LEFT, y, "Durum: " + statusLabel(doc.status));
+        y -= 36;
+        text(content, "F2", 12, LEFT, y, "Hasta");
+        y -= 18;
+        text(content, "F1", 11, LEFT, y, doc.hastaAd + " " + doc.hastaSoyad);
+        y -= 16;
+        text(content, "F1", 11, LEFT, y, "T.C. Kimlik No: " + maskTc(doc.tc));
+        y -= 36;
+        text(content, "F2", 12, LEFT, y, "Randevu");
+        y -= 18;
+        text(content, "F1", 11, LEFT, y, DATE.format(doc.randevuTarihi) + " " + TIME.format(doc.saat)
+                + (doc.bolum != null ? " - " + doc.bolum : ""));
+        y -= 16;
+        text(content, "F1", 11, LEFT, y, "Dr. " + doc.doktorAdi
+                + (doc.uzmanlik != null ? " (" + doc.uzmanlik + ")" : ""));
+        y -= 36;
+        if (doc.aciklama != null && !doc.aciklama.isBlank()) {
+            text(content, "F2", 12, LEFT, y, "Açıklama");
+            y -= 18;
+            for (String line : wrap(doc.aciklama)) {
+                text(content, "F1", 10, LEFT, y, line);
+                y -= 14;
+            }
+            y -= 22;
+        }
+        content.append(LEFT).append(' ').append(y + 12).append(" m 545 ").append(y + 12).append(" l S\n");
+        text(content, "F2", 14, LEFT, y - 10, "Toplam: " + formatAmount(doc.tutar) + " TL");
+
+        List<String> objects = new ArrayList<>();
+        objects.add("<< /Type /Catalog /Pages 2 0 R >>");
+        objects.add("<< /Type /Pages /Kids [3 0 R] /Count 1 >>");
+        objects.add("<< /Type /Page /Parent 2 0 R /MediaBox [0 0 595 842] " +
+                "/Resources << /Font << /F1 4 0 R /F2 5 0 R >> >> /Contents 6 0 R >>");
+        objects.add("<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica /Encoding 7 0 R >>");
+        objects.add("<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica-Bold /Encoding 7 0 R >>");
+        // Text is written as hex strings, so the whole file stays ASCII
+        objects.add("<< /Length " + content.length() + " >>\nstream\n" + content + "endstream");
+        objects.add(ENCODING);
+
+        StringBuilder pdf = new StringBuilder("%PDF-1.4\n");
+        int[] offsets = new int[objects.size()];
+        for (int i = 0; i < objects.size(); i++) {
+            offsets[i] = pdf.length();
+            pdf.append(i + 1).append(" 0 obj\n").append(objects.get(i)).append("\nendobj\n");
+        }
+        int xref = pdf.length();
+        pdf.append("xref\n0 ").append(objects.size() + 1).append("\n0000000000 65535 f \n");
+        for (int offset : offsets) {
+            pdf.append(String.format("%010d 00000 n \n", offset));
+        }
+        pdf.append("trailer\n<< /Size ").append(objects.size() + 1).append(" /Root 1 0 R >>\n")
+                .append("startxref\n").append(xref).append("\n%%EOF\n");
+        return pdf.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static void text(StringBuilder content, String font, int size, int x, int y, String text) {
+        content.append("BT /").append(font).append(' ').append(size).append(" Tf ")
+                .append(x).append(' ').append(y).append(" Td <")
+                .append(HexFormat.of().formatHex(text.getBytes(TEXT_CHARSET))).append("> Tj ET\n");
+    }
+
+    static List<String> wrap(String text) {
+        List<String> lines = new ArrayList<>();
+        for (String paragraph : text.strip().split("\\R")) {
+            StringBuilder line = new StringBuilder();
+            for (String word : paragraph.trim().split("\\s+")) {
+                if (line.length() > 0 && line.length() + 1 + word.length() > LINE_CHARS) {
+                    lines.add(line.toString());
+                    line.setLength(0);
+                }
+                if (line.length() > 0) {
+                    line.append(' ');
+                }
+                line.append(word.length() > LINE_CHARS ? word.substring(0, LINE_CHARS) : word);
+            }
+            lines.add(line.toString());
+        }
+        if (lines.size() > MAX_DESCRIPTION_LINES) {
+            lines = new ArrayList<>(lines.subList(0, MAX_DESCRIPTION_LINES));
+            lines.set(MAX_DESCRIPTION_LINES - 1, lines.get(MAX_DESCRIPTION_LINES - 1) + " ...");
+        }
+        return lines;
+    }
+
+    private static String statusLabel(InvoiceStatus status) {
+        return switch (status) {
+            case BEKLEMEDE -> "Ödeme bekleniyor";
+            case ODENDI -> "Ödendi";
+            case IPTAL_EDILDI -> "İptal edildi";
+        };
+    }
+
+    private static String maskTc(String tc) {
+        if (tc == null || tc.length() < 5) {
+            return "***";
+        }
+        return tc.substring(0, 3) + "*".repeat(tc.length() - 5) + tc.substring(tc.length() - 2);
+    }
+
+    private static String formatAmount(BigDecimal tutar) {
+        DecimalFormat format = new DecimalFormat("#,##0.00", DecimalFormatSymbols.getInstance(new Locale("tr", "TR")));
+        return format.format(tutar.setScale(2, RoundingMode.HALF_UP));
+    }
+
+    /**
+     * Everything printed on an invoice, read in one go so rendering needs no
+     * database access.
+     */
+    static final class Document {
+
+        private final long invoiceId;
+        private final LocalDateTime tarih;
+        private final InvoiceStatus status;
+        private final BigDecimal tutar;
+        private final String aciklama;
+        private final String hastaAd;
+        private final String hastaSoyad;
+        private final String tc;
+        private final LocalDate randevuTarihi;
+        private final LocalTime saat;
+        private final String bolum;
+        private final String doktorAdi;
+        private final String uzmanlik;
+
+        Document(long invoiceId, LocalDateTime tarih, InvoiceStatus status, BigDecimal tutar, String aciklama,
+                 String hastaAd, String hastaSoyad, String tc, LocalDate randevuTarihi, LocalTime saat,
+                 String bolum, String doktorAdi, String uzmanlik) {
+            this.invoiceId = invoiceId;
+            this.tarih = tarih;
+            this.status = status;
+            this.tutar = tutar;
+            this.aciklama = aciklama;
+            this.hastaAd = hastaAd;
+            this.hastaSoyad = hastaSoyad;
+            this.tc = tc;
+            this.randevuTarihi = randevuTarihi;
+            this.saat = saat;
+            this.bolum = bolum;
+            this.doktorAdi = doktorAdi;
+            this.uzmanlik = uzmanlik;
+        }
+
+        long getInvoiceId() {
+            return invoiceId;
+        }
+
+        String getHastaAd() {
+            return hastaAd;
+        }
+
+        String getHastaSoyad() {
+            return hastaSoyad;
+        }
+
+        String getTc() {
+            return tc;
+        }
+
+        /**
+         * SHA-256 of the layout version and every printed field; equal hashes
+         * render to identical files.
+         */
+        String contentHash() {
+            String content = String.join("\u0000", Integer.toString(LAYOUT_VERSION), Long.toString(invoiceId),
+                    String.valueOf(tarih), status.name(), tutar.setScale(2, RoundingMode.HALF_UP).toPlainString(),
+                    String.valueOf(aciklama), hastaAd, hastaSoyad, tc, String.valueOf(randevuTarihi),
+                    String.valueOf(saat), String.valueOf(bolum), doktorAdi, String.valueOf(uzmanlik));
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
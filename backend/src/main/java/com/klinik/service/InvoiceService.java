@@ -1,24 +1,44 @@
 package com.klinik.service;
 
+import com.klinik.dto.InvoiceView;
 import com.klinik.model.Invoice;
 import com.klinik.model.Appointment;
 import com.klinik.repository.InvoiceRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 
 @Service
 public class InvoiceService {
 
+    private static final Comparator<InvoiceView> VIEW_ORDER = Comparator.comparing(InvoiceView::getTarih)
+            .thenComparing(InvoiceView::getId);
+
     @Autowired
     private InvoiceRepository invoiceRepository;
 
-    public List<Invoice> getAllInvoices() {
-        return invoiceRepository.findAll();
+    @Autowired
+    private AppointmentArchiveService appointmentArchiveService;
+
+    @Autowired
+    private RevenueRollupService revenueRollupService;
+
+    public List<InvoiceView> getAllInvoices() {
+        List<InvoiceView> invoices = invoiceRepository.findAllViews();
+        return appointmentArchiveService.hasArchive()
+                ? withArchived(invoices, appointmentArchiveService.findInvoiceViews(null, null, null))
+                : invoices;
+    }
+
+    public long countInvoices() {
+        return invoiceRepository.count();
     }
 
     public Optional<Invoice> getInvoiceById(Long id) {
@@ -29,62 +49,97 @@ public class InvoiceService {
         return invoiceRepository.findByAppointment(appointment);
     }
 
-    public List<Invoice> getInvoicesByDoctor(Long doctorId) {
-        return invoiceRepository.findByAppointmentDoctor_Id(doctorId);
+    public List<InvoiceView> getInvoicesByDoctor(Long doctorId) {
+        List<InvoiceView> invoices = invoiceRepository.findViewsByDoctorId(doctorId);
+        return appointmentArchiveService.hasArchive()
+                ? withArchived(invoices, appointmentArchiveService.findInvoiceViews(doctorId, null, null))
+                : invoices;
     }
 
+    /**
+     * Live invoices of the range as entities; archived ones are only
+     * available through the view listings.
+     */
     public List<Invoice> getInvoicesByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
         return invoiceRepository.findByTarihBetween(startDate, endDate);
     }
 
-    public List<Invoice> getDoctorInvoicesByDateRange(Long doctorId, LocalDateTime startDate, LocalDateTime endDate) {
-        return invoiceRepository.findByDoctorAndTarihBetween(doctorId, startDate, endDate);
+    public List<InvoiceView> getDoctorInvoicesByDateRange(Long doctorId, LocalDateTime startDate, LocalDateTime endDate) {
+        List<InvoiceView> invoices = invoiceRepository.findByDoctorAndTarihBetween(doctorId, startDate, endDate);
+        return appointmentArchiveService.reachesArchive(startDate)
+                ? withArchived(invoices, appointmentArchiveService.findInvoiceViews(doctorId, startDate, endDate))
+                : invoices;
+    }
+
+    private static List<InvoiceView> withArchived(List<InvoiceView> live, List<InvoiceView> archived) {
+        if (archived.isEmpty()) {
+            return live;
+        }
+        List<InvoiceView> merged = new ArrayList<>(archived);
+        merged.addAll(live);
+        merged.sort(VIEW_ORDER);
+        return merged;
     }
 
+    @Transactional
     public Invoice createInvoice(Invoice invoice) {
-        return invoiceRepository.save(invoice);
+        Invoice saved = invoiceRepository.save(invoice);
+        revenueRollupService.applyInvoicesOf(List.of(saved.getAppointment().getId()), 1);
+        return saved;
     }
 
+    @Transactional
     public Invoice updateInvoice(Long id, Invoice invoiceDetails) {
-        Invoice invoice = invoiceRepository.findById(id)
+        Invoice invoice = invoiceRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new RuntimeException("Fatura bulunamadı: " + id));
+        addToRollups(invoice, -1);
 
         invoice.setTutar(invoiceDetails.getTutar());
         invoice.setAciklama(invoiceDetails.getAciklama());
         invoice.setStatus(invoiceDetails.getStatus());
 
+        addToRollups(invoice, 1);
         return invoiceRepository.save(invoice);
     }
 
+    @Transactional
     public void deleteInvoice(Long id) {
-        Invoice invoice = invoiceRepository.findById(id)
+        Invoice invoice = invoiceRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new RuntimeException("Fatura bulunamadı: " + id));
+        addToRollups(invoice, -1);
         invoiceRepository.delete(invoice);
     }
 
     public BigDecimal getTotalRevenue() {
-        BigDecimal total = invoiceRepository.getTotalPaidAmount();
-        return total != null ? total : BigDecimal.ZERO;
+        return revenueRollupService.getPaidTotal();
     }
 
     public BigDecimal getDoctorRevenue(Long doctorId) {
-        BigDecimal total = invoiceRepository.getTotalPaidAmountByDoctor(doctorId);
-        return total != null ? total : BigDecimal.ZERO;
+        return revenueRollupService.getPaidTotal(doctorId);
     }
 
+    @Transactional
     public Invoice markAsPaid(Long id) {
-        Invoice invoice = invoiceRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Fatura bulunamadı: " + id));
-        
-        invoice.setStatus(Invoice.InvoiceStatus.ODENDI);
-        return invoiceRepository.save(invoice);
+        return changeStatus(id, Invoice.InvoiceStatus.ODENDI);
     }
 
+    @Transactional
     public Invoice markAsCancelled(Long id) {
-        Invoice invoice = invoiceRepository.findById(id)
+        return changeStatus(id, Invoice.InvoiceStatus.IPTAL_EDILDI);
+    }
+
+    private Invoice changeStatus(Long id, Invoice.InvoiceStatus status) {
+        Invoice invoice = invoiceRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new RuntimeException("Fatura bulunamadı: " + id));
-        
-        invoice.setStatus(Invoice.InvoiceStatus.IPTAL_EDILDI);
+        addToRollups(invoice, -1);
+
+        invoice.setStatus(status);
+        addToRollups(invoice, 1);
         return invoiceRepository.save(invoice);
     }
-}
\ No newline at end of file
+
+    private void addToRollups(Invoice invoice, int sign) {
+        revenueRollupService.apply(invoice.getAppointment().getDoctor().getId(), invoice.getTarih(),
+                invoice.getStatus(), invoice.getTutar(), sign);
+    }
+}
@@ -0,0 +1,302 @@
+package com.klinik.service;
+
+import com.klinik.model.Appointment;
+import com.klinik.repository.AppointmentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Carries out outbox events at least once. Due events are claimed in batches
+ * with SELECT ... FOR UPDATE SKIP LOCKED and leased for a few minutes, so
+ * several nodes can dispatch side by side and events of a node that dies
+ * mid-batch are picked up again once the lease runs out. Failures are retried
+ * with exponential backoff until the attempts are used up.
+ *
+ * <p>Invoices are created idempotently (appointments that already have one are
+ * skipped); an e-mail may in rare cases be sent twice.
+ */
+@Component
+public class OutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    private static final int BATCH_SIZE = 100;
+
+    private static final long LEASE_SECONDS = 300;
+
+    private static final long BACKOFF_BASE_SECONDS = 5;
+
+    private static final long BACKOFF_MAX_SECONDS = 3600;
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    private static final String SELECT_DUE =
+            "SELECT id, event_type, appointment_id, attempts FROM outbox_events " +
+            "WHERE status = 'BEKLIYOR' AND next_attempt_at <= ? " +
+            "ORDER BY next_attempt_at LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private static final String LEASE =
+            "UPDATE outbox_events SET attempts = attempts + 1, next_attempt_at = :leaseUntil WHERE id IN (:ids)";
+
+    private static final String MARK_PROCESSED =
+            "UPDATE outbox_events SET status = 'ISLENDI', processed_at = :now WHERE id IN (:ids)";
+
+    private static final String MARK_RETRY =
+            "UPDATE outbox_events SET next_attempt_at = ?, last_error = ? WHERE id = ?";
+
+    private static final String MARK_FAILED =
+            "UPDATE outbox_events SET status = 'BASARISIZ', last_error = ? WHERE id = ?";
+
+    private static final String SELECT_INVOICED =
+            "SELECT appointment_id FROM invoices WHERE appointment_id IN (:ids)";
+
+    private static final String PURGE_PROCESSED =
+            "DELETE FROM outbox_events WHERE status = 'ISLENDI' AND processed_at < ? LIMIT 1000";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private AppointmentBatchWriter appointmentBatchWriter;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Value("${app.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.outbox.retention-days:7}")
+    private int retentionDays;
+
+    // Dispatch runs one at a time; polls and wake-ups that find it running leave the next round to it
+    private final ReentrantLock dispatchLock = new ReentrantLock();
+
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean();
+
+    /**
+     * Requests a dispatch run soon; wake-ups that arrive before it starts are
+     * folded into one.
+     */
+    public void wakeUp() {
+        if (wakeUpPending.compareAndSet(false, true)) {
+            taskScheduler.schedule(this::dispatch, Instant.now());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:2000}")
+    void dispatch() {
+        // The holder checks for a wake-up after unlocking, so none is lost to a failed tryLock
+        while (dispatchLock.tryLock()) {
+            try {
+                wakeUpPending.set(false);
+                dispatchDue();
+            } finally {
+                dispatchLock.unlock();
+            }
+            if (!wakeUpPending.get()) {
+                return;
+            }
+        }
+    }
+
+    private void dispatchDue() {
+        try {
+            List<OutboxEvent> batch;
+            do {
+                batch = claim();
+                if (!batch.isEmpty()) {
+                    Map<String, List<OutboxEvent>> byType = batch.stream()
+                            .collect(Collectors.groupingBy(e -> e.type));
+                    createInvoices(byType.getOrDefault(OutboxService.EventType.INVOICE.name(), List.of()));
+                    sendEmails(byType.getOrDefault(OutboxService.EventType.CONFIRMATION_EMAIL.name(), List.of()),
+                            a -> emailService.sendAppointmentConfirmation(a.getEmail(),
+                                    a.getHastaAd() + " " + a.getHastaSoyad(), a.getDoctor().getFullName(),
+                                    a.getTarih().format(DATE_FORMAT), a.getSaat().toString()));
+                    // Sent with the time the appointment has when the mail goes out
+                    sendEmails(byType.getOrDefault(OutboxService.EventType.RESCHEDULE_EMAIL.name(), List.of()),
+                            a -> emailService.sendAppointmentRescheduled(a.getEmail(),
+                                    a.getHastaAd() + " " + a.getHastaSoyad(), a.getDoctor().getFullName(),
+                                    a.getTarih().format(DATE_FORMAT), a.getSaat().toString()));
+                }
+            } while (batch.size() == BATCH_SIZE);
+        } catch (RuntimeException e) {
+            logger.error("Outbox olayları işlenemedi", e);
+        }
+    }
+
+    private List<OutboxEvent> claim() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<OutboxEvent> events = jdbcTemplate.query(SELECT_DUE, (rs, rowNum) -> new OutboxEvent(
+                    rs.getLong("id"), rs.getString("event_type"), rs.getLong("appointment_id"),
+                    rs.getInt("attempts") + 1), now, BATCH_SIZE);
+            if (!events.isEmpty()) {
+                namedParameterJdbcTemplate.update(LEASE, new MapSqlParameterSource("ids", ids(events))
+                        .addValue("leaseUntil", now.plusSeconds(LEASE_SECONDS)));
+            }
+            return events;
+        });
+    }
+
+    /**
+     * Creates the invoices of the whole batch with one JDBC batch, skipping
+     * appointments that already have one, were cancelled or no longer exist.
+     * If the batch fails, its events are retried one by one, so that only the
+     * event that causes the failure is marked as failed.
+     */
+    private void createInvoices(List<OutboxEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> invoice(events));
+        } catch (RuntimeException e) {
+            if (events.size() == 1) {
+                markFailed(events.get(0), e);
+                return;
+            }
+            for (OutboxEvent event : events) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> invoice(List.of(event)));
+                } catch (RuntimeException single) {
+                    markFailed(event, single);
+                }
+            }
+        }
+    }
+
+    private void invoice(List<OutboxEvent> events) {
+        Set<Long> appointmentIds = events.stream().map(e -> e.appointmentId).collect(Collectors.toSet());
+        Set<Long> invoiced = new HashSet<>(namedParameterJdbcTemplate.queryForList(SELECT_INVOICED,
+                new MapSqlParameterSource("ids", appointmentIds), Long.class));
+        List<Appointment> toInvoice = appointmentRepository.findWithDoctorByIdIn(appointmentIds).stream()
+                .filter(a -> !invoiced.contains(a.getId()))
+                .filter(a -> a.getStatus() != Appointment.AppointmentStatus.IPTAL_EDILDI)
+                .toList();
+        appointmentBatchWriter.insertInvoices(toInvoice);
+        markProcessed(events);
+    }
+
+    private void sendEmails(List<OutboxEvent> events, Consumer<Appointment> send) {
+        if (events.isEmpty()) {
+            return;
+        }
+        Map<Long, Appointment> appointments = appointmentRepository.findWithDoctorByIdIn(
+                        events.stream().map(e -> e.appointmentId).collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(Appointment::getId, Function.identity()));
+
+        List<OutboxEvent> done = new ArrayList<>();
+        for (OutboxEvent event : events) {
+            Appointment a = appointments.get(event.appointmentId);
+            if (a == null || a.getStatus() == Appointment.AppointmentStatus.IPTAL_EDILDI
+                    || a.getEmail() == null || a.getEmail().isBlank()) {
+                // Deleted or cancelled in the meantime, or the address was removed
+                done.add(event);
+                continue;
+            }
+            try {
+                send.accept(a);
+                done.add(event);
+            } catch (RuntimeException e) {
+                markFailed(event, e);
+            }
+        }
+        if (!done.isEmpty()) {
+            markProcessed(done);
+        }
+    }
+
+    private void markProcessed(List<OutboxEvent> events) {
+        namedParameterJdbcTemplate.update(MARK_PROCESSED,
+                new MapSqlParameterSource("ids", ids(events)).addValue("now", LocalDateTime.now()));
+    }
+
+    private void markFailed(OutboxEvent event, RuntimeException e) {
+        String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        if (error.length() > 1000) {
+            error = error.substring(0, 1000);
+        }
+        try {
+            if (event.attempt >= maxAttempts) {
+                jdbcTemplate.update(MARK_FAILED, error, event.id);
+                logger.error("Outbox olayı {} ({}, randevu {}) {} denemede işlenemedi: {}",
+                        event.id, event.type, event.appointmentId, event.attempt, error);
+            } else {
+                long delay = Math.min(BACKOFF_MAX_SECONDS, BACKOFF_BASE_SECONDS << Math.min(event.attempt - 1, 20));
+                jdbcTemplate.update(MARK_RETRY, LocalDateTime.now().plusSeconds(delay), error, event.id);
+            }
+        } catch (RuntimeException updateFailure) {
+            // The lease runs out and the event is retried anyway
+            logger.warn("Outbox olayı {} güncellenemedi: {}", event.id, updateFailure.getMessage());
+        }
+    }
+
+    @Scheduled(initialDelay = 1, fixedDelay = 1, timeUnit = TimeUnit.HOURS)
+    void purgeProcessed() {
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+            int deleted;
+            do {
+                deleted = jdbcTemplate.update(PURGE_PROCESSED, cutoff);
+            } while (deleted > 0);
+        } catch (RuntimeException e) {
+            logger.warn("İşlenmiş outbox olayları silinemedi: {}", e.getMessage());
+        }
+    }
+
+    private static List<Long> ids(List<OutboxEvent> events) {
+        return events.stream().map(e -> e.id).toList();
+    }
+
+    private static class OutboxEvent {
+
+        private final long id;
+        private final String type;
+        private final long appointmentId;
+        // 1 for the first try
+        private final int attempt;
+
+        OutboxEvent(long id, String type, long appointmentId, int attempt) {
+            this.id = id;
+            this.type = type;
+            this.appointmentId = appointmentId;
+            this.attempt = attempt;
+        }
+    }
+}
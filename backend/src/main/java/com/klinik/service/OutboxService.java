@@ -0,0 +1,110 @@
+package com.klinik.service;
+
+import com.klinik.model.Appointment;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Records the work that follows a booking or a change to appointments in
+ * outbox_events. Must be called inside the transaction that makes the change:
+ * the events are committed together with the appointments or not at all, and
+ * {@link OutboxDispatcher} carries them out afterwards.
+ */
+@Service
+public class OutboxService {
+
+    public enum EventType {
+        INVOICE,
+        CONFIRMATION_EMAIL,
+        RESCHEDULE_EMAIL
+    }
+
+    private static final String INSERT_EVENT =
+            "INSERT INTO outbox_events (event_type, appointment_id, status, attempts, next_attempt_at, olusturma_tarihi) " +
+            "VALUES (?, ?, 'BEKLIYOR', 0, ?, ?)";
+
+    private static final String INSERT_RESCHEDULE_EVENTS =
+            "INSERT INTO outbox_events (event_type, appointment_id, status, attempts, next_attempt_at, olusturma_tarihi) " +
+            "SELECT :type, id, 'BEKLIYOR', 0, :now, :now FROM appointments " +
+            "WHERE id IN (:ids) AND email IS NOT NULL AND email <> ''";
+
+    private static final int BATCH_SIZE = 100;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    public void appointmentBooked(Appointment appointment) {
+        appointmentsBooked(List.of(appointment));
+    }
+
+    /**
+     * One invoice event per appointment, plus a confirmation e-mail where the
+     * patient left an address.
+     */
+    public void appointmentsBooked(List<Appointment> appointments) {
+        if (appointments.isEmpty()) {
+            return;
+        }
+        List<Object[]> events = new ArrayList<>();
+        for (Appointment a : appointments) {
+            events.add(new Object[]{EventType.INVOICE, a.getId()});
+            if (a.getEmail() != null && !a.getEmail().isBlank()) {
+                events.add(new Object[]{EventType.CONFIRMATION_EMAIL, a.getId()});
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(INSERT_EVENT, events, BATCH_SIZE, (ps, event) -> {
+            ps.setString(1, ((EventType) event[0]).name());
+            ps.setLong(2, (Long) event[1]);
+            ps.setObject(3, now);
+            ps.setObject(4, now);
+        });
+        wakeUpAfterCommit();
+    }
+
+    /**
+     * An e-mail with the new time to every patient of {@code appointmentIds}
+     * who left an address.
+     */
+    public void appointmentsRescheduled(Collection<Long> appointmentIds) {
+        if (appointmentIds.isEmpty()) {
+            return;
+        }
+        int inserted = namedParameterJdbcTemplate.update(INSERT_RESCHEDULE_EVENTS,
+                new MapSqlParameterSource("type", EventType.RESCHEDULE_EMAIL.name())
+                        .addValue("now", LocalDateTime.now())
+                        .addValue("ids", appointmentIds));
+        if (inserted > 0) {
+            wakeUpAfterCommit();
+        }
+    }
+
+    // Dispatch right after commit instead of waiting for the next poll
+    private void wakeUpAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    outboxDispatcher.wakeUp();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.klinik.service;
+
+import com.klinik.model.Appointment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Links appointments created before the patients table existed to their
+ * {@link com.klinik.model.Patient}. Runs in the background after startup in
+ * batches, each in its own transaction; since it only picks rows without a
+ * patient, an interrupted run continues where it left off on the next start.
+ */
+@Component
+public class PatientBackfillJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(PatientBackfillJob.class);
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String SELECT_UNLINKED =
+            "SELECT id, tc, hasta_ad, hasta_soyad, telefon FROM appointments " +
+            "WHERE patient_id IS NULL AND id > ? ORDER BY id LIMIT ?";
+
+    private static final String LINK_PATIENT =
+            "UPDATE appointments SET patient_id = ? WHERE id = ? AND patient_id IS NULL";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PatientService patientService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private volatile boolean complete;
+
+    /**
+     * True once every appointment has a patient; until then lookups also have
+     * to consider unlinked rows.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread thread = new Thread(this::run, "patient-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void run() {
+        long lastId = 0;
+        long linked = 0;
+        try {
+            while (true) {
+                List<Appointment> batch = jdbcTemplate.query(SELECT_UNLINKED, (rs, rowNum) -> {
+                    Appointment a = new Appointment();
+                    a.setId(rs.getLong("id"));
+                    a.setTc(rs.getString("tc"));
+                    a.setHastaAd(rs.getString("hasta_ad"));
+                    a.setHastaSoyad(rs.getString("hasta_soyad"));
+                    a.setTelefon(rs.getString("telefon"));
+                    return a;
+                }, lastId, BATCH_SIZE);
+                if (batch.isEmpty()) {
+                    break;
+                }
+
+                transactionTemplate.executeWithoutResult(status -> {
+                    patientService.assignPatients(batch);
+                    jdbcTemplate.batchUpdate(LINK_PATIENT, batch, BATCH_SIZE, (ps, a) -> {
+                        ps.setObject(1, a.getPatient().getId(), Types.BIGINT);
+                        ps.setLong(2, a.getId());
+                    });
+                });
+                linked += batch.size();
+                lastId = batch.get(batch.size() - 1).getId();
+            }
+            complete = true;
+            if (linked > 0) {
+                logger.info("{} randevu hasta kayıtlarıyla eşleştirildi", linked);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Hasta eşleştirme işi durdu, bir sonraki açılışta kaldığı yerden devam edecek", e);
+        }
+    }
+}
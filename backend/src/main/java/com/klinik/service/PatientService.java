@@ -0,0 +1,167 @@
+package com.klinik.service;
+
+import com.klinik.model.Appointment;
+import com.klinik.model.Patient;
+import com.klinik.repository.PatientRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Resolves appointments to {@link Patient} rows keyed by a peppered hash of the
+ * normalized TC. New patients are inserted in their own transaction so that a
+ * concurrent insert of the same TC only costs a re-read, never the booking.
+ */
+@Service
+public class PatientService {
+
+    private static final Locale TURKISH = Locale.forLanguageTag("tr");
+
+    private static final String INSERT_PATIENT =
+            "INSERT INTO patients (tc_hash, ad, soyad, telefon, olusturma_tarihi) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String SELECT_IDS = "SELECT id, tc_hash FROM patients WHERE tc_hash IN (:tcHashes)";
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.patient.tc-pepper}")
+    private String tcPepper;
+
+    private TransactionTemplate newTransaction;
+
+    @PostConstruct
+    public void init() {
+        newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public String hashTc(String tc) {
+        String normalized = tc == null ? "" : tc.replaceAll("\\D", "");
+        if (normalized.isEmpty()) {
+            throw new RuntimeException("Geçersiz TC kimlik numarası");
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(tcPepper.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest(normalized.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Compares patient names ignoring case (Turkish rules), surrounding and
+     * repeated whitespace.
+     */
+    public static boolean sameName(String a, String b) {
+        return a != null && b != null && normalizeName(a).equals(normalizeName(b));
+    }
+
+    public Patient resolvePatient(String tc, String ad, String soyad, String telefon) {
+        String tcHash = hashTc(tc);
+        return patientRepository.findByTcHash(tcHash)
+                .orElseGet(() -> patientRepository.getReferenceById(createPatient(tcHash, ad, soyad, telefon)));
+    }
+
+    /**
+     * Sets the patient of every appointment, reading existing patients with one
+     * query and inserting the missing ones with one JDBC batch.
+     */
+    public void assignPatients(List<Appointment> appointments) {
+        if (appointments.isEmpty()) {
+            return;
+        }
+        Map<String, Appointment> firstByHash = new LinkedHashMap<>();
+        List<String> hashes = new ArrayList<>(appointments.size());
+        for (Appointment a : appointments) {
+            String tcHash = hashTc(a.getTc());
+            hashes.add(tcHash);
+            firstByHash.putIfAbsent(tcHash, a);
+        }
+
+        Map<String, Long> ids = findIds(firstByHash.keySet());
+        List<String> missing = firstByHash.keySet().stream().filter(h -> !ids.containsKey(h)).toList();
+        if (!missing.isEmpty()) {
+            try {
+                LocalDateTime now = LocalDateTime.now();
+                newTransaction.executeWithoutResult(status ->
+                        jdbcTemplate.batchUpdate(INSERT_PATIENT, missing, missing.size(), (ps, tcHash) -> {
+                            Appointment a = firstByHash.get(tcHash);
+                            ps.setString(1, tcHash);
+                            ps.setString(2, a.getHastaAd());
+                            ps.setString(3, a.getHastaSoyad());
+                            ps.setString(4, a.getTelefon());
+                            ps.setObject(5, now);
+                        }));
+            } catch (DataIntegrityViolationException e) {
+                // Some of them were created concurrently; fall back to one at a time
+                for (String tcHash : missing) {
+                    Appointment a = firstByHash.get(tcHash);
+                    createPatient(tcHash, a.getHastaAd(), a.getHastaSoyad(), a.getTelefon());
+                }
+            }
+            // Read in a new transaction so that the caller's snapshot does not hide the new rows
+            ids.putAll(newTransaction.execute(status -> findIds(missing)));
+        }
+
+        for (int i = 0; i < appointments.size(); i++) {
+            appointments.get(i).setPatient(patientRepository.getReferenceById(ids.get(hashes.get(i))));
+        }
+    }
+
+    private Long createPatient(String tcHash, String ad, String soyad, String telefon) {
+        try {
+            return newTransaction.execute(status ->
+                    patientRepository.save(new Patient(tcHash, ad, soyad, telefon)).getId());
+        } catch (DataIntegrityViolationException e) {
+            // Inserted by a concurrent request in the meantime
+            return newTransaction.execute(status -> patientRepository.findByTcHash(tcHash)
+                    .map(Patient::getId)
+                    .orElseThrow(() -> e));
+        }
+    }
+
+    private Map<String, Long> findIds(Collection<String> tcHashes) {
+        Map<String, Long> ids = new HashMap<>();
+        namedParameterJdbcTemplate.query(SELECT_IDS, new MapSqlParameterSource("tcHashes", tcHashes),
+                rs -> {
+                    ids.put(rs.getString("tc_hash"), rs.getLong("id"));
+                });
+        return ids;
+    }
+
+    private static String normalizeName(String name) {
+        return name.trim().replaceAll("\\s+", " ").toLowerCase(TURKISH);
+    }
+}
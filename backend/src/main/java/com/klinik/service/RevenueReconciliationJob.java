@@ -0,0 +1,126 @@
+package com.klinik.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks the revenue rollups of each doctor against the live and archived
+ * invoices. Both are read in one consistent snapshot, in which every invoice
+ * write and its rollup delta are either both visible or both not, so any
+ * difference found is real drift. It is then added as a delta, which stays
+ * correct while other writers keep changing the same rows.
+ */
+@Component
+public class RevenueReconciliationJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(RevenueReconciliationJob.class);
+
+    private static final String SELECT_DOCTOR_IDS =
+            "SELECT id FROM doctors UNION SELECT doktor_id FROM revenue_rollups " +
+            "UNION SELECT doktor_id FROM appointments_archive";
+
+    private static final String SELECT_INVOICE_TOTALS =
+            "SELECT a.doktor_id, CAST(i.tarih AS DATE) AS gun, i.status, COUNT(*) AS adet, SUM(i.tutar) AS toplam " +
+            "FROM invoices i JOIN appointments a ON a.id = i.appointment_id WHERE a.doktor_id = ? " +
+            "GROUP BY a.doktor_id, CAST(i.tarih AS DATE), i.status " +
+            "UNION ALL " +
+            "SELECT a.doktor_id, CAST(i.tarih AS DATE) AS gun, i.status, COUNT(*) AS adet, SUM(i.tutar) AS toplam " +
+            "FROM invoices_archive i JOIN appointments_archive a ON a.id = i.appointment_id WHERE a.doktor_id = ? " +
+            "GROUP BY a.doktor_id, CAST(i.tarih AS DATE), i.status";
+
+    private static final String SELECT_ROLLUPS =
+            "SELECT doktor_id, gun, status, adet, toplam FROM revenue_rollups WHERE doktor_id = ?";
+
+    // An upsert waiting on the row lock makes it non-zero again and the delete skips it
+    private static final String DELETE_EMPTY =
+            "DELETE FROM revenue_rollups WHERE doktor_id = ? AND adet = 0 AND toplam = 0";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private RevenueRollupService revenueRollupService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Scheduled(initialDelayString = "PT30M", fixedDelayString = "PT${app.revenue.reconcile-interval-hours:24}H")
+    void run() {
+        try {
+            int repaired = 0;
+            for (Long doctorId : jdbcTemplate.queryForList(SELECT_DOCTOR_IDS, Long.class)) {
+                repaired += reconcile(doctorId);
+            }
+            if (repaired > 0) {
+                logger.warn("Gelir özetlerinde {} satır faturalarla uyuşmuyordu ve düzeltildi", repaired);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Gelir özetleri doğrulanamadı", e);
+        }
+    }
+
+    /**
+     * Corrects the rollups of one doctor; returns the number of rows that
+     * were off.
+     */
+    int reconcile(Long doctorId) {
+        TransactionTemplate snapshot = new TransactionTemplate(transactionManager);
+        snapshot.setReadOnly(true);
+        snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        List<RevenueRollupService.Rollup> drift = snapshot.execute(status -> diff(
+                RevenueRollupService.group(jdbcTemplate.query(SELECT_INVOICE_TOTALS, RevenueRollupService::toRollup,
+                        doctorId, doctorId)),
+                jdbcTemplate.query(SELECT_ROLLUPS, RevenueRollupService::toRollup, doctorId)));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            revenueRollupService.apply(drift, 1);
+            jdbcTemplate.update(DELETE_EMPTY, doctorId);
+        });
+        for (RevenueRollupService.Rollup r : drift) {
+            logger.warn("Gelir özeti düzeltildi: doktor {}, gün {}, durum {}, adet {}, tutar {}",
+                    r.getDoctorId(), r.getGun(), r.getStatus(), r.getAdet(), r.getToplam());
+        }
+        return drift.size();
+    }
+
+    /**
+     * What has to be added to the rollups to match the invoice totals.
+     */
+    private static List<RevenueRollupService.Rollup> diff(List<RevenueRollupService.Rollup> expected,
+                                                          List<RevenueRollupService.Rollup> actual) {
+        Map<String, RevenueRollupService.Rollup> delta = new HashMap<>();
+        for (RevenueRollupService.Rollup r : expected) {
+            delta.put(r.key(), r);
+        }
+        for (RevenueRollupService.Rollup r : actual) {
+            RevenueRollupService.Rollup e = delta.get(r.key());
+            int adet = e != null ? e.getAdet() : 0;
+            BigDecimal toplam = e != null ? e.getToplam() : BigDecimal.ZERO;
+            delta.put(r.key(), new RevenueRollupService.Rollup(r.getDoctorId(), r.getGun(), r.getStatus(),
+                    adet - r.getAdet(), toplam.subtract(r.getToplam())));
+        }
+        List<RevenueRollupService.Rollup> drift = new ArrayList<>();
+        for (RevenueRollupService.Rollup r : delta.values()) {
+            if (r.getAdet() != 0 || r.getToplam().signum() != 0) {
+                drift.add(r);
+            }
+        }
+        return drift;
+    }
+}
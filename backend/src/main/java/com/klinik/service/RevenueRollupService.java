@@ -0,0 +1,170 @@
+package com.klinik.service;
+
+import com.klinik.model.Invoice.InvoiceStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Revenue rollups: invoice count and amount per (doctor, invoice day, status).
+ * Every invoice write applies its delta through this service in its own
+ * transaction, so totals are a read of O(days) rows instead of a SUM over all
+ * invoices. Archiving leaves the rollups as they are.
+ * {@link RevenueReconciliationJob} checks them against the invoices.
+ */
+@Service
+public class RevenueRollupService {
+
+    private static final String UPSERT =
+            "INSERT INTO revenue_rollups (doktor_id, gun, status, adet, toplam) VALUES (?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE adet = adet + VALUES(adet), toplam = toplam + VALUES(toplam)";
+
+    // Locking reads: they see the latest committed rows, not the transaction's snapshot
+    private static final String SELECT_BY_APPOINTMENTS =
+            "SELECT a.doktor_id, i.tarih, i.status, i.tutar FROM invoices i " +
+            "JOIN appointments a ON a.id = i.appointment_id WHERE i.appointment_id IN (:ids) FOR UPDATE";
+
+    private static final String SELECT_BY_DOCTOR =
+            "SELECT a.doktor_id, i.tarih, i.status, i.tutar FROM invoices i " +
+            "JOIN appointments a ON a.id = i.appointment_id WHERE a.doktor_id = ? FOR UPDATE";
+
+    private static final String SUM_PAID =
+            "SELECT SUM(toplam) FROM revenue_rollups WHERE status = 'ODENDI'";
+
+    private static final String SUM_PAID_BY_DOCTOR =
+            "SELECT SUM(toplam) FROM revenue_rollups WHERE doktor_id = ? AND status = 'ODENDI'";
+
+    // Rows in key order, so concurrent writers lock them in the same order
+    private static final Comparator<Rollup> KEY_ORDER = Comparator.comparing(Rollup::getDoctorId)
+            .thenComparing(Rollup::getGun).thenComparing(Rollup::getStatus);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    /**
+     * Adds ({@code sign} 1) or removes ({@code sign} -1) one invoice.
+     */
+    public void apply(Long doctorId, LocalDateTime tarih, InvoiceStatus status, BigDecimal tutar, int sign) {
+        jdbcTemplate.update(UPSERT, doctorId, tarih.toLocalDate(), status.name(), sign,
+                tutar.multiply(BigDecimal.valueOf(sign)));
+    }
+
+    /**
+     * Adds or removes the live invoices of these appointments as they are in
+     * the database now; call with -1 before changing them and 1 after.
+     */
+    public void applyInvoicesOf(Collection<Long> appointmentIds, int sign) {
+        if (!appointmentIds.isEmpty()) {
+            apply(group(namedParameterJdbcTemplate.query(SELECT_BY_APPOINTMENTS,
+                    new MapSqlParameterSource("ids", appointmentIds), RevenueRollupService::toInvoiceRollup)), sign);
+        }
+    }
+
+    /**
+     * Removes the live invoices of the doctor, before they are deleted with it.
+     */
+    public void removeInvoicesOfDoctor(Long doctorId) {
+        apply(group(jdbcTemplate.query(SELECT_BY_DOCTOR, RevenueRollupService::toInvoiceRollup, doctorId)), -1);
+    }
+
+    void apply(List<Rollup> rollups, int sign) {
+        List<Object[]> rows = rollups.stream()
+                .sorted(KEY_ORDER)
+                .map(r -> new Object[]{r.getDoctorId(), r.getGun(), r.getStatus(), sign * r.getAdet(),
+                        r.getToplam().multiply(BigDecimal.valueOf(sign))})
+                .toList();
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT, rows);
+        }
+    }
+
+    public BigDecimal getPaidTotal() {
+        BigDecimal total = jdbcTemplate.queryForObject(SUM_PAID, BigDecimal.class);
+        return total != null ? total : BigDecimal.ZERO;
+    }
+
+    public BigDecimal getPaidTotal(Long doctorId) {
+        BigDecimal total = jdbcTemplate.queryForObject(SUM_PAID_BY_DOCTOR, BigDecimal.class, doctorId);
+        return total != null ? total : BigDecimal.ZERO;
+    }
+
+    /**
+     * Sums rollups with the same key.
+     */
+    static List<Rollup> group(List<Rollup> rollups) {
+        Map<String, Rollup> grouped = new HashMap<>();
+        for (Rollup r : rollups) {
+            grouped.merge(r.key(), r, (a, b) -> new Rollup(
+                    a.getDoctorId(), a.getGun(), a.getStatus(), a.getAdet() + b.getAdet(), a.getToplam().add(b.getToplam())));
+        }
+        return new ArrayList<>(grouped.values());
+    }
+
+    private static Rollup toInvoiceRollup(ResultSet rs, int rowNum) throws SQLException {
+        return new Rollup(rs.getLong("doktor_id"), rs.getObject("tarih", LocalDateTime.class).toLocalDate(),
+                rs.getString("status"), 1, rs.getBigDecimal("tutar"));
+    }
+
+    static Rollup toRollup(ResultSet rs, int rowNum) throws SQLException {
+        return new Rollup(rs.getLong("doktor_id"), rs.getObject("gun", LocalDate.class), rs.getString("status"),
+                rs.getInt("adet"), rs.getBigDecimal("toplam"));
+    }
+
+    static final class Rollup {
+
+        private final long doctorId;
+        private final LocalDate gun;
+        private final String status;
+        private final int adet;
+        private final BigDecimal toplam;
+
+        Rollup(long doctorId, LocalDate gun, String status, int adet, BigDecimal toplam) {
+            this.doctorId = doctorId;
+            this.gun = gun;
+            this.status = status;
+            this.adet = adet;
+            this.toplam = toplam;
+        }
+
+        long getDoctorId() {
+            return doctorId;
+        }
+
+        LocalDate getGun() {
+            return gun;
+        }
+
+        String getStatus() {
+            return status;
+        }
+
+        int getAdet() {
+            return adet;
+        }
+
+        BigDecimal getToplam() {
+            return toplam;
+        }
+
+        String key() {
+            return doctorId + "|" + gun + "|" + status;
+        }
+    }
+}
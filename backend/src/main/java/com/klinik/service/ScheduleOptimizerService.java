@@ -0,0 +1,488 @@
+package com.klinik.service;
+
+import com.klinik.dto.RescheduleMove;
+import com.klinik.dto.ScheduleProposal;
+import com.klinik.event.SlotChangedEvent;
+import com.klinik.model.Appointment.AppointmentStatus;
+import com.klinik.repository.AppointmentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Proposes reschedules that close short gaps in the doctors' days and applies
+ * them in one batch. Every doctor-day is searched on its own task of a
+ * fork/join pool: a greedy local search moves one future appointment at a
+ * time to the free chair and slot that removes the most short free runs (then
+ * the most free runs), until no move helps or the time budget is spent.
+ *
+ * <p>Appointments stay with their doctor and day, so the specialty (bolum)
+ * always matches the doctor, and each one is moved at most once, so the moves
+ * are valid when applied one after another. Patients whose time changes are
+ * e-mailed through the outbox, in the transaction that moves them.
+ */
+@Service
+public class ScheduleOptimizerService {
+
+    public static final int MAX_MOVES = 500;
+
+    private static final Set<AppointmentStatus> MOVABLE = EnumSet.of(AppointmentStatus.BEKLEMEDE,
+            AppointmentStatus.ONAYLANDI);
+
+    // Locks the rows so that the checked slot is still current when updated
+    private static final String SELECT_FOR_UPDATE =
+            "SELECT id, doktor_id, tarih, saat, koltuk_no, status FROM appointments WHERE id IN (:ids) FOR UPDATE";
+
+    private static final String UPDATE_SLOT = "UPDATE appointments SET saat = ?, koltuk_no = ? WHERE id = ?";
+
+    private static final int BATCH_SIZE = 100;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private DoctorScheduleService doctorScheduleService;
+
+    @Autowired
+    private SlotHoldService slotHoldService;
+
+    @Autowired
+    private ChangeLogService changeLogService;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private BookingLocks bookingLocks;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.optimizer.time-budget-ms:2000}")
+    private long timeBudgetMs;
+
+    @Value("${app.optimizer.parallelism:4}")
+    private int parallelism;
+
+    // Free runs shorter than this many slots count as unusable gaps
+    @Value("${app.optimizer.min-gap-slots:2}")
+    private int minGapSlots;
+
+    @Value("${app.optimizer.max-days:31}")
+    private int maxDays;
+
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    public void start() {
+        pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("schedule-optimizer-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    public ScheduleProposal propose(LocalDate startDate, LocalDate endDate) {
+        if (endDate.isBefore(startDate)) {
+            throw new RuntimeException("Bitiş tarihi başlangıç tarihinden önce olamaz");
+        }
+        if (ChronoUnit.DAYS.between(startDate, endDate) >= maxDays) {
+            throw new RuntimeException("En fazla " + maxDays + " günlük aralık için öneri hesaplanabilir");
+        }
+        long deadline = System.nanoTime() + timeBudgetMs * 1_000_000;
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate from = startDate.isBefore(now.toLocalDate()) ? now.toLocalDate() : startDate;
+        if (from.isAfter(endDate)) {
+            return new ScheduleProposal(startDate, endDate, List.of(), 0, 0, true);
+        }
+
+        Map<DoctorDay, List<Object[]>> rowsByDay = new LinkedHashMap<>();
+        for (Object[] row : appointmentRepository.findSlotRowsByTarihBetween(from, endDate)) {
+            rowsByDay.computeIfAbsent(new DoctorDay((Long) row[1], (LocalDate) row[2]), k -> new ArrayList<>())
+                    .add(row);
+        }
+        List<DayPlan> plans = new ArrayList<>();
+        rowsByDay.forEach((day, rows) -> {
+            DayPlan plan = plan(day, rows, now);
+            if (plan != null) {
+                plans.add(plan);
+            }
+        });
+        plans.sort(Comparator.comparing((DayPlan p) -> p.day.getTarih()).thenComparing(p -> p.day.getDoctorId()));
+
+        List<DayResult> results = plans.isEmpty() ? List.of() : pool.invoke(new SearchTask(plans, deadline));
+        List<RescheduleMove> moves = new ArrayList<>();
+        int shortBefore = 0;
+        int shortAfter = 0;
+        boolean complete = true;
+        for (DayResult result : results) {
+            moves.addAll(result.moves);
+            shortBefore += result.shortBefore;
+            shortAfter += result.shortAfter;
+            complete &= result.complete;
+        }
+        return new ScheduleProposal(startDate, endDate, moves, shortBefore, shortAfter, complete);
+    }
+
+    /**
+     * Applies the moves of a proposal in their order, all or none. Each move is
+     * re-checked under the booking locks against the current appointments and
+     * holds; if the schedule has changed since the proposal, nothing is moved.
+     */
+    public int applyMoves(List<RescheduleMove> moves) {
+        if (moves == null || moves.isEmpty()) {
+            throw new RuntimeException("Uygulanacak değişiklik yok");
+        }
+        if (moves.size() > MAX_MOVES) {
+            throw new RuntimeException("Tek seferde en fazla " + MAX_MOVES + " randevu taşınabilir");
+        }
+        Set<DoctorDay> days = new HashSet<>();
+        Set<Long> ids = new HashSet<>();
+        for (RescheduleMove move : moves) {
+            if (move.getAppointmentId() == null || move.getDoctorId() == null || move.getTarih() == null
+                    || move.getEskiSaat() == null || move.getYeniSaat() == null) {
+                throw new RuntimeException("Randevu, tarih ve saatler belirtilmeli");
+            }
+            if (!ids.add(move.getAppointmentId())) {
+                throw new RuntimeException("Bir randevu birden fazla kez taşınamaz: " + move.getAppointmentId());
+            }
+            days.add(new DoctorDay(move.getDoctorId(), move.getTarih()));
+        }
+        bookingLocks.withLocks(days, () -> transactionTemplate.execute(status -> doApplyMoves(moves, ids)));
+        return moves.size();
+    }
+
+    private Void doApplyMoves(List<RescheduleMove> moves, Set<Long> ids) {
+        Map<Long, Object[]> rows = new HashMap<>();
+        namedParameterJdbcTemplate.query(SELECT_FOR_UPDATE, new MapSqlParameterSource("ids", ids), rs -> {
+            rows.put(rs.getLong("id"), new Object[]{rs.getLong("doktor_id"), rs.getObject("tarih", LocalDate.class),
+                    rs.getObject("saat", LocalTime.class), rs.getInt("koltuk_no"),
+                    AppointmentStatus.valueOf(rs.getString("status"))});
+        });
+
+        Set<Long> doctorIds = new HashSet<>();
+        Set<LocalDate> tarihler = new HashSet<>();
+        for (RescheduleMove move : moves) {
+            doctorIds.add(move.getDoctorId());
+            tarihler.add(move.getTarih());
+        }
+        SlotChairs used = new SlotChairs();
+        for (Object[] row : appointmentRepository.findSlotsByDoctorIdsAndTarihler(doctorIds, tarihler)) {
+            used.use((Long) row[0], (LocalDate) row[1], (LocalTime) row[2], (Integer) row[3]);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (RescheduleMove move : moves) {
+            Object[] row = rows.get(move.getAppointmentId());
+            Long doctorId = move.getDoctorId();
+            LocalDate tarih = move.getTarih();
+            WeeklySchedule schedule = doctorScheduleService.getSchedule(doctorId);
+            int capacity = schedule.getCapacity();
+            boolean valid = row != null
+                    && doctorId.equals(row[0]) && tarih.equals(row[1])
+                    && move.getEskiSaat().equals(row[2]) && move.getEskiKoltuk() == (Integer) row[3]
+                    && MOVABLE.contains((AppointmentStatus) row[4])
+                    && LocalDateTime.of(tarih, move.getEskiSaat()).isAfter(now)
+                    && LocalDateTime.of(tarih, move.getYeniSaat()).isAfter(now)
+                    && schedule.isBookable(tarih, move.getYeniSaat())
+                    && move.getYeniKoltuk() >= 1 && move.getYeniKoltuk() <= capacity
+                    && !used.isUsed(doctorId, tarih, move.getYeniSaat(), move.getYeniKoltuk())
+                    && (slotHoldService.heldChairs(doctorId, tarih, move.getYeniSaat(), capacity, null)
+                            & (1 << (move.getYeniKoltuk() - 1))) == 0;
+            if (!valid) {
+                throw new RuntimeException("Öneri artık güncel değil, lütfen yeniden hesaplayın (randevu "
+                        + move.getAppointmentId() + ")");
+            }
+            used.free(doctorId, tarih, move.getEskiSaat(), move.getEskiKoltuk());
+            used.use(doctorId, tarih, move.getYeniSaat(), move.getYeniKoltuk());
+        }
+
+        // In proposal order, so every row moves into a chair that is already free
+        jdbcTemplate.batchUpdate(UPDATE_SLOT, moves, BATCH_SIZE, (ps, move) -> {
+            ps.setObject(1, move.getYeniSaat());
+            ps.setInt(2, move.getYeniKoltuk());
+            ps.setLong(3, move.getAppointmentId());
+        });
+        changeLogService.recordAppointments(moves.stream().map(RescheduleMove::getAppointmentId).toList());
+        // Patients learn their new time; a move to another chair at the same time is not worth a mail
+        outboxService.appointmentsRescheduled(moves.stream()
+                .filter(move -> !move.getYeniSaat().equals(move.getEskiSaat()))
+                .map(RescheduleMove::getAppointmentId)
+                .toList());
+        for (RescheduleMove move : moves) {
+            eventPublisher.publishEvent(SlotChangedEvent.freed(move.getDoctorId(), move.getTarih(),
+                    move.getEskiSaat(), move.getEskiKoltuk()));
+            eventPublisher.publishEvent(SlotChangedEvent.taken(move.getDoctorId(), move.getTarih(),
+                    move.getYeniSaat(), move.getYeniKoltuk()));
+        }
+        return null;
+    }
+
+    /**
+     * Grid of the doctor's day, or null if there is nothing to move.
+     * Appointments outside the current working hours or chairs are left out.
+     */
+    private DayPlan plan(DoctorDay day, List<Object[]> rows, LocalDateTime now) {
+        WeeklySchedule schedule = doctorScheduleService.getSchedule(day.getDoctorId());
+        List<LocalTime> slots = schedule.getSlots(day.getTarih());
+        if (slots.isEmpty()) {
+            return null;
+        }
+        int capacity = schedule.getCapacity();
+        int slotMinutes = schedule.getDay(day.getTarih().getDayOfWeek()).getSlotMinutes();
+        DayPlan plan = new DayPlan(day, slots, slotMinutes, capacity, minGapSlots);
+
+        for (int s = 0; s < slots.size(); s++) {
+            LocalTime saat = slots.get(s);
+            int held = slotHoldService.heldChairs(day.getDoctorId(), day.getTarih(), saat, capacity, null);
+            boolean past = !LocalDateTime.of(day.getTarih(), saat).isAfter(now);
+            for (int c = 0; c < capacity; c++) {
+                if (past || (held & (1 << c)) != 0) {
+                    plan.cells[c][s] = DayPlan.BLOCKED;
+                }
+            }
+        }
+
+        Map<LocalTime, Integer> slotIndex = new HashMap<>();
+        for (int s = 0; s < slots.size(); s++) {
+            slotIndex.put(slots.get(s), s);
+        }
+        boolean anyMovable = false;
+        for (Object[] row : rows) {
+            Integer s = slotIndex.get((LocalTime) row[3]);
+            int chair = (Integer) row[4];
+            if (s == null || chair < 1 || chair > capacity) {
+                continue;
+            }
+            boolean movable = MOVABLE.contains((AppointmentStatus) row[5])
+                    && LocalDateTime.of(day.getTarih(), slots.get(s)).isAfter(now);
+            plan.place((Long) row[0], s, chair - 1, movable);
+            anyMovable |= movable;
+        }
+        return anyMovable ? plan : null;
+    }
+
+    /**
+     * Splits the days in halves down to single days, so idle workers steal the
+     * remaining days of busy ones.
+     */
+    private static class SearchTask extends RecursiveTask<List<DayResult>> {
+
+        private final List<DayPlan> plans;
+        private final long deadline;
+
+        SearchTask(List<DayPlan> plans, long deadline) {
+            this.plans = plans;
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected List<DayResult> compute() {
+            if (plans.size() == 1) {
+                return List.of(plans.get(0).search(deadline));
+            }
+            int mid = plans.size() / 2;
+            SearchTask left = new SearchTask(plans.subList(0, mid), deadline);
+            left.fork();
+            List<DayResult> right = new SearchTask(plans.subList(mid, plans.size()), deadline).compute();
+            List<DayResult> results = new ArrayList<>(left.join());
+            results.addAll(right);
+            return results;
+        }
+    }
+
+    /**
+     * One doctor-day as a chair x slot grid. A cell holds the index of the
+     * appointment booked there, FREE, or BLOCKED (past or held).
+     */
+    private static class DayPlan {
+
+        static final int FREE = -1;
+        static final int BLOCKED = -2;
+
+        // A short gap outweighs any number of plain free runs
+        private static final long SHORT_GAP_WEIGHT = 1_000;
+
+        private final DoctorDay day;
+        private final List<LocalTime> slots;
+        private final int[] block;
+        private final int minGapSlots;
+        private final int[][] cells;
+        private final List<Long> ids = new ArrayList<>();
+        private final List<Boolean> movable = new ArrayList<>();
+
+        DayPlan(DoctorDay day, List<LocalTime> slots, int slotMinutes, int capacity, int minGapSlots) {
+            this.day = day;
+            this.slots = slots;
+            this.minGapSlots = minGapSlots;
+            this.cells = new int[capacity][slots.size()];
+            for (int[] chair : cells) {
+                Arrays.fill(chair, FREE);
+            }
+            // Slots of the same block follow each other without a break (e.g. lunch) in between
+            this.block = new int[slots.size()];
+            for (int s = 1; s < slots.size(); s++) {
+                boolean adjacent = slots.get(s - 1).plusMinutes(slotMinutes).equals(slots.get(s));
+                block[s] = adjacent ? block[s - 1] : block[s - 1] + 1;
+            }
+        }
+
+        void place(Long id, int slot, int chair, boolean canMove) {
+            cells[chair][slot] = ids.size();
+            ids.add(id);
+            movable.add(canMove);
+        }
+
+        DayResult search(long deadline) {
+            int shortBefore = shortGaps();
+            List<RescheduleMove> moves = new ArrayList<>();
+            boolean complete = true;
+            while (true) {
+                if (System.nanoTime() - deadline > 0) {
+                    complete = false;
+                    break;
+                }
+                int[] best = bestMove();
+                if (best == null) {
+                    break;
+                }
+                int appointment = cells[best[0]][best[1]];
+                cells[best[0]][best[1]] = FREE;
+                cells[best[2]][best[3]] = appointment;
+                movable.set(appointment, false);
+                moves.add(new RescheduleMove(ids.get(appointment), day.getDoctorId(), day.getTarih(),
+                        slots.get(best[1]), best[0] + 1, slots.get(best[3]), best[2] + 1));
+            }
+            return new DayResult(moves, shortBefore, shortGaps(), complete);
+        }
+
+        /**
+         * {fromChair, fromSlot, toChair, toSlot} of the move with the largest
+         * gain, preferring the smallest shift in time; null if none helps.
+         */
+        private int[] bestMove() {
+            int[] best = null;
+            long bestGain = 0;
+            int bestShift = Integer.MAX_VALUE;
+            for (int c0 = 0; c0 < cells.length; c0++) {
+                for (int s0 = 0; s0 < slots.size(); s0++) {
+                    int appointment = cells[c0][s0];
+                    if (appointment < 0 || !movable.get(appointment)) {
+                        continue;
+                    }
+                    for (int c1 = 0; c1 < cells.length; c1++) {
+                        for (int s1 = 0; s1 < slots.size(); s1++) {
+                            if (cells[c1][s1] != FREE) {
+                                continue;
+                            }
+                            long before = c0 == c1 ? score(c0) : score(c0) + score(c1);
+                            cells[c0][s0] = FREE;
+                            cells[c1][s1] = appointment;
+                            long after = c0 == c1 ? score(c0) : score(c0) + score(c1);
+                            cells[c1][s1] = FREE;
+                            cells[c0][s0] = appointment;
+
+                            long gain = before - after;
+                            int shift = Math.abs(s1 - s0);
+                            if (gain > bestGain || (gain > 0 && gain == bestGain && shift < bestShift)) {
+                                best = new int[]{c0, s0, c1, s1};
+                                bestGain = gain;
+                                bestShift = shift;
+                            }
+                        }
+                    }
+                }
+            }
+            return best;
+        }
+
+        private long score(int chair) {
+            return SHORT_GAP_WEIGHT * gaps(chair, true) + gaps(chair, false);
+        }
+
+        /**
+         * Maximal runs of free cells of the chair within a block; only those
+         * shorter than the minimum gap if {@code shortOnly}.
+         */
+        private int gaps(int chair, boolean shortOnly) {
+            int[] row = cells[chair];
+            int count = 0;
+            int run = 0;
+            for (int s = 0; s < row.length; s++) {
+                if (row[s] == FREE) {
+                    run++;
+                }
+                boolean runEnds = s == row.length - 1 || row[s + 1] != FREE || block[s + 1] != block[s];
+                if (run > 0 && runEnds) {
+                    if (!shortOnly || run < minGapSlots) {
+                        count++;
+                    }
+                    run = 0;
+                }
+            }
+            return count;
+        }
+
+        private int shortGaps() {
+            int count = 0;
+            for (int c = 0; c < cells.length; c++) {
+                count += gaps(c, true);
+            }
+            return count;
+        }
+    }
+
+    private static class DayResult {
+
+        private final List<RescheduleMove> moves;
+        private final int shortBefore;
+        private final int shortAfter;
+        private final boolean complete;
+
+        DayResult(List<RescheduleMove> moves, int shortBefore, int shortAfter, boolean complete) {
+            this.moves = moves;
+            this.shortBefore = shortBefore;
+            this.shortAfter = shortAfter;
+            this.complete = complete;
+        }
+    }
+}
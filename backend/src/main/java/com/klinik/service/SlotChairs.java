@@ -0,0 +1,46 @@
+package com.klinik.service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Chairs in use per slot during one batch booking: the rows already in the
+ * database plus the chairs handed out within the batch. Not thread-safe; the
+ * caller holds the booking locks of every day involved.
+ */
+class SlotChairs {
+
+    // Slot key -> bit mask of used chairs, bit 0 for chair 1
+    private final Map<String, Integer> used = new HashMap<>();
+
+    void use(Long doctorId, LocalDate tarih, LocalTime saat, int chair) {
+        if (chair >= 1 && chair <= 31) {
+            used.merge(AppointmentBatchWriter.slotKey(doctorId, tarih, saat), 1 << (chair - 1), (a, b) -> a | b);
+        }
+    }
+
+    void free(Long doctorId, LocalDate tarih, LocalTime saat, int chair) {
+        if (chair >= 1 && chair <= 31) {
+            used.computeIfPresent(AppointmentBatchWriter.slotKey(doctorId, tarih, saat), (key, mask) -> {
+                int remaining = mask & ~(1 << (chair - 1));
+                return remaining != 0 ? remaining : null;
+            });
+        }
+    }
+
+    boolean isUsed(Long doctorId, LocalDate tarih, LocalTime saat, int chair) {
+        int mask = used.getOrDefault(AppointmentBatchWriter.slotKey(doctorId, tarih, saat), 0);
+        return chair >= 1 && chair <= 31 && (mask & (1 << (chair - 1))) != 0;
+    }
+
+    /**
+     * Lowest chair in 1..capacity that is neither used nor set in
+     * {@code heldChairs}, or 0 if the slot is full.
+     */
+    int freeChair(Long doctorId, LocalDate tarih, LocalTime saat, int capacity, int heldChairs) {
+        int mask = used.getOrDefault(AppointmentBatchWriter.slotKey(doctorId, tarih, saat), 0);
+        return SlotOccupancyIndex.firstFreeChair(mask | heldChairs, capacity);
+    }
+}
@@ -0,0 +1,293 @@
+package com.klinik.service;
+
+import com.klinik.event.DoctorChangedEvent;
+import com.klinik.event.SlotChangedEvent;
+import com.klinik.exception.SubscriberLimitException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Pushes slot taken/freed and hold taken/released changes to Server-Sent
+ * Events subscribers of a (doctor, date). Subscribers are plain emitters held in memory, no thread is
+ * parked per connection; changes are fanned out after commit on a few
+ * single-thread shards with bounded queues, so that booking requests never
+ * wait for slow clients. A (doctor, date) always maps to the same shard, so
+ * its deltas reach every client in the order they were published; a TAKEN and
+ * a FREED of one slot cannot overtake each other. Heartbeats go through the
+ * shards too, one task per (doctor, date), and a subscriber whose send has
+ * been blocked for longer than {@code SEND_TIMEOUT_SECONDS} is dropped, so
+ * one stalled client cannot hold up the others.
+ */
+@Component
+public class SlotEventBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlotEventBroadcaster.class);
+
+    private static final long HEARTBEAT_SECONDS = 25;
+
+    private static final long SEND_TIMEOUT_SECONDS = 10;
+
+    private static final int FAN_OUT_SHARDS = 4;
+
+    private static final int FAN_OUT_QUEUE_PER_SHARD = 2_500;
+
+    private final ConcurrentHashMap<DoctorDay, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    private final ThreadPoolExecutor[] fanOut = new ThreadPoolExecutor[FAN_OUT_SHARDS];
+
+    @Value("${app.sse.max-subscribers:10000}")
+    private int maxSubscribers;
+
+    @Value("${app.sse.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    public SlotEventBroadcaster() {
+        for (int i = 0; i < fanOut.length; i++) {
+            fanOut[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(FAN_OUT_QUEUE_PER_SHARD), daemonThreads("slot-events-" + i));
+        }
+    }
+
+    /**
+     * Registers a subscriber and sends it the current free slots as the first
+     * event. The snapshot is taken after registration and under the
+     * subscriber's send lock, so no change can fall between the two.
+     */
+    public SseEmitter subscribe(Long doctorId, LocalDate tarih, Supplier<List<LocalTime>> availableSlots) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new SubscriberLimitException();
+        }
+
+        DoctorDay key = new DoctorDay(doctorId, tarih);
+        Subscriber subscriber = new Subscriber(key, new SseEmitter(timeoutMs));
+        subscriber.emitter.onCompletion(() -> remove(subscriber));
+        subscriber.emitter.onTimeout(() -> remove(subscriber));
+        subscriber.emitter.onError(e -> remove(subscriber));
+        subscribers.compute(key, (k, set) -> {
+            Set<Subscriber> targets = set != null ? set : ConcurrentHashMap.newKeySet();
+            targets.add(subscriber);
+            return targets;
+        });
+
+        subscriber.sendLock.lock();
+        try {
+            subscriber.emitter.send(SseEmitter.event().name("slots")
+                    .data(availableSlots.get(), MediaType.APPLICATION_JSON));
+        } catch (IOException | RuntimeException e) {
+            remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+        } finally {
+            subscriber.sendLock.unlock();
+        }
+        return subscriber.emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    // Runs after the occupancy index has applied the change, so a snapshot
+    // taken concurrently is never older than the delta that follows it
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSlotChanged(SlotChangedEvent event) {
+        DoctorDay key = new DoctorDay(event.getDoctorId(), event.getTarih());
+        if (!subscribers.containsKey(key)) {
+            return;
+        }
+        try {
+            shardOf(key).execute(() -> send(key, event));
+        } catch (RejectedExecutionException e) {
+            // Rather than leave clients with a stale view, close them; EventSource
+            // reconnects and receives a fresh snapshot.
+            logger.warn("Slot olay kuyruğu dolu, {} için bağlantılar kapatılıyor", key);
+            completeAll(key);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDoctorChanged(DoctorChangedEvent event) {
+        if (event.isDeleted()) {
+            subscribers.keySet().stream()
+                    .filter(key -> key.getDoctorId().equals(event.getDoctorId()))
+                    .toList()
+                    .forEach(this::completeAll);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor shard : fanOut) {
+            shard.shutdownNow();
+        }
+        subscribers.keySet().forEach(this::completeAll);
+    }
+
+    private void send(DoctorDay key, SlotChangedEvent event) {
+        Set<Subscriber> targets = subscribers.get(key);
+        if (targets == null) {
+            return;
+        }
+        for (Subscriber subscriber : targets) {
+            boolean locked;
+            try {
+                locked = subscriber.sendLock.tryLock(SEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (!locked) {
+                // An earlier send is still stuck on this client; it reconnects and gets a fresh snapshot
+                remove(subscriber);
+                continue;
+            }
+            try {
+                sendLocked(subscriber, SseEmitter.event().name("slot").data(event, MediaType.APPLICATION_JSON));
+            } finally {
+                subscriber.sendLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Runs on the shared scheduler and never blocks on a client: stalled
+     * subscribers are dropped, and the heartbeats themselves are sent on the
+     * fan-out shards, one task per (doctor, date).
+     */
+    @Scheduled(initialDelay = HEARTBEAT_SECONDS, fixedDelay = HEARTBEAT_SECONDS, timeUnit = TimeUnit.SECONDS)
+    void sendHeartbeats() {
+        long stalledSince = System.nanoTime() - TimeUnit.SECONDS.toNanos(SEND_TIMEOUT_SECONDS);
+        for (Map.Entry<DoctorDay, Set<Subscriber>> entry : subscribers.entrySet()) {
+            for (Subscriber subscriber : entry.getValue()) {
+                long sendingSince = subscriber.sendingSince;
+                if (sendingSince != 0 && sendingSince - stalledSince < 0) {
+                    // Only forgotten: complete() would wait for the stuck send. The
+                    // container closes the connection on the write error or timeout.
+                    remove(subscriber);
+                }
+            }
+            try {
+                shardOf(entry.getKey()).execute(() -> sendHeartbeats(entry.getKey()));
+            } catch (RejectedExecutionException e) {
+                // The shard is busy with slot events, which keep these connections alive as well
+            }
+        }
+    }
+
+    private void sendHeartbeats(DoctorDay key) {
+        Set<Subscriber> targets = subscribers.get(key);
+        if (targets == null) {
+            return;
+        }
+        for (Subscriber subscriber : targets) {
+            // A send in progress keeps the connection alive anyway
+            if (subscriber.sendLock.tryLock()) {
+                try {
+                    sendLocked(subscriber, SseEmitter.event().comment("hb"));
+                } finally {
+                    subscriber.sendLock.unlock();
+                }
+            }
+        }
+    }
+
+    // Caller holds the subscriber's send lock
+    private void sendLocked(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        if (subscriber.removed.get()) {
+            return;
+        }
+        subscriber.sendingSince = System.nanoTime();
+        try {
+            subscriber.emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            remove(subscriber);
+        } finally {
+            subscriber.sendingSince = 0;
+        }
+    }
+
+    private ThreadPoolExecutor shardOf(DoctorDay key) {
+        return fanOut[Math.floorMod(key.hashCode(), fanOut.length)];
+    }
+
+    private void completeAll(DoctorDay key) {
+        Set<Subscriber> targets = subscribers.remove(key);
+        if (targets == null) {
+            return;
+        }
+        for (Subscriber subscriber : targets) {
+            if (subscriber.removed.compareAndSet(false, true)) {
+                subscriberCount.decrementAndGet();
+            }
+            subscriber.emitter.complete();
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        if (!subscriber.removed.compareAndSet(false, true)) {
+            return;
+        }
+        subscriberCount.decrementAndGet();
+        subscribers.computeIfPresent(subscriber.key, (k, set) -> {
+            set.remove(subscriber);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static class Subscriber {
+
+        private final DoctorDay key;
+        private final SseEmitter emitter;
+        private final AtomicBoolean removed = new AtomicBoolean();
+        // Not a monitor: senders give up on a stalled client, and a send must not pin a virtual thread
+        private final ReentrantLock sendLock = new ReentrantLock();
+        // System.nanoTime() when the current send started, 0 while idle
+        private volatile long sendingSince;
+
+        Subscriber(DoctorDay key, SseEmitter emitter) {
+            this.key = key;
+            this.emitter = emitter;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.klinik.service;
+
+import com.klinik.dto.SlotHold;
+import com.klinik.event.SlotChangedEvent;
+import com.klinik.exception.AppointmentConflictException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Short-lived reservations of single slots, e.g. while a patient fills in the
+ * booking form or while a waitlist offer is open. A hold occupies one chair of
+ * the slot; that chair is not offered as available and can only be booked with
+ * the hold's token.
+ *
+ * Holds live in memory only. Expired holds are evicted by a hashed timer
+ * wheel: every hold sits in the bucket of its deadline tick and a scheduled
+ * tick visits one bucket per tick, so eviction costs nothing for holds that
+ * are released or confirmed before they run out. Lookups check the deadline
+ * themselves and never depend on the wheel being on time.
+ *
+ * Taking a hold publishes a HELD {@link SlotChangedEvent} and every end of a
+ * hold, released, confirmed or expired, a RELEASED one, so live views show
+ * held chairs as taken. An expired hold is only removed by the wheel, so that
+ * its RELEASED event is never published inside a caller's transaction.
+ */
+@Service
+public class SlotHoldService {
+
+    private static final long TICK_MILLIS = 1000;
+
+    // Power of two; holds longer than one revolution just stay for more rounds
+    private static final int WHEEL_SIZE = 512;
+
+    private final ConcurrentHashMap<String, Hold> byChair = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, Hold> byToken = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, Integer> countByOwner = new ConcurrentHashMap<>();
+
+    private final Queue<Hold>[] wheel = newWheel();
+
+    // Last tick whose bucket has been processed; only touched by advance(), which never overlaps itself
+    private long lastTick = tickOf(System.currentTimeMillis());
+
+    @Autowired
+    private SlotOccupancyIndex slotOccupancyIndex;
+
+    @Autowired
+    private DoctorScheduleService doctorScheduleService;
+
+    @Autowired
+    private BookingLocks bookingLocks;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.holds.default-seconds:120}")
+    private int defaultSeconds = 120;
+
+    @Value("${app.holds.max-seconds:600}")
+    private int maxSeconds = 600;
+
+    @Value("${app.holds.max-per-client:3}")
+    private int maxPerClient = 3;
+
+    /**
+     * Holds a free slot for {@code seconds} (the default if null). Runs under
+     * the booking lock of the doctor's day, so a booking that is committing
+     * right now is either seen as taken or cannot pass the hold.
+     */
+    public SlotHold reserve(Long doctorId, LocalDate tarih, LocalTime saat, Integer seconds, String owner) {
+        int duration = seconds != null ? seconds : defaultSeconds;
+        if (duration < 1 || duration > maxSeconds) {
+            throw new RuntimeException("Rezervasyon süresi 1 ile " + maxSeconds + " saniye arasında olmalıdır");
+        }
+        if (!LocalDateTime.of(tarih, saat).isAfter(LocalDateTime.now())) {
+            throw new RuntimeException("Geçmiş bir saat için rezervasyon yapılamaz");
+        }
+        if (!doctorScheduleService.getSchedule(doctorId).isBookable(tarih, saat)) {
+            throw new RuntimeException("Seçilen saat doktorun çalışma saatleri dışında");
+        }
+
+        return bookingLocks.withLock(doctorId, tarih, () -> {
+            int chair = availableChair(doctorId, tarih, saat, null);
+            if (chair == 0) {
+                throw new AppointmentConflictException();
+            }
+            if (!acquireOwnerSlot(owner)) {
+                throw new RuntimeException("Aynı anda en fazla " + maxPerClient + " saat rezerve edilebilir");
+            }
+            String token = UUID.randomUUID().toString();
+            long expiresAt = System.currentTimeMillis() + duration * 1000L;
+            add(new Hold(doctorId, tarih, saat, chair, token, owner, expiresAt));
+            return new SlotHold(token, doctorId, tarih, saat, toDateTime(expiresAt));
+        });
+    }
+
+    /**
+     * Holds a free chair of the slot under a token chosen by the caller, moving
+     * any hold the token already has. Used for waitlist offers, which have
+     * their own token and deadline. Returns false if every chair is taken or
+     * the deadline has passed.
+     */
+    public boolean hold(Long doctorId, LocalDate tarih, LocalTime saat, String token, long expiresAtMillis) {
+        release(token);
+        // Its wheel bucket may already be past and would only come round again after a revolution
+        if (expiresAtMillis <= System.currentTimeMillis()) {
+            return false;
+        }
+        int chair = availableChair(doctorId, tarih, saat, null);
+        if (chair == 0) {
+            return false;
+        }
+        add(new Hold(doctorId, tarih, saat, chair, token, null, expiresAtMillis));
+        return true;
+    }
+
+    public boolean release(String token) {
+        Hold hold = byToken.get(token);
+        return hold != null && evict(hold);
+    }
+
+    public void release(Long doctorId, LocalDate tarih, LocalTime saat, String token) {
+        Hold hold = byToken.get(token);
+        if (hold != null && hold.slot.equals(slotKey(doctorId, tarih, saat))) {
+            evict(hold);
+        }
+    }
+
+    /**
+     * Chair that {@code token} currently holds in the slot, or 0. A booking on
+     * that chair needs no further conflict check, nobody else can have taken it.
+     */
+    public int heldChair(Long doctorId, LocalDate tarih, LocalTime saat, String token) {
+        if (token == null) {
+            return 0;
+        }
+        Hold hold = byToken.get(token);
+        if (hold == null || !hold.slot.equals(slotKey(doctorId, tarih, saat))) {
+            return 0;
+        }
+        return activeHold(hold.key) == hold ? hold.chair : 0;
+    }
+
+    /**
+     * Chairs 1..capacity of the slot held by anyone other than {@code token},
+     * as a bit mask with bit 0 for chair 1.
+     */
+    public int heldChairs(Long doctorId, LocalDate tarih, LocalTime saat, int capacity, String token) {
+        String slot = slotKey(doctorId, tarih, saat);
+        int held = 0;
+        for (int chair = 1; chair <= capacity; chair++) {
+            Hold hold = activeHold(chairKey(slot, chair));
+            if (hold != null && !hold.token.equals(token)) {
+                held |= 1 << (chair - 1);
+            }
+        }
+        return held;
+    }
+
+    /**
+     * Lowest chair of the slot that is neither booked nor held by anyone other
+     * than {@code token}, or 0 if the slot is full. Capacity comes from the
+     * doctor's schedule; bookings are read from the occupancy index.
+     */
+    public int availableChair(Long doctorId, LocalDate tarih, LocalTime saat, String token) {
+        int capacity = doctorScheduleService.getSchedule(doctorId).getCapacity();
+        return slotOccupancyIndex.freeChair(doctorId, tarih, saat, capacity,
+                heldChairs(doctorId, tarih, saat, capacity, token));
+    }
+
+    public int getActiveHoldCount() {
+        return byChair.size();
+    }
+
+    private Hold activeHold(String key) {
+        Hold hold = byChair.get(key);
+        // An expired hold is left for the wheel, see the class comment
+        return hold != null && hold.expiresAtMillis > System.currentTimeMillis() ? hold : null;
+    }
+
+    private void add(Hold hold) {
+        // An expired hold the wheel has not reached yet is replaced; the chair stays held
+        Hold previous = byChair.put(hold.key, hold);
+        if (previous != null) {
+            forget(previous);
+        }
+        byToken.put(hold.token, hold);
+        // Rounded up, so the hold is due when its bucket comes round
+        wheel[bucketOf(tickOf(hold.expiresAtMillis + TICK_MILLIS - 1))].add(hold);
+        eventPublisher.publishEvent(SlotChangedEvent.held(hold.doctorId, hold.tarih, hold.saat, hold.chair));
+    }
+
+    /**
+     * Removes the hold if it is still the current one for its chair. Only the
+     * caller that wins the removal cleans up, so owner counts stay exact.
+     */
+    private boolean evict(Hold hold) {
+        if (!byChair.remove(hold.key, hold)) {
+            return false;
+        }
+        forget(hold);
+        eventPublisher.publishEvent(SlotChangedEvent.released(hold.doctorId, hold.tarih, hold.saat, hold.chair));
+        return true;
+    }
+
+    private void forget(Hold hold) {
+        byToken.remove(hold.token, hold);
+        if (hold.owner != null) {
+            countByOwner.computeIfPresent(hold.owner, (k, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    private boolean acquireOwnerSlot(String owner) {
+        if (owner == null) {
+            return true;
+        }
+        boolean[] acquired = new boolean[1];
+        countByOwner.compute(owner, (k, count) -> {
+            int current = count != null ? count : 0;
+            acquired[0] = current < maxPerClient;
+            return acquired[0] ? current + 1 : count;
+        });
+        return acquired[0];
+    }
+
+    /**
+     * Processes every bucket up to the current tick. Holds found in a bucket
+     * are dropped if already gone, evicted if due, or left for a later round.
+     */
+    @Scheduled(initialDelay = TICK_MILLIS, fixedRate = TICK_MILLIS)
+    void advance() {
+        long now = System.currentTimeMillis();
+        long currentTick = tickOf(now);
+        // After a long pause one revolution covers every bucket
+        long from = Math.max(lastTick + 1, currentTick - WHEEL_SIZE + 1);
+        for (long tick = from; tick <= currentTick; tick++) {
+            Queue<Hold> bucket = wheel[bucketOf(tick)];
+            int pending = bucket.size();
+            for (int i = 0; i < pending; i++) {
+                Hold hold = bucket.poll();
+                if (hold == null) {
+                    break;
+                }
+                if (byChair.get(hold.key) != hold) {
+                    continue;
+                }
+                if (hold.expiresAtMillis <= now) {
+                    evict(hold);
+                } else {
+                    bucket.add(hold);
+                }
+            }
+        }
+        lastTick = currentTick;
+    }
+
+    private static long tickOf(long millis) {
+        return millis / TICK_MILLIS;
+    }
+
+    private static int bucketOf(long tick) {
+        return (int) (tick & (WHEEL_SIZE - 1));
+    }
+
+    private static String slotKey(Long doctorId, LocalDate tarih, LocalTime saat) {
+        return AppointmentBatchWriter.slotKey(doctorId, tarih, saat);
+    }
+
+    private static String chairKey(String slot, int chair) {
+        return slot + "#" + chair;
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Queue<Hold>[] newWheel() {
+        Queue<Hold>[] buckets = new Queue[WHEEL_SIZE];
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            buckets[i] = new ConcurrentLinkedQueue<>();
+        }
+        return buckets;
+    }
+
+    private static class Hold {
+
+        private final Long doctorId;
+        private final LocalDate tarih;
+        private final LocalTime saat;
+        private final String slot;
+        private final int chair;
+        private final String key;
+        private final String token;
+        private final String owner;
+        private final long expiresAtMillis;
+
+        Hold(Long doctorId, LocalDate tarih, LocalTime saat, int chair, String token, String owner,
+             long expiresAtMillis) {
+            this.doctorId = doctorId;
+            this.tarih = tarih;
+            this.saat = saat;
+            this.slot = slotKey(doctorId, tarih, saat);
+            this.chair = chair;
+            this.key = chairKey(slot, chair);
+            this.token = token;
+            this.owner = owner;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
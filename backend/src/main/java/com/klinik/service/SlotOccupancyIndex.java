@@ -0,0 +1,226 @@
+package com.klinik.service;
+
+import com.klinik.event.DoctorChangedEvent;
+import com.klinik.event.SlotChangedEvent;
+import com.klinik.repository.AppointmentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory occupancy index per (doctor, date). Each day keeps one bitset per
+ * chair with one bit per minute of the day, built lazily from the database on
+ * first access and kept up to date from {@link SlotChangedEvent}s after commit.
+ * The number of booked chairs of a slot is the count of its set bits, so
+ * remaining capacity is answered without touching the appointments.
+ */
+@Component
+public class SlotOccupancyIndex {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    // Past days are dropped once the index grows beyond this many entries
+    private static final int PURGE_THRESHOLD = 10_000;
+
+    private static final int LOAD_STRIPES = 64;
+
+    private final ConcurrentHashMap<DoctorDay, DayOccupancy> days = new ConcurrentHashMap<>();
+
+    private final ReentrantLock[] loadLocks = new ReentrantLock[LOAD_STRIPES];
+
+    public SlotOccupancyIndex() {
+        for (int i = 0; i < LOAD_STRIPES; i++) {
+            loadLocks[i] = new ReentrantLock();
+        }
+    }
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    public DayOccupancy getDay(Long doctorId, LocalDate tarih) {
+        DoctorDay key = new DoctorDay(doctorId, tarih);
+        DayOccupancy day = days.get(key);
+        if (day != null) {
+            return day;
+        }
+        if (days.size() > PURGE_THRESHOLD) {
+            purgePastDays();
+        }
+        // Loading under the key's stripe lock makes concurrent event updates for
+        // the same key wait until the snapshot is in place, so none are lost. A
+        // ReentrantLock rather than computeIfAbsent, whose bin monitor would pin
+        // a virtual thread for the whole query.
+        ReentrantLock lock = stripe(key);
+        lock.lock();
+        try {
+            day = days.get(key);
+            if (day == null) {
+                day = load(key);
+                days.put(key, day);
+            }
+            return day;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lowest chair in 1..capacity that is neither booked nor set in
+     * {@code excludedChairs} (bit 0 for chair 1), or 0 if the slot is full.
+     */
+    public int freeChair(Long doctorId, LocalDate tarih, LocalTime saat, int capacity, int excludedChairs) {
+        return getDay(doctorId, tarih).freeChair(saat, capacity, excludedChairs);
+    }
+
+    /**
+     * Drops the day so that it is reloaded from the database on next access,
+     * e.g. after one of its chairs was booked through another node.
+     */
+    public void invalidate(Long doctorId, LocalDate tarih) {
+        DoctorDay key = new DoctorDay(doctorId, tarih);
+        ReentrantLock lock = stripe(key);
+        lock.lock();
+        try {
+            days.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Applied before any other listener reacts to the change (see SlotEventBroadcaster)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSlotChanged(SlotChangedEvent event) {
+        DoctorDay key = new DoctorDay(event.getDoctorId(), event.getTarih());
+        ReentrantLock lock = stripe(key);
+        lock.lock();
+        try {
+            DayOccupancy day = days.get(key);
+            if (day == null) {
+                return;
+            }
+            if (event.getType() == SlotChangedEvent.Type.TAKEN) {
+                day.mark(event.getSaat(), event.getKoltukNo());
+            } else if (event.getType() == SlotChangedEvent.Type.FREED) {
+                day.clear(event.getSaat(), event.getKoltukNo());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDoctorChanged(DoctorChangedEvent event) {
+        if (event.isDeleted()) {
+            days.keySet().removeIf(key -> key.getDoctorId().equals(event.getDoctorId()));
+        }
+    }
+
+    private DayOccupancy load(DoctorDay key) {
+        DayOccupancy day = new DayOccupancy();
+        for (Object[] row : appointmentRepository.findChairsByDoctorIdAndTarih(key.getDoctorId(), key.getTarih())) {
+            day.mark((LocalTime) row[0], (Integer) row[1]);
+        }
+        return day;
+    }
+
+    private ReentrantLock stripe(DoctorDay key) {
+        return loadLocks[(key.hashCode() & 0x7fffffff) % loadLocks.length];
+    }
+
+    private void purgePastDays() {
+        LocalDate today = LocalDate.now();
+        days.keySet().removeIf(key -> key.getTarih().isBefore(today));
+    }
+
+    /**
+     * Lowest chair in 1..capacity whose bit is clear in {@code usedChairs}, or 0.
+     */
+    static int firstFreeChair(int usedChairs, int capacity) {
+        int free = ~usedChairs & (capacity >= 32 ? -1 : (1 << capacity) - 1);
+        return free == 0 ? 0 : Integer.numberOfTrailingZeros(free) + 1;
+    }
+
+    /**
+     * Minute-resolution bitsets for a single doctor-day, one per chair. Reads
+     * are lock-free; updates run under the stripe lock of the day.
+     */
+    public static class DayOccupancy {
+
+        // Index 0 is chair 1; only ever replaced by a longer copy
+        private volatile AtomicLongArray[] chairs = {newBits()};
+
+        /**
+         * Number of chairs booked at this time.
+         */
+        public int occupied(LocalTime saat) {
+            int offset = offset(saat);
+            int count = 0;
+            for (AtomicLongArray bits : chairs) {
+                if ((bits.get(offset >>> 6) & (1L << offset)) != 0) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        public int freeChair(LocalTime saat, int capacity, int excludedChairs) {
+            return firstFreeChair(usedChairs(saat, capacity) | excludedChairs, capacity);
+        }
+
+        private int usedChairs(LocalTime saat, int capacity) {
+            AtomicLongArray[] current = chairs;
+            int offset = offset(saat);
+            int used = 0;
+            for (int i = 0; i < Math.min(capacity, current.length); i++) {
+                if ((current[i].get(offset >>> 6) & (1L << offset)) != 0) {
+                    used |= 1 << i;
+                }
+            }
+            return used;
+        }
+
+        void mark(LocalTime saat, int chair) {
+            if (chair < 1) {
+                return;
+            }
+            AtomicLongArray[] current = chairs;
+            if (chair > current.length) {
+                AtomicLongArray[] grown = Arrays.copyOf(current, chair);
+                for (int i = current.length; i < chair; i++) {
+                    grown[i] = newBits();
+                }
+                chairs = grown;
+                current = grown;
+            }
+            int offset = offset(saat);
+            current[chair - 1].getAndAccumulate(offset >>> 6, 1L << offset, (bits, bit) -> bits | bit);
+        }
+
+        void clear(LocalTime saat, int chair) {
+            AtomicLongArray[] current = chairs;
+            if (chair < 1 || chair > current.length) {
+                return;
+            }
+            int offset = offset(saat);
+            current[chair - 1].getAndAccumulate(offset >>> 6, 1L << offset, (bits, bit) -> bits & ~bit);
+        }
+
+        private static AtomicLongArray newBits() {
+            return new AtomicLongArray((MINUTES_PER_DAY + 63) / 64);
+        }
+
+        private static int offset(LocalTime saat) {
+            return saat.getHour() * 60 + saat.getMinute();
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.klinik.service;
+
+import com.klinik.dto.TimeSeriesPoint;
+import com.klinik.event.AppointmentChangedEvent;
+import com.klinik.event.SlotChangedEvent;
+import com.klinik.model.Appointment.AppointmentStatus;
+import com.klinik.repository.AppointmentRepository;
+import com.klinik.repository.InvoiceRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Appointment count, cancellation rate and paid revenue over time, per day,
+ * week (from Monday) or month, overall or per doctor or bolum. The database
+ * groups by day; days are then folded into the requested buckets, and the
+ * range is widened to whole buckets.
+ *
+ * <p>Buckets that ended before today are cached. They can still change, when
+ * an old invoice is paid or a past appointment is cancelled, so a cached
+ * bucket is dropped on appointment events for one of its days and in any case
+ * after {@code app.stats.closed-max-age-minutes}, which also covers changes
+ * made on other nodes.
+ */
+@Service
+public class StatisticsService {
+
+    public enum Bucket {
+        DAY, WEEK, MONTH;
+
+        LocalDate start(LocalDate tarih) {
+            return switch (this) {
+                case DAY -> tarih;
+                case WEEK -> tarih.with(DayOfWeek.MONDAY);
+                case MONTH -> tarih.withDayOfMonth(1);
+            };
+        }
+
+        LocalDate next(LocalDate start) {
+            return switch (this) {
+                case DAY -> start.plusDays(1);
+                case WEEK -> start.plusWeeks(1);
+                case MONTH -> start.plusMonths(1);
+            };
+        }
+    }
+
+    public enum GroupBy {
+        NONE, DOCTOR, BOLUM
+    }
+
+    private static final Comparator<TimeSeriesPoint> GROUP_ORDER = Comparator
+            .comparing(TimeSeriesPoint::getDoktorId, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(TimeSeriesPoint::getBolum, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private AppointmentArchiveService appointmentArchiveService;
+
+    @Value("${app.stats.max-buckets:400}")
+    private int maxBuckets;
+
+    @Value("${app.stats.closed-max-age-minutes:60}")
+    private long closedMaxAgeMinutes;
+
+    @Value("${app.stats.cache-size:2000}")
+    private int cacheSize;
+
+    // Closed buckets by bucket|groupBy|start, least recently used first
+    private final Map<String, CachedBucket> closed = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedBucket> eldest) {
+                    return size() > cacheSize;
+                }
+            });
+
+    public List<TimeSeriesPoint> getTimeSeries(LocalDate startDate, LocalDate endDate, Bucket bucket,
+                                               GroupBy groupBy) {
+        if (startDate.isAfter(endDate)) {
+            throw new RuntimeException("Başlangıç tarihi bitiş tarihinden sonra olamaz");
+        }
+        LocalDate today = LocalDate.now();
+        List<LocalDate> starts = new ArrayList<>();
+        for (LocalDate start = bucket.start(startDate); !start.isAfter(endDate); start = bucket.next(start)) {
+            if (starts.size() == maxBuckets) {
+                throw new RuntimeException("En fazla " + maxBuckets + " zaman aralığı istenebilir");
+            }
+            starts.add(start);
+        }
+
+        // Everything from the first bucket that is not cached on is read in one go
+        Map<LocalDate, List<TimeSeriesPoint>> points = new HashMap<>();
+        LocalDate readFrom = null;
+        for (LocalDate start : starts) {
+            List<TimeSeriesPoint> cached = bucket.next(start).isAfter(today) ? null : getClosed(bucket, groupBy, start);
+            if (cached == null) {
+                readFrom = start;
+                break;
+            }
+            points.put(start, cached);
+        }
+        if (readFrom != null) {
+            LocalDate readTo = bucket.next(starts.get(starts.size() - 1)).minusDays(1);
+            Map<LocalDate, List<TimeSeriesPoint>> read = read(readFrom, readTo, bucket, groupBy);
+            for (LocalDate start : starts) {
+                if (start.isBefore(readFrom)) {
+                    continue;
+                }
+                List<TimeSeriesPoint> bucketPoints = read.getOrDefault(start, List.of());
+                if (groupBy == GroupBy.NONE && bucketPoints.isEmpty()) {
+                    bucketPoints = List.of(new TimeSeriesPoint(start, bucket.next(start).minusDays(1), null, null,
+                            0, 0, BigDecimal.ZERO));
+                }
+                if (!bucket.next(start).isAfter(today)) {
+                    closed.put(key(bucket, groupBy, start), new CachedBucket(bucketPoints, System.currentTimeMillis()));
+                }
+                points.put(start, bucketPoints);
+            }
+        }
+
+        List<TimeSeriesPoint> series = new ArrayList<>();
+        for (LocalDate start : starts) {
+            series.addAll(points.get(start));
+        }
+        return series;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSlotChanged(SlotChangedEvent event) {
+        if (!event.isHold()) {
+            evict(event.getTarih());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppointmentChanged(AppointmentChangedEvent event) {
+        evict(event.getTarih());
+    }
+
+    private void evict(LocalDate tarih) {
+        for (Bucket bucket : Bucket.values()) {
+            for (GroupBy groupBy : GroupBy.values()) {
+                closed.remove(key(bucket, groupBy, bucket.start(tarih)));
+            }
+        }
+    }
+
+    private List<TimeSeriesPoint> getClosed(Bucket bucket, GroupBy groupBy, LocalDate start) {
+        String key = key(bucket, groupBy, start);
+        CachedBucket cached = closed.get(key);
+        if (cached == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() - cached.loadedAt > closedMaxAgeMinutes * 60_000) {
+            closed.remove(key);
+            return null;
+        }
+        return cached.points;
+    }
+
+    /**
+     * Points of every non-empty bucket and group from startDate to endDate,
+     * both on bucket boundaries.
+     */
+    private Map<LocalDate, List<TimeSeriesPoint>> read(LocalDate startDate, LocalDate endDate, Bucket bucket,
+                                                       GroupBy groupBy) {
+        List<Object[]> appointmentRows = new ArrayList<>(
+                appointmentRepository.countDailyByTarihBetween(startDate, endDate));
+        LocalDateTime endBefore = endDate.plusDays(1).atStartOfDay();
+        List<Object[]> revenueRows = new ArrayList<>(
+                invoiceRepository.sumPaidDailyByTarihBetween(startDate.atStartOfDay(), endBefore));
+        if (appointmentArchiveService.reachesArchive(startDate)) {
+            appointmentRows.addAll(appointmentArchiveService.countDaily(startDate, endDate));
+            revenueRows.addAll(appointmentArchiveService.sumPaidDaily(startDate.atStartOfDay(), endBefore));
+        }
+
+        // bucket start -> group -> totals
+        Map<LocalDate, Map<Group, Totals>> totals = new TreeMap<>();
+        // (tarih, doctorId, bolum, status, count)
+        for (Object[] row : appointmentRows) {
+            Totals t = totals(totals, bucket, groupBy, row);
+            long count = (Long) row[4];
+            t.randevu += count;
+            if (row[3] == AppointmentStatus.IPTAL_EDILDI) {
+                t.iptal += count;
+            }
+        }
+        // (day, doctorId, bolum, amount)
+        for (Object[] row : revenueRows) {
+            Totals t = totals(totals, bucket, groupBy, row);
+            t.gelir = t.gelir.add((BigDecimal) row[3]);
+        }
+
+        Map<LocalDate, List<TimeSeriesPoint>> points = new HashMap<>();
+        for (Map.Entry<LocalDate, Map<Group, Totals>> entry : totals.entrySet()) {
+            LocalDate start = entry.getKey();
+            LocalDate end = bucket.next(start).minusDays(1);
+            List<TimeSeriesPoint> bucketPoints = new ArrayList<>();
+            for (Map.Entry<Group, Totals> group : entry.getValue().entrySet()) {
+                Totals t = group.getValue();
+                bucketPoints.add(new TimeSeriesPoint(start, end, group.getKey().doctorId, group.getKey().bolum,
+                        t.randevu, t.iptal, t.gelir));
+            }
+            bucketPoints.sort(GROUP_ORDER);
+            points.put(start, List.copyOf(bucketPoints));
+        }
+        return points;
+    }
+
+    private static Totals totals(Map<LocalDate, Map<Group, Totals>> totals, Bucket bucket, GroupBy groupBy,
+                                 Object[] row) {
+        Group group = new Group(groupBy == GroupBy.DOCTOR ? (Long) row[1] : null,
+                groupBy == GroupBy.BOLUM ? (String) row[2] : null);
+        return totals.computeIfAbsent(bucket.start((LocalDate) row[0]), start -> new HashMap<>())
+                .computeIfAbsent(group, g -> new Totals());
+    }
+
+    private static String key(Bucket bucket, GroupBy groupBy, LocalDate start) {
+        return bucket + "|" + groupBy + "|" + start;
+    }
+
+    private static final class Group {
+
+        private final Long doctorId;
+        private final String bolum;
+
+        Group(Long doctorId, String bolum) {
+            this.doctorId = doctorId;
+            this.bolum = bolum;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Group)) {
+                return false;
+            }
+            Group other = (Group) o;
+            return Objects.equals(doctorId, other.doctorId) && Objects.equals(bolum, other.bolum);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(doctorId, bolum);
+        }
+    }
+
+    private static final class Totals {
+
+        private long randevu;
+        private long iptal;
+        private BigDecimal gelir = BigDecimal.ZERO;
+    }
+
+    private static final class CachedBucket {
+
+        private final List<TimeSeriesPoint> points;
+        private final long loadedAt;
+
+        CachedBucket(List<TimeSeriesPoint> points, long loadedAt) {
+            this.points = points;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
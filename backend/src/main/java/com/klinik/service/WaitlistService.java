@@ -0,0 +1,556 @@
+package com.klinik.service;
+
+import com.klinik.event.SlotChangedEvent;
+import com.klinik.model.Appointment;
+import com.klinik.model.Doctor;
+import com.klinik.model.WaitlistEntry;
+import com.klinik.model.WaitlistEntry.WaitlistStatus;
+import com.klinik.repository.DoctorRepository;
+import com.klinik.repository.WaitlistRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Offers freed slots to patients on the waitlist. Open entries are kept in
+ * memory in one priority queue per doctor-day and per specialty-day (earliest
+ * registration first), so a freed slot finds its candidate in O(log n).
+ * Entries that leave the queue are only flagged and skipped when they reach
+ * the head. The best candidate gets a time-limited offer; the slot is held
+ * for them until they accept, decline or the offer runs out.
+ *
+ * <p>The queues are only a local index. Every offer state change is a
+ * conditional update in the database, so two nodes cannot offer, accept or
+ * expire the same entry twice, and the queues are merged with the waiting
+ * entries in the database every {@code app.waitlist.refresh-seconds} to pick
+ * up entries registered or put back on other nodes.
+ */
+@Service
+public class WaitlistService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WaitlistService.class);
+
+    private static final int MAX_WINDOW_DAYS = 90;
+
+    private static final Locale TURKISH = Locale.forLanguageTag("tr");
+
+    private static final Comparator<Candidate> PRIORITY =
+            Comparator.comparing((Candidate c) -> c.olusturmaTarihi).thenComparing(c -> c.id);
+
+    @Autowired
+    private WaitlistRepository waitlistRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private DoctorScheduleService doctorScheduleService;
+
+    @Autowired
+    private SlotHoldService slotHoldService;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Value("${app.waitlist.offer-minutes:15}")
+    private int offerMinutes;
+
+    @Value("${app.waitlist.offer-url:http://localhost:3000/bekleme-listesi/teklif/}")
+    private String offerUrl;
+
+    // Guards the queues; offer state is guarded by the database
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Map<DoctorDay, PriorityQueue<Candidate>> byDoctorDay = new HashMap<>();
+
+    private final Map<String, PriorityQueue<Candidate>> byBolumDay = new HashMap<>();
+
+    private final Map<Long, Candidate> candidates = new HashMap<>();
+
+    // Offers and expiries run on the shared scheduler, but one at a time
+    private final ReentrantLock offerLock = new ReentrantLock();
+
+    public WaitlistEntry register(WaitlistEntry entry) {
+        LocalDate today = LocalDate.now();
+        if (entry.getDoctor() != null && entry.getDoctor().getId() != null) {
+            Doctor doctor = doctorRepository.findById(entry.getDoctor().getId())
+                    .orElseThrow(() -> new RuntimeException("Doktor bulunamadı"));
+            entry.setDoctor(doctor);
+        } else if (entry.getBolum() != null && !entry.getBolum().isBlank()) {
+            entry.setDoctor(null);
+        } else {
+            throw new RuntimeException("Doktor veya bölüm seçilmelidir");
+        }
+        if (entry.getBaslangicTarihi().isBefore(today)) {
+            entry.setBaslangicTarihi(today);
+        }
+        if (entry.getBitisTarihi().isBefore(entry.getBaslangicTarihi())) {
+            throw new RuntimeException("Bitiş tarihi başlangıç tarihinden önce olamaz");
+        }
+        if (ChronoUnit.DAYS.between(entry.getBaslangicTarihi(), entry.getBitisTarihi()) >= MAX_WINDOW_DAYS) {
+            throw new RuntimeException("Bekleme listesi en fazla " + MAX_WINDOW_DAYS + " günlük bir aralık için oluşturulabilir");
+        }
+
+        entry.setId(null);
+        entry.setStatus(WaitlistStatus.BEKLIYOR);
+        entry.setOlusturmaTarihi(LocalDateTime.now());
+        WaitlistEntry saved = waitlistRepository.save(entry);
+
+        lock.lock();
+        try {
+            enqueue(Candidate.of(saved));
+        } finally {
+            lock.unlock();
+        }
+        return saved;
+    }
+
+    public List<WaitlistEntry> getAllEntries() {
+        return waitlistRepository.findAll();
+    }
+
+    public void cancel(Long id, String tc) {
+        // Repeated if an offer is made or ends on another node in the meantime
+        while (true) {
+            WaitlistEntry entry = waitlistRepository.findById(id)
+                    .filter(e -> e.getTc().equals(tc))
+                    .orElseThrow(() -> new RuntimeException("Bekleme kaydı bulunamadı"));
+            if (entry.getStatus() == WaitlistStatus.BEKLIYOR) {
+                if (waitlistRepository.cancelWaiting(id) == 1) {
+                    break;
+                }
+            } else if (entry.getStatus() == WaitlistStatus.TEKLIF_EDILDI) {
+                if (waitlistRepository.closeOffer(id, entry.getTeklifToken(), WaitlistStatus.IPTAL_EDILDI) == 1) {
+                    offerEnded(entry);
+                    break;
+                }
+            } else {
+                return;
+            }
+        }
+        lock.lock();
+        try {
+            deactivate(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Books the offered slot for the patient. The slot is held for this offer,
+     * so only a concurrent booking through another node can still take it.
+     * The offer is closed first, so it cannot expire or be declined while the
+     * appointment is being booked.
+     */
+    public Appointment acceptOffer(String token) {
+        WaitlistEntry entry = findOpenOffer(token);
+        Doctor doctor = doctorRepository.findById(entry.getTeklifDoctor().getId())
+                .orElseThrow(() -> new RuntimeException("Doktor bulunamadı"));
+        if (waitlistRepository.closeOffer(entry.getId(), token, WaitlistStatus.RANDEVU_ALINDI) == 0) {
+            throw new RuntimeException("Teklifin süresi dolmuş");
+        }
+
+        Appointment appointment = new Appointment(entry.getHastaAd(), entry.getHastaSoyad(), entry.getTc(),
+                entry.getTelefon(), doctor, entry.getTeklifTarih(), entry.getTeklifSaat(),
+                entry.getBolum() != null ? entry.getBolum() : doctor.getUzmanlik());
+        appointment.setEmail(entry.getEmail());
+        try {
+            return appointmentService.createAppointment(appointment, token);
+        } catch (RuntimeException e) {
+            // E.g. booked through another node in the meantime; keep the patient waiting
+            if (waitlistRepository.reopenAccepted(entry.getId()) == 1) {
+                offerEnded(entry);
+                lock.lock();
+                try {
+                    enqueue(Candidate.of(entry));
+                } finally {
+                    lock.unlock();
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * The patient does not want this slot but stays on the waitlist with the
+     * same priority; the slot goes to the next candidate.
+     */
+    public void declineOffer(String token) {
+        WaitlistEntry entry = findOpenOffer(token);
+        if (waitlistRepository.closeOffer(entry.getId(), token, WaitlistStatus.BEKLIYOR) == 0) {
+            throw new RuntimeException("Teklifin süresi dolmuş");
+        }
+        offerEnded(entry);
+        lock.lock();
+        try {
+            enqueue(Candidate.of(entry));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a doctor that is being deleted from the waitlist, in the
+     * caller's transaction: entries for the doctor are deleted, and specialty
+     * entries with an open offer from the doctor go back to waiting with their
+     * priority. Queues and holds follow after commit.
+     */
+    public void removeDoctor(Long doctorId) {
+        List<String> offerTokens = new ArrayList<>();
+        List<WaitlistEntry> reopened = new ArrayList<>();
+        for (WaitlistEntry entry : waitlistRepository.findByTeklifDoctorId(doctorId)) {
+            if (entry.getStatus() == WaitlistStatus.TEKLIF_EDILDI && entry.getTeklifToken() != null) {
+                offerTokens.add(entry.getTeklifToken());
+                if (entry.getDoctor() == null) {
+                    entry.setStatus(WaitlistStatus.BEKLIYOR);
+                    reopened.add(entry);
+                }
+            }
+            entry.setTeklifDoctor(null);
+            entry.setTeklifTarih(null);
+            entry.setTeklifSaat(null);
+            entry.setTeklifToken(null);
+            entry.setTeklifBitis(null);
+            waitlistRepository.save(entry);
+        }
+        waitlistRepository.deleteByDoctorId(doctorId);
+
+        Runnable forget = () -> {
+            lock.lock();
+            try {
+                candidates.values().removeIf(c -> {
+                    if (doctorId.equals(c.doctorId)) {
+                        c.active = false;
+                        return true;
+                    }
+                    return false;
+                });
+                byDoctorDay.keySet().removeIf(key -> key.getDoctorId().equals(doctorId));
+                offerTokens.forEach(slotHoldService::release);
+                reopened.forEach(entry -> enqueue(Candidate.of(entry)));
+            } finally {
+                lock.unlock();
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    forget.run();
+                }
+            });
+        } else {
+            forget.run();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSlotChanged(SlotChangedEvent event) {
+        // An ended hold can free a slot that was held when it was last offered
+        if (event.getType() == SlotChangedEvent.Type.FREED || event.getType() == SlotChangedEvent.Type.RELEASED) {
+            taskScheduler.schedule(() -> offerSlot(event.getDoctorId(), event.getTarih(), event.getSaat()),
+                    Instant.now());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<WaitlistEntry> open = waitlistRepository.findOpenEntries(
+                List.of(WaitlistStatus.BEKLIYOR, WaitlistStatus.TEKLIF_EDILDI), LocalDate.now());
+        lock.lock();
+        try {
+            for (WaitlistEntry entry : open) {
+                if (entry.getStatus() == WaitlistStatus.BEKLIYOR) {
+                    enqueue(Candidate.of(entry));
+                } else {
+                    long expiresAt = toMillis(entry.getTeklifBitis());
+                    slotHoldService.hold(entry.getTeklifDoctor().getId(), entry.getTeklifTarih(),
+                            entry.getTeklifSaat(), entry.getTeklifToken(), expiresAt);
+                    scheduleExpiry(entry.getId(), entry.getTeklifToken(), expiresAt);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (!open.isEmpty()) {
+            logger.info("Bekleme listesi yüklendi: {} açık kayıt", open.size());
+        }
+    }
+
+    void offerSlot(Long doctorId, LocalDate tarih, LocalTime saat) {
+        offerLock.lock();
+        try {
+            if (!LocalDateTime.of(tarih, saat).isAfter(LocalDateTime.now())) {
+                return;
+            }
+            Doctor doctor = doctorRepository.findById(doctorId).orElse(null);
+            if (doctor == null || !doctorScheduleService.getSchedule(doctorId).isBookable(tarih, saat)
+                    || slotHoldService.availableChair(doctorId, tarih, saat, null) == 0) {
+                return;
+            }
+
+            WaitlistEntry offered = null;
+            Candidate candidate;
+            while (offered == null && (candidate = pollBest(doctorId, doctor.getUzmanlik(), tarih)) != null) {
+                offered = startOffer(candidate.id, doctor, tarih, saat);
+            }
+
+            if (offered != null) {
+                sendOfferEmail(offered, doctor);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Boşalan randevu bekleme listesine teklif edilemedi", e);
+        } finally {
+            offerLock.unlock();
+        }
+    }
+
+    // Null if the entry is no longer waiting, e.g. offered or cancelled on another node
+    private WaitlistEntry startOffer(Long entryId, Doctor doctor, LocalDate tarih, LocalTime saat) {
+        String token = UUID.randomUUID().toString();
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(offerMinutes);
+        if (waitlistRepository.claimOffer(entryId, doctor, tarih, saat, token, expiresAt) == 0) {
+            return null;
+        }
+        slotHoldService.hold(doctor.getId(), tarih, saat, token, toMillis(expiresAt));
+        scheduleExpiry(entryId, token, toMillis(expiresAt));
+        return waitlistRepository.findById(entryId).orElse(null);
+    }
+
+    private void expireOffer(Long entryId, String token) {
+        offerLock.lock();
+        try {
+            WaitlistEntry entry = waitlistRepository.findById(entryId).orElse(null);
+            if (entry != null && waitlistRepository.closeOffer(entryId, token, WaitlistStatus.SURESI_DOLDU) == 1) {
+                offerEnded(entry);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Bekleme listesi teklifinin süresi kapatılamadı", e);
+        } finally {
+            offerLock.unlock();
+        }
+    }
+
+    /**
+     * Frees the slot held for an offer that has just been closed and passes it
+     * on to the next candidate. {@code entry} is the entry as read before the
+     * offer was closed.
+     */
+    private void offerEnded(WaitlistEntry entry) {
+        Long doctorId = entry.getTeklifDoctor().getId();
+        LocalDate tarih = entry.getTeklifTarih();
+        LocalTime saat = entry.getTeklifSaat();
+        slotHoldService.release(doctorId, tarih, saat, entry.getTeklifToken());
+        taskScheduler.schedule(() -> offerSlot(doctorId, tarih, saat), Instant.now());
+    }
+
+    private WaitlistEntry findOpenOffer(String token) {
+        WaitlistEntry entry = waitlistRepository.findByTeklifToken(token)
+                .orElseThrow(() -> new RuntimeException("Teklif bulunamadı"));
+        if (entry.getStatus() != WaitlistStatus.TEKLIF_EDILDI || !entry.getTeklifBitis().isAfter(LocalDateTime.now())) {
+            throw new RuntimeException("Teklifin süresi dolmuş");
+        }
+        return entry;
+    }
+
+    private void scheduleExpiry(Long entryId, String token, long expiresAtMillis) {
+        taskScheduler.schedule(() -> expireOffer(entryId, token), Instant.ofEpochMilli(expiresAtMillis));
+    }
+
+    private void sendOfferEmail(WaitlistEntry entry, Doctor doctor) {
+        try {
+            emailService.sendWaitlistOffer(entry.getEmail(), entry.getHastaAd() + " " + entry.getHastaSoyad(),
+                    doctor.getFullName(), entry.getTeklifTarih().format(DateTimeFormatter.ofPattern("dd.MM.yyyy")),
+                    entry.getTeklifSaat().toString(), offerMinutes, offerUrl + entry.getTeklifToken());
+        } catch (RuntimeException e) {
+            // The offer stays valid; the patient can still be reached by phone
+            logger.warn("Bekleme listesi teklif e-postası gönderilemedi: {}", e.getMessage());
+        }
+    }
+
+    // --- In-memory queues; callers hold the lock ---
+
+    private void enqueue(Candidate candidate) {
+        candidates.put(candidate.id, candidate);
+        for (LocalDate day = candidate.baslangicTarihi; !day.isAfter(candidate.bitisTarihi); day = day.plusDays(1)) {
+            if (candidate.doctorId != null) {
+                byDoctorDay.computeIfAbsent(new DoctorDay(candidate.doctorId, day), k -> new PriorityQueue<>(PRIORITY))
+                        .add(candidate);
+            } else {
+                byBolumDay.computeIfAbsent(bolumKey(candidate.bolum, day), k -> new PriorityQueue<>(PRIORITY))
+                        .add(candidate);
+            }
+        }
+    }
+
+    private void deactivate(Long entryId) {
+        Candidate candidate = candidates.remove(entryId);
+        if (candidate != null) {
+            candidate.active = false;
+        }
+    }
+
+    private Candidate pollBest(Long doctorId, String uzmanlik, LocalDate tarih) {
+        lock.lock();
+        try {
+            return pollBestLocked(doctorId, uzmanlik, tarih);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Candidate pollBestLocked(Long doctorId, String uzmanlik, LocalDate tarih) {
+        PriorityQueue<Candidate> doctorQueue = byDoctorDay.get(new DoctorDay(doctorId, tarih));
+        PriorityQueue<Candidate> bolumQueue = uzmanlik != null ? byBolumDay.get(bolumKey(uzmanlik, tarih)) : null;
+        Candidate fromDoctor = peekActive(doctorQueue);
+        Candidate fromBolum = peekActive(bolumQueue);
+        if (fromDoctor == null && fromBolum == null) {
+            return null;
+        }
+        Candidate best = fromBolum == null || (fromDoctor != null && PRIORITY.compare(fromDoctor, fromBolum) <= 0)
+                ? doctorQueue.poll() : bolumQueue.poll();
+        // The entry's copies for its other days are skipped from now on
+        deactivate(best.id);
+        return best;
+    }
+
+    private static Candidate peekActive(PriorityQueue<Candidate> queue) {
+        if (queue == null) {
+            return null;
+        }
+        while (!queue.isEmpty() && !queue.peek().active) {
+            queue.poll();
+        }
+        return queue.peek();
+    }
+
+    /**
+     * Adds waiting entries that this node has not queued, i.e. those
+     * registered or put back on other nodes, and drops queued entries that
+     * are no longer waiting. Entries queued while the database was read are
+     * kept.
+     */
+    @Scheduled(initialDelayString = "${app.waitlist.refresh-seconds:60}",
+            fixedDelayString = "${app.waitlist.refresh-seconds:60}", timeUnit = TimeUnit.SECONDS)
+    void refresh() {
+        try {
+            long startedAt = System.nanoTime();
+            List<WaitlistEntry> waiting = waitlistRepository.findOpenEntries(
+                    List.of(WaitlistStatus.BEKLIYOR), LocalDate.now());
+            Set<Long> waitingIds = new HashSet<>();
+            lock.lock();
+            try {
+                for (WaitlistEntry entry : waiting) {
+                    waitingIds.add(entry.getId());
+                    if (!candidates.containsKey(entry.getId())) {
+                        enqueue(Candidate.of(entry));
+                    }
+                }
+                candidates.values().removeIf(c -> {
+                    if (!waitingIds.contains(c.id) && c.queuedAt - startedAt < 0) {
+                        c.active = false;
+                        return true;
+                    }
+                    return false;
+                });
+            } finally {
+                lock.unlock();
+            }
+        } catch (RuntimeException e) {
+            logger.error("Bekleme listesi yenilenemedi", e);
+        }
+    }
+
+    @Scheduled(initialDelay = 1, fixedRate = 1, timeUnit = TimeUnit.HOURS)
+    void purgePastDays() {
+        LocalDate today = LocalDate.now();
+        lock.lock();
+        try {
+            byDoctorDay.keySet().removeIf(key -> key.getTarih().isBefore(today));
+            byBolumDay.keySet().removeIf(key -> LocalDate.parse(key.substring(key.lastIndexOf('|') + 1)).isBefore(today));
+            candidates.values().removeIf(c -> {
+                if (c.bitisTarihi.isBefore(today)) {
+                    c.active = false;
+                    return true;
+                }
+                return false;
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String bolumKey(String bolum, LocalDate tarih) {
+        return bolum.trim().toLowerCase(TURKISH) + "|" + tarih;
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static class Candidate {
+
+        private final Long id;
+        private final LocalDateTime olusturmaTarihi;
+        private final Long doctorId;
+        private final String bolum;
+        private final LocalDate baslangicTarihi;
+        private final LocalDate bitisTarihi;
+        // System.nanoTime() when the candidate was queued
+        private final long queuedAt = System.nanoTime();
+        private boolean active = true;
+
+        private Candidate(Long id, LocalDateTime olusturmaTarihi, Long doctorId, String bolum,
+                          LocalDate baslangicTarihi, LocalDate bitisTarihi) {
+            this.id = id;
+            this.olusturmaTarihi = olusturmaTarihi;
+            this.doctorId = doctorId;
+            this.bolum = bolum;
+            this.baslangicTarihi = baslangicTarihi;
+            this.bitisTarihi = bitisTarihi;
+        }
+
+        static Candidate of(WaitlistEntry entry) {
+            LocalDate today = LocalDate.now();
+            LocalDate start = entry.getBaslangicTarihi().isBefore(today) ? today : entry.getBaslangicTarihi();
+            return new Candidate(entry.getId(), entry.getOlusturmaTarihi(),
+                    entry.getDoctor() != null ? entry.getDoctor().getId() : null, entry.getBolum(),
+                    start, entry.getBitisTarihi());
+        }
+    }
+}
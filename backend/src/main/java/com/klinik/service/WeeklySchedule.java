@@ -0,0 +1,116 @@
+package com.klinik.service;
+
+import com.klinik.model.WorkingHours;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, pre-computed weekly schedule of a doctor. Built once from the
+ * normalized working hours rows and shared by every slot query and booking.
+ * Every slot can be booked once per chair, up to {@link #getCapacity()}.
+ */
+public final class WeeklySchedule {
+
+    private final Map<DayOfWeek, DaySchedule> days;
+
+    private final int capacity;
+
+    private WeeklySchedule(Map<DayOfWeek, DaySchedule> days, int capacity) {
+        this.days = days;
+        this.capacity = capacity;
+    }
+
+    public static WeeklySchedule of(List<WorkingHours> rows) {
+        return of(rows, 1);
+    }
+
+    public static WeeklySchedule of(List<WorkingHours> rows, int capacity) {
+        Map<DayOfWeek, DaySchedule> days = new EnumMap<>(DayOfWeek.class);
+        for (WorkingHours row : rows) {
+            days.put(row.getGun(), new DaySchedule(row.getBaslangic(), row.getBitis(),
+                    row.getOgleBaslangic(), row.getOgleBitis(), row.getSlotDakika()));
+        }
+        return new WeeklySchedule(Collections.unmodifiableMap(days), Math.max(1, capacity));
+    }
+
+    public List<LocalTime> getSlots(LocalDate tarih) {
+        DaySchedule day = days.get(tarih.getDayOfWeek());
+        return day != null ? day.getSlots() : List.of();
+    }
+
+    public boolean isBookable(LocalDate tarih, LocalTime saat) {
+        DaySchedule day = days.get(tarih.getDayOfWeek());
+        return day != null && day.isBookable(saat);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public DaySchedule getDay(DayOfWeek gun) {
+        return days.get(gun);
+    }
+
+    public static final class DaySchedule {
+
+        private final int start;
+        private final int end;
+        private final int lunchStart;
+        private final int lunchEnd;
+        private final int slotMinutes;
+        private final List<LocalTime> slots;
+
+        DaySchedule(LocalTime baslangic, LocalTime bitis, LocalTime ogleBaslangic, LocalTime ogleBitis,
+                    int slotMinutes) {
+            this.start = minuteOf(baslangic);
+            this.end = minuteOf(bitis);
+            this.lunchStart = ogleBaslangic != null ? minuteOf(ogleBaslangic) : -1;
+            this.lunchEnd = ogleBitis != null ? minuteOf(ogleBitis) : -1;
+            this.slotMinutes = slotMinutes;
+
+            List<LocalTime> generated = new ArrayList<>();
+            for (int minute = start; minute + slotMinutes <= end; minute += slotMinutes) {
+                if (!overlapsLunch(minute)) {
+                    generated.add(LocalTime.of(minute / 60, minute % 60));
+                }
+            }
+            this.slots = List.copyOf(generated);
+        }
+
+        public List<LocalTime> getSlots() {
+            return slots;
+        }
+
+        public int getSlotMinutes() {
+            return slotMinutes;
+        }
+
+        public LocalTime getStart() {
+            return LocalTime.of(start / 60, start % 60);
+        }
+
+        public LocalTime getEnd() {
+            return LocalTime.of(end / 60, end % 60);
+        }
+
+        public boolean isBookable(LocalTime saat) {
+            int minute = minuteOf(saat);
+            return minute >= start && minute + slotMinutes <= end && !overlapsLunch(minute);
+        }
+
+        private boolean overlapsLunch(int minute) {
+            return lunchStart >= 0 && minute < lunchEnd && minute + slotMinutes > lunchStart;
+        }
+
+        private static int minuteOf(LocalTime time) {
+            return time.getHour() * 60 + time.getMinute();
+        }
+    }
+}
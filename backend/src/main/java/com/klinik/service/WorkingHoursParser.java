@@ -0,0 +1,154 @@
+package com.klinik.service;
+
+import com.klinik.model.WorkingHours;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parses {@code Doctor.calismaSaatleri} into normalized working hours rows.
+ *
+ * <p>The value is a list of segments separated by {@code ;}:
+ * <ul>
+ *   <li>{@code [günler] HH:mm-HH:mm} - working interval, e.g. {@code Pzt-Cum 09:00-17:00}
+ *       or {@code Cmt 10:00-14:00}. Without days the interval applies to every day.</li>
+ *   <li>{@code ogle HH:mm-HH:mm} or {@code ogle yok} - lunch break, 12:00-14:00 by default.</li>
+ *   <li>{@code slot N} - slot length in minutes, 30 by default.</li>
+ * </ul>
+ * The legacy form {@code 09:00-17:00} is therefore still valid and yields the
+ * same slots the booking page has always shown.
+ */
+final class WorkingHoursParser {
+
+    static final String DEFAULT_CALISMA_SAATLERI = "09:00-17:00";
+
+    private static final LocalTime DEFAULT_OGLE_BASLANGIC = LocalTime.of(12, 0);
+    private static final LocalTime DEFAULT_OGLE_BITIS = LocalTime.of(14, 0);
+    private static final int DEFAULT_SLOT_DAKIKA = 30;
+
+    private static final Map<String, DayOfWeek> GUNLER = Map.of(
+            "pzt", DayOfWeek.MONDAY,
+            "sal", DayOfWeek.TUESDAY,
+            "çar", DayOfWeek.WEDNESDAY,
+            "car", DayOfWeek.WEDNESDAY,
+            "per", DayOfWeek.THURSDAY,
+            "cum", DayOfWeek.FRIDAY,
+            "cmt", DayOfWeek.SATURDAY,
+            "paz", DayOfWeek.SUNDAY);
+
+    private WorkingHoursParser() {}
+
+    static List<WorkingHours> parse(String calismaSaatleri) {
+        String spec = calismaSaatleri == null || calismaSaatleri.isBlank()
+                ? DEFAULT_CALISMA_SAATLERI : calismaSaatleri;
+
+        Map<DayOfWeek, LocalTime[]> intervals = new EnumMap<>(DayOfWeek.class);
+        LocalTime ogleBaslangic = DEFAULT_OGLE_BASLANGIC;
+        LocalTime ogleBitis = DEFAULT_OGLE_BITIS;
+        int slotDakika = DEFAULT_SLOT_DAKIKA;
+
+        for (String rawSegment : spec.split(";")) {
+            String segment = rawSegment.trim();
+            if (segment.isEmpty()) {
+                continue;
+            }
+            String lower = segment.toLowerCase(new Locale("tr"));
+            if (lower.startsWith("ogle") || lower.startsWith("öğle")) {
+                String value = segment.substring(segment.indexOf(' ') + 1).trim();
+                if (value.equalsIgnoreCase("yok")) {
+                    ogleBaslangic = null;
+                    ogleBitis = null;
+                } else {
+                    LocalTime[] ogle = parseInterval(value, calismaSaatleri);
+                    ogleBaslangic = ogle[0];
+                    ogleBitis = ogle[1];
+                }
+            } else if (lower.startsWith("slot")) {
+                slotDakika = parseSlot(segment.substring(4).trim(), calismaSaatleri);
+            } else {
+                int space = segment.lastIndexOf(' ');
+                Set<DayOfWeek> days = space < 0
+                        ? EnumSet.allOf(DayOfWeek.class)
+                        : parseDays(segment.substring(0, space).trim(), calismaSaatleri);
+                LocalTime[] interval = parseInterval(segment.substring(space + 1), calismaSaatleri);
+                for (DayOfWeek day : days) {
+                    intervals.put(day, interval);
+                }
+            }
+        }
+
+        if (intervals.isEmpty()) {
+            throw invalid(calismaSaatleri);
+        }
+
+        List<WorkingHours> rows = new ArrayList<>();
+        for (Map.Entry<DayOfWeek, LocalTime[]> entry : intervals.entrySet()) {
+            rows.add(new WorkingHours(entry.getKey(), entry.getValue()[0], entry.getValue()[1],
+                    ogleBaslangic, ogleBitis, slotDakika));
+        }
+        return rows;
+    }
+
+    private static LocalTime[] parseInterval(String value, String spec) {
+        String[] parts = value.split("-");
+        if (parts.length != 2) {
+            throw invalid(spec);
+        }
+        try {
+            LocalTime start = LocalTime.parse(parts[0].trim());
+            LocalTime end = LocalTime.parse(parts[1].trim());
+            if (!start.isBefore(end)) {
+                throw invalid(spec);
+            }
+            return new LocalTime[] { start, end };
+        } catch (DateTimeParseException e) {
+            throw invalid(spec);
+        }
+    }
+
+    private static Set<DayOfWeek> parseDays(String value, String spec) {
+        Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+        for (String part : value.split(",")) {
+            String[] range = part.trim().split("-");
+            DayOfWeek from = parseDay(range[0], spec);
+            DayOfWeek to = range.length > 1 ? parseDay(range[1], spec) : from;
+            if (range.length > 2 || to.compareTo(from) < 0) {
+                throw invalid(spec);
+            }
+            days.addAll(EnumSet.range(from, to));
+        }
+        return days;
+    }
+
+    private static DayOfWeek parseDay(String value, String spec) {
+        DayOfWeek day = GUNLER.get(value.trim().toLowerCase(new Locale("tr")));
+        if (day == null) {
+            throw invalid(spec);
+        }
+        return day;
+    }
+
+    private static int parseSlot(String value, String spec) {
+        try {
+            int slot = Integer.parseInt(value);
+            if (slot < 5 || slot > 240) {
+                throw invalid(spec);
+            }
+            return slot;
+        } catch (NumberFormatException e) {
+            throw invalid(spec);
+        }
+    }
+
+    private static RuntimeException invalid(String spec) {
+        return new RuntimeException("Geçersiz çalışma saatleri: " + spec);
+    }
+}
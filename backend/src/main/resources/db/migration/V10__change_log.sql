@@ -0,0 +1,30 @@
+-- Every insert, update and delete of an appointment, invoice or review leaves an
+-- entry here in the same transaction. ChangeLogService numbers committed entries
+-- in commit order (surum), so clients can ask for the changes since the last
+-- version they have seen.
+
+CREATE TABLE change_log (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    entity_type VARCHAR(20) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    doktor_id BIGINT,
+    silindi BOOLEAN NOT NULL,
+    surum BIGINT,
+    olusturma_tarihi DATETIME(6) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+-- Unnumbered entries (surum IS NULL) for the sequencer, and the feeds overall and per doctor
+CREATE INDEX idx_change_log_surum ON change_log (surum);
+CREATE INDEX idx_change_log_doktor_surum ON change_log (doktor_id, surum);
+CREATE INDEX idx_change_log_olusturma ON change_log (olusturma_tarihi);
+
+-- Single row: the last version handed out and the highest one already purged
+CREATE TABLE change_counter (
+    id INT NOT NULL,
+    surum BIGINT NOT NULL,
+    budanan_surum BIGINT NOT NULL,
+    PRIMARY KEY (id)
+);
+
+INSERT INTO change_counter (id, surum, budanan_surum) VALUES (1, 0, 0);
@@ -0,0 +1,24 @@
+-- Invoice count and amount per doctor, invoice day and status, kept up to date in
+-- the transaction of every invoice write by RevenueRollupService. Revenue totals
+-- read these rows instead of summing the invoices. Archived invoices stay counted.
+
+CREATE TABLE revenue_rollups (
+    doktor_id BIGINT NOT NULL,
+    gun DATE NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    adet INT NOT NULL,
+    toplam DECIMAL(14,2) NOT NULL,
+    PRIMARY KEY (doktor_id, gun, status)
+);
+
+INSERT INTO revenue_rollups (doktor_id, gun, status, adet, toplam)
+SELECT doktor_id, gun, status, SUM(adet), SUM(toplam) FROM (
+    SELECT a.doktor_id, CAST(i.tarih AS DATE) AS gun, i.status, COUNT(*) AS adet, SUM(i.tutar) AS toplam
+    FROM invoices i JOIN appointments a ON a.id = i.appointment_id
+    GROUP BY a.doktor_id, CAST(i.tarih AS DATE), i.status
+    UNION ALL
+    SELECT a.doktor_id, CAST(i.tarih AS DATE) AS gun, i.status, COUNT(*) AS adet, SUM(i.tutar) AS toplam
+    FROM invoices_archive i JOIN appointments_archive a ON a.id = i.appointment_id
+    GROUP BY a.doktor_id, CAST(i.tarih AS DATE), i.status
+) t
+GROUP BY doktor_id, gun, status;
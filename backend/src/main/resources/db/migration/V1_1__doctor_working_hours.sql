@@ -0,0 +1,20 @@
+-- Structured weekly schedule of each doctor, parsed from doctors.calisma_saatleri
+-- on save. Doctors without rows fall back to the text form until they are saved.
+
+CREATE TABLE doctor_working_hours (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    doktor_id BIGINT NOT NULL,
+    gun ENUM('MONDAY','TUESDAY','WEDNESDAY','THURSDAY','FRIDAY','SATURDAY','SUNDAY') NOT NULL,
+    baslangic TIME NOT NULL,
+    bitis TIME NOT NULL,
+    ogle_baslangic TIME,
+    ogle_bitis TIME,
+    slot_dakika INT NOT NULL,
+    PRIMARY KEY (id)
+);
+
+-- Indexed first, so MySQL does not add an unnamed index for the foreign key
+CREATE INDEX idx_working_hours_doctor ON doctor_working_hours (doktor_id);
+
+ALTER TABLE doctor_working_hours
+    ADD CONSTRAINT fk_working_hours_doctor FOREIGN KEY (doktor_id) REFERENCES doctors (id);
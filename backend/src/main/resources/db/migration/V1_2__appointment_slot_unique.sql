@@ -0,0 +1,49 @@
+-- One appointment per doctor slot, as the cross-node backstop of the booking
+-- check. Until now the check ran before the insert without a lock, so
+-- concurrent bookings may have left duplicates behind.
+
+-- A cancelled appointment that shares its slot with another one has to make
+-- room: the slot stays with the live appointment, or with the oldest one if all
+-- of them are cancelled. Nothing is deleted for good; the appointments and
+-- their invoices move to the *_slot_duplicates tables below.
+
+-- A paid invoice is never moved out of invoices. If one belongs to such an
+-- appointment the migration stops on the NOT NULL column below, and the
+-- invoice has to be resolved by hand before it is run again:
+--   SELECT i.* FROM invoices i JOIN appointments a ON a.id = i.appointment_id
+--   WHERE i.status = 'ODENDI' AND a.status = 'IPTAL_EDILDI' AND EXISTS (
+--       SELECT 1 FROM appointments b WHERE b.doktor_id = a.doktor_id AND b.tarih = a.tarih
+--         AND b.saat = a.saat AND b.id <> a.id AND (b.status <> 'IPTAL_EDILDI' OR b.id < a.id));
+CREATE TABLE IF NOT EXISTS slot_duplicate_check (paid_invoice_of_duplicate_appointment INT NOT NULL);
+
+INSERT INTO slot_duplicate_check
+    SELECT CASE WHEN COUNT(*) = 0 THEN 0 END FROM invoices i
+    JOIN appointments a ON a.id = i.appointment_id
+    WHERE i.status = 'ODENDI' AND a.status = 'IPTAL_EDILDI' AND EXISTS (
+        SELECT 1 FROM appointments b
+        WHERE b.doktor_id = a.doktor_id AND b.tarih = a.tarih AND b.saat = a.saat AND b.id <> a.id
+          AND (b.status <> 'IPTAL_EDILDI' OR b.id < a.id));
+
+DROP TABLE slot_duplicate_check;
+
+CREATE TABLE appointments_slot_duplicates AS
+    SELECT a.* FROM appointments a
+    WHERE a.status = 'IPTAL_EDILDI' AND EXISTS (
+        SELECT 1 FROM appointments b
+        WHERE b.doktor_id = a.doktor_id AND b.tarih = a.tarih AND b.saat = a.saat AND b.id <> a.id
+          AND (b.status <> 'IPTAL_EDILDI' OR b.id < a.id));
+
+CREATE TABLE invoices_slot_duplicates AS
+    SELECT i.* FROM invoices i
+    WHERE i.appointment_id IN (SELECT id FROM appointments_slot_duplicates);
+
+DELETE FROM invoices WHERE appointment_id IN (SELECT id FROM appointments_slot_duplicates);
+
+DELETE FROM appointments WHERE id IN (SELECT id FROM appointments_slot_duplicates);
+
+-- Two live appointments in one slot are a real double booking that has to be
+-- resolved with the patients; the key below then fails and names the slot:
+--   SELECT doktor_id, tarih, saat, COUNT(*) FROM appointments
+--   GROUP BY doktor_id, tarih, saat HAVING COUNT(*) > 1;
+ALTER TABLE appointments
+    ADD CONSTRAINT uk_appointments_slot UNIQUE (doktor_id, tarih, saat);
@@ -0,0 +1,70 @@
+-- Baseline: the schema as it was created by Hibernate (ddl-auto=update) before
+-- Flyway took over, and nothing newer. Databases that already have these tables
+-- are baselined at this version (spring.flyway.baseline-on-migrate) and only
+-- receive later migrations, so every later change belongs in one of those.
+
+CREATE TABLE admin (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    username VARCHAR(255) NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    role VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_admin_username UNIQUE (username)
+);
+
+CREATE TABLE doctors (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    ad VARCHAR(255) NOT NULL,
+    soyad VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    sifre VARCHAR(255) NOT NULL,
+    uzmanlik VARCHAR(255) NOT NULL,
+    deneyim INT NOT NULL,
+    hakkinda TEXT,
+    calisma_saatleri VARCHAR(255),
+    ucret DECIMAL(10,2) NOT NULL,
+    profile_image_url VARCHAR(255),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_doctors_email UNIQUE (email)
+);
+
+CREATE TABLE appointments (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    hasta_ad VARCHAR(255) NOT NULL,
+    hasta_soyad VARCHAR(255) NOT NULL,
+    tc VARCHAR(11) NOT NULL,
+    telefon VARCHAR(255) NOT NULL,
+    doktor_id BIGINT NOT NULL,
+    tarih DATE NOT NULL,
+    saat TIME NOT NULL,
+    bolum VARCHAR(255) NOT NULL,
+    status ENUM('BEKLEMEDE','ONAYLANDI','TAMAMLANDI','IPTAL_EDILDI') NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE invoices (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    appointment_id BIGINT NOT NULL,
+    tutar DECIMAL(10,2) NOT NULL,
+    aciklama TEXT,
+    tarih DATETIME(6) NOT NULL,
+    status ENUM('BEKLEMEDE','ODENDI','IPTAL_EDILDI') NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_invoices_appointment UNIQUE (appointment_id)
+);
+
+CREATE TABLE reviews (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    hasta_ad VARCHAR(255) NOT NULL,
+    yorum TEXT NOT NULL,
+    tarih DATETIME(6) NOT NULL,
+    rating INT NOT NULL,
+    approved BIT NOT NULL,
+    PRIMARY KEY (id)
+);
+
+ALTER TABLE appointments
+    ADD CONSTRAINT fk_appointments_doctor FOREIGN KEY (doktor_id) REFERENCES doctors (id);
+
+ALTER TABLE invoices
+    ADD CONSTRAINT fk_invoices_appointment FOREIGN KEY (appointment_id) REFERENCES appointments (id);
@@ -0,0 +1,17 @@
+-- Indexes for the repository queries that are not served by a primary or
+-- unique key. Queries filtering on doktor_id (optionally with tarih and saat)
+-- already use the leading columns of uk_appointments_slot, and invoice lookups
+-- by appointment use uk_invoices_appointment.
+
+-- findByTarihBetween, keyset pages over all doctors and the export, all ordered
+-- by (tarih, saat, id); InnoDB appends the primary key to secondary indexes.
+CREATE INDEX idx_appointments_tarih_saat ON appointments (tarih, saat);
+
+-- findByTcAndHastaAdAndHastaSoyad (public patient lookup)
+CREATE INDEX idx_appointments_hasta ON appointments (tc, hasta_ad, hasta_soyad);
+
+-- InvoiceRepository.findByTarihBetween
+CREATE INDEX idx_invoices_tarih ON invoices (tarih);
+
+-- getTotalPaidAmount; covers the sum without reading the rows
+CREATE INDEX idx_invoices_status_tutar ON invoices (status, tutar);
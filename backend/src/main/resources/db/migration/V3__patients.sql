@@ -0,0 +1,22 @@
+-- Patients keyed by a peppered SHA-256 hash of the normalized TC. Appointments
+-- reference them by foreign key; existing rows are linked by the backfill job
+-- (PatientBackfillJob), so patient_id stays nullable.
+
+CREATE TABLE patients (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    tc_hash VARCHAR(64) NOT NULL,
+    ad VARCHAR(255) NOT NULL,
+    soyad VARCHAR(255) NOT NULL,
+    telefon VARCHAR(255),
+    olusturma_tarihi DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_patients_tc_hash UNIQUE (tc_hash)
+);
+
+ALTER TABLE appointments ADD COLUMN patient_id BIGINT;
+
+-- Patient history ordered by date, and the foreign key index
+CREATE INDEX idx_appointments_patient ON appointments (patient_id, tarih, saat);
+
+ALTER TABLE appointments
+    ADD CONSTRAINT fk_appointments_patient FOREIGN KEY (patient_id) REFERENCES patients (id);
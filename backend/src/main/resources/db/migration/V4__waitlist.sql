@@ -0,0 +1,35 @@
+-- Waitlist for cancelled slots. Matching happens in memory (WaitlistService);
+-- the table is read once at startup to rebuild the queues.
+
+CREATE TABLE waitlist_entries (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    hasta_ad VARCHAR(255) NOT NULL,
+    hasta_soyad VARCHAR(255) NOT NULL,
+    tc VARCHAR(11) NOT NULL,
+    telefon VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    doktor_id BIGINT,
+    bolum VARCHAR(255),
+    baslangic_tarihi DATE NOT NULL,
+    bitis_tarihi DATE NOT NULL,
+    olusturma_tarihi DATETIME(6) NOT NULL,
+    status ENUM('BEKLIYOR','TEKLIF_EDILDI','RANDEVU_ALINDI','SURESI_DOLDU','IPTAL_EDILDI') NOT NULL,
+    teklif_doktor_id BIGINT,
+    teklif_tarih DATE,
+    teklif_saat TIME,
+    teklif_token VARCHAR(36),
+    teklif_bitis DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_waitlist_teklif_token UNIQUE (teklif_token)
+);
+
+-- Startup rebuild reads the open entries
+CREATE INDEX idx_waitlist_status_bitis ON waitlist_entries (status, bitis_tarihi);
+CREATE INDEX idx_waitlist_doctor ON waitlist_entries (doktor_id);
+CREATE INDEX idx_waitlist_teklif_doctor ON waitlist_entries (teklif_doktor_id);
+
+ALTER TABLE waitlist_entries
+    ADD CONSTRAINT fk_waitlist_doctor FOREIGN KEY (doktor_id) REFERENCES doctors (id);
+
+ALTER TABLE waitlist_entries
+    ADD CONSTRAINT fk_waitlist_teklif_doctor FOREIGN KEY (teklif_doktor_id) REFERENCES doctors (id);
@@ -0,0 +1,35 @@
+-- Recurring appointment series; occurrences are appointments with series_id set
+
+CREATE TABLE appointment_series (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    hasta_ad VARCHAR(255) NOT NULL,
+    hasta_soyad VARCHAR(255) NOT NULL,
+    tc VARCHAR(11) NOT NULL,
+    telefon VARCHAR(255) NOT NULL,
+    doktor_id BIGINT NOT NULL,
+    patient_id BIGINT,
+    bolum VARCHAR(255) NOT NULL,
+    siklik ENUM('HAFTALIK','AYLIK') NOT NULL,
+    aralik INT NOT NULL,
+    tekrar_sayisi INT NOT NULL,
+    baslangic_tarihi DATE NOT NULL,
+    saat TIME NOT NULL,
+    olusturma_tarihi DATETIME(6) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_series_doctor ON appointment_series (doktor_id);
+CREATE INDEX idx_series_patient ON appointment_series (patient_id);
+
+ALTER TABLE appointment_series
+    ADD CONSTRAINT fk_series_doctor FOREIGN KEY (doktor_id) REFERENCES doctors (id);
+
+ALTER TABLE appointment_series
+    ADD CONSTRAINT fk_series_patient FOREIGN KEY (patient_id) REFERENCES patients (id);
+
+ALTER TABLE appointments ADD COLUMN series_id BIGINT;
+
+CREATE INDEX idx_appointments_series ON appointments (series_id);
+
+ALTER TABLE appointments
+    ADD CONSTRAINT fk_appointments_series FOREIGN KEY (series_id) REFERENCES appointment_series (id);
@@ -0,0 +1,15 @@
+-- Responses of POST /appointments/public by Idempotency-Key, shared by all
+-- nodes. status_code is NULL while the first request is still running.
+
+CREATE TABLE idempotency_keys (
+    id_key VARCHAR(100) NOT NULL,
+    request_hash CHAR(64) NOT NULL,
+    status_code INT,
+    content_type VARCHAR(255),
+    response_body MEDIUMTEXT,
+    olusturma_tarihi DATETIME(6) NOT NULL,
+    PRIMARY KEY (id_key)
+);
+
+-- Expired keys are purged by creation time
+CREATE INDEX idx_idempotency_olusturma ON idempotency_keys (olusturma_tarihi);
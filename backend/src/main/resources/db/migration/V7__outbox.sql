@@ -0,0 +1,21 @@
+-- Work that follows a booking (invoice, confirmation e-mail) is recorded here in
+-- the booking transaction and carried out afterwards by OutboxDispatcher
+
+ALTER TABLE appointments ADD COLUMN email VARCHAR(255);
+
+CREATE TABLE outbox_events (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    event_type VARCHAR(50) NOT NULL,
+    appointment_id BIGINT NOT NULL,
+    status ENUM('BEKLIYOR','ISLENDI','BASARISIZ') NOT NULL,
+    attempts INT NOT NULL,
+    next_attempt_at DATETIME(6) NOT NULL,
+    last_error VARCHAR(1000),
+    olusturma_tarihi DATETIME(6) NOT NULL,
+    processed_at DATETIME(6),
+    PRIMARY KEY (id)
+);
+
+-- The dispatcher polls due events; processed ones are purged by age
+CREATE INDEX idx_outbox_status_next_attempt ON outbox_events (status, next_attempt_at);
+CREATE INDEX idx_outbox_processed_at ON outbox_events (processed_at);
@@ -0,0 +1,15 @@
+-- Doctors may work several chairs (or rooms) in parallel. A slot can then be
+-- booked once per chair, so the unique key moves from the slot to the chair.
+
+ALTER TABLE doctors ADD COLUMN koltuk_sayisi INT NOT NULL DEFAULT 1;
+
+ALTER TABLE appointments ADD COLUMN koltuk_no INT NOT NULL DEFAULT 1;
+
+-- Keeps doktor_id indexed for fk_appointments_doctor while the unique key is replaced
+CREATE INDEX idx_appointments_doktor ON appointments (doktor_id);
+
+ALTER TABLE appointments DROP CONSTRAINT uk_appointments_slot;
+
+-- Same name as before, so conflicts are still recognised by Appointment.SLOT_CONSTRAINT
+ALTER TABLE appointments
+    ADD CONSTRAINT uk_appointments_slot UNIQUE (doktor_id, tarih, saat, koltuk_no);
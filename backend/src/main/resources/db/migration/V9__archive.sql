@@ -0,0 +1,52 @@
+-- Appointments older than app.archive.horizon-months are moved here together with
+-- their invoices by AppointmentArchiveJob, so the live tables only hold the recent
+-- history nearly every query is about. Same columns as the live tables; there are
+-- no foreign keys, archived rows are read-only and never block doctor changes.
+
+CREATE TABLE appointments_archive (
+    id BIGINT NOT NULL,
+    hasta_ad VARCHAR(255) NOT NULL,
+    hasta_soyad VARCHAR(255) NOT NULL,
+    tc VARCHAR(11) NOT NULL,
+    telefon VARCHAR(255) NOT NULL,
+    email VARCHAR(255),
+    doktor_id BIGINT NOT NULL,
+    tarih DATE NOT NULL,
+    saat TIME NOT NULL,
+    koltuk_no INT NOT NULL,
+    bolum VARCHAR(255) NOT NULL,
+    status ENUM('BEKLEMEDE','ONAYLANDI','TAMAMLANDI','IPTAL_EDILDI') NOT NULL,
+    patient_id BIGINT,
+    series_id BIGINT,
+    arsivlenme_tarihi DATETIME(6) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+-- Keyset listings, overall and per doctor, and patient lookups
+CREATE INDEX idx_appointments_archive_tarih ON appointments_archive (tarih, saat, id);
+CREATE INDEX idx_appointments_archive_doktor ON appointments_archive (doktor_id, tarih, saat, id);
+CREATE INDEX idx_appointments_archive_tc ON appointments_archive (tc);
+
+CREATE TABLE invoices_archive (
+    id BIGINT NOT NULL,
+    appointment_id BIGINT NOT NULL,
+    tutar DECIMAL(10,2) NOT NULL,
+    aciklama TEXT,
+    tarih DATETIME(6) NOT NULL,
+    status ENUM('BEKLEMEDE','ODENDI','IPTAL_EDILDI') NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_invoices_archive_appointment UNIQUE (appointment_id)
+);
+
+CREATE INDEX idx_invoices_archive_tarih ON invoices_archive (tarih, id);
+
+-- Single row. Appointments before arsiv_siniri (and invoices dated before it) may
+-- be in the archive; later ones never are. Only ever moves forward.
+CREATE TABLE archive_state (
+    id INT NOT NULL,
+    arsiv_siniri DATE,
+    guncelleme DATETIME(6),
+    PRIMARY KEY (id)
+);
+
+INSERT INTO archive_state (id) VALUES (1);
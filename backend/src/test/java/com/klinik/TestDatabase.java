@@ -0,0 +1,94 @@
+package com.klinik;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.UUID;
+
+/**
+ * A fresh H2 database in MySQL mode, migrated by the application's Flyway
+ * scripts, for tests that wire services by hand around plain JDBC.
+ */
+public class TestDatabase {
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public TestDatabase() {
+        dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    public NamedParameterJdbcTemplate getNamedParameterJdbcTemplate() {
+        return new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    public TransactionTemplate getTransactionTemplate() {
+        return transactionTemplate;
+    }
+
+    /**
+     * Inserts a doctor with the given chair count and returns its id.
+     */
+    public long insertDoctor(String email, int chairs) {
+        jdbcTemplate.update("INSERT INTO doctors (ad, soyad, email, sifre, uzmanlik, deneyim, ucret, koltuk_sayisi) " +
+                "VALUES ('Ali', 'Test', ?, 'sifre', 'Genel', 5, 500.00, ?)", email, chairs);
+        return jdbcTemplate.queryForObject("SELECT id FROM doctors WHERE email = ?", Long.class, email);
+    }
+
+    /**
+     * Inserts an appointment in the given chair and returns its id.
+     */
+    public long insertAppointment(long doctorId, LocalDate tarih, LocalTime saat, int koltukNo, String status) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement("INSERT INTO appointments " +
+                    "(hasta_ad, hasta_soyad, tc, telefon, doktor_id, tarih, saat, koltuk_no, bolum, status) " +
+                    "VALUES ('Ayse', 'Yilmaz', '12345678901', '5551112233', ?, ?, ?, ?, 'Genel', ?)",
+                    Statement.RETURN_GENERATED_KEYS);
+            ps.setLong(1, doctorId);
+            ps.setObject(2, tarih);
+            ps.setObject(3, saat);
+            ps.setInt(4, koltukNo);
+            ps.setString(5, status);
+            return ps;
+        }, keyHolder);
+        return keyHolder.getKey().longValue();
+    }
+
+    /**
+     * Inserts the invoice of an appointment.
+     */
+    public void insertInvoice(long appointmentId, String tutar, String status) {
+        jdbcTemplate.update("INSERT INTO invoices (appointment_id, tutar, aciklama, tarih, status) " +
+                "VALUES (?, ?, 'Muayene', CURRENT_TIMESTAMP, ?)", appointmentId, new BigDecimal(tutar), status);
+    }
+
+    public int count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+}
@@ -0,0 +1,244 @@
+package com.klinik.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Closed-loop load generator for booking and slot-query traffic against a
+ * running instance. Not a unit test; bench/run-bench.sh starts the
+ * application once per execution mode and runs this against it.
+ *
+ * Each client thread loops until the end of the run, sending a booking with
+ * probability {@code --booking-ratio} and an available-slots query otherwise.
+ * Bookings walk a shuffled list of free slots collected up front; once it is
+ * used up they keep hitting taken slots and measure the conflict path. All
+ * random choices are seeded, so two runs send the same request mix.
+ *
+ * Options: --base-url, --label, --concurrency, --warmup-seconds,
+ * --duration-seconds, --booking-ratio, --days, --seed.
+ */
+public class BookingLoadBenchmark {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        String baseUrl = options.getOrDefault("base-url", "http://localhost:8082/api");
+        String label = options.getOrDefault("label", "run");
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "400"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup-seconds", "10"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration-seconds", "30"));
+        double bookingRatio = Double.parseDouble(options.getOrDefault("booking-ratio", "0.2"));
+        int days = Integer.parseInt(options.getOrDefault("days", "90"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newFixedThreadPool(8))
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        List<Long> doctorIds = new ArrayList<>();
+        for (JsonNode doctor : getJson(client, baseUrl + "/doctors/public")) {
+            doctorIds.add(doctor.get("id").asLong());
+        }
+        if (doctorIds.isEmpty()) {
+            throw new IllegalStateException("No doctors found at " + baseUrl);
+        }
+
+        LocalDate firstDay = LocalDate.now().plusDays(1);
+        List<String[]> freeSlots = new ArrayList<>();
+        for (Long doctorId : doctorIds) {
+            for (int d = 0; d < days; d++) {
+                LocalDate tarih = firstDay.plusDays(d);
+                for (JsonNode saat : getJson(client, slotsUrl(baseUrl, doctorId, tarih))) {
+                    freeSlots.add(new String[]{doctorId.toString(), tarih.toString(), saat.asText().substring(0, 5)});
+                }
+            }
+        }
+        Collections.shuffle(freeSlots, new Random(seed));
+        System.out.printf(Locale.ROOT, "[%s] %d doctors, %d free slots, %d clients, %ds warm-up, %ds measured%n",
+                label, doctorIds.size(), freeSlots.size(), concurrency, warmupSeconds, durationSeconds);
+
+        long start = System.nanoTime();
+        long measureFrom = start + warmupSeconds * 1_000_000_000L;
+        long end = measureFrom + durationSeconds * 1_000_000_000L;
+        AtomicInteger nextSlot = new AtomicInteger();
+        Worker[] workers = new Worker[concurrency];
+        CountDownLatch done = new CountDownLatch(concurrency);
+
+        for (int i = 0; i < concurrency; i++) {
+            Worker worker = new Worker(client, baseUrl, doctorIds, freeSlots, nextSlot, firstDay, days,
+                    bookingRatio, new Random(seed + i), measureFrom, end);
+            workers[i] = worker;
+            Thread thread = new Thread(() -> {
+                try {
+                    worker.run();
+                } finally {
+                    done.countDown();
+                }
+            }, "bench-client-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+
+        report(label, "slots", Arrays.stream(workers).map(w -> w.slotQueries).toList(), durationSeconds);
+        report(label, "booking", Arrays.stream(workers).map(w -> w.bookings).toList(), durationSeconds);
+        System.exit(0);
+    }
+
+    private static void report(String label, String operation, List<Recorder> recorders, int durationSeconds) {
+        long[] all = recorders.stream().flatMapToLong(r -> Arrays.stream(r.latencies, 0, r.count)).sorted().toArray();
+        int ok = recorders.stream().mapToInt(r -> r.ok).sum();
+        int conflicts = recorders.stream().mapToInt(r -> r.conflicts).sum();
+        int errors = recorders.stream().mapToInt(r -> r.errors).sum();
+        System.out.printf(Locale.ROOT,
+                "RESULT mode=%s op=%s requests=%d throughput=%.1f/s p50=%.1fms p99=%.1fms max=%.1fms ok=%d conflict=%d error=%d%n",
+                label, operation, all.length, all.length / (double) durationSeconds,
+                percentile(all, 50), percentile(all, 99), all.length == 0 ? 0 : all[all.length - 1] / 1e6,
+                ok, conflicts, errors);
+    }
+
+    private static double percentile(long[] sorted, int p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static JsonNode getJson(HttpClient client, String url) throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(url)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(url + " returned " + response.statusCode());
+        }
+        return MAPPER.readTree(response.body());
+    }
+
+    private static String slotsUrl(String baseUrl, Long doctorId, LocalDate tarih) {
+        return baseUrl + "/appointments/public/available-slots?doctorId=" + doctorId + "&date=" + tarih;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        return options;
+    }
+
+    private static class Worker {
+
+        private final HttpClient client;
+        private final String baseUrl;
+        private final List<Long> doctorIds;
+        private final List<String[]> freeSlots;
+        private final AtomicInteger nextSlot;
+        private final LocalDate firstDay;
+        private final int days;
+        private final double bookingRatio;
+        private final Random random;
+        private final long measureFrom;
+        private final long end;
+        private final Recorder slotQueries = new Recorder();
+        private final Recorder bookings = new Recorder();
+
+        Worker(HttpClient client, String baseUrl, List<Long> doctorIds, List<String[]> freeSlots,
+               AtomicInteger nextSlot, LocalDate firstDay, int days, double bookingRatio, Random random,
+               long measureFrom, long end) {
+            this.client = client;
+            this.baseUrl = baseUrl;
+            this.doctorIds = doctorIds;
+            this.freeSlots = freeSlots;
+            this.nextSlot = nextSlot;
+            this.firstDay = firstDay;
+            this.days = days;
+            this.bookingRatio = bookingRatio;
+            this.random = random;
+            this.measureFrom = measureFrom;
+            this.end = end;
+        }
+
+        void run() {
+            long now;
+            while ((now = System.nanoTime()) < end) {
+                boolean booking = random.nextDouble() < bookingRatio;
+                HttpRequest request = booking ? bookingRequest() : slotQuery();
+                int status;
+                try {
+                    status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                } catch (Exception e) {
+                    status = -1;
+                }
+                long finished = System.nanoTime();
+                if (now >= measureFrom) {
+                    (booking ? bookings : slotQueries).record(finished - now, status);
+                }
+            }
+        }
+
+        private HttpRequest slotQuery() {
+            Long doctorId = doctorIds.get(random.nextInt(doctorIds.size()));
+            LocalDate tarih = firstDay.plusDays(random.nextInt(days));
+            return HttpRequest.newBuilder(URI.create(slotsUrl(baseUrl, doctorId, tarih)))
+                    .timeout(Duration.ofSeconds(30))
+                    .GET()
+                    .build();
+        }
+
+        private HttpRequest bookingRequest() {
+            String[] slot = freeSlots.get(Math.floorMod(nextSlot.getAndIncrement(), freeSlots.size()));
+            String tc = String.format(Locale.ROOT, "%011d", 10_000_000_000L + random.nextInt(1_000_000));
+            String body = "{\"hastaAd\":\"Yuk\",\"hastaSoyad\":\"Testi\",\"tc\":\"" + tc + "\"," +
+                    "\"telefon\":\"5550000000\",\"doctor\":{\"id\":" + slot[0] + "}," +
+                    "\"tarih\":\"" + slot[1] + "\",\"saat\":\"" + slot[2] + "\",\"bolum\":\"Genel\"}";
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/appointments/public"))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        }
+    }
+
+    private static class Recorder {
+
+        private long[] latencies = new long[1024];
+        private int count;
+        private int ok;
+        private int conflicts;
+        private int errors;
+
+        void record(long nanos, int status) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+            if (status >= 200 && status < 300) {
+                ok++;
+            } else if (status == 409) {
+                conflicts++;
+            } else {
+                errors++;
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.klinik.config;
+
+import com.klinik.TestDatabase;
+import com.klinik.service.IdempotencyStore;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Runs the filter against an {@link IdempotencyStore} on a migrated H2
+ * database, with a stand-in for the controller that counts its calls.
+ */
+public class IdempotencyFilterTest {
+
+    private static final String BODY = "{\"hastaAd\":\"Ayse\"}";
+
+    private TestDatabase database;
+    private IdempotencyStore store;
+    private IdempotencyFilter filter;
+    private final AtomicInteger controllerCalls = new AtomicInteger();
+    private int controllerStatus = 201;
+
+    @BeforeEach
+    public void setUp() {
+        database = new TestDatabase();
+        store = newStore();
+        filter = newFilter(store);
+    }
+
+    @Test
+    public void retryWithSameKeyAndBody_ReplaysStoredResponse() throws Exception {
+        MockHttpServletResponse first = send("key-1", BODY, "10.0.0.1");
+        MockHttpServletResponse retry = send("key-1", BODY, "10.0.0.1");
+
+        assertEquals(1, controllerCalls.get());
+        assertEquals(201, retry.getStatus());
+        assertEquals(first.getContentAsString(), retry.getContentAsString());
+        assertEquals("true", retry.getHeader("Idempotent-Replayed"));
+        assertNull(first.getHeader("Idempotent-Replayed"));
+    }
+
+    @Test
+    public void retryFromAnotherAddress_ReplaysStoredResponse() throws Exception {
+        send("key-1", BODY, "10.0.0.1");
+        MockHttpServletResponse retry = send("key-1", BODY, "172.16.0.9");
+
+        assertEquals(1, controllerCalls.get());
+        assertEquals(201, retry.getStatus());
+        assertEquals("true", retry.getHeader("Idempotent-Replayed"));
+    }
+
+    @Test
+    public void retryOnAnotherNode_ReplaysFromDatabase() throws Exception {
+        send("key-1", BODY, "10.0.0.1");
+        // A second store has an empty LRU, like another node
+        IdempotencyFilter otherNode = newFilter(newStore());
+
+        MockHttpServletResponse retry = send(otherNode, "key-1", BODY, "10.0.0.1");
+
+        assertEquals(1, controllerCalls.get());
+        assertEquals(201, retry.getStatus());
+        assertEquals("created", retry.getContentAsString());
+    }
+
+    @Test
+    public void sameKeyWithDifferentBody_Returns422() throws Exception {
+        send("key-1", BODY, "10.0.0.1");
+
+        MockHttpServletResponse other = send("key-1", "{\"hastaAd\":\"Mehmet\"}", "10.0.0.2");
+
+        assertEquals(422, other.getStatus());
+        assertEquals(1, controllerCalls.get());
+    }
+
+    @Test
+    public void sameKeyWithDifferentBodyOnAnotherNode_Returns422() throws Exception {
+        send("key-1", BODY, "10.0.0.1");
+
+        MockHttpServletResponse other = send(newFilter(newStore()), "key-1", "{\"hastaAd\":\"Mehmet\"}", "10.0.0.2");
+
+        assertEquals(422, other.getStatus());
+        assertEquals(1, controllerCalls.get());
+    }
+
+    @Test
+    public void retryWhileFirstRequestRuns_Returns409() throws Exception {
+        // The first request of the key has been claimed but not completed yet
+        FilterChain slowController = (request, response) -> {
+            MockHttpServletResponse retry = send("key-1", BODY, "10.0.0.1");
+            assertEquals(409, retry.getStatus());
+            controllerCalls.incrementAndGet();
+            response.getWriter().write("created");
+        };
+
+        MockHttpServletResponse first = send(filter, "key-1", BODY, "10.0.0.1", slowController);
+
+        assertEquals(200, first.getStatus());
+        assertEquals(1, controllerCalls.get());
+    }
+
+    @Test
+    public void serverError_ReleasesKeyForRetry() throws Exception {
+        controllerStatus = 500;
+        MockHttpServletResponse failed = send("key-1", BODY, "10.0.0.1");
+        controllerStatus = 201;
+        MockHttpServletResponse retry = send("key-1", BODY, "10.0.0.1");
+
+        assertEquals(500, failed.getStatus());
+        assertEquals(201, retry.getStatus());
+        assertNull(retry.getHeader("Idempotent-Replayed"));
+        assertEquals(2, controllerCalls.get());
+    }
+
+    @Test
+    public void expiredKey_IsReclaimedByNewRequest() throws Exception {
+        send("key-1", BODY, "10.0.0.1");
+        database.getJdbcTemplate().update("UPDATE idempotency_keys SET olusturma_tarihi = ?",
+                LocalDateTime.now().minusHours(25));
+        IdempotencyFilter otherNode = newFilter(newStore());
+
+        MockHttpServletResponse reused = send(otherNode, "key-1", "{\"hastaAd\":\"Mehmet\"}", "10.0.0.1");
+
+        assertEquals(201, reused.getStatus());
+        assertNull(reused.getHeader("Idempotent-Replayed"));
+        assertEquals(2, controllerCalls.get());
+    }
+
+    @Test
+    public void abandonedClaim_IsReclaimedAfterTimeout() throws Exception {
+        store.claim("key-1", "crashed-node-hash");
+        database.getJdbcTemplate().update("UPDATE idempotency_keys SET olusturma_tarihi = ?",
+                LocalDateTime.now().minusMinutes(5));
+
+        MockHttpServletResponse retry = send("key-1", BODY, "10.0.0.1");
+
+        assertEquals(201, retry.getStatus());
+        assertEquals(1, controllerCalls.get());
+    }
+
+    @Test
+    public void requestWithoutKey_IsNotFiltered() throws Exception {
+        send(null, BODY, "10.0.0.1");
+        send(null, BODY, "10.0.0.1");
+
+        assertEquals(2, controllerCalls.get());
+        assertEquals(0, database.getJdbcTemplate().queryForObject("SELECT COUNT(*) FROM idempotency_keys",
+                Integer.class));
+    }
+
+    private MockHttpServletResponse send(String key, String body, String remoteAddr)
+            throws ServletException, IOException {
+        return send(filter, key, body, remoteAddr);
+    }
+
+    private MockHttpServletResponse send(IdempotencyFilter target, String key, String body, String remoteAddr)
+            throws ServletException, IOException {
+        FilterChain controller = (request, response) -> {
+            request.getInputStream().readAllBytes();
+            controllerCalls.incrementAndGet();
+            ((HttpServletResponse) response).setStatus(controllerStatus);
+            response.setContentType("text/plain");
+            response.getWriter().write("created");
+        };
+        return send(target, key, body, remoteAddr, controller);
+    }
+
+    private MockHttpServletResponse send(IdempotencyFilter target, String key, String body, String remoteAddr,
+                                         FilterChain controller)
+            throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/appointments/public");
+        request.setServletPath("/appointments/public");
+        request.setRemoteAddr(remoteAddr);
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        if (key != null) {
+            request.addHeader(IdempotencyFilter.HEADER, key);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        target.doFilter(request, response, controller);
+        return response;
+    }
+
+    private IdempotencyStore newStore() {
+        IdempotencyStore newStore = new IdempotencyStore();
+        ReflectionTestUtils.setField(newStore, "jdbcTemplate", database.getJdbcTemplate());
+        ReflectionTestUtils.setField(newStore, "ttlHours", 24);
+        ReflectionTestUtils.setField(newStore, "cacheSize", 100);
+        ReflectionTestUtils.setField(newStore, "inProgressTimeoutSeconds", 120);
+        return newStore;
+    }
+
+    private static IdempotencyFilter newFilter(IdempotencyStore store) {
+        IdempotencyFilter newFilter = new IdempotencyFilter();
+        ReflectionTestUtils.setField(newFilter, "idempotencyStore", store);
+        return newFilter;
+    }
+}
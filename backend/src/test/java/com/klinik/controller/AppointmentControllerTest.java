@@ -1,9 +1,17 @@
 package com.klinik.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.klinik.exception.AppointmentConflictException;
 import com.klinik.model.Appointment;
 import com.klinik.model.Doctor;
+import com.klinik.service.AppointmentExportService;
 import com.klinik.service.AppointmentService;
+import com.klinik.service.AppointmentStatusService;
+import com.klinik.service.CalendarFeedService;
+import com.klinik.service.ChangeFeedService;
+import com.klinik.service.IdempotencyStore;
+import com.klinik.service.SlotEventBroadcaster;
+import com.klinik.service.SlotHoldService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -31,6 +39,27 @@ public class AppointmentControllerTest {
     @MockBean
     private AppointmentService appointmentService;
 
+    @MockBean
+    private AppointmentExportService appointmentExportService;
+
+    @MockBean
+    private SlotEventBroadcaster slotEventBroadcaster;
+
+    @MockBean
+    private SlotHoldService slotHoldService;
+
+    @MockBean
+    private CalendarFeedService calendarFeedService;
+
+    @MockBean
+    private AppointmentStatusService appointmentStatusService;
+
+    @MockBean
+    private ChangeFeedService changeFeedService;
+
+    @MockBean
+    private IdempotencyStore idempotencyStore;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -70,7 +99,7 @@ public class AppointmentControllerTest {
 
         // Mock service to throw exception (since validation passes controller logic but
         // fails in service)
-        when(appointmentService.createAppointment(any(Appointment.class)))
+        when(appointmentService.createAppointment(any(Appointment.class), any()))
                 .thenThrow(new RuntimeException("Doktor seçimi yapılmalıdır"));
 
         mockMvc.perform(post("/appointments/public")
@@ -79,4 +108,29 @@ public class AppointmentControllerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(content().string("Doktor seçimi yapılmalıdır"));
     }
-}
+
+    @Test
+    public void createAppointment_WhenSlotTaken_ReturnsConflict() throws Exception {
+        Appointment appointment = new Appointment();
+        appointment.setHastaAd("Test");
+        appointment.setHastaSoyad("Patient");
+        appointment.setTc("12345678901");
+        appointment.setTelefon("5551234567");
+        appointment.setTarih(LocalDate.now().plusDays(1));
+        appointment.setSaat(LocalTime.of(10, 0));
+        appointment.setBolum("Diş");
+
+        Doctor doctor = new Doctor();
+        doctor.setId(1L);
+        appointment.setDoctor(doctor);
+
+        when(appointmentService.createAppointment(any(Appointment.class), any()))
+                .thenThrow(new AppointmentConflictException());
+
+        mockMvc.perform(post("/appointments/public")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointment)))
+                .andExpect(status().isConflict())
+                .andExpect(content().string("Bu tarih ve saatte zaten bir randevu mevcut"));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,228 @@
+package com.klinik.controller;
+
+import com.klinik.service.OutboxDispatcher;
+import com.klinik.service.PatientBackfillJob;
+import com.klinik.service.PatientService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Calls every list endpoint of the appointment, invoice and admin controllers
+ * against a seeded H2 database and checks how many SQL statements each one
+ * issues, JSON serialization included. A lazy association touched per row
+ * would show up here as one extra statement per appointment or invoice.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:klinik_query_count;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=none",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureMockMvc
+@WithMockUser(roles = "ADMIN")
+@Import(ReadEndpointQueryCountTest.CountingConfig.class)
+public class ReadEndpointQueryCountTest {
+
+    private static final String TC = "10000000001";
+    private static final LocalDate START = LocalDate.of(2025, 3, 3);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PatientService patientService;
+
+    @MockBean
+    private PatientBackfillJob patientBackfillJob;
+
+    // Keeps the background dispatcher off the database while statements are counted
+    @MockBean
+    private OutboxDispatcher outboxDispatcher;
+
+    private Long doctorId;
+
+    @BeforeEach
+    public void seed() {
+        jdbcTemplate.update("DELETE FROM invoices");
+        jdbcTemplate.update("DELETE FROM appointments");
+        jdbcTemplate.update("DELETE FROM patients");
+        jdbcTemplate.update("DELETE FROM doctor_working_hours");
+        jdbcTemplate.update("DELETE FROM doctors");
+
+        List<Object[]> doctors = new ArrayList<>();
+        for (int d = 0; d < 3; d++) {
+            doctors.add(new Object[]{"Doktor" + d, "Test", "sayim" + d + "@klinik.com", "sifre", "Genel", 5,
+                    new BigDecimal("500.00")});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO doctors (ad, soyad, email, sifre, uzmanlik, deneyim, ucret) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)", doctors);
+        List<Long> doctorIds = jdbcTemplate.queryForList("SELECT id FROM doctors ORDER BY id", Long.class);
+        doctorId = doctorIds.get(0);
+
+        jdbcTemplate.update("INSERT INTO patients (tc_hash, ad, soyad, telefon, olusturma_tarihi) " +
+                "VALUES (?, 'Ayse', 'Yilmaz', '5550000000', CURRENT_TIMESTAMP)", patientService.hashTc(TC));
+        Long patientId = jdbcTemplate.queryForObject("SELECT id FROM patients", Long.class);
+
+        List<Object[]> appointments = new ArrayList<>();
+        for (Long id : doctorIds) {
+            for (int day = 0; day < 4; day++) {
+                appointments.add(new Object[]{"Ayse", "Yilmaz", TC, "5550000000", id, START.plusDays(day),
+                        LocalTime.of(9 + day, 0), "Genel", "BEKLEMEDE", patientId});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO appointments " +
+                "(hasta_ad, hasta_soyad, tc, telefon, doktor_id, tarih, saat, bolum, status, patient_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", appointments);
+        // Every other appointment is invoiced, so both sides of the outer join are covered
+        jdbcTemplate.update("INSERT INTO invoices (appointment_id, tutar, aciklama, tarih, status) " +
+                "SELECT id, 500.00, 'Muayene', CAST(tarih AS TIMESTAMP), 'BEKLEMEDE' FROM appointments " +
+                "WHERE MOD(id, 2) = 0");
+
+        when(patientBackfillJob.isComplete()).thenReturn(true);
+    }
+
+    @Test
+    public void listEndpoints_IssueOneStatementEach() throws Exception {
+        String range = "startDate=" + START + "&endDate=" + START.plusDays(3);
+        String dateTimeRange = "startDate=" + START + "T00:00:00&endDate=" + START.plusDays(3) + "T23:59:59";
+
+        Map<String, String> endpoints = new LinkedHashMap<>();
+        endpoints.put("appointments by patient",
+                "/appointments/public/patient?tc=" + TC + "&hastaAd=Ayse&hastaSoyad=Yilmaz");
+        endpoints.put("appointments by doctor", "/appointments/doctor/" + doctorId);
+        endpoints.put("appointments by doctor and date", "/appointments/doctor/" + doctorId + "/date-range?" + range);
+        endpoints.put("all appointments", "/appointments/all");
+        endpoints.put("appointments by date", "/appointments/date-range?" + range);
+        endpoints.put("invoices by doctor", "/invoices/doctor/" + doctorId);
+        endpoints.put("invoices by doctor and date", "/invoices/doctor/" + doctorId + "/date-range?" + dateTimeRange);
+        endpoints.put("all invoices", "/invoices/all");
+        endpoints.put("admin appointments", "/admin/appointments");
+        endpoints.put("admin invoices", "/admin/invoices");
+
+        for (Map.Entry<String, String> endpoint : endpoints.entrySet()) {
+            StatementCounter.start();
+            MvcResult result;
+            try {
+                result = mockMvc.perform(get(endpoint.getValue())).andReturn();
+            } finally {
+                StatementCounter.stop();
+            }
+            assertEquals(200, result.getResponse().getStatus(),
+                    endpoint.getKey() + ": " + result.getResponse().getContentAsString());
+            assertEquals(1, StatementCounter.count(), endpoint.getKey() + " issued "
+                    + StatementCounter.count() + " statements");
+        }
+    }
+
+    @TestConfiguration
+    static class CountingConfig {
+
+        @Bean
+        static BeanPostProcessor countingDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource ? StatementCounter.wrap((DataSource) bean) : bean;
+                }
+            };
+        }
+    }
+
+    /**
+     * Counts statements executed on the current thread between {@link #start}
+     * and {@link #stop}; statements of background threads are ignored.
+     */
+    static class StatementCounter {
+
+        private static final ThreadLocal<int[]> ACTIVE = new ThreadLocal<>();
+
+        private static int last;
+
+        static void start() {
+            ACTIVE.set(new int[1]);
+        }
+
+        static void stop() {
+            last = ACTIVE.get()[0];
+            ACTIVE.remove();
+        }
+
+        static int count() {
+            return last;
+        }
+
+        static DataSource wrap(DataSource target) {
+            return proxy(DataSource.class, target, result ->
+                    result instanceof Connection ? wrapConnection((Connection) result) : result);
+        }
+
+        private static Connection wrapConnection(Connection target) {
+            return proxy(Connection.class, target, result ->
+                    result instanceof Statement ? wrapStatement((Statement) result) : result);
+        }
+
+        private static Statement wrapStatement(Statement target) {
+            Class<?> type = target instanceof CallableStatement ? CallableStatement.class
+                    : target instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+            return (Statement) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                    (proxy, method, args) -> {
+                        if (method.getName().startsWith("execute") && ACTIVE.get() != null) {
+                            ACTIVE.get()[0]++;
+                        }
+                        try {
+                            return method.invoke(target, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, T target, UnaryOperator<Object> wrapResult) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+                try {
+                    return wrapResult.apply(method.invoke(target, args));
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.klinik.repository;
+
+import com.klinik.model.Appointment;
+import com.klinik.model.Doctor;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.data.domain.PageRequest;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Runs every query of {@link AppointmentRepository} and {@link InvoiceRepository}
+ * against a seeded H2 database migrated by Flyway, and checks with EXPLAIN that
+ * none of the executed statements falls back to a full table scan.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:klinik_index;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=none",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(RepositoryIndexUsageTest.RecordingConfig.class)
+public class RepositoryIndexUsageTest {
+
+    private static final int DOCTORS = 20;
+    private static final int DAYS = 60;
+    private static final LocalDate START = LocalDate.of(2025, 1, 1);
+    private static final LocalTime[] SLOTS = {
+            LocalTime.of(9, 0), LocalTime.of(9, 30), LocalTime.of(10, 0), LocalTime.of(10, 30),
+            LocalTime.of(11, 0), LocalTime.of(14, 0), LocalTime.of(14, 30), LocalTime.of(15, 0)
+    };
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private QueryRecorder queryRecorder;
+
+    private List<Long> doctorIds;
+
+    @BeforeEach
+    public void seed() {
+        List<Object[]> doctors = new ArrayList<>();
+        for (int d = 0; d < DOCTORS; d++) {
+            doctors.add(new Object[]{"Doktor" + d, "Test", "doktor" + d + "@klinik.com", "sifre",
+                    "Uzmanlik" + (d % 4), 5, new BigDecimal("500.00")});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO doctors (ad, soyad, email, sifre, uzmanlik, deneyim, ucret) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)", doctors);
+        doctorIds = jdbcTemplate.queryForList("SELECT id FROM doctors ORDER BY id", Long.class);
+
+        List<Object[]> appointments = new ArrayList<>();
+        int patient = 0;
+        for (Long doctorId : doctorIds) {
+            for (int day = 0; day < DAYS; day++) {
+                for (LocalTime slot : SLOTS) {
+                    patient++;
+                    appointments.add(new Object[]{"Hasta" + patient, "Soyad" + patient,
+                            String.format("%011d", patient), "5550000000", doctorId,
+                            START.plusDays(day), slot, "Genel", "BEKLEMEDE"});
+                }
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO appointments " +
+                "(hasta_ad, hasta_soyad, tc, telefon, doktor_id, tarih, saat, bolum, status) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", appointments);
+        jdbcTemplate.update("INSERT INTO invoices (appointment_id, tutar, aciklama, tarih, status) " +
+                "SELECT id, 500.00, 'Muayene', CAST(tarih AS TIMESTAMP), " +
+                "CASE WHEN MOD(id, 3) = 0 THEN 'ODENDI' ELSE 'BEKLEMEDE' END FROM appointments");
+
+        jdbcTemplate.update("INSERT INTO patients (tc_hash, ad, soyad, telefon, olusturma_tarihi) " +
+                "SELECT tc, hasta_ad, hasta_soyad, telefon, CURRENT_TIMESTAMP FROM appointments WHERE MOD(id, 2) = 0");
+        jdbcTemplate.update("UPDATE appointments a SET patient_id = " +
+                "(SELECT p.id FROM patients p WHERE p.tc_hash = a.tc) WHERE MOD(a.id, 2) = 0");
+
+        // Refresh the optimizer statistics for the seeded data
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    public void repositoryQueries_UseIndexes() {
+        Doctor doctor = doctorRepository.findById(doctorIds.get(3)).orElseThrow();
+        Appointment appointment = appointmentRepository.findByTarihAndDoctor(START, doctor).get(0);
+        LocalDate day = START.plusDays(10);
+        LocalDate rangeEnd = START.plusDays(17);
+
+        Map<String, Runnable> queries = new LinkedHashMap<>();
+        queries.put("findByDoctor", () -> appointmentRepository.findByDoctor(doctor));
+        queries.put("findByTcAndHastaAdAndHastaSoyad",
+                () -> appointmentRepository.findByTcAndHastaAdAndHastaSoyad("00000000042", "Hasta42", "Soyad42"));
+        queries.put("findByPatientTcHash", () -> appointmentRepository.findByPatientTcHash("00000000042"));
+        queries.put("findWithDoctorByIdIn",
+                () -> appointmentRepository.findWithDoctorByIdIn(List.of(appointment.getId())));
+        queries.put("findViewsByIdIn", () -> appointmentRepository.findViewsByIdIn(List.of(appointment.getId())));
+        queries.put("findUnlinkedByTc", () -> appointmentRepository.findUnlinkedByTc("00000000043"));
+        queries.put("findByTarihAndDoctor", () -> appointmentRepository.findByTarihAndDoctor(day, doctor));
+        queries.put("findChairsByDoctorIdAndTarih",
+                () -> appointmentRepository.findChairsByDoctorIdAndTarih(doctor.getId(), day));
+        queries.put("findByDoctorAndTarihAndSaat",
+                () -> appointmentRepository.findByDoctorAndTarihAndSaat(doctor, day, SLOTS[2]));
+        queries.put("findByTarihBetween", () -> appointmentRepository.findByTarihBetween(day, day));
+        queries.put("findByDoctorAndTarihBetween",
+                () -> appointmentRepository.findByDoctorAndTarihBetween(doctor, day, rangeEnd));
+        queries.put("findSlotsByDoctorIdsAndTarihler",
+                () -> appointmentRepository.findSlotsByDoctorIdsAndTarihler(doctorIds.subList(0, 3),
+                        List.of(day, rangeEnd)));
+        queries.put("findSlotsByDoctorIdAndTarihBetween",
+                () -> appointmentRepository.findSlotsByDoctorIdAndTarihBetween(doctor.getId(), day, rangeEnd));
+        queries.put("findSlotRowsByTarihBetween",
+                () -> appointmentRepository.findSlotRowsByTarihBetween(day, rangeEnd));
+        queries.put("findPageAfter",
+                () -> appointmentRepository.findPageAfter(day, SLOTS[3], 0L, rangeEnd, PageRequest.of(0, 51)));
+        queries.put("findDoctorPageAfter",
+                () -> appointmentRepository.findDoctorPageAfter(doctor.getId(), day, SLOTS[3], 0L, rangeEnd,
+                        PageRequest.of(0, 51)));
+        queries.put("countDailyByTarihBetween", () -> appointmentRepository.countDailyByTarihBetween(day, rangeEnd));
+        queries.put("countByDoctorAndTarih", () -> appointmentRepository.countByDoctorAndTarih(doctor, day));
+        queries.put("clearSeriesByDoctorId", () -> appointmentRepository.clearSeriesByDoctorId(doctor.getId()));
+        // streamExportRows is left out: H2 rejects the negative fetch size MySQL needs
+        // for streaming. It runs the same predicate and order as findByTarihBetween.
+
+        queries.put("Invoice.findByAppointment", () -> invoiceRepository.findByAppointment(appointment));
+        queries.put("Invoice.findByIdForUpdate",
+                () -> invoiceRepository.findByIdForUpdate(appointment.getInvoice().getId()));
+        queries.put("Invoice.findViewsByIdIn", () -> invoiceRepository.findViewsByIdIn(List.of(appointment.getId())));
+        queries.put("Invoice.findViewsByDoctorId",
+                () -> invoiceRepository.findViewsByDoctorId(doctor.getId()));
+        queries.put("Invoice.findByTarihBetween",
+                () -> invoiceRepository.findByTarihBetween(day.atStartOfDay(), day.atTime(23, 59)));
+        queries.put("Invoice.findWithAppointmentByTarihBetween",
+                () -> invoiceRepository.findWithAppointmentByTarihBetween(day.atStartOfDay(), day.plusDays(1).atStartOfDay()));
+        queries.put("Invoice.getTotalPaidAmount", () -> invoiceRepository.getTotalPaidAmount());
+        queries.put("Invoice.getTotalPaidAmountByDoctor",
+                () -> invoiceRepository.getTotalPaidAmountByDoctor(doctor.getId()));
+        queries.put("Invoice.sumPaidDailyByTarihBetween",
+                () -> invoiceRepository.sumPaidDailyByTarihBetween(day.atStartOfDay(), rangeEnd.plusDays(1).atStartOfDay()));
+        queries.put("Invoice.findByDoctorAndTarihBetween",
+                () -> invoiceRepository.findByDoctorAndTarihBetween(doctor.getId(), day.atStartOfDay(),
+                        rangeEnd.atTime(23, 59)));
+
+        for (Map.Entry<String, Runnable> query : queries.entrySet()) {
+            entityManager.clear();
+            List<RecordedQuery> executed = queryRecorder.record(query.getValue());
+            assertFalse(executed.isEmpty(), query.getKey() + " did not run any statement");
+
+            for (RecordedQuery statement : executed) {
+                String plan = explain(statement);
+                assertFalse(plan.toLowerCase().contains("tablescan"),
+                        query.getKey() + " runs a full table scan:\n" + plan);
+            }
+        }
+    }
+
+    private String explain(RecordedQuery statement) {
+        return jdbcTemplate.query("EXPLAIN " + statement.sql, ps -> {
+            for (Map.Entry<Integer, Object> parameter : statement.parameters.entrySet()) {
+                ps.setObject(parameter.getKey(), parameter.getValue());
+            }
+        }, rs -> {
+            StringBuilder plan = new StringBuilder();
+            while (rs.next()) {
+                plan.append(rs.getString(1)).append('\n');
+            }
+            return plan.toString();
+        });
+    }
+
+    @TestConfiguration
+    static class RecordingConfig {
+
+        @Bean
+        QueryRecorder queryRecorder() {
+            return new QueryRecorder();
+        }
+
+        @Bean
+        static BeanPostProcessor recordingDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource ? QueryRecorder.wrap((DataSource) bean) : bean;
+                }
+            };
+        }
+    }
+
+    static class RecordedQuery {
+
+        final String sql;
+        final Map<Integer, Object> parameters;
+
+        RecordedQuery(String sql, Map<Integer, Object> parameters) {
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof RecordedQuery && sql.equals(((RecordedQuery) o).sql);
+        }
+
+        @Override
+        public int hashCode() {
+            return sql.hashCode();
+        }
+    }
+
+    /**
+     * Records the SQL and bound parameters of every query executed through the
+     * wrapped data source while {@link #record} runs. Statements are recorded
+     * once per distinct SQL text.
+     */
+    static class QueryRecorder {
+
+        private static final ThreadLocal<Set<RecordedQuery>> RECORDED = new ThreadLocal<>();
+
+        List<RecordedQuery> record(Runnable action) {
+            Set<RecordedQuery> recorded = new LinkedHashSet<>();
+            RECORDED.set(recorded);
+            try {
+                action.run();
+            } finally {
+                RECORDED.remove();
+            }
+            return new ArrayList<>(recorded);
+        }
+
+        static DataSource wrap(DataSource target) {
+            return proxy(DataSource.class, target, (method, args, result) ->
+                    result instanceof Connection ? wrapConnection((Connection) result) : result);
+        }
+
+        private static Connection wrapConnection(Connection target) {
+            return proxy(Connection.class, target, (method, args, result) -> {
+                if (result instanceof PreparedStatement && args != null && args[0] instanceof String) {
+                    return wrapStatement((PreparedStatement) result, (String) args[0]);
+                }
+                return result;
+            });
+        }
+
+        private static PreparedStatement wrapStatement(PreparedStatement target, String sql) {
+            Map<Integer, Object> parameters = Collections.synchronizedMap(new TreeMap<>());
+            return proxy(PreparedStatement.class, target, (method, args, result) -> {
+                String name = method.getName();
+                if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                    parameters.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+                } else if ((name.equals("executeQuery") || name.equals("executeUpdate")) && RECORDED.get() != null) {
+                    RECORDED.get().add(new RecordedQuery(sql, new TreeMap<>(parameters)));
+                }
+                return result;
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, T target, ResultHandler handler) {
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+                Object result;
+                try {
+                    result = method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                return handler.handle(method, args, result);
+            });
+        }
+
+        private interface ResultHandler {
+            Object handle(Method method, Object[] args, Object result);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.klinik.repository;
+
+import com.klinik.model.Doctor;
+import com.klinik.model.WaitlistEntry;
+import com.klinik.model.WaitlistEntry.WaitlistStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks that the conditional offer updates let only the first of two
+ * competing nodes change an entry.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:klinik_waitlist;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=none",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class WaitlistRepositoryTest {
+
+    private static final LocalDate TARIH = LocalDate.now().plusDays(3);
+    private static final LocalTime SAAT = LocalTime.of(10, 0);
+
+    @Autowired
+    private WaitlistRepository waitlistRepository;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Doctor doctor;
+    private Long entryId;
+
+    @BeforeEach
+    public void seed() {
+        jdbcTemplate.update("INSERT INTO doctors (ad, soyad, email, sifre, uzmanlik, deneyim, ucret) " +
+                "VALUES ('Ali', 'Test', 'ali@klinik.com', 'sifre', 'Genel', 5, 500.00)");
+        doctor = doctorRepository.findAll().get(0);
+
+        WaitlistEntry entry = new WaitlistEntry();
+        entry.setHastaAd("Ayse");
+        entry.setHastaSoyad("Yilmaz");
+        entry.setTc("12345678901");
+        entry.setTelefon("5551112233");
+        entry.setEmail("ayse@example.com");
+        entry.setDoctor(doctor);
+        entry.setBaslangicTarihi(TARIH);
+        entry.setBitisTarihi(TARIH);
+        entry.setOlusturmaTarihi(LocalDateTime.now());
+        entry.setStatus(WaitlistStatus.BEKLIYOR);
+        entryId = waitlistRepository.saveAndFlush(entry).getId();
+    }
+
+    @Test
+    public void claimOffer_SecondClaim_FindsEntryTaken() {
+        assertEquals(1, claim("token-a"));
+        assertEquals(0, claim("token-b"));
+
+        WaitlistEntry entry = waitlistRepository.findById(entryId).orElseThrow();
+        assertEquals(WaitlistStatus.TEKLIF_EDILDI, entry.getStatus());
+        assertEquals("token-a", entry.getTeklifToken());
+        assertEquals(SAAT, entry.getTeklifSaat());
+    }
+
+    @Test
+    public void closeOffer_ClosesOnlyOnceAndOnlyWithItsToken() {
+        claim("token-a");
+
+        assertEquals(0, waitlistRepository.closeOffer(entryId, "token-b", WaitlistStatus.SURESI_DOLDU));
+        assertEquals(1, waitlistRepository.closeOffer(entryId, "token-a", WaitlistStatus.RANDEVU_ALINDI));
+        assertEquals(0, waitlistRepository.closeOffer(entryId, "token-a", WaitlistStatus.SURESI_DOLDU));
+
+        WaitlistEntry entry = waitlistRepository.findById(entryId).orElseThrow();
+        assertEquals(WaitlistStatus.RANDEVU_ALINDI, entry.getStatus());
+        assertNull(entry.getTeklifToken());
+    }
+
+    @Test
+    public void reopenAccepted_PutsEntryBackToWaiting() {
+        claim("token-a");
+        waitlistRepository.closeOffer(entryId, "token-a", WaitlistStatus.RANDEVU_ALINDI);
+
+        assertEquals(1, waitlistRepository.reopenAccepted(entryId));
+        assertEquals(1, claim("token-b"));
+    }
+
+    @Test
+    public void cancelWaiting_SkipsOfferedEntry() {
+        claim("token-a");
+
+        assertEquals(0, waitlistRepository.cancelWaiting(entryId));
+        assertEquals(1, waitlistRepository.closeOffer(entryId, "token-a", WaitlistStatus.IPTAL_EDILDI));
+        assertEquals(WaitlistStatus.IPTAL_EDILDI, waitlistRepository.findById(entryId).orElseThrow().getStatus());
+    }
+
+    private int claim(String token) {
+        return waitlistRepository.claimOffer(entryId, doctor, TARIH, SAAT, token, LocalDateTime.now().plusMinutes(15));
+    }
+}
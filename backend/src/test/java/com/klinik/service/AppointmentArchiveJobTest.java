@@ -0,0 +1,145 @@
+package com.klinik.service;
+
+import com.klinik.TestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Archives appointments on a migrated H2 database. Delayed re-runs are handed
+ * to a mock scheduler and never run by themselves.
+ */
+public class AppointmentArchiveJobTest {
+
+    private static final LocalDate BOUNDARY = LocalDate.now().withDayOfMonth(1).minusMonths(12);
+    private static final LocalDate OLD = BOUNDARY.minusMonths(6);
+
+    private TestDatabase database;
+    private JdbcTemplate jdbc;
+    private TaskScheduler taskScheduler;
+    private AppointmentArchiveJob job;
+    private long doctorId;
+
+    @BeforeEach
+    public void setUp() {
+        database = new TestDatabase();
+        jdbc = database.getJdbcTemplate();
+        doctorId = database.insertDoctor("archive@klinik.com", 1);
+
+        AppointmentArchiveService archiveService = new AppointmentArchiveService();
+        ReflectionTestUtils.setField(archiveService, "jdbcTemplate", jdbc);
+        ReflectionTestUtils.setField(archiveService, "namedParameterJdbcTemplate",
+                database.getNamedParameterJdbcTemplate());
+        ReflectionTestUtils.setField(archiveService, "refreshSeconds", 60L);
+
+        taskScheduler = mock(TaskScheduler.class);
+        job = new AppointmentArchiveJob();
+        ReflectionTestUtils.setField(job, "jdbcTemplate", jdbc);
+        ReflectionTestUtils.setField(job, "namedParameterJdbcTemplate", database.getNamedParameterJdbcTemplate());
+        ReflectionTestUtils.setField(job, "transactionTemplate", database.getTransactionTemplate());
+        ReflectionTestUtils.setField(job, "appointmentArchiveService", archiveService);
+        ReflectionTestUtils.setField(job, "taskScheduler", taskScheduler);
+        ReflectionTestUtils.setField(job, "horizonMonths", 12);
+        ReflectionTestUtils.setField(job, "batchPauseMs", 0L);
+    }
+
+    @Test
+    public void archiveBefore_MovesOldAppointmentsWithInvoices() {
+        long paid = database.insertAppointment(doctorId, OLD, LocalTime.of(9, 0), 1, "TAMAMLANDI");
+        database.insertInvoice(paid, "500.00", "ODENDI");
+        jdbc.update("UPDATE invoices SET tarih = ? WHERE appointment_id = ?", OLD.atTime(10, 0), paid);
+        // Invoiced after the boundary, so it stays live until the boundary passes the invoice
+        long lateInvoice = database.insertAppointment(doctorId, OLD, LocalTime.of(9, 30), 1, "TAMAMLANDI");
+        database.insertInvoice(lateInvoice, "500.00", "BEKLEMEDE");
+        long recent = database.insertAppointment(doctorId, BOUNDARY, LocalTime.of(9, 0), 1, "TAMAMLANDI");
+
+        job.archiveBefore(BOUNDARY);
+
+        assertEquals(List.of(paid), jdbc.queryForList("SELECT id FROM appointments_archive", Long.class));
+        assertEquals(List.of(paid), jdbc.queryForList("SELECT appointment_id FROM invoices_archive", Long.class));
+        assertEquals(List.of(lateInvoice, recent),
+                jdbc.queryForList("SELECT id FROM appointments ORDER BY id", Long.class));
+        assertEquals(1, database.count("invoices"));
+    }
+
+    @Test
+    public void failedBatch_KeepsEarlierBatchesAndNextRunContinues() {
+        List<Long> ids = insertOldAppointments(600);
+        // The second batch cannot be copied
+        long blocked = ids.get(550);
+        jdbc.update("INSERT INTO appointments_archive (id, hasta_ad, hasta_soyad, tc, telefon, doktor_id, tarih, " +
+                "saat, koltuk_no, bolum, status, arsivlenme_tarihi) VALUES (?, 'X', 'Y', '1', '1', ?, ?, ?, 1, " +
+                "'Genel', 'TAMAMLANDI', ?)", blocked, doctorId, OLD, LocalTime.of(8, 0), LocalDateTime.now());
+
+        assertThrows(DataAccessException.class, () -> job.archiveBefore(BOUNDARY));
+
+        assertEquals(100, database.count("appointments"));
+        assertEquals(501, database.count("appointments_archive"));
+
+        jdbc.update("DELETE FROM appointments_archive WHERE id = ?", blocked);
+        job.archiveBefore(BOUNDARY);
+
+        assertEquals(0, database.count("appointments"));
+        assertEquals(600, database.count("appointments_archive"));
+    }
+
+    @Test
+    public void run_WaitsUntilEveryNodeHasSeenNewBoundary() {
+        database.insertAppointment(doctorId, OLD, LocalTime.of(9, 0), 1, "TAMAMLANDI");
+
+        job.run();
+
+        ArgumentCaptor<Instant> at = ArgumentCaptor.forClass(Instant.class);
+        verify(taskScheduler).schedule(any(Runnable.class), at.capture());
+        // Two refresh intervals after the boundary was raised
+        assertTrue(at.getValue().isAfter(Instant.now().plusSeconds(100)));
+        assertEquals(BOUNDARY, jdbc.queryForObject("SELECT arsiv_siniri FROM archive_state", LocalDate.class));
+        assertEquals(0, database.count("appointments_archive"));
+
+        jdbc.update("UPDATE archive_state SET guncelleme = ?", LocalDateTime.now().minusMinutes(3));
+        job.run();
+
+        assertEquals(1, database.count("appointments_archive"));
+        assertEquals(0, database.count("appointments"));
+    }
+
+    @Test
+    public void run_WithBoundaryAlreadySeen_ArchivesWithoutWaiting() {
+        jdbc.update("UPDATE archive_state SET arsiv_siniri = ?, guncelleme = ?", BOUNDARY,
+                LocalDateTime.now().minusDays(1));
+        database.insertAppointment(doctorId, OLD, LocalTime.of(9, 0), 1, "TAMAMLANDI");
+
+        job.run();
+
+        verify(taskScheduler, never()).schedule(any(Runnable.class), any(Instant.class));
+        assertEquals(1, database.count("appointments_archive"));
+    }
+
+    private List<Long> insertOldAppointments(int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(database.insertAppointment(doctorId, OLD.plusDays(i / 10),
+                    LocalTime.of(9, 0).plusMinutes(30L * (i % 10)), 1, "TAMAMLANDI"));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,244 @@
+package com.klinik.service;
+
+import com.klinik.event.SlotChangedEvent;
+import com.klinik.exception.AppointmentConflictException;
+import com.klinik.model.Appointment;
+import com.klinik.model.Doctor;
+import com.klinik.repository.AppointmentRepository;
+import com.klinik.repository.DoctorRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Books the same slots from many threads at once and checks that every slot is
+ * booked exactly once per chair. The appointments table is simulated by a shared
+ * set that enforces the (doktor_id, tarih, saat, koltuk_no) unique constraint.
+ */
+public class AppointmentServiceConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int DOCTORS = 4;
+    private static final int DAYS = 2;
+    private static final int ATTEMPTS_PER_SLOT = 8;
+
+    private final Set<String> bookedSlots = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger inserts = new AtomicInteger();
+    private final AtomicLong ids = new AtomicLong();
+
+    @Test
+    public void concurrentBookings_BookEachSlotExactlyOnce() throws Exception {
+        AppointmentService service = newNode(1);
+        List<Appointment> requests = requests();
+        int distinctSlots = requests.size() / ATTEMPTS_PER_SLOT;
+
+        RunResult result = run(requests, i -> service);
+
+        assertTrue(result.errors.isEmpty(), () -> "Unexpected errors: " + result.errors);
+        assertEquals(distinctSlots, result.booked.get());
+        assertEquals(requests.size() - distinctSlots, result.conflicts.get());
+        // Locks and the occupancy index stop duplicates before they reach the table
+        assertEquals(distinctSlots, inserts.get());
+    }
+
+    @Test
+    public void concurrentBookingsOnTwoNodes_UniqueConstraintRejectsDuplicates() throws Exception {
+        AppointmentService nodeA = newNode(1);
+        AppointmentService nodeB = newNode(1);
+        List<Appointment> requests = requests();
+        int distinctSlots = requests.size() / ATTEMPTS_PER_SLOT;
+
+        RunResult result = run(requests, i -> i % 2 == 0 ? nodeA : nodeB);
+
+        assertTrue(result.errors.isEmpty(), () -> "Unexpected errors: " + result.errors);
+        assertEquals(distinctSlots, result.booked.get());
+        assertEquals(requests.size() - distinctSlots, result.conflicts.get());
+        assertEquals(distinctSlots, bookedSlots.size());
+    }
+
+    @Test
+    public void concurrentBookingsWithTwoChairs_BookEachSlotExactlyTwice() throws Exception {
+        AppointmentService service = newNode(2);
+        List<Appointment> requests = requests();
+        int chairs = 2 * requests.size() / ATTEMPTS_PER_SLOT;
+
+        RunResult result = run(requests, i -> service);
+
+        assertTrue(result.errors.isEmpty(), () -> "Unexpected errors: " + result.errors);
+        assertEquals(chairs, result.booked.get());
+        assertEquals(requests.size() - chairs, result.conflicts.get());
+        assertEquals(chairs, inserts.get());
+        assertEquals(chairs, bookedSlots.size());
+    }
+
+    private RunResult run(List<Appointment> requests, IntFunction<AppointmentService> nodeFor) throws Exception {
+        RunResult result = new RunResult();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < requests.size(); i++) {
+            AppointmentService node = nodeFor.apply(i);
+            Appointment request = requests.get(i);
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    node.createAppointment(request);
+                    result.booked.incrementAndGet();
+                } catch (AppointmentConflictException e) {
+                    result.conflicts.incrementAndGet();
+                } catch (Exception e) {
+                    result.errors.add(e.toString());
+                }
+            });
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+        long elapsedMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+
+        System.out.printf("%d booking attempts on %d threads in %d ms (%.0f attempts/s): %d booked, %d conflicts%n",
+                requests.size(), THREADS, elapsedMs, requests.size() * 1000.0 / elapsedMs,
+                result.booked.get(), result.conflicts.get());
+        return result;
+    }
+
+    private List<Appointment> requests() {
+        List<LocalTime> slots = WeeklySchedule.of(WorkingHoursParser.parse("09:00-17:00"))
+                .getSlots(LocalDate.now());
+        List<Appointment> requests = new ArrayList<>();
+        for (long doctorId = 1; doctorId <= DOCTORS; doctorId++) {
+            for (int day = 1; day <= DAYS; day++) {
+                for (LocalTime saat : slots) {
+                    for (int attempt = 0; attempt < ATTEMPTS_PER_SLOT; attempt++) {
+                        Doctor doctor = new Doctor();
+                        doctor.setId(doctorId);
+                        requests.add(new Appointment("Test", "Hasta" + attempt, "12345678901", "5551234567",
+                                doctor, LocalDate.now().plusDays(day), saat, "Genel"));
+                    }
+                }
+            }
+        }
+        Collections.shuffle(requests, new Random(42));
+        return requests;
+    }
+
+    private AppointmentService newNode(int chairs) {
+        AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+        when(appointmentRepository.findChairsByDoctorIdAndTarih(anyLong(), any(LocalDate.class)))
+                .thenAnswer(inv -> bookedChairs(inv.getArgument(0), inv.getArgument(1)));
+        when(appointmentRepository.saveAndFlush(any(Appointment.class))).thenAnswer(inv -> {
+            Appointment appointment = inv.getArgument(0);
+            if (!bookedSlots.add(key(appointment.getDoctor().getId(), appointment.getTarih(), appointment.getSaat(),
+                    appointment.getKoltukNo()))) {
+                throw new DataIntegrityViolationException(
+                        "Duplicate entry for key 'appointments." + Appointment.SLOT_CONSTRAINT + "'");
+            }
+            inserts.incrementAndGet();
+            appointment.setId(ids.incrementAndGet());
+            return appointment;
+        });
+
+        DoctorRepository doctorRepository = mock(DoctorRepository.class);
+        when(doctorRepository.findById(anyLong())).thenAnswer(inv -> Optional.of(doctor(inv.getArgument(0))));
+
+        DoctorScheduleService doctorScheduleService = mock(DoctorScheduleService.class);
+        WeeklySchedule schedule = WeeklySchedule.of(WorkingHoursParser.parse("09:00-17:00"), chairs);
+        when(doctorScheduleService.getSchedule(anyLong())).thenReturn(schedule);
+
+        SlotOccupancyIndex slotOccupancyIndex = new SlotOccupancyIndex();
+        ReflectionTestUtils.setField(slotOccupancyIndex, "appointmentRepository", appointmentRepository);
+
+        SlotHoldService slotHoldService = new SlotHoldService();
+        ReflectionTestUtils.setField(slotHoldService, "slotOccupancyIndex", slotOccupancyIndex);
+        ReflectionTestUtils.setField(slotHoldService, "doctorScheduleService", doctorScheduleService);
+
+        // No real transaction here, so slot events apply immediately (still under the lock)
+        ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+        doAnswer(inv -> {
+            Object event = inv.getArgument(0);
+            if (event instanceof SlotChangedEvent) {
+                slotOccupancyIndex.onSlotChanged((SlotChangedEvent) event);
+            }
+            return null;
+        }).when(eventPublisher).publishEvent(any(Object.class));
+
+        AppointmentService service = new AppointmentService();
+        ReflectionTestUtils.setField(service, "appointmentRepository", appointmentRepository);
+        ReflectionTestUtils.setField(service, "doctorRepository", doctorRepository);
+        ReflectionTestUtils.setField(service, "outboxService", mock(OutboxService.class));
+        ReflectionTestUtils.setField(service, "slotOccupancyIndex", slotOccupancyIndex);
+        ReflectionTestUtils.setField(service, "doctorScheduleService", doctorScheduleService);
+        ReflectionTestUtils.setField(service, "bookingLocks", new BookingLocks());
+        ReflectionTestUtils.setField(service, "transactionTemplate",
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(service, "eventPublisher", eventPublisher);
+        ReflectionTestUtils.setField(service, "patientService", mock(PatientService.class));
+        ReflectionTestUtils.setField(service, "slotHoldService", slotHoldService);
+        ReflectionTestUtils.setField(service, "appointmentArchiveService", mock(AppointmentArchiveService.class));
+        ReflectionTestUtils.setField(service, "revenueRollupService", mock(RevenueRollupService.class));
+        ReflectionTestUtils.setField(service, "appointmentStatusService", mock(AppointmentStatusService.class));
+        return service;
+    }
+
+    private List<Object[]> bookedChairs(Long doctorId, LocalDate tarih) {
+        String prefix = doctorId + "|" + tarih + "|";
+        List<Object[]> rows = new ArrayList<>();
+        for (String slot : bookedSlots) {
+            if (slot.startsWith(prefix)) {
+                String[] saatAndChair = slot.substring(prefix.length()).split("#");
+                rows.add(new Object[]{LocalTime.parse(saatAndChair[0]), Integer.valueOf(saatAndChair[1])});
+            }
+        }
+        return rows;
+    }
+
+    private static Doctor doctor(Long id) {
+        Doctor doctor = new Doctor();
+        doctor.setId(id);
+        doctor.setAd("Dr. Test");
+        doctor.setSoyad("Doktor" + id);
+        doctor.setUzmanlik("Genel");
+        doctor.setUcret(new BigDecimal("500"));
+        return doctor;
+    }
+
+    private static String key(Long doctorId, LocalDate tarih, LocalTime saat, int koltukNo) {
+        return doctorId + "|" + tarih + "|" + saat + "#" + koltukNo;
+    }
+
+    private static class RunResult {
+        final AtomicInteger booked = new AtomicInteger();
+        final AtomicInteger conflicts = new AtomicInteger();
+        final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+    }
+}
@@ -0,0 +1,180 @@
+package com.klinik.service;
+
+import com.klinik.TestDatabase;
+import com.klinik.dto.AppointmentStatusChange;
+import com.klinik.dto.StatusChangeResult;
+import com.klinik.event.AppointmentChangedEvent;
+import com.klinik.model.Appointment.AppointmentStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.klinik.model.Appointment.AppointmentStatus.BEKLEMEDE;
+import static com.klinik.model.Appointment.AppointmentStatus.IPTAL_EDILDI;
+import static com.klinik.model.Appointment.AppointmentStatus.ONAYLANDI;
+import static com.klinik.model.Appointment.AppointmentStatus.TAMAMLANDI;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Checks the transition rules and runs batch status changes against a
+ * migrated H2 database, including the cascade to invoices.
+ */
+public class AppointmentStatusServiceTest {
+
+    private static final LocalDate TARIH = LocalDate.of(2030, 3, 4);
+
+    private TestDatabase database;
+    private AppointmentStatusService service;
+    private final ChangeLogService changeLogService = mock(ChangeLogService.class);
+    private final RevenueRollupService revenueRollupService = mock(RevenueRollupService.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private long doctorId;
+
+    @BeforeEach
+    public void setUp() {
+        database = new TestDatabase();
+        service = new AppointmentStatusService();
+        ReflectionTestUtils.setField(service, "namedParameterJdbcTemplate", database.getNamedParameterJdbcTemplate());
+        ReflectionTestUtils.setField(service, "transactionTemplate", database.getTransactionTemplate());
+        ReflectionTestUtils.setField(service, "changeLogService", changeLogService);
+        ReflectionTestUtils.setField(service, "revenueRollupService", revenueRollupService);
+        ReflectionTestUtils.setField(service, "eventPublisher", eventPublisher);
+        doctorId = database.insertDoctor("ali@klinik.com", 1);
+    }
+
+    @Test
+    public void canTransitionTo_AllowsOnlyForwardMovesFromOpenStatuses() {
+        assertTrue(BEKLEMEDE.canTransitionTo(ONAYLANDI));
+        assertTrue(BEKLEMEDE.canTransitionTo(TAMAMLANDI));
+        assertTrue(BEKLEMEDE.canTransitionTo(IPTAL_EDILDI));
+        assertTrue(ONAYLANDI.canTransitionTo(TAMAMLANDI));
+        assertTrue(ONAYLANDI.canTransitionTo(IPTAL_EDILDI));
+
+        assertFalse(ONAYLANDI.canTransitionTo(BEKLEMEDE));
+        for (AppointmentStatus target : AppointmentStatus.values()) {
+            assertFalse(TAMAMLANDI.canTransitionTo(target), "TAMAMLANDI -> " + target);
+            assertFalse(IPTAL_EDILDI.canTransitionTo(target), "IPTAL_EDILDI -> " + target);
+        }
+    }
+
+    @Test
+    public void changeStatuses_ValidTransitions_AreWrittenPerTarget() {
+        long first = appointment(9, "BEKLEMEDE");
+        long second = appointment(10, "ONAYLANDI");
+        long third = appointment(11, "BEKLEMEDE");
+
+        List<StatusChangeResult> results = service.changeStatuses(List.of(
+                new AppointmentStatusChange(first, TAMAMLANDI),
+                new AppointmentStatusChange(second, TAMAMLANDI),
+                new AppointmentStatusChange(third, ONAYLANDI)));
+
+        assertTrue(results.stream().allMatch(StatusChangeResult::isSuccess));
+        assertEquals("TAMAMLANDI", statusOf(first));
+        assertEquals("TAMAMLANDI", statusOf(second));
+        assertEquals("ONAYLANDI", statusOf(third));
+        verify(eventPublisher).publishEvent(any(AppointmentChangedEvent.class));
+    }
+
+    @Test
+    public void changeStatuses_InvalidEntries_FailAloneWithReason() {
+        long completed = appointment(9, "TAMAMLANDI");
+        long pending = appointment(10, "BEKLEMEDE");
+
+        List<StatusChangeResult> results = service.changeStatuses(List.of(
+                new AppointmentStatusChange(completed, IPTAL_EDILDI),
+                new AppointmentStatusChange(pending, ONAYLANDI),
+                new AppointmentStatusChange(pending, IPTAL_EDILDI),
+                new AppointmentStatusChange(999L, ONAYLANDI),
+                new AppointmentStatusChange(null, ONAYLANDI)));
+
+        assertEquals("Geçersiz durum geçişi: TAMAMLANDI -> IPTAL_EDILDI", results.get(0).getError());
+        assertTrue(results.get(1).isSuccess());
+        assertEquals("Randevu listede birden fazla kez yer alıyor", results.get(2).getError());
+        assertEquals("Randevu bulunamadı: 999", results.get(3).getError());
+        assertFalse(results.get(4).isSuccess());
+        assertEquals("TAMAMLANDI", statusOf(completed));
+        assertEquals("ONAYLANDI", statusOf(pending));
+    }
+
+    @Test
+    public void changeStatuses_SameStatus_SucceedsWithoutWriting() {
+        long confirmed = appointment(9, "ONAYLANDI");
+
+        List<StatusChangeResult> results = service.changeStatuses(List.of(
+                new AppointmentStatusChange(confirmed, ONAYLANDI)));
+
+        assertTrue(results.get(0).isSuccess());
+        verify(changeLogService, never()).recordAppointments(any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    public void changeStatuses_Cancel_CancelsPendingInvoicesOnly() {
+        long unpaid = appointment(9, "BEKLEMEDE");
+        long paid = appointment(10, "ONAYLANDI");
+        database.insertInvoice(unpaid, "500.00", "BEKLEMEDE");
+        database.insertInvoice(paid, "500.00", "ODENDI");
+
+        service.changeStatuses(List.of(
+                new AppointmentStatusChange(unpaid, IPTAL_EDILDI),
+                new AppointmentStatusChange(paid, IPTAL_EDILDI)));
+
+        assertEquals("IPTAL_EDILDI", invoiceStatusOf(unpaid));
+        assertEquals("ODENDI", invoiceStatusOf(paid));
+        // The rollups move the invoices out of their old status and into the new one
+        verify(revenueRollupService).applyInvoicesOf(eq(List.of(unpaid, paid)), eq(-1));
+        verify(revenueRollupService).applyInvoicesOf(eq(List.of(unpaid, paid)), eq(1));
+        verify(changeLogService).recordInvoicesOf(List.of(unpaid, paid));
+    }
+
+    @Test
+    public void changeStatuses_Complete_LeavesInvoicesAlone() {
+        long pending = appointment(9, "BEKLEMEDE");
+        database.insertInvoice(pending, "500.00", "BEKLEMEDE");
+
+        service.changeStatuses(List.of(new AppointmentStatusChange(pending, TAMAMLANDI)));
+
+        assertEquals("BEKLEMEDE", invoiceStatusOf(pending));
+        verify(revenueRollupService, never()).applyInvoicesOf(any(), anyInt());
+        verify(changeLogService, times(1)).recordAppointments(List.of(pending));
+    }
+
+    @Test
+    public void changeStatuses_TooManyChanges_AreRejected() {
+        List<AppointmentStatusChange> changes = new ArrayList<>(Collections.nCopies(
+                AppointmentStatusService.MAX_BATCH_SIZE + 1, new AppointmentStatusChange(1L, ONAYLANDI)));
+
+        assertThrows(RuntimeException.class, () -> service.changeStatuses(changes));
+    }
+
+    private long appointment(int hour, String status) {
+        return database.insertAppointment(doctorId, TARIH, LocalTime.of(hour, 0), 1, status);
+    }
+
+    private String statusOf(long appointmentId) {
+        return database.getJdbcTemplate().queryForObject("SELECT status FROM appointments WHERE id = ?",
+                String.class, appointmentId);
+    }
+
+    private String invoiceStatusOf(long appointmentId) {
+        return database.getJdbcTemplate().queryForObject("SELECT status FROM invoices WHERE appointment_id = ?",
+                String.class, appointmentId);
+    }
+}
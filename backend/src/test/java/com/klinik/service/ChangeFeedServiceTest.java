@@ -0,0 +1,121 @@
+package com.klinik.service;
+
+import com.klinik.TestDatabase;
+import com.klinik.dto.ChangeSet;
+import com.klinik.dto.DeletedRecord;
+import com.klinik.model.Appointment;
+import com.klinik.model.Doctor;
+import com.klinik.repository.AppointmentRepository;
+import com.klinik.repository.InvoiceRepository;
+import com.klinik.repository.ReviewRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Reads pages of the change log on a migrated H2 database; the repositories
+ * that load the changed rows are mocks.
+ */
+public class ChangeFeedServiceTest {
+
+    private ChangeLogService changeLogService;
+    private AppointmentRepository appointmentRepository;
+    private ChangeFeedService service;
+
+    @BeforeEach
+    public void setUp() {
+        TestDatabase database = new TestDatabase();
+        changeLogService = new ChangeLogService();
+        ReflectionTestUtils.setField(changeLogService, "jdbcTemplate", database.getJdbcTemplate());
+        ReflectionTestUtils.setField(changeLogService, "namedParameterJdbcTemplate",
+                database.getNamedParameterJdbcTemplate());
+        ReflectionTestUtils.setField(changeLogService, "transactionTemplate", database.getTransactionTemplate());
+
+        appointmentRepository = mock(AppointmentRepository.class);
+        service = new ChangeFeedService();
+        ReflectionTestUtils.setField(service, "changeLogService", changeLogService);
+        ReflectionTestUtils.setField(service, "appointmentRepository", appointmentRepository);
+        ReflectionTestUtils.setField(service, "invoiceRepository", mock(InvoiceRepository.class));
+        ReflectionTestUtils.setField(service, "reviewRepository", mock(ReviewRepository.class));
+        ReflectionTestUtils.setField(service, "defaultLimit", 500);
+        ReflectionTestUtils.setField(service, "maxLimit", 2000);
+    }
+
+    @Test
+    public void getChanges_RowDeletedInPage_IsOnlyTombstone() {
+        record(7L, false);
+        record(7L, true);
+        changeLogService.sequence();
+
+        ChangeSet changes = service.getChanges(null, 0, null);
+
+        assertEquals(2, changes.getSurum());
+        assertEquals(1, changes.getSilinenler().size());
+        DeletedRecord deleted = changes.getSilinenler().get(0);
+        assertEquals("APPOINTMENT", deleted.getTur());
+        assertEquals(7L, deleted.getId());
+        verify(appointmentRepository, never()).findViewsByIdIn(any());
+    }
+
+    @Test
+    public void getChanges_RowChangedAgainAfterDelete_IsLoaded() {
+        record(7L, true);
+        record(7L, false);
+        changeLogService.sequence();
+
+        ChangeSet changes = service.getChanges(null, 0, null);
+
+        assertTrue(changes.getSilinenler().isEmpty());
+        verify(appointmentRepository).findViewsByIdIn(Set.of(7L));
+    }
+
+    @Test
+    public void getChanges_TombstoneOnLaterPage_IsStillSent() {
+        record(7L, false);
+        record(8L, false);
+        record(7L, true);
+        changeLogService.sequence();
+
+        ChangeSet first = service.getChanges(null, 0, 2);
+        ChangeSet second = service.getChanges(null, first.getSurum(), 2);
+
+        assertTrue(first.isDevamVar());
+        assertEquals(2, first.getSurum());
+        assertTrue(first.getSilinenler().isEmpty());
+        assertFalse(second.isDevamVar());
+        assertEquals(3, second.getSurum());
+        assertEquals(List.of(7L), second.getSilinenler().stream().map(DeletedRecord::getId).toList());
+    }
+
+    @Test
+    public void getChanges_BehindPrunedOrAheadOfLast_AsksForReload() {
+        record(7L, false);
+        changeLogService.sequence();
+        ReflectionTestUtils.setField(changeLogService, "retentionDays", -1);
+        changeLogService.purge();
+
+        assertTrue(service.getChanges(null, 0, null).isTamYenileme());
+        assertFalse(service.getChanges(null, 1, null).isTamYenileme());
+        assertTrue(service.getChanges(null, 5, null).isTamYenileme());
+    }
+
+    private void record(Long appointmentId, boolean deleted) {
+        Doctor doctor = new Doctor();
+        doctor.setId(3L);
+        Appointment appointment = new Appointment();
+        appointment.setId(appointmentId);
+        appointment.setDoctor(doctor);
+        changeLogService.record(appointment, deleted);
+    }
+}
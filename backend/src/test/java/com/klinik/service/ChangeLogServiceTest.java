@@ -0,0 +1,124 @@
+package com.klinik.service;
+
+import com.klinik.TestDatabase;
+import com.klinik.model.Appointment;
+import com.klinik.model.Doctor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Numbers change log entries on a migrated H2 database. Uncommitted entries
+ * are written on a connection of their own, as a concurrent writer would.
+ */
+public class ChangeLogServiceTest {
+
+    private TestDatabase database;
+    private JdbcTemplate jdbc;
+    private ChangeLogService service;
+
+    @BeforeEach
+    public void setUp() {
+        database = new TestDatabase();
+        jdbc = database.getJdbcTemplate();
+
+        service = new ChangeLogService();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbc);
+        ReflectionTestUtils.setField(service, "namedParameterJdbcTemplate", database.getNamedParameterJdbcTemplate());
+        ReflectionTestUtils.setField(service, "transactionTemplate", database.getTransactionTemplate());
+        ReflectionTestUtils.setField(service, "retentionDays", 30);
+    }
+
+    @Test
+    public void sequence_NumbersEntriesInCommitOrder() throws Exception {
+        try (Connection slowWriter = database.getDataSource().getConnection()) {
+            slowWriter.setAutoCommit(false);
+            try (PreparedStatement ps = slowWriter.prepareStatement("INSERT INTO change_log " +
+                    "(entity_type, entity_id, silindi, olusturma_tarihi) VALUES ('REVIEW', 1, FALSE, ?)")) {
+                ps.setObject(1, LocalDateTime.now());
+                ps.executeUpdate();
+            }
+            // Written later but committed first
+            service.record(appointment(7L, 3L), false);
+
+            service.sequence();
+
+            assertEquals(1, service.getVersions().getLast());
+            assertEquals(List.of(7L), entityIds(service.findChanges(null, 0, 10)));
+
+            slowWriter.commit();
+        }
+
+        service.sequence();
+
+        List<ChangeLogService.Change> changes = service.findChanges(null, 0, 10);
+        assertEquals(List.of(7L, 1L), entityIds(changes));
+        assertEquals(List.of(1L, 2L), changes.stream().map(ChangeLogService.Change::getVersion).toList());
+        // A client that had read up to version 1 still gets the late entry
+        assertEquals(List.of(1L), entityIds(service.findChanges(null, 1, 10)));
+    }
+
+    @Test
+    public void sequence_NumbersBacklogInSeveralBatches() {
+        for (int i = 0; i < 2500; i++) {
+            service.record(appointment((long) i, 3L), false);
+        }
+
+        service.sequence();
+
+        assertEquals(2500, service.getVersions().getLast());
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM change_log WHERE surum IS NULL", Integer.class));
+    }
+
+    @Test
+    public void delete_IsKeptAsTombstoneOfTheDoctor() {
+        service.record(appointment(7L, 3L), false);
+        service.record(appointment(7L, 3L), true);
+        service.record(appointment(8L, 4L), false);
+        service.sequence();
+
+        List<ChangeLogService.Change> changes = service.findChanges(3L, 0, 10);
+
+        assertEquals(List.of(7L, 7L), entityIds(changes));
+        assertFalse(changes.get(0).isDeleted());
+        assertTrue(changes.get(1).isDeleted());
+        assertEquals(2, service.getDoctorVersion(3L));
+        assertEquals(3, service.getDoctorVersion(4L));
+    }
+
+    @Test
+    public void purge_DropsOldEntriesAndRaisesPrunedVersion() {
+        service.record(appointment(7L, 3L), false);
+        service.record(appointment(8L, 3L), false);
+        service.sequence();
+        jdbc.update("UPDATE change_log SET olusturma_tarihi = ? WHERE entity_id = 7", LocalDateTime.now().minusDays(31));
+
+        service.purge();
+
+        assertEquals(1, service.getVersions().getPruned());
+        assertEquals(List.of(8L), entityIds(service.findChanges(null, 0, 10)));
+    }
+
+    private static Appointment appointment(Long id, Long doctorId) {
+        Doctor doctor = new Doctor();
+        doctor.setId(doctorId);
+        Appointment appointment = new Appointment();
+        appointment.setId(id);
+        appointment.setDoctor(doctor);
+        return appointment;
+    }
+
+    private static List<Long> entityIds(List<ChangeLogService.Change> changes) {
+        return changes.stream().map(ChangeLogService.Change::getEntityId).toList();
+    }
+}
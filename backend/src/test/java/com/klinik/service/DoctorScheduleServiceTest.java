@@ -0,0 +1,77 @@
+package com.klinik.service;
+
+import com.klinik.model.Doctor;
+import com.klinik.repository.DoctorRepository;
+import com.klinik.repository.WorkingHoursRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Loads schedules of doctors that only have the legacy text form, one of
+ * them unreadable.
+ */
+public class DoctorScheduleServiceTest {
+
+    private static final LocalDate MONDAY = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+
+    private DoctorScheduleService service;
+
+    @BeforeEach
+    public void setUp() {
+        Doctor valid = doctor(1L, "Pzt-Cum 09:00-17:00");
+        Doctor invalid = doctor(2L, "hafta içi 9-5");
+
+        DoctorRepository doctorRepository = mock(DoctorRepository.class);
+        when(doctorRepository.findById(1L)).thenReturn(Optional.of(valid));
+        when(doctorRepository.findById(2L)).thenReturn(Optional.of(invalid));
+        when(doctorRepository.findAll()).thenReturn(List.of(valid, invalid));
+
+        WorkingHoursRepository workingHoursRepository = mock(WorkingHoursRepository.class);
+        when(workingHoursRepository.findByDoctorId(anyLong())).thenReturn(List.of());
+        when(workingHoursRepository.findDoctorIds()).thenReturn(List.of());
+
+        service = new DoctorScheduleService();
+        ReflectionTestUtils.setField(service, "doctorRepository", doctorRepository);
+        ReflectionTestUtils.setField(service, "workingHoursRepository", workingHoursRepository);
+    }
+
+    @Test
+    public void legacyText_IsParsed() {
+        WeeklySchedule schedule = service.getSchedule(1L);
+
+        assertTrue(schedule.isBookable(MONDAY, LocalTime.of(9, 0)));
+        assertTrue(schedule.getSlots(MONDAY.plusDays(5)).isEmpty());
+    }
+
+    @Test
+    public void unreadableLegacyText_MakesDoctorUnbookableAndIsReported() {
+        WeeklySchedule schedule = service.getSchedule(2L);
+
+        assertTrue(schedule.getSlots(MONDAY).isEmpty());
+        assertFalse(schedule.isBookable(MONDAY, LocalTime.of(9, 0)));
+        assertEquals(Map.of(2L, "Geçersiz çalışma saatleri: hafta içi 9-5"), service.findInvalidSchedules());
+    }
+
+    private static Doctor doctor(Long id, String calismaSaatleri) {
+        Doctor doctor = new Doctor();
+        doctor.setId(id);
+        doctor.setCalismaSaatleri(calismaSaatleri);
+        return doctor;
+    }
+}
@@ -0,0 +1,208 @@
+package com.klinik.service;
+
+import com.klinik.model.Appointment;
+import com.klinik.model.Doctor;
+import com.klinik.model.Invoice;
+import com.klinik.model.Invoice.InvoiceStatus;
+import com.klinik.repository.InvoiceRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Renders invoice PDFs into a temporary cache directory on a one-thread
+ * pool. Tests that need the pool busy park a task on it until they release
+ * it.
+ */
+public class InvoicePdfServiceTest {
+
+    private static final YearMonth MONTH = YearMonth.of(2030, 3);
+
+    @TempDir
+    Path cacheDir;
+
+    private final InvoiceService invoiceService = mock(InvoiceService.class);
+    private final InvoiceRepository invoiceRepository = mock(InvoiceRepository.class);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private InvoicePdfService service;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        service = new InvoicePdfService();
+        ReflectionTestUtils.setField(service, "invoiceService", invoiceService);
+        ReflectionTestUtils.setField(service, "invoiceRepository", invoiceRepository);
+        ReflectionTestUtils.setField(service, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(service, "threads", 1);
+        ReflectionTestUtils.setField(service, "queueCapacity", 1);
+        ReflectionTestUtils.setField(service, "cacheDir", cacheDir.toString());
+        ReflectionTestUtils.setField(service, "cacheMaxAgeDays", 30);
+        ReflectionTestUtils.setField(service, "renderTimeoutSeconds", 10L);
+        ReflectionTestUtils.setField(service, "zipWindow", 2);
+        service.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        service.shutdown();
+    }
+
+    @Test
+    public void getPdf_SecondRequest_IsServedFromCache() throws Exception {
+        Invoice invoice = invoice(1L, "500.00");
+        when(invoiceService.getInvoiceById(1L)).thenReturn(Optional.of(invoice));
+
+        Path first = service.getPdf(1L);
+        Files.setLastModifiedTime(first, FileTime.from(Instant.now().minus(10, ChronoUnit.DAYS)));
+        Path second = service.getPdf(1L);
+
+        assertEquals(first, second);
+        assertEquals(1, pdfFiles().size());
+        assertTrue(new String(Files.readAllBytes(first), 0, 5).startsWith("%PDF"));
+        // Served again, so it is not expired by its age
+        assertTrue(Files.getLastModifiedTime(second).toInstant().isAfter(Instant.now().minus(1, ChronoUnit.MINUTES)));
+
+        invoice.setTutar(new BigDecimal("650.00"));
+        assertNotEquals(first, service.getPdf(1L));
+        assertEquals(2, pdfFiles().size());
+    }
+
+    @Test
+    public void render_SameInvoiceWhileRendering_IsRenderedOnce() throws Exception {
+        blockPool(false);
+        Invoice invoice = invoice(1L, "500.00");
+        when(invoiceService.getInvoiceById(1L)).thenReturn(Optional.of(invoice));
+        Object document = ReflectionTestUtils.invokeMethod(InvoicePdfService.class, "toDocument", invoice);
+
+        CompletableFuture<?> first = ReflectionTestUtils.invokeMethod(service, "render", document, false);
+        CompletableFuture<?> second = ReflectionTestUtils.invokeMethod(service, "render", document, false);
+
+        assertSame(first, second);
+        assertEquals(1, rendering().size());
+
+        release.countDown();
+        assertEquals(first.get(), service.getPdf(1L));
+        assertEquals(1, pdfFiles().size());
+        assertTrue(rendering().isEmpty());
+    }
+
+    @Test
+    public void getPdf_WithQueueFull_FailsFast() throws Exception {
+        blockPool(true);
+        when(invoiceService.getInvoiceById(1L)).thenReturn(Optional.of(invoice(1L, "500.00")));
+
+        assertThrows(RejectedExecutionException.class, () -> service.getPdf(1L));
+        assertTrue(rendering().isEmpty());
+    }
+
+    @Test
+    public void writeMonthZip_WithQueueFull_RendersOnCallerInInvoiceOrder() throws Exception {
+        blockPool(true);
+        List<Invoice> invoices = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            invoices.add(invoice(id, "10" + id + ".00"));
+        }
+        when(invoiceRepository.findWithAppointmentByTarihBetween(any(), any())).thenReturn(invoices);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.writeMonthZip(MONTH, out);
+
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                names.add(entry.getName());
+                assertTrue(new String(zip.readAllBytes(), 0, 5).startsWith("%PDF"));
+            }
+        }
+        assertEquals(List.of("fatura-1.pdf", "fatura-2.pdf", "fatura-3.pdf", "fatura-4.pdf", "fatura-5.pdf"), names);
+        assertEquals(5, pdfFiles().size());
+    }
+
+    // Parks a task on the only render thread and, if asked, one in the queue
+    private void blockPool(boolean fillQueue) throws InterruptedException {
+        ThreadPoolExecutor pool = (ThreadPoolExecutor) ReflectionTestUtils.getField(service, "pool");
+        CountDownLatch started = new CountDownLatch(1);
+        pool.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        started.await();
+        if (fillQueue) {
+            pool.execute(() -> { });
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, CompletableFuture<Path>> rendering() {
+        return (Map<String, CompletableFuture<Path>>) ReflectionTestUtils.getField(service, "rendering");
+    }
+
+    private List<Path> pdfFiles() throws Exception {
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".pdf")).toList();
+        }
+    }
+
+    private static Invoice invoice(Long id, String tutar) {
+        Doctor doctor = new Doctor();
+        doctor.setId(3L);
+        doctor.setAd("Ali");
+        doctor.setSoyad("Test");
+        doctor.setUzmanlik("Genel");
+        Appointment appointment = new Appointment();
+        appointment.setId(id);
+        appointment.setDoctor(doctor);
+        appointment.setHastaAd("Ayse");
+        appointment.setHastaSoyad("Yilmaz");
+        appointment.setTc("12345678901");
+        appointment.setTarih(LocalDate.of(2030, 3, 4));
+        appointment.setSaat(LocalTime.of(10, 0));
+        appointment.setBolum("Genel");
+        Invoice invoice = new Invoice(appointment, new BigDecimal(tutar), "Muayene");
+        invoice.setId(id);
+        invoice.setTarih(LocalDateTime.of(2030, 3, 4, 11, 0));
+        invoice.setStatus(InvoiceStatus.BEKLEMEDE);
+        return invoice;
+    }
+}
@@ -0,0 +1,124 @@
+package com.klinik.service;
+
+import com.klinik.TestDatabase;
+import com.klinik.model.Appointment;
+import com.klinik.model.Doctor;
+import com.klinik.model.Invoice;
+import com.klinik.model.Invoice.InvoiceStatus;
+import com.klinik.repository.InvoiceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks the revenue rollup delta of every invoice write against a migrated
+ * H2 database. The invoice repository is a mock that hands out the entity
+ * as it is stored in the database.
+ */
+public class InvoiceServiceTest {
+
+    private TestDatabase database;
+    private JdbcTemplate jdbc;
+    private InvoiceRepository invoiceRepository;
+    private InvoiceService service;
+    private long doctorId;
+    private Invoice invoice;
+
+    @BeforeEach
+    public void setUp() {
+        database = new TestDatabase();
+        jdbc = database.getJdbcTemplate();
+
+        RevenueRollupService revenueRollupService = new RevenueRollupService();
+        ReflectionTestUtils.setField(revenueRollupService, "jdbcTemplate", jdbc);
+        ReflectionTestUtils.setField(revenueRollupService, "namedParameterJdbcTemplate",
+                database.getNamedParameterJdbcTemplate());
+
+        invoiceRepository = mock(InvoiceRepository.class);
+        when(invoiceRepository.save(any(Invoice.class))).thenAnswer(inv -> inv.getArgument(0));
+        service = new InvoiceService();
+        ReflectionTestUtils.setField(service, "invoiceRepository", invoiceRepository);
+        ReflectionTestUtils.setField(service, "revenueRollupService", revenueRollupService);
+
+        doctorId = database.insertDoctor("ali@klinik.com", 1);
+        long appointmentId = database.insertAppointment(doctorId, LocalDate.now(), LocalTime.of(10, 0), 1,
+                "TAMAMLANDI");
+        database.insertInvoice(appointmentId, "500.00", "BEKLEMEDE");
+        invoice = storedInvoice(appointmentId);
+        when(invoiceRepository.findByIdForUpdate(invoice.getId())).thenReturn(Optional.of(invoice));
+
+        service.createInvoice(invoice);
+    }
+
+    @Test
+    public void createInvoice_AddsItToItsDayAndStatus() {
+        assertEquals(List.of("BEKLEMEDE 1 500.00"), rollups());
+        assertEquals(0, service.getTotalRevenue().signum());
+    }
+
+    @Test
+    public void updateInvoice_MovesAmountAndStatus() {
+        Invoice details = new Invoice();
+        details.setTutar(new BigDecimal("650.00"));
+        details.setStatus(InvoiceStatus.ODENDI);
+
+        service.updateInvoice(invoice.getId(), details);
+
+        assertEquals(List.of("BEKLEMEDE 0 0.00", "ODENDI 1 650.00"), rollups());
+        assertEquals(new BigDecimal("650.00"), service.getDoctorRevenue(doctorId));
+    }
+
+    @Test
+    public void markAsPaidThenCancelled_MovesInvoiceBetweenStatuses() {
+        service.markAsPaid(invoice.getId());
+        assertEquals(new BigDecimal("500.00"), service.getTotalRevenue());
+
+        service.markAsCancelled(invoice.getId());
+
+        assertEquals(List.of("BEKLEMEDE 0 0.00", "IPTAL_EDILDI 1 500.00", "ODENDI 0 0.00"), rollups());
+        assertEquals(new BigDecimal("0.00"), service.getTotalRevenue());
+    }
+
+    @Test
+    public void deleteInvoice_RemovesIt() {
+        service.deleteInvoice(invoice.getId());
+
+        assertEquals(List.of("BEKLEMEDE 0 0.00"), rollups());
+    }
+
+    private Invoice storedInvoice(long appointmentId) {
+        Doctor doctor = new Doctor();
+        doctor.setId(doctorId);
+        Appointment appointment = new Appointment();
+        appointment.setId(appointmentId);
+        appointment.setDoctor(doctor);
+        return jdbc.queryForObject("SELECT id, tutar, tarih, status FROM invoices WHERE appointment_id = ?",
+                (rs, rowNum) -> {
+                    Invoice stored = new Invoice(appointment, rs.getBigDecimal("tutar"), "Muayene");
+                    stored.setId(rs.getLong("id"));
+                    stored.setTarih(rs.getObject("tarih", LocalDateTime.class));
+                    stored.setStatus(InvoiceStatus.valueOf(rs.getString("status")));
+                    return stored;
+                }, appointmentId);
+    }
+
+    private List<String> rollups() {
+        return jdbc.query("SELECT status, adet, toplam FROM revenue_rollups WHERE doktor_id = ? AND gun = ? " +
+                        "ORDER BY status",
+                (rs, rowNum) -> rs.getString("status") + " " + rs.getInt("adet") + " " + rs.getBigDecimal("toplam"),
+                doctorId, invoice.getTarih().toLocalDate());
+    }
+}
@@ -0,0 +1,338 @@
+package com.klinik.service;
+
+import com.klinik.TestDatabase;
+import com.klinik.model.Appointment;
+import com.klinik.model.Doctor;
+import com.klinik.repository.AppointmentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Books appointments through {@link OutboxService} on a migrated H2 database
+ * and runs {@link OutboxDispatcher} over the recorded events. Appointments are
+ * served to the dispatcher by a stubbed repository. Wake-ups are handed to a
+ * mock scheduler, so tests decide when and on which thread they run.
+ */
+public class OutboxDispatcherTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private TestDatabase database;
+    private JdbcTemplate jdbc;
+    private EmailService emailService;
+    private OutboxDispatcher dispatcher;
+    private OutboxService outboxService;
+    private TaskScheduler taskScheduler;
+    private long doctorId;
+    private final Map<Long, Appointment> appointments = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        database = new TestDatabase();
+        jdbc = database.getJdbcTemplate();
+        doctorId = database.insertDoctor("outbox@klinik.com", 1);
+
+        AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+        when(appointmentRepository.findWithDoctorByIdIn(any())).thenAnswer(invocation ->
+                ((Collection<Long>) invocation.getArgument(0)).stream()
+                        .map(appointments::get).filter(a -> a != null).toList());
+        emailService = mock(EmailService.class);
+
+        AppointmentBatchWriter batchWriter = new AppointmentBatchWriter();
+        ReflectionTestUtils.setField(batchWriter, "jdbcTemplate", jdbc);
+        ReflectionTestUtils.setField(batchWriter, "namedParameterJdbcTemplate", database.getNamedParameterJdbcTemplate());
+        ReflectionTestUtils.setField(batchWriter, "changeLogService", mock(ChangeLogService.class));
+        ReflectionTestUtils.setField(batchWriter, "revenueRollupService", mock(RevenueRollupService.class));
+
+        dispatcher = new OutboxDispatcher();
+        ReflectionTestUtils.setField(dispatcher, "jdbcTemplate", jdbc);
+        ReflectionTestUtils.setField(dispatcher, "namedParameterJdbcTemplate", database.getNamedParameterJdbcTemplate());
+        ReflectionTestUtils.setField(dispatcher, "transactionTemplate", database.getTransactionTemplate());
+        ReflectionTestUtils.setField(dispatcher, "appointmentRepository", appointmentRepository);
+        ReflectionTestUtils.setField(dispatcher, "appointmentBatchWriter", batchWriter);
+        ReflectionTestUtils.setField(dispatcher, "emailService", emailService);
+        taskScheduler = mock(TaskScheduler.class);
+        ReflectionTestUtils.setField(dispatcher, "taskScheduler", taskScheduler);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", MAX_ATTEMPTS);
+        ReflectionTestUtils.setField(dispatcher, "retentionDays", 7);
+
+        outboxService = new OutboxService();
+        ReflectionTestUtils.setField(outboxService, "jdbcTemplate", jdbc);
+        ReflectionTestUtils.setField(outboxService, "namedParameterJdbcTemplate",
+                database.getNamedParameterJdbcTemplate());
+        ReflectionTestUtils.setField(outboxService, "outboxDispatcher", dispatcher);
+    }
+
+    @Test
+    public void dispatch_CreatesInvoicesAndSendsConfirmations() {
+        Appointment withEmail = appointment(LocalTime.of(9, 0), "ayse@example.com");
+        Appointment withoutEmail = appointment(LocalTime.of(9, 30), null);
+        book(withEmail, withoutEmail);
+
+        dispatcher.dispatch();
+
+        assertEquals(2, database.count("invoices"));
+        verify(emailService, times(1)).sendAppointmentConfirmation(eq("ayse@example.com"), anyString(),
+                anyString(), anyString(), anyString());
+        assertEquals(3, countEvents("ISLENDI"));
+    }
+
+    @Test
+    public void redeliveredInvoiceEvent_DoesNotCreateSecondInvoice() {
+        Appointment a = appointment(LocalTime.of(9, 0), null);
+        book(a);
+        dispatcher.dispatch();
+        // At-least-once: the same event comes round again, e.g. after a lost lease
+        jdbc.update("UPDATE outbox_events SET status = 'BEKLIYOR', next_attempt_at = ?", LocalDateTime.now());
+
+        dispatcher.dispatch();
+
+        assertEquals(1, database.count("invoices"));
+        assertEquals(1, countEvents("ISLENDI"));
+    }
+
+    @Test
+    public void poisonEvent_FailsAloneWhileRestOfBatchIsInvoiced() {
+        Appointment good1 = appointment(LocalTime.of(9, 0), null);
+        Appointment poison = appointment(LocalTime.of(9, 30), null);
+        Appointment good2 = appointment(LocalTime.of(10, 0), null);
+        // No price: the invoice insert fails on the NOT NULL tutar column
+        poison.getDoctor().setUcret(null);
+        book(good1, poison, good2);
+
+        dispatcher.dispatch();
+
+        assertEquals(2, database.count("invoices"));
+        assertEquals(2, countEvents("ISLENDI"));
+        Map<String, Object> failed = eventOf(poison.getId());
+        assertEquals("BEKLIYOR", failed.get("status"));
+        assertEquals(1, ((Number) failed.get("attempts")).intValue());
+        assertNotNull(failed.get("last_error"));
+    }
+
+    @Test
+    public void failingEvent_BacksOffExponentiallyThenFails() {
+        Appointment a = appointment(LocalTime.of(9, 0), "ayse@example.com");
+        book(a);
+        jdbc.update("DELETE FROM outbox_events WHERE event_type = 'INVOICE'");
+        doThrow(new RuntimeException("SMTP kapalı")).when(emailService)
+                .sendAppointmentConfirmation(anyString(), anyString(), anyString(), anyString(), anyString());
+
+        dispatcher.dispatch();
+        Duration firstDelay = delayOf(a.getId());
+        makeDue();
+        dispatcher.dispatch();
+        Duration secondDelay = delayOf(a.getId());
+        makeDue();
+        dispatcher.dispatch();
+
+        assertTrue(firstDelay.getSeconds() > 0 && firstDelay.getSeconds() <= 5, () -> "first " + firstDelay);
+        assertTrue(secondDelay.getSeconds() > 5 && secondDelay.getSeconds() <= 10, () -> "second " + secondDelay);
+        Map<String, Object> event = eventOf(a.getId());
+        assertEquals("BASARISIZ", event.get("status"));
+        assertEquals(MAX_ATTEMPTS, ((Number) event.get("attempts")).intValue());
+        assertEquals("SMTP kapalı", event.get("last_error"));
+        verify(emailService, times(MAX_ATTEMPTS)).sendAppointmentConfirmation(anyString(), anyString(),
+                anyString(), anyString(), anyString());
+    }
+
+    @Test
+    public void batchOfCrashedNode_IsClaimedAgainOnlyAfterLease() {
+        Appointment a = appointment(LocalTime.of(9, 0), "ayse@example.com");
+        book(a);
+        jdbc.update("DELETE FROM outbox_events WHERE event_type = 'INVOICE'");
+        // An Error escapes dispatch like a node dying mid-batch, after the lease committed
+        doThrow(new OutOfMemoryError("test")).when(emailService)
+                .sendAppointmentConfirmation(anyString(), anyString(), anyString(), anyString(), anyString());
+        assertThrows(OutOfMemoryError.class, () -> dispatcher.dispatch());
+        Duration lease = delayOf(a.getId());
+
+        doThrow(new AssertionError("leased event sent again")).when(emailService)
+                .sendAppointmentConfirmation(anyString(), anyString(), anyString(), anyString(), anyString());
+        dispatcher.dispatch();
+        assertEquals("BEKLIYOR", eventOf(a.getId()).get("status"));
+
+        makeDue();
+        reset(emailService);
+        dispatcher.dispatch();
+
+        assertTrue(lease.getSeconds() > 200, () -> "lease " + lease);
+        Map<String, Object> event = eventOf(a.getId());
+        assertEquals("ISLENDI", event.get("status"));
+        assertEquals(2, ((Number) event.get("attempts")).intValue());
+        verify(emailService).sendAppointmentConfirmation(eq("ayse@example.com"), anyString(), anyString(),
+                anyString(), anyString());
+    }
+
+    @Test
+    public void cancelledAppointment_GetsNoInvoiceOrConfirmation() {
+        Appointment a = appointment(LocalTime.of(9, 0), "ayse@example.com");
+        book(a);
+        a.setStatus(Appointment.AppointmentStatus.IPTAL_EDILDI);
+
+        dispatcher.dispatch();
+
+        assertEquals(0, database.count("invoices"));
+        verify(emailService, never()).sendAppointmentConfirmation(anyString(), anyString(), anyString(),
+                anyString(), anyString());
+        assertEquals(2, countEvents("ISLENDI"));
+    }
+
+    @Test
+    public void rescheduledAppointments_MailPatientsWithAddressTheirCurrentTime() {
+        Appointment withEmail = appointment(LocalTime.of(9, 0), "ayse@example.com");
+        Appointment withoutEmail = appointment(LocalTime.of(9, 30), null);
+        jdbc.update("UPDATE appointments SET email = ? WHERE id = ?", "ayse@example.com", withEmail.getId());
+
+        outboxService.appointmentsRescheduled(List.of(withEmail.getId(), withoutEmail.getId()));
+        withEmail.setSaat(LocalTime.of(10, 0));
+        dispatcher.dispatch();
+
+        assertEquals(1, database.count("outbox_events"));
+        assertEquals(1, countEvents("ISLENDI"));
+        verify(emailService).sendAppointmentRescheduled(eq("ayse@example.com"), eq("Ayse Yilmaz"), anyString(),
+                eq("03.03.2025"), eq("10:00"));
+        verify(emailService, never()).sendAppointmentConfirmation(anyString(), anyString(), anyString(),
+                anyString(), anyString());
+    }
+
+    @Test
+    public void booking_WakesDispatcherOnlyAfterCommit() {
+        OutboxDispatcher watched = mock(OutboxDispatcher.class);
+        ReflectionTestUtils.setField(outboxService, "outboxDispatcher", watched);
+        Appointment committed = appointment(LocalTime.of(9, 0), null);
+        Appointment rolledBack = appointment(LocalTime.of(9, 30), null);
+
+        database.getTransactionTemplate().executeWithoutResult(status -> {
+            outboxService.appointmentBooked(committed);
+            verify(watched, never()).wakeUp();
+        });
+        verify(watched, times(1)).wakeUp();
+
+        database.getTransactionTemplate().executeWithoutResult(status -> {
+            outboxService.appointmentBooked(rolledBack);
+            status.setRollbackOnly();
+        });
+        verify(watched, times(1)).wakeUp();
+        assertEquals(1, database.count("outbox_events"));
+    }
+
+    @Test
+    public void wakeUp_DispatchesWithoutWaitingForPoll() {
+        Appointment a = appointment(LocalTime.of(9, 0), null);
+        database.getTransactionTemplate().executeWithoutResult(status -> outboxService.appointmentBooked(a));
+
+        ArgumentCaptor<Instant> at = ArgumentCaptor.forClass(Instant.class);
+        lastWakeUp(at).run();
+
+        assertFalse(at.getValue().isAfter(Instant.now()));
+        assertEquals(1, database.count("invoices"));
+    }
+
+    @Test
+    public void wakeUpWhileDispatching_IsTakenOverByRunningDispatch() {
+        Appointment first = appointment(LocalTime.of(9, 0), "ayse@example.com");
+        Appointment second = appointment(LocalTime.of(9, 30), null);
+        book(first);
+        doAnswer(invocation -> {
+            // Booked while the first batch is sent; its wake-up runs on another thread and finds dispatch busy
+            database.getTransactionTemplate().executeWithoutResult(status -> book(second));
+            Thread other = new Thread(lastWakeUp(ArgumentCaptor.forClass(Instant.class)));
+            other.start();
+            other.join();
+            assertEquals(1, database.count("invoices"));
+            return null;
+        }).when(emailService).sendAppointmentConfirmation(anyString(), anyString(), anyString(), anyString(),
+                anyString());
+
+        dispatcher.dispatch();
+
+        assertEquals(2, database.count("invoices"));
+        assertEquals(3, countEvents("ISLENDI"));
+    }
+
+    private Runnable lastWakeUp(ArgumentCaptor<Instant> at) {
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        verify(taskScheduler, atLeastOnce()).schedule(task.capture(), at.capture());
+        return task.getValue();
+    }
+
+    private Appointment appointment(LocalTime saat, String email) {
+        Doctor doctor = new Doctor();
+        doctor.setId(doctorId);
+        doctor.setAd("Ali");
+        doctor.setSoyad("Test");
+        doctor.setUzmanlik("Genel");
+        doctor.setUcret(new BigDecimal("500.00"));
+        LocalDate tarih = LocalDate.of(2025, 3, 3);
+        Appointment a = new Appointment();
+        a.setId(database.insertAppointment(doctorId, tarih, saat, 1, "BEKLEMEDE"));
+        a.setHastaAd("Ayse");
+        a.setHastaSoyad("Yilmaz");
+        a.setDoctor(doctor);
+        a.setTarih(tarih);
+        a.setSaat(saat);
+        a.setEmail(email);
+        appointments.put(a.getId(), a);
+        return a;
+    }
+
+    // Records the events without the after-commit wake-up, so each test drives dispatch itself
+    private void book(Appointment... booked) {
+        outboxService.appointmentsBooked(List.of(booked));
+    }
+
+    private void makeDue() {
+        jdbc.update("UPDATE outbox_events SET next_attempt_at = ?", LocalDateTime.now().minusSeconds(1));
+    }
+
+    private int countEvents(String status) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM outbox_events WHERE status = ?", Integer.class, status);
+    }
+
+    private Map<String, Object> eventOf(long appointmentId) {
+        return jdbc.queryForMap("SELECT * FROM outbox_events WHERE appointment_id = ? ORDER BY id LIMIT 1",
+                appointmentId);
+    }
+
+    private Duration delayOf(long appointmentId) {
+        LocalDateTime next = jdbc.queryForObject(
+                "SELECT next_attempt_at FROM outbox_events WHERE appointment_id = ? ORDER BY id LIMIT 1",
+                LocalDateTime.class, appointmentId);
+        return Duration.between(LocalDateTime.now(), next);
+    }
+}
@@ -0,0 +1,90 @@
+package com.klinik.service;
+
+import com.klinik.TestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Reconciles revenue rollups with live and archived invoices on a migrated
+ * H2 database.
+ */
+public class RevenueReconciliationJobTest {
+
+    private static final LocalDate ARCHIVED_DAY = LocalDate.of(2020, 5, 4);
+
+    private TestDatabase database;
+    private JdbcTemplate jdbc;
+    private RevenueReconciliationJob job;
+    private long doctorId;
+
+    @BeforeEach
+    public void setUp() {
+        database = new TestDatabase();
+        jdbc = database.getJdbcTemplate();
+
+        RevenueRollupService revenueRollupService = new RevenueRollupService();
+        ReflectionTestUtils.setField(revenueRollupService, "jdbcTemplate", jdbc);
+        ReflectionTestUtils.setField(revenueRollupService, "namedParameterJdbcTemplate",
+                database.getNamedParameterJdbcTemplate());
+
+        job = new RevenueReconciliationJob();
+        ReflectionTestUtils.setField(job, "jdbcTemplate", jdbc);
+        ReflectionTestUtils.setField(job, "revenueRollupService", revenueRollupService);
+        ReflectionTestUtils.setField(job, "transactionTemplate", database.getTransactionTemplate());
+        ReflectionTestUtils.setField(job, "transactionManager",
+                database.getTransactionTemplate().getTransactionManager());
+
+        doctorId = database.insertDoctor("ali@klinik.com", 1);
+        long appointmentId = database.insertAppointment(doctorId, LocalDate.now(), LocalTime.of(10, 0), 1,
+                "TAMAMLANDI");
+        database.insertInvoice(appointmentId, "500.00", "ODENDI");
+        jdbc.update("INSERT INTO appointments_archive (id, hasta_ad, hasta_soyad, tc, telefon, doktor_id, tarih, " +
+                "saat, koltuk_no, bolum, status, arsivlenme_tarihi) VALUES (1000, 'Ayse', 'Yilmaz', '12345678901', " +
+                "'5551112233', ?, ?, ?, 1, 'Genel', 'TAMAMLANDI', ?)",
+                doctorId, ARCHIVED_DAY, LocalTime.of(10, 0), LocalDateTime.now());
+        jdbc.update("INSERT INTO invoices_archive (id, appointment_id, tutar, tarih, status) " +
+                "VALUES (1000, 1000, 300.00, ?, 'ODENDI')", ARCHIVED_DAY.atTime(11, 0));
+    }
+
+    @Test
+    public void reconcile_AddsMissingAndRemovesStrayRows() {
+        // Lost the live invoice, kept a deleted one and never had the archived one
+        jdbc.update("INSERT INTO revenue_rollups (doktor_id, gun, status, adet, toplam) VALUES (?, ?, 'ODENDI', 2, 700.00)",
+                doctorId, LocalDate.now());
+        jdbc.update("INSERT INTO revenue_rollups (doktor_id, gun, status, adet, toplam) VALUES (?, ?, 'BEKLEMEDE', 1, 80.00)",
+                doctorId, LocalDate.now());
+
+        assertEquals(3, job.reconcile(doctorId));
+
+        assertEquals(List.of(ARCHIVED_DAY + " ODENDI 1 300.00", LocalDate.now() + " ODENDI 1 500.00"), rollups());
+        assertEquals(0, job.reconcile(doctorId));
+    }
+
+    @Test
+    public void run_LeavesMatchingRollupsAlone() {
+        jdbc.update("INSERT INTO revenue_rollups (doktor_id, gun, status, adet, toplam) VALUES (?, ?, 'ODENDI', 1, 500.00)",
+                doctorId, LocalDate.now());
+        jdbc.update("INSERT INTO revenue_rollups (doktor_id, gun, status, adet, toplam) VALUES (?, ?, 'ODENDI', 1, 300.00)",
+                doctorId, ARCHIVED_DAY);
+
+        job.run();
+
+        assertEquals(List.of(ARCHIVED_DAY + " ODENDI 1 300.00", LocalDate.now() + " ODENDI 1 500.00"), rollups());
+    }
+
+    private List<String> rollups() {
+        return jdbc.query("SELECT gun, status, adet, toplam FROM revenue_rollups WHERE doktor_id = ? ORDER BY gun, status",
+                (rs, rowNum) -> rs.getObject("gun", LocalDate.class) + " " + rs.getString("status") + " "
+                        + rs.getInt("adet") + " " + rs.getBigDecimal("toplam"),
+                doctorId);
+    }
+}
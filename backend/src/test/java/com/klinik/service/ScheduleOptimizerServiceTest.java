@@ -0,0 +1,144 @@
+package com.klinik.service;
+
+import com.klinik.TestDatabase;
+import com.klinik.dto.RescheduleMove;
+import com.klinik.dto.ScheduleProposal;
+import com.klinik.model.Appointment.AppointmentStatus;
+import com.klinik.repository.AppointmentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the gap-compaction search on a single doctor-day with six 30-minute
+ * slots (09:00-12:00) and checks the proposed moves. Applying moves runs
+ * against a migrated H2 database.
+ */
+public class ScheduleOptimizerServiceTest {
+
+    private static final Long DOCTOR_ID = 1L;
+    private static final LocalDate DAY = LocalDate.now().plusDays(7);
+
+    private final List<Object[]> rows = new ArrayList<>();
+
+    private ScheduleOptimizerService service;
+    private TestDatabase database;
+
+    @BeforeEach
+    public void setUp() {
+        AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+        when(appointmentRepository.findSlotRowsByTarihBetween(any(LocalDate.class), any(LocalDate.class)))
+                .thenReturn(rows);
+        database = new TestDatabase();
+        when(appointmentRepository.findSlotsByDoctorIdsAndTarihler(any(), any())).thenAnswer(inv ->
+                database.getJdbcTemplate().query("SELECT doktor_id, tarih, saat, koltuk_no FROM appointments",
+                        (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getObject(2, LocalDate.class),
+                                rs.getObject(3, LocalTime.class), rs.getInt(4)}));
+
+        OutboxService outboxService = new OutboxService();
+        ReflectionTestUtils.setField(outboxService, "namedParameterJdbcTemplate",
+                database.getNamedParameterJdbcTemplate());
+        ReflectionTestUtils.setField(outboxService, "outboxDispatcher", mock(OutboxDispatcher.class));
+
+        DoctorScheduleService doctorScheduleService = mock(DoctorScheduleService.class);
+        when(doctorScheduleService.getSchedule(anyLong()))
+                .thenReturn(WeeklySchedule.of(WorkingHoursParser.parse("09:00-12:00; ogle yok")));
+
+        service = new ScheduleOptimizerService();
+        ReflectionTestUtils.setField(service, "appointmentRepository", appointmentRepository);
+        ReflectionTestUtils.setField(service, "doctorScheduleService", doctorScheduleService);
+        ReflectionTestUtils.setField(service, "slotHoldService", new SlotHoldService());
+        ReflectionTestUtils.setField(service, "changeLogService", mock(ChangeLogService.class));
+        ReflectionTestUtils.setField(service, "outboxService", outboxService);
+        ReflectionTestUtils.setField(service, "bookingLocks", new BookingLocks());
+        ReflectionTestUtils.setField(service, "transactionTemplate", database.getTransactionTemplate());
+        ReflectionTestUtils.setField(service, "jdbcTemplate", database.getJdbcTemplate());
+        ReflectionTestUtils.setField(service, "namedParameterJdbcTemplate", database.getNamedParameterJdbcTemplate());
+        ReflectionTestUtils.setField(service, "eventPublisher", mock(ApplicationEventPublisher.class));
+        ReflectionTestUtils.setField(service, "timeBudgetMs", 5000L);
+        ReflectionTestUtils.setField(service, "parallelism", 2);
+        ReflectionTestUtils.setField(service, "minGapSlots", 2);
+        ReflectionTestUtils.setField(service, "maxDays", 31);
+        service.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    public void alternatingAppointments_OneMoveClosesEveryShortGap() {
+        book(1L, "09:00", AppointmentStatus.BEKLEMEDE);
+        book(2L, "10:00", AppointmentStatus.BEKLEMEDE);
+        book(3L, "11:00", AppointmentStatus.ONAYLANDI);
+
+        ScheduleProposal proposal = service.propose(DAY, DAY);
+
+        assertTrue(proposal.isTamamlandi());
+        assertEquals(3, proposal.getKisaBoslukOncesi());
+        assertEquals(0, proposal.getKisaBoslukSonrasi());
+        assertEquals(1, proposal.getMoves().size());
+        RescheduleMove move = proposal.getMoves().get(0);
+        assertEquals(DOCTOR_ID, move.getDoctorId());
+        assertEquals(DAY, move.getTarih());
+        assertEquals(1, move.getYeniKoltuk());
+    }
+
+    @Test
+    public void completedAppointments_AreNeverMoved() {
+        book(1L, "09:00", AppointmentStatus.TAMAMLANDI);
+        book(2L, "10:00", AppointmentStatus.TAMAMLANDI);
+        book(3L, "11:00", AppointmentStatus.IPTAL_EDILDI);
+
+        ScheduleProposal proposal = service.propose(DAY, DAY);
+
+        assertTrue(proposal.getMoves().isEmpty());
+    }
+
+    @Test
+    public void applyMoves_MovesAndQueuesMailInSameTransaction() {
+        long doctorId = database.insertDoctor("optimizer@klinik.com", 1);
+        long id = database.insertAppointment(doctorId, DAY, LocalTime.of(10, 0), 1, "BEKLEMEDE");
+        database.getJdbcTemplate().update("UPDATE appointments SET email = 'ayse@example.com' WHERE id = ?", id);
+
+        service.applyMoves(List.of(new RescheduleMove(id, doctorId, DAY, LocalTime.of(10, 0), 1,
+                LocalTime.of(9, 0), 1)));
+
+        assertEquals(LocalTime.of(9, 0), database.getJdbcTemplate().queryForObject(
+                "SELECT saat FROM appointments WHERE id = ?", LocalTime.class, id));
+        assertEquals("RESCHEDULE_EMAIL", database.getJdbcTemplate().queryForObject(
+                "SELECT event_type FROM outbox_events WHERE appointment_id = ?", String.class, id));
+    }
+
+    @Test
+    public void applyMoves_StaleProposal_MovesNothingAndQueuesNoMail() {
+        long doctorId = database.insertDoctor("optimizer@klinik.com", 1);
+        long id = database.insertAppointment(doctorId, DAY, LocalTime.of(10, 0), 1, "BEKLEMEDE");
+        database.getJdbcTemplate().update("UPDATE appointments SET email = 'ayse@example.com' WHERE id = ?", id);
+
+        assertThrows(RuntimeException.class, () -> service.applyMoves(List.of(
+                new RescheduleMove(id, doctorId, DAY, LocalTime.of(11, 0), 1, LocalTime.of(9, 0), 1))));
+
+        assertEquals(0, database.count("outbox_events"));
+    }
+
+    private void book(Long id, String saat, AppointmentStatus status) {
+        rows.add(new Object[]{id, DOCTOR_ID, DAY, LocalTime.parse(saat), 1, status});
+    }
+}
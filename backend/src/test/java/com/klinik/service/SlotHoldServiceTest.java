@@ -0,0 +1,162 @@
+package com.klinik.service;
+
+import com.klinik.dto.SlotHold;
+import com.klinik.event.SlotChangedEvent;
+import com.klinik.exception.AppointmentConflictException;
+import com.klinik.repository.AppointmentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Takes holds on a two-chair doctor with no bookings and checks chair
+ * assignment, the per-client limit, wheel expiry and the slot events
+ * published for each of them. Outside Spring nothing schedules the tick;
+ * tests drive the wheel by hand.
+ */
+public class SlotHoldServiceTest {
+
+    private static final Long DOCTOR_ID = 1L;
+    private static final LocalDate TARIH = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+    private static final LocalTime SAAT = LocalTime.of(10, 0);
+
+    private final List<SlotChangedEvent> events = new ArrayList<>();
+    private SlotHoldService service;
+
+    @BeforeEach
+    public void setUp() {
+        DoctorScheduleService doctorScheduleService = mock(DoctorScheduleService.class);
+        when(doctorScheduleService.getSchedule(anyLong()))
+                .thenReturn(WeeklySchedule.of(WorkingHoursParser.parse("09:00-17:00"), 2));
+
+        SlotOccupancyIndex slotOccupancyIndex = new SlotOccupancyIndex();
+        ReflectionTestUtils.setField(slotOccupancyIndex, "appointmentRepository", mock(AppointmentRepository.class));
+
+        ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+        doAnswer(inv -> events.add(inv.getArgument(0))).when(eventPublisher).publishEvent(any(Object.class));
+
+        service = new SlotHoldService();
+        ReflectionTestUtils.setField(service, "slotOccupancyIndex", slotOccupancyIndex);
+        ReflectionTestUtils.setField(service, "doctorScheduleService", doctorScheduleService);
+        ReflectionTestUtils.setField(service, "bookingLocks", new BookingLocks());
+        ReflectionTestUtils.setField(service, "eventPublisher", eventPublisher);
+    }
+
+    @Test
+    public void reserve_HoldsLowestFreeChairUntilFull() {
+        SlotHold first = service.reserve(DOCTOR_ID, TARIH, SAAT, null, "10.0.0.1");
+        SlotHold second = service.reserve(DOCTOR_ID, TARIH, SAAT, null, "10.0.0.2");
+
+        assertEquals(1, service.heldChair(DOCTOR_ID, TARIH, SAAT, first.getToken()));
+        assertEquals(2, service.heldChair(DOCTOR_ID, TARIH, SAAT, second.getToken()));
+        assertEquals(0, service.availableChair(DOCTOR_ID, TARIH, SAAT, null));
+        // The holder's own chair stays available to it
+        assertEquals(1, service.availableChair(DOCTOR_ID, TARIH, SAAT, first.getToken()));
+        assertThrows(AppointmentConflictException.class,
+                () -> service.reserve(DOCTOR_ID, TARIH, SAAT, null, "10.0.0.3"));
+    }
+
+    @Test
+    public void reserveAndRelease_PublishHeldAndReleased() {
+        SlotHold hold = service.reserve(DOCTOR_ID, TARIH, SAAT, null, "10.0.0.1");
+        assertTrue(service.release(hold.getToken()));
+        assertFalse(service.release(hold.getToken()));
+
+        assertEquals(2, events.size());
+        assertEvent(events.get(0), SlotChangedEvent.Type.HELD, 1);
+        assertEvent(events.get(1), SlotChangedEvent.Type.RELEASED, 1);
+    }
+
+    @Test
+    public void reserve_OverClientLimit_IsRejectedUntilOneIsReleased() {
+        List<SlotHold> holds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            holds.add(service.reserve(DOCTOR_ID, TARIH, SAAT.plusMinutes(30 * i), null, "10.0.0.1"));
+        }
+
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> service.reserve(DOCTOR_ID, TARIH, LocalTime.of(14, 0), null, "10.0.0.1"));
+        assertEquals("Aynı anda en fazla 3 saat rezerve edilebilir", e.getMessage());
+        // Another client is not affected
+        service.reserve(DOCTOR_ID, TARIH, LocalTime.of(14, 0), null, "10.0.0.2");
+
+        service.release(holds.get(0).getToken());
+        service.reserve(DOCTOR_ID, TARIH, LocalTime.of(14, 30), null, "10.0.0.1");
+    }
+
+    @Test
+    public void expiredHold_IsNotCountedAndIsEvictedByWheel() throws Exception {
+        SlotHold hold = service.reserve(DOCTOR_ID, TARIH, SAAT, 1, "10.0.0.1");
+        events.clear();
+
+        Thread.sleep(2100);
+
+        // Lookups ignore it before the wheel has come round
+        assertEquals(0, service.heldChair(DOCTOR_ID, TARIH, SAAT, hold.getToken()));
+        assertEquals(1, service.availableChair(DOCTOR_ID, TARIH, SAAT, null));
+        assertTrue(events.isEmpty());
+
+        service.advance();
+
+        assertEquals(0, service.getActiveHoldCount());
+        assertEquals(1, events.size());
+        assertEvent(events.get(0), SlotChangedEvent.Type.RELEASED, 1);
+    }
+
+    @Test
+    public void unexpiredHold_StaysInWheel() {
+        service.reserve(DOCTOR_ID, TARIH, SAAT, 60, "10.0.0.1");
+
+        service.advance();
+
+        assertEquals(1, service.getActiveHoldCount());
+        assertEquals(2, service.availableChair(DOCTOR_ID, TARIH, SAAT, null));
+    }
+
+    @Test
+    public void hold_WithPastDeadline_IsNotTaken() {
+        assertFalse(service.hold(DOCTOR_ID, TARIH, SAAT, "offer", System.currentTimeMillis() - 1));
+
+        assertEquals(0, service.getActiveHoldCount());
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void hold_WithSameToken_MovesHold() {
+        long expiresAt = System.currentTimeMillis() + 60_000;
+        service.hold(DOCTOR_ID, TARIH, SAAT, "offer", expiresAt);
+        service.hold(DOCTOR_ID, TARIH, SAAT.plusHours(1), "offer", expiresAt);
+
+        assertEquals(0, service.heldChair(DOCTOR_ID, TARIH, SAAT, "offer"));
+        assertEquals(1, service.heldChair(DOCTOR_ID, TARIH, SAAT.plusHours(1), "offer"));
+        assertEquals(3, events.size());
+        assertEquals(SlotChangedEvent.Type.RELEASED, events.get(1).getType());
+        assertEquals(SAAT, events.get(1).getSaat());
+    }
+
+    private static void assertEvent(SlotChangedEvent event, SlotChangedEvent.Type type, int chair) {
+        assertEquals(type, event.getType());
+        assertEquals(DOCTOR_ID, event.getDoctorId());
+        assertEquals(TARIH, event.getTarih());
+        assertEquals(SAAT, event.getSaat());
+        assertEquals(chair, event.getKoltukNo());
+    }
+}
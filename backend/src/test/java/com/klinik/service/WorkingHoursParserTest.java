@@ -0,0 +1,77 @@
+package com.klinik.service;
+
+import com.klinik.model.WorkingHours;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Parses the legacy and the segmented {@code calismaSaatleri} forms and
+ * checks that malformed values are rejected rather than guessed.
+ */
+public class WorkingHoursParserTest {
+
+    @Test
+    public void legacyInterval_AppliesToEveryDayWithDefaultLunchAndSlot() {
+        List<WorkingHours> rows = WorkingHoursParser.parse("09:00-17:00");
+
+        assertEquals(7, rows.size());
+        for (WorkingHours row : rows) {
+            assertEquals(LocalTime.of(9, 0), row.getBaslangic());
+            assertEquals(LocalTime.of(17, 0), row.getBitis());
+            assertEquals(LocalTime.of(12, 0), row.getOgleBaslangic());
+            assertEquals(LocalTime.of(14, 0), row.getOgleBitis());
+            assertEquals(30, row.getSlotDakika());
+        }
+    }
+
+    @Test
+    public void blankValue_UsesDefault() {
+        assertEquals(WorkingHoursParser.parse(WorkingHoursParser.DEFAULT_CALISMA_SAATLERI).size(),
+                WorkingHoursParser.parse(" ").size());
+        assertEquals(7, WorkingHoursParser.parse(null).size());
+    }
+
+    @Test
+    public void segments_SetDaysLunchAndSlot() {
+        Map<DayOfWeek, WorkingHours> rows = byDay(WorkingHoursParser.parse(
+                "Pzt-Cum 09:00-17:00; Cmt 10:00-14:00; ogle 12:30-13:30; slot 20"));
+
+        assertEquals(6, rows.size());
+        assertNull(rows.get(DayOfWeek.SUNDAY));
+        assertEquals(LocalTime.of(10, 0), rows.get(DayOfWeek.SATURDAY).getBaslangic());
+        assertEquals(LocalTime.of(12, 30), rows.get(DayOfWeek.WEDNESDAY).getOgleBaslangic());
+        assertEquals(20, rows.get(DayOfWeek.MONDAY).getSlotDakika());
+    }
+
+    @Test
+    public void dayList_AndNoLunch() {
+        Map<DayOfWeek, WorkingHours> rows = byDay(WorkingHoursParser.parse("Pzt,Çar 08:00-12:00; ogle yok"));
+
+        assertEquals(2, rows.size());
+        assertNull(rows.get(DayOfWeek.WEDNESDAY).getOgleBaslangic());
+        assertNull(rows.get(DayOfWeek.WEDNESDAY).getOgleBitis());
+    }
+
+    @Test
+    public void malformedValues_AreRejected() {
+        for (String value : List.of("sabah 9-5", "17:00-09:00", "09:00", "Pzr 09:00-17:00", "Cum-Pzt 09:00-17:00",
+                "09:00-17:00; slot 2", "09:00-17:00; slot on", "ogle yok; slot 30")) {
+            RuntimeException e = assertThrows(RuntimeException.class, () -> WorkingHoursParser.parse(value), value);
+            assertEquals("Geçersiz çalışma saatleri: " + value, e.getMessage());
+        }
+    }
+
+    private static Map<DayOfWeek, WorkingHours> byDay(List<WorkingHours> rows) {
+        return rows.stream().collect(Collectors.toMap(WorkingHours::getGun, Function.identity()));
+    }
+}